@@ -0,0 +1,40 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import java.util.List;
+
+public class CursorPage<T> {
+
+    private List<T> items;
+    private String nextCursor;
+
+    public static <T> CursorPage<T> withItemsAndNextCursor(List<T> items, String nextCursor) {
+        return new CursorPage<>(
+                items,
+                nextCursor
+        );
+    }
+
+    protected CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /*
+     * null on the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public Boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,70 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.ConnectionPoolMetrics;
+import org.neo4j.driver.Driver;
+
+import java.util.Collection;
+import java.util.function.ToLongFunction;
+
+/*
+ * Connection pool metrics of the driver summed over the pools of all servers,
+ * read live from driver.metrics() so the driver has to be built withDriverMetrics.
+ * acquiring is the number of threads waiting for a connection, the first sign of saturation.
+ */
+public class DriverPoolMetricsNeo4j implements DriverPoolMetricsNeo4jMXBean {
+
+    private final Driver driver;
+
+    public static DriverPoolMetricsNeo4j forDriver(Driver driver) {
+        return new DriverPoolMetricsNeo4j(driver);
+    }
+
+    protected DriverPoolMetricsNeo4j(Driver driver) {
+        this.driver = driver;
+    }
+
+    @Override
+    public Integer getInUse() {
+        return (int) sum(ConnectionPoolMetrics::inUse);
+    }
+
+    @Override
+    public Integer getIdle() {
+        return (int) sum(ConnectionPoolMetrics::idle);
+    }
+
+    @Override
+    public Integer getAcquiring() {
+        return (int) sum(ConnectionPoolMetrics::acquiring);
+    }
+
+    @Override
+    public Long getAcquired() {
+        return sum(ConnectionPoolMetrics::acquired);
+    }
+
+    @Override
+    public Long getTotalAcquisitionWaitMillis() {
+        return sum(ConnectionPoolMetrics::totalAcquisitionTime);
+    }
+
+    @Override
+    public Long getAverageAcquisitionWaitMillis() {
+        Long acquired = getAcquired();
+        return acquired == 0 ? 0L : getTotalAcquisitionWaitMillis() / acquired;
+    }
+
+    @Override
+    public Long getNbAcquisitionTimeouts() {
+        return sum(ConnectionPoolMetrics::timedOutToAcquire);
+    }
+
+    private long sum(ToLongFunction<ConnectionPoolMetrics> metric) {
+        Collection<ConnectionPoolMetrics> pools = driver.metrics().connectionPoolMetrics();
+        return pools.stream().mapToLong(metric).sum();
+    }
+}
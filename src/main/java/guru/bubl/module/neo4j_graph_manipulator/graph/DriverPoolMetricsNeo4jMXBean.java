@@ -0,0 +1,22 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+public interface DriverPoolMetricsNeo4jMXBean {
+
+    Integer getInUse();
+
+    Integer getIdle();
+
+    Integer getAcquiring();
+
+    Long getAcquired();
+
+    Long getTotalAcquisitionWaitMillis();
+
+    Long getAverageAcquisitionWaitMillis();
+
+    Long getNbAcquisitionTimeouts();
+}
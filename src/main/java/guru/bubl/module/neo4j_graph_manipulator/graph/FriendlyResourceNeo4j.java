@@ -65,9 +65,17 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
 
     protected Driver driver;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected NodePropertiesScopeNeo4j nodePropertiesScope;
+
+    protected GraphTransactionNeo4j graphTransaction;
+
     public static Boolean haveElementWithUri(URI uri, Driver driver) {
         String query = "MATCH(n:Resource{uri:$uri}) RETURN n.uri as uri";
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             return session.run(
                     query,
                     parameters(
@@ -82,10 +90,12 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
     protected FriendlyResourceNeo4j(
             ImageFactoryNeo4j imageFactory,
             Driver driver,
+            GraphTransactionNeo4j graphTransaction,
             @Assisted URI uri
     ) {
         this.images = imageFactory.forResource(this);
         this.driver = driver;
+        this.graphTransaction = graphTransaction;
         if (StringUtils.isEmpty(uri.toString())) {
             throw new RuntimeException("uri for friendly resource is mandatory");
         }
@@ -96,11 +106,13 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
     protected FriendlyResourceNeo4j(
             ImageFactoryNeo4j imageFactory,
             Driver driver,
+            GraphTransactionNeo4j graphTransaction,
             @Assisted FriendlyResourcePojo pojo
     ) {
 
         this.images = imageFactory.forResource(this);
         this.driver = driver;
+        this.graphTransaction = graphTransaction;
         this.uri = pojo.uri();
         createUsingInitialValues(
                 RestApiUtilsNeo4j.map(
@@ -122,70 +134,61 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
 
     @Override
     public String label() {
-        String query = String.format(
-                "%sRETURN n.label as label",
-                queryPrefix()
-        );
-        try (Session session = driver.session()) {
-            Result rs = session.run(
-                    query,
-                    parameters(
-                            "uri", uri.toString()
-                    )
-            );
-            Record record = rs.single();
-            return record.get("label").asObject() == null ?
-                    "" : record.get("label").asString();
-        }
+        return getProperties().getLabel();
     }
 
     @Override
     public void label(String label) {
-        addUpdateNotifications("label");
         String query = String.format(
                 "%s SET n.label=$label, %s",
                 queryPrefix(),
                 LAST_MODIFICATION_QUERY_PART
         );
-        try (Session session = driver.session()) {
-            session.run(
-                    query,
-                    parameters(
-                            "uri",
-                            uri.toString(),
-                            "label",
-                            label,
-                            "last_modification_date",
-                            new Date().getTime()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("label", () -> {
+            addUpdateNotifications("label");
+            try (Session session = driver.session()) {
+                session.run(
+                        query,
+                        parameters(
+                                "uri",
+                                uri.toString(),
+                                "label",
+                                label,
+                                "last_modification_date",
+                                new Date().getTime()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     public void addUpdateNotifications(String action) {
         if (!lastModificationIsLongEnoughForUpdate()) {
             return;
         }
-        try (Session session = driver.session()) {
-            String query = "MATCH (ge:Resource{copied_from_uri:$uri}) WHERE ge.owner<>$owner " +
-                    "CREATE (n:Resource:Notification { " +
-                    "uri:'/service/users/' + ge.owner + '/notification/' + apoc.create.uuid()," +
-                    "owner: ge.owner," +
-                    "watchUri: $uri," +
-                    "watchLabel : ge.label," +
-                    "rootUri: ge.copied_root_uri," +
-                    "action:$action," +
-                    "creationDate:timestamp()" +
-                    "})  ";
-            session.run(
-                    query,
-                    parameters(
-                            "uri", uri.toString(),
-                            "owner", getOwnerUsername(),
-                            "action", action
-                    )
-            );
-        }
+        graphTransaction.inTransaction("addUpdateNotifications", () -> {
+            try (Session session = driver.session()) {
+                String query = "MATCH (ge:Resource{copied_from_uri:$uri}) WHERE ge.owner<>$owner " +
+                        "CREATE (n:Resource:Notification { " +
+                        "uri:'/service/users/' + ge.owner + '/notification/' + apoc.create.uuid()," +
+                        "owner: ge.owner," +
+                        "watchUri: $uri," +
+                        "watchLabel : ge.label," +
+                        "rootUri: ge.copied_root_uri," +
+                        "action:$action," +
+                        "creationDate:timestamp()" +
+                        "})  ";
+                session.run(
+                        query,
+                        parameters(
+                                "uri", uri.toString(),
+                                "owner", getOwnerUsername(),
+                                "action", action
+                        )
+                );
+            }
+        });
     }
 
     private Boolean lastModificationIsLongEnoughForUpdate() {
@@ -195,7 +198,7 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
 
     @Override
     public Set<Image> images() {
-        return images.get();
+        return getProperties().getImages();
     }
 
     @Override
@@ -205,25 +208,11 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
 
     @Override
     public String comment() {
-        String query = String.format(
-                "%sRETURN n.comment as comment",
-                queryPrefix()
-        );
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    query,
-                    parameters(
-                            "uri", uri.toString()
-                    )
-            ).single();
-            return record.get("comment").asObject() == null ?
-                    "" : record.get("comment").asString();
-        }
+        return getProperties().getComment();
     }
 
     @Override
     public void comment(String comment) {
-        addUpdateNotifications("description");
         String query = String.format(
                 "%sSET n.comment=$comment, %s",
                 queryPrefix(),
@@ -233,16 +222,20 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
                 "comment", comment
         );
         addUpdatedLastModificationDate(props);
-        try (Session session = driver.session()) {
-            session.run(
-                    query,
-                    parameters(
-                            "uri", uri.toString(),
-                            "comment", comment,
-                            "last_modification_date", new Date().getTime()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("comment", () -> {
+            addUpdateNotifications("description");
+            try (Session session = driver.session()) {
+                session.run(
+                        query,
+                        parameters(
+                                "uri", uri.toString(),
+                                "comment", comment,
+                                "last_modification_date", new Date().getTime()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
@@ -255,6 +248,7 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
     @Override
     public void addImages(Set<Image> images) {
         this.images.addAll(images);
+        graphCaches.invalidate(uri);
     }
 
     @Override
@@ -269,15 +263,17 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
         Map<String, Object> creationProps = addCreationProperties(
                 values
         );
-        try (Session session = driver.session()) {
-            session.run(
-                    "CREATE(n:Resource $creationProps)",
-                    parameters(
-                            "creationProps",
-                            creationProps
-                    )
-            );
-        }
+        graphTransaction.inTransaction("createUsingInitialValues", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        "CREATE(n:Resource $creationProps)",
+                        parameters(
+                                "creationProps",
+                                creationProps
+                        )
+                );
+            }
+        });
     }
 
     public FriendlyResourcePojo pojoFromCreationProperties(Map<String, Object> creationProperties) {
@@ -303,86 +299,61 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
 
     @Override
     public void remove() {
-        try (Session session = driver.session()) {
-            session.run(
-                    String.format(
-                            "%s DETACH DELETE n",
-                            queryPrefix()
-                    ),
-                    parameters(
-                            "uri",
-                            uri.toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("remove", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        String.format(
+                                "%s DETACH DELETE n",
+                                queryPrefix()
+                        ),
+                        parameters(
+                                "uri",
+                                uri.toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
     public void setColors(String colors) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.colors=$colors",
-                    parameters(
-                            "uri",
-                            uri().toString(),
-                            "colors",
-                            colors
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setColors", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.colors=$colors",
+                        parameters(
+                                "uri",
+                                uri().toString(),
+                                "colors",
+                                colors
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
     public Date creationDate() {
-        try (Session session = driver.session()) {
-            return new Date(
-                    session.run(
-                            String.format(
-                                    "%s RETURN n.creation_date as creationDate",
-                                    queryPrefix()
-                            ),
-                            parameters(
-                                    "uri",
-                                    uri.toString()
-                            )
-                    ).single().get("creationDate").asLong()
-            );
-        }
-
+        return getProperties().getCreationDate();
     }
 
     @Override
     public Date lastModificationDate() {
-        try (Session session = driver.session()) {
-            return new Date(
-                    session.run(
-                            String.format(
-                                    "%s RETURN n.last_modification_date as lastModificationDate",
-                                    queryPrefix()
-                            ),
-                            parameters(
-                                    "uri",
-                                    uri.toString()
-                            )
-                    ).single().get("lastModificationDate").asLong()
-            );
-        }
+        return getProperties().getLastModificationDate();
     }
 
     @Override
     public String getColors() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.colors as colors",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            return record.get(
-                    "colors"
-            ).asObject() == null ? "" : record.get("colors").asString();
-        }
+        return getProperties().getColors();
+    }
+
+    public NodePropertiesNeo4j getProperties() {
+        return nodePropertiesScope.getOrLoad(
+                uri,
+                () -> NodePropertiesNeo4j.load(uri, driver)
+        );
     }
 
 
@@ -390,17 +361,20 @@ public class FriendlyResourceNeo4j implements FriendlyResourceOperator, Operator
         String query = queryPrefix() +
                 " SET " +
                 LAST_MODIFICATION_QUERY_PART;
-        try (Session session = driver.session()) {
-            session.run(
-                    query,
-                    parameters(
-                            "uri",
-                            uri.toString(),
-                            "last_modification_date",
-                            new Date().getTime()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("updateLastModificationDate", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        query,
+                        parameters(
+                                "uri",
+                                uri.toString(),
+                                "last_modification_date",
+                                new Date().getTime()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
 
@@ -0,0 +1,64 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import com.google.inject.Inject;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.LabelPrefixIndexNeo4j;
+
+import java.net.URI;
+
+/*
+ * The caches of what operators write, extracted subgraphs, label prefixes and node properties.
+ * Operators invalidate the uris they write here, every cache drops them at once.
+ */
+public class GraphCachesNeo4j {
+
+    @Inject
+    private SubGraphCacheNeo4j subGraphCache;
+
+    @Inject
+    private LabelPrefixIndexNeo4j labelPrefixIndex;
+
+    @Inject
+    private NodePropertiesScopeNeo4j nodePropertiesScope;
+
+    public void invalidate(URI... uris) {
+        subGraphCache.invalidate(uris);
+        labelPrefixIndex.invalidate(uris);
+        nodePropertiesScope.invalidate(uris);
+    }
+
+    /*
+     * share levels change the counters of the neighbors too
+     */
+    public void invalidateForShareLevelChange(URI... uris) {
+        subGraphCache.invalidateForShareLevelChange(uris);
+        labelPrefixIndex.invalidateWithNeighbors(uris);
+        nodePropertiesScope.invalidateAll();
+    }
+
+    /*
+     * only autocompletion orders by nb_visits
+     */
+    public void invalidateForNbVisitsChange(URI... uris) {
+        labelPrefixIndex.invalidate(uris);
+    }
+
+    /*
+     * for writes of many uris of an owner, like copies
+     */
+    public void invalidateOwner(String owner, URI... uris) {
+        subGraphCache.invalidate(uris);
+        labelPrefixIndex.invalidateOwner(owner);
+        nodePropertiesScope.invalidate(uris);
+    }
+
+    public void invalidateAll() {
+        subGraphCache.invalidateAll();
+        labelPrefixIndex.invalidateAll();
+        nodePropertiesScope.invalidateAll();
+    }
+}
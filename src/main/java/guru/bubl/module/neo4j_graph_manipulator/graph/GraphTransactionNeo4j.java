@@ -0,0 +1,653 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import com.google.inject.Inject;
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Bookmark;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Metrics;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.reactive.RxSession;
+import org.neo4j.driver.types.TypeSystem;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+ * Unit of work spanning several operator calls.
+ * While inTransaction runs on a thread, sessions opened on the driver returned by getDriver
+ * run their queries in one explicit transaction committed once at the end,
+ * operators keep using driver.session() as they do for autocommit queries.
+ * A unit of work started inside another one joins it, when the joined one fails
+ * the whole unit is rolled back with its error even if the caller catches it.
+ * The outermost unit of work is attempted again as a whole when it fails on a deadlock
+ * or another transient error, as allowed by the retry policy,
+ * so the work has to be safe to run more than once.
+ * Sessions of this driver start from the bookmark of the latest write session
+ * so that reads routed to a replica see the writes done before them.
+ * Each attempt runs in a node properties scope, operators built for the same uri
+ * during the unit of work load its properties once.
+ */
+public class GraphTransactionNeo4j {
+
+    private static final ThreadLocal<Unit> currentUnit = new ThreadLocal<>();
+
+    private final Driver driver;
+    private final Driver transactionAwareDriver;
+    private final WriteRetryPolicyNeo4j retryPolicy;
+    private final Map<String, Counters> countersByName = new ConcurrentHashMap<>();
+    private final AtomicReference<Bookmark> latestBookmark = new AtomicReference<>();
+
+    @Inject
+    private NodePropertiesScopeNeo4j nodePropertiesScope;
+
+    public static GraphTransactionNeo4j usingDriver(Driver driver) {
+        return new GraphTransactionNeo4j(driver, WriteRetryPolicyNeo4j.defaultPolicy());
+    }
+
+    public static GraphTransactionNeo4j usingDriverAndRetryPolicy(Driver driver, WriteRetryPolicyNeo4j retryPolicy) {
+        return new GraphTransactionNeo4j(driver, retryPolicy);
+    }
+
+    protected GraphTransactionNeo4j(Driver driver, WriteRetryPolicyNeo4j retryPolicy) {
+        this.driver = driver;
+        this.retryPolicy = retryPolicy;
+        this.transactionAwareDriver = new TransactionAwareDriver();
+    }
+
+    public Driver getDriver() {
+        return transactionAwareDriver;
+    }
+
+    public Bookmark getLatestBookmark() {
+        return latestBookmark.get();
+    }
+
+    public static Boolean isActive() {
+        return currentUnit.get() != null;
+    }
+
+    /*
+     * Actions that have to be done again once the unit of work is committed,
+     * like cache invalidations that other threads could have undone by reading
+     * the state that was not committed yet. Ignored outside of a unit of work.
+     */
+    public static void repeatAfterCommit(Runnable action) {
+        Unit unit = currentUnit.get();
+        if (unit != null) {
+            unit.afterCommit.add(action);
+        }
+    }
+
+    public Counters getCounters(String name) {
+        return countersByName.computeIfAbsent(
+                name,
+                k -> new Counters()
+        );
+    }
+
+    public Map<String, Counters> getCountersByName() {
+        return countersByName;
+    }
+
+    public void inTransaction(String name, Runnable work) {
+        inTransaction(name, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    /*
+     * name identifies the write in the retry counters
+     */
+    public <T> T inTransaction(String name, Supplier<T> work) {
+        Unit joinedUnit = currentUnit.get();
+        if (joinedUnit != null) {
+            return joinedUnit.join(work);
+        }
+        Integer attempt = 1;
+        while (true) {
+            try {
+                return runUnit(work);
+            } catch (RuntimeException e) {
+                if (nodePropertiesScope != null) {
+                    nodePropertiesScope.invalidateAll();
+                }
+                if (!retryPolicy.isRetryable(e)) {
+                    throw e;
+                }
+                Counters counters = getCounters(name);
+                if (retryPolicy.isDeadlock(e)) {
+                    counters.nbDeadlocks.increment();
+                }
+                if (attempt >= retryPolicy.getMaxAttempts()) {
+                    counters.nbGiveUps.increment();
+                    throw e;
+                }
+                counters.nbRetries.increment();
+                waitBeforeRetry(attempt, e);
+                attempt++;
+            }
+        }
+    }
+
+    private <T> T runUnit(Supplier<T> work) {
+        Unit unit = new Unit(
+                driver.session(bookmarked(SessionConfig.defaultConfig()))
+        );
+        currentUnit.set(unit);
+        T result;
+        try (NodePropertiesScopeNeo4j.Scope scope = openNodePropertiesScope()) {
+            result = work.get();
+            if (unit.rollbackCause != null) {
+                throw unit.rollbackCause;
+            }
+            unit.transaction.commit();
+        } finally {
+            currentUnit.remove();
+            unit.close();
+        }
+        recordBookmark(unit.session);
+        for (Runnable action : unit.afterCommit) {
+            action.run();
+        }
+        return result;
+    }
+
+    private NodePropertiesScopeNeo4j.Scope openNodePropertiesScope() {
+        if (nodePropertiesScope == null) {
+            return () -> {
+            };
+        }
+        return nodePropertiesScope.open();
+    }
+
+    private void waitBeforeRetry(Integer attempt, RuntimeException error) {
+        try {
+            Thread.sleep(
+                    retryPolicy.backoffMillis(attempt)
+            );
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw error;
+        }
+    }
+
+    private SessionConfig bookmarked(SessionConfig config) {
+        Bookmark bookmark = latestBookmark.get();
+        if (bookmark == null) {
+            return config;
+        }
+        List<Bookmark> bookmarks = new ArrayList<>();
+        config.bookmarks().forEach(bookmarks::add);
+        bookmarks.add(bookmark);
+        SessionConfig.Builder builder = SessionConfig.builder()
+                .withDefaultAccessMode(config.defaultAccessMode())
+                .withBookmarks(bookmarks);
+        config.database().ifPresent(builder::withDatabase);
+        return builder.build();
+    }
+
+    /*
+     * The last write session to close wins, a concurrent write can be a transaction
+     * behind but it was not awaited by anyone reading after the latest one.
+     */
+    private void recordBookmark(Session session) {
+        Bookmark bookmark = session.lastBookmark();
+        if (bookmark != null && !bookmark.isEmpty()) {
+            latestBookmark.set(bookmark);
+        }
+    }
+
+    private Session openSession(SessionConfig config) {
+        SessionConfig bookmarkedConfig = bookmarked(config);
+        Session session = driver.session(bookmarkedConfig);
+        if (bookmarkedConfig.defaultAccessMode() == AccessMode.READ) {
+            return session;
+        }
+        return new BookmarkRecordingSession(session);
+    }
+
+    public static class Counters {
+
+        private final LongAdder nbRetries = new LongAdder();
+        private final LongAdder nbDeadlocks = new LongAdder();
+        private final LongAdder nbGiveUps = new LongAdder();
+
+        public Long getNbRetries() {
+            return nbRetries.sum();
+        }
+
+        public Long getNbDeadlocks() {
+            return nbDeadlocks.sum();
+        }
+
+        public Long getNbGiveUps() {
+            return nbGiveUps.sum();
+        }
+    }
+
+    /*
+     * hands out the session of the current unit of work, if any
+     */
+    private class TransactionAwareDriver implements Driver {
+
+        @Override
+        public Session session() {
+            return session(SessionConfig.defaultConfig());
+        }
+
+        @Override
+        public Session session(SessionConfig sessionConfig) {
+            Unit unit = currentUnit.get();
+            return unit == null ? openSession(sessionConfig) : unit.unitSession;
+        }
+
+        @Override
+        public boolean isEncrypted() {
+            return driver.isEncrypted();
+        }
+
+        @Override
+        public RxSession rxSession() {
+            return driver.rxSession();
+        }
+
+        @Override
+        public RxSession rxSession(SessionConfig sessionConfig) {
+            return driver.rxSession(sessionConfig);
+        }
+
+        @Override
+        public AsyncSession asyncSession() {
+            return driver.asyncSession();
+        }
+
+        @Override
+        public AsyncSession asyncSession(SessionConfig sessionConfig) {
+            return driver.asyncSession(sessionConfig);
+        }
+
+        @Override
+        public void close() {
+            driver.close();
+        }
+
+        @Override
+        public CompletionStage<Void> closeAsync() {
+            return driver.closeAsync();
+        }
+
+        @Override
+        public Metrics metrics() {
+            return driver.metrics();
+        }
+
+        @Override
+        public boolean isMetricsEnabled() {
+            return driver.isMetricsEnabled();
+        }
+
+        @Override
+        public TypeSystem defaultTypeSystem() {
+            return driver.defaultTypeSystem();
+        }
+
+        @Override
+        public void verifyConnectivity() {
+            driver.verifyConnectivity();
+        }
+
+        @Override
+        public CompletionStage<Void> verifyConnectivityAsync() {
+            return driver.verifyConnectivityAsync();
+        }
+
+        @Override
+        public boolean supportsMultiDb() {
+            return driver.supportsMultiDb();
+        }
+
+        @Override
+        public CompletionStage<Boolean> supportsMultiDbAsync() {
+            return driver.supportsMultiDbAsync();
+        }
+    }
+
+    /*
+     * write session outside of a unit of work, its bookmark is kept when it closes
+     */
+    private class BookmarkRecordingSession implements Session {
+
+        private final Session session;
+
+        private BookmarkRecordingSession(Session session) {
+            this.session = session;
+        }
+
+        @Override
+        public void close() {
+            session.close();
+            recordBookmark(session);
+        }
+
+        @Override
+        public Transaction beginTransaction() {
+            return session.beginTransaction();
+        }
+
+        @Override
+        public Transaction beginTransaction(TransactionConfig config) {
+            return session.beginTransaction(config);
+        }
+
+        @Override
+        public <T> T readTransaction(TransactionWork<T> work) {
+            return session.readTransaction(work);
+        }
+
+        @Override
+        public <T> T readTransaction(TransactionWork<T> work, TransactionConfig config) {
+            return session.readTransaction(work, config);
+        }
+
+        @Override
+        public <T> T writeTransaction(TransactionWork<T> work) {
+            return session.writeTransaction(work);
+        }
+
+        @Override
+        public <T> T writeTransaction(TransactionWork<T> work, TransactionConfig config) {
+            return session.writeTransaction(work, config);
+        }
+
+        @Override
+        public Result run(String query, TransactionConfig config) {
+            return session.run(query, config);
+        }
+
+        @Override
+        public Result run(String query, Map<String, Object> parameters, TransactionConfig config) {
+            return session.run(query, parameters, config);
+        }
+
+        @Override
+        public Result run(Query query, TransactionConfig config) {
+            return session.run(query, config);
+        }
+
+        @Override
+        public Result run(String query, Value parameters) {
+            return session.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Map<String, Object> parameters) {
+            return session.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Record parameters) {
+            return session.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query) {
+            return session.run(query);
+        }
+
+        @Override
+        public Result run(Query query) {
+            return session.run(query);
+        }
+
+        @Override
+        public Bookmark lastBookmark() {
+            return session.lastBookmark();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void reset() {
+            session.reset();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return session.isOpen();
+        }
+    }
+
+    /*
+     * Inside a unit of work, every way a session runs queries uses the transaction of the unit.
+     * A transaction config is ignored since the unit already started its transaction.
+     * Transactions begun on the session are views of the transaction of the unit,
+     * committing or closing them waits for the unit to commit and rolling them back
+     * rolls back the whole unit.
+     */
+    private static class Unit {
+
+        private final Session session;
+        private final Transaction transaction;
+        private final Session unitSession;
+        private final Transaction joinedTransaction;
+        private final List<Runnable> afterCommit = new ArrayList<>();
+        private RuntimeException rollbackCause;
+
+        private Unit(Session session) {
+            this.session = session;
+            try {
+                this.transaction = session.beginTransaction();
+            } catch (RuntimeException e) {
+                session.close();
+                throw e;
+            }
+            this.unitSession = new UnitSession(this);
+            this.joinedTransaction = new JoinedTransaction(transaction);
+        }
+
+        private <T> T join(Supplier<T> work) {
+            try {
+                return work.get();
+            } catch (RuntimeException e) {
+                if (rollbackCause == null) {
+                    rollbackCause = e;
+                }
+                throw e;
+            }
+        }
+
+        private void close() {
+            try {
+                transaction.close();
+            } finally {
+                session.close();
+            }
+        }
+    }
+
+    private static class UnitSession implements Session {
+
+        private final Unit unit;
+
+        private UnitSession(Unit unit) {
+            this.unit = unit;
+        }
+
+        @Override
+        public Transaction beginTransaction() {
+            return unit.joinedTransaction;
+        }
+
+        @Override
+        public Transaction beginTransaction(TransactionConfig config) {
+            return unit.joinedTransaction;
+        }
+
+        @Override
+        public <T> T readTransaction(TransactionWork<T> work) {
+            return unit.join(() -> work.execute(unit.joinedTransaction));
+        }
+
+        @Override
+        public <T> T readTransaction(TransactionWork<T> work, TransactionConfig config) {
+            return readTransaction(work);
+        }
+
+        @Override
+        public <T> T writeTransaction(TransactionWork<T> work) {
+            return unit.join(() -> work.execute(unit.joinedTransaction));
+        }
+
+        @Override
+        public <T> T writeTransaction(TransactionWork<T> work, TransactionConfig config) {
+            return writeTransaction(work);
+        }
+
+        @Override
+        public Result run(String query, TransactionConfig config) {
+            return unit.transaction.run(query);
+        }
+
+        @Override
+        public Result run(String query, Map<String, Object> parameters, TransactionConfig config) {
+            return unit.transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(Query query, TransactionConfig config) {
+            return unit.transaction.run(query);
+        }
+
+        @Override
+        public Result run(String query, Value parameters) {
+            return unit.transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Map<String, Object> parameters) {
+            return unit.transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Record parameters) {
+            return unit.transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query) {
+            return unit.transaction.run(query);
+        }
+
+        @Override
+        public Result run(Query query) {
+            return unit.transaction.run(query);
+        }
+
+        @Override
+        public Bookmark lastBookmark() {
+            return unit.session.lastBookmark();
+        }
+
+        @Override
+        @SuppressWarnings("deprecation")
+        public void reset() {
+            unit.session.reset();
+        }
+
+        @Override
+        public boolean isOpen() {
+            return unit.transaction.isOpen();
+        }
+
+        /*
+         * the unit closes its session
+         */
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public String toString() {
+            return "session of " + unit.transaction;
+        }
+    }
+
+    private static class JoinedTransaction implements Transaction {
+
+        private final Transaction transaction;
+
+        private JoinedTransaction(Transaction transaction) {
+            this.transaction = transaction;
+        }
+
+        /*
+         * the unit commits once at the end
+         */
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public void rollback() {
+            transaction.rollback();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return transaction.isOpen();
+        }
+
+        @Override
+        public Result run(String query, Value parameters) {
+            return transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Map<String, Object> parameters) {
+            return transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query, Record parameters) {
+            return transaction.run(query, parameters);
+        }
+
+        @Override
+        public Result run(String query) {
+            return transaction.run(query);
+        }
+
+        @Override
+        public Result run(Query query) {
+            return transaction.run(query);
+        }
+
+        @Override
+        public String toString() {
+            return "joined " + transaction;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+public class JmxPoolMetricsReporterNeo4j implements PoolMetricsReporterNeo4j {
+
+    public static final String OBJECT_NAME = "guru.bubl.neo4j:type=DriverConnectionPool";
+
+    private final String objectName;
+
+    public static JmxPoolMetricsReporterNeo4j withDefaultName() {
+        return new JmxPoolMetricsReporterNeo4j(OBJECT_NAME);
+    }
+
+    public static JmxPoolMetricsReporterNeo4j withObjectName(String objectName) {
+        return new JmxPoolMetricsReporterNeo4j(objectName);
+    }
+
+    protected JmxPoolMetricsReporterNeo4j(String objectName) {
+        this.objectName = objectName;
+    }
+
+    @Override
+    public void register(DriverPoolMetricsNeo4j poolMetrics) {
+        MBeansNeo4j.register(
+                poolMetrics,
+                objectName
+        );
+    }
+}
@@ -5,6 +5,8 @@
 package guru.bubl.module.neo4j_graph_manipulator.graph;
 
 import com.google.inject.AbstractModule;
+import com.google.inject.MembersInjector;
+import com.google.inject.Provides;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import guru.bubl.module.model.FriendlyResourceFactory;
 import guru.bubl.module.model.admin.WholeGraphAdmin;
@@ -38,11 +40,14 @@ import guru.bubl.module.model.graph.vertex.VertexOperator;
 import guru.bubl.module.model.notification.NotificationOperator;
 import guru.bubl.module.neo4j_graph_manipulator.graph.admin.WholeGraphAdminNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementOperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementsOperatorFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementsOperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterVisitsBufferNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.export.ExportToMarkdownFactory;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.GraphFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.EdgeOperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphCacheNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.ForkOperatorNeo4J;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.NbNeighborsOperatorNeo4j;
@@ -62,13 +67,18 @@ import guru.bubl.module.neo4j_graph_manipulator.graph.graph.tree_copier.TreeCopi
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexOperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImageFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.AutocompleteQueriesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.GraphSearchModeNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.search.GraphSearchModuleNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.LabelPrefixIndexNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.tag.TagFactoryNeo4J;
 import org.neo4j.driver.AuthTokens;
+import org.neo4j.driver.Config;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.GraphDatabase;
 
 import javax.inject.Singleton;
+import java.util.concurrent.TimeUnit;
 
 public class Neo4jModule extends AbstractModule {
 
@@ -78,34 +88,222 @@ public class Neo4jModule extends AbstractModule {
     public static final String NEO4J_PASSWORD_FOR_TESTS = "proute";
 
     private String dbUser, dbPassword;
-    private Integer boltPort;
+    private String dbUri;
+    private Integer subGraphCacheMaxEntries = 0;
+    private Integer labelPrefixIndexMaxOwners = 0;
+    private Long labelPrefixIndexMaxAgeMillis = 0L;
+    private Long autocompleteCoalescingWindowMillis = 0L;
+    private Long autocompleteTimeoutMillis = AutocompleteQueriesNeo4j.DEFAULT_TIMEOUT_MILLIS;
+    private Long publicResultsTtlMillis = 0L;
+    private Integer publicResultsMaxEntries = 0;
+    private GraphSearchModeNeo4j graphSearchMode = GraphSearchModeNeo4j.SINGLE_PHASE;
+    private Long centerVisitsFlushIntervalMillis = 0L;
+    private Integer centerVisitsMaxPendingUris = 0;
+    private WriteRetryPolicyNeo4j writeRetryPolicy = WriteRetryPolicyNeo4j.defaultPolicy();
+    private Integer maxConnectionPoolSize;
+    private Long connectionAcquisitionTimeoutMillis;
+    private Long maxConnectionLifetimeMillis;
+    private Long idleLivenessCheckMillis;
+    private Long fetchSize;
+    private PoolMetricsReporterNeo4j poolMetricsReporter = JmxPoolMetricsReporterNeo4j.withDefaultName();
+    private Boolean instrumentQueries = true;
+    private Long queryMetricsLogIntervalMillis = 0L;
+    private Long slowQueryThresholdMillis = 0L;
+    private Integer slowQueryCapacity = 0;
+    private String slowQueryFilePath;
+    private Boolean profileSlowQueries = false;
 
     public static Neo4jModule usingEmbedded() {
-        return new Neo4jModule("", "", -1);
+        return new Neo4jModule("", "", null);
     }
 
     public static Neo4jModule withUserPasswordAndPort(String dbUser, String dbPassword, Integer boltPort) {
-        return new Neo4jModule(dbUser, dbPassword, boltPort);
+        return new Neo4jModule(dbUser, dbPassword, "bolt://localhost:" + boltPort);
     }
 
-    protected Neo4jModule(String dbUser, String dbPassword, Integer boltPort) {
+    /*
+     * dbUri can be a neo4j:// routing uri, read sessions then go to read replicas
+     */
+    public static Neo4jModule withUserPasswordAndUri(String dbUser, String dbPassword, String dbUri) {
+        return new Neo4jModule(dbUser, dbPassword, dbUri);
+    }
+
+    protected Neo4jModule(String dbUser, String dbPassword, String dbUri) {
         this.dbUser = dbUser;
         this.dbPassword = dbPassword;
-        this.boltPort = boltPort;
+        this.dbUri = dbUri;
+    }
+
+    public Neo4jModule withSubGraphCacheMaxEntries(Integer subGraphCacheMaxEntries) {
+        this.subGraphCacheMaxEntries = subGraphCacheMaxEntries;
+        return this;
+    }
+
+    /*
+     * autocompletion of the own bubbles and tags of up to maxOwners users is done in memory,
+     * their labels are loaded again after maxAgeMillis
+     */
+    public Neo4jModule withLabelPrefixIndex(Integer maxOwners, Long maxAgeMillis) {
+        this.labelPrefixIndexMaxOwners = maxOwners;
+        this.labelPrefixIndexMaxAgeMillis = maxAgeMillis;
+        return this;
+    }
+
+    /*
+     * by default an async autocompletion query is only shared while it runs
+     */
+    public Neo4jModule withAutocompleteCoalescingWindowMillis(Long autocompleteCoalescingWindowMillis) {
+        this.autocompleteCoalescingWindowMillis = autocompleteCoalescingWindowMillis;
+        return this;
+    }
+
+    /*
+     * the server terminates an autocompletion query after timeoutMillis, cancelled ones included
+     */
+    public Neo4jModule withAutocompleteTimeoutMillis(Long autocompleteTimeoutMillis) {
+        this.autocompleteTimeoutMillis = autocompleteTimeoutMillis;
+        return this;
+    }
+
+    /*
+     * public search and public and pattern center listings are shared by every visitor for ttlMillis
+     */
+    public Neo4jModule withPublicResultsCache(Long ttlMillis, Integer maxEntries) {
+        this.publicResultsTtlMillis = ttlMillis;
+        this.publicResultsMaxEntries = maxEntries;
+        return this;
+    }
+
+    public Neo4jModule withGraphSearchMode(GraphSearchModeNeo4j graphSearchMode) {
+        this.graphSearchMode = graphSearchMode;
+        return this;
+    }
+
+    public Neo4jModule withCenterVisitsWriteBehind(Long flushIntervalMillis, Integer maxPendingUris) {
+        this.centerVisitsFlushIntervalMillis = flushIntervalMillis;
+        this.centerVisitsMaxPendingUris = maxPendingUris;
+        return this;
+    }
+
+    public Neo4jModule withWriteRetryPolicy(Integer maxAttempts, Long initialBackoffMillis, Long maxBackoffMillis) {
+        this.writeRetryPolicy = WriteRetryPolicyNeo4j.withMaxAttemptsAndBackoff(
+                maxAttempts,
+                initialBackoffMillis,
+                maxBackoffMillis
+        );
+        return this;
+    }
+
+    /*
+     * null keeps the driver default
+     */
+    public Neo4jModule withConnectionPool(Integer maxConnectionPoolSize, Long connectionAcquisitionTimeoutMillis, Long maxConnectionLifetimeMillis) {
+        this.maxConnectionPoolSize = maxConnectionPoolSize;
+        this.connectionAcquisitionTimeoutMillis = connectionAcquisitionTimeoutMillis;
+        this.maxConnectionLifetimeMillis = maxConnectionLifetimeMillis;
+        return this;
+    }
+
+    /*
+     * connections idle for longer are tested before being handed out
+     */
+    public Neo4jModule withIdleLivenessCheckMillis(Long idleLivenessCheckMillis) {
+        this.idleLivenessCheckMillis = idleLivenessCheckMillis;
+        return this;
+    }
+
+    public Neo4jModule withFetchSize(Long fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    public Neo4jModule withPoolMetricsReporter(PoolMetricsReporterNeo4j poolMetricsReporter) {
+        this.poolMetricsReporter = poolMetricsReporter;
+        return this;
+    }
+
+    public Neo4jModule withQueryMetricsLogIntervalMillis(Long queryMetricsLogIntervalMillis) {
+        this.queryMetricsLogIntervalMillis = queryMetricsLogIntervalMillis;
+        return this;
+    }
+
+    /*
+     * filePath can be null to only keep the captures in memory
+     */
+    public Neo4jModule withSlowQueryCapture(Long thresholdMillis, Integer capacity, String filePath, Boolean profileSlowQueries) {
+        this.slowQueryThresholdMillis = thresholdMillis;
+        this.slowQueryCapacity = capacity;
+        this.slowQueryFilePath = filePath;
+        this.profileSlowQueries = profileSlowQueries;
+        return this;
+    }
+
+    public Neo4jModule withoutQueryMetrics() {
+        this.instrumentQueries = false;
+        return this;
     }
 
     @Override
     protected void configure() {
-        if (boltPort > -1) {
+        CenterVisitsBufferNeo4j centerVisitsBuffer = centerVisitsFlushIntervalMillis > 0 ?
+                CenterVisitsBufferNeo4j.withFlushIntervalAndMaxPendingUris(
+                        centerVisitsFlushIntervalMillis,
+                        centerVisitsMaxPendingUris
+                ) :
+                CenterVisitsBufferNeo4j.disabled();
+        bind(CenterVisitsBufferNeo4j.class).toInstance(
+                centerVisitsBuffer
+        );
+        if (dbUri != null) {
             Driver driver = GraphDatabase.driver(
-                    "bolt://localhost:" + this.boltPort,
-                    AuthTokens.basic(this.dbUser, this.dbPassword)
+                    this.dbUri,
+                    AuthTokens.basic(this.dbUser, this.dbPassword),
+                    buildDriverConfig()
+            );
+            DriverPoolMetricsNeo4j poolMetrics = DriverPoolMetricsNeo4j.forDriver(driver);
+            bind(DriverPoolMetricsNeo4j.class).toInstance(
+                    poolMetrics
             );
-            bind(Driver.class).toInstance(
-                    driver
+            poolMetricsReporter.register(poolMetrics);
+            bind(Driver.class).annotatedWith(DatabaseDriverNeo4j.class).toInstance(
+                    instrumentQueries ? instrumentQueries(driver) : driver
             );
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                centerVisitsBuffer.close();
+                driver.close();
+            }));
         }
 
+        bind(SubGraphCacheNeo4j.class).toInstance(
+                subGraphCacheMaxEntries > 0 ?
+                        SubGraphCacheNeo4j.withMaxEntries(subGraphCacheMaxEntries) :
+                        SubGraphCacheNeo4j.disabled()
+        );
+
+        bind(LabelPrefixIndexNeo4j.class).toInstance(
+                labelPrefixIndexMaxOwners > 0 ?
+                        LabelPrefixIndexNeo4j.withMaxOwnersAndMaxAge(labelPrefixIndexMaxOwners, labelPrefixIndexMaxAgeMillis) :
+                        LabelPrefixIndexNeo4j.disabled()
+        );
+
+        bind(AutocompleteQueriesNeo4j.class).toInstance(
+                AutocompleteQueriesNeo4j.withCoalescingWindowAndTimeoutMillis(
+                        autocompleteCoalescingWindowMillis,
+                        autocompleteTimeoutMillis
+                )
+        );
+
+        bind(PublicResultsCacheNeo4j.class).toInstance(
+                publicResultsTtlMillis > 0 && publicResultsMaxEntries > 0 ?
+                        PublicResultsCacheNeo4j.withTtlAndMaxEntries(publicResultsTtlMillis, publicResultsMaxEntries) :
+                        PublicResultsCacheNeo4j.disabled()
+        );
+
+        bind(NodePropertiesScopeNeo4j.class).in(Singleton.class);
+
+        bind(GraphSearchModeNeo4j.class).toInstance(
+                graphSearchMode
+        );
         install(new GraphSearchModuleNeo4j());
 
         bind(WholeGraphAdmin.class).to(WholeGraphAdminNeo4j.class);
@@ -115,6 +313,9 @@ public class Neo4jModule extends AbstractModule {
                 .implement(CenteredGraphElementsOperator.class, CenterGraphElementsOperatorNeo4j.class)
                 .build(CenterGraphElementsOperatorFactory.class));
 
+        install(factoryModuleBuilder
+                .build(CenterGraphElementsOperatorFactoryNeo4j.class));
+
         install(factoryModuleBuilder
                 .implement(CenterGraphElementOperator.class, CenterGraphElementOperatorNeo4j.class)
                 .build(CenterGraphElementOperatorFactory.class));
@@ -206,4 +407,68 @@ public class Neo4jModule extends AbstractModule {
         bind(NotificationOperator.class).to(NotificationOperatorNeo4j.class).in(Singleton.class);
     }
 
+    /*
+     * the database driver is bound by this module or, for the embedded database, by the tests module
+     */
+    @Provides
+    @Singleton
+    GraphTransactionNeo4j graphTransaction(@DatabaseDriverNeo4j Driver databaseDriver, MembersInjector<GraphTransactionNeo4j> membersInjector) {
+        GraphTransactionNeo4j graphTransaction = GraphTransactionNeo4j.usingDriverAndRetryPolicy(
+                databaseDriver,
+                writeRetryPolicy
+        );
+        membersInjector.injectMembers(graphTransaction);
+        return graphTransaction;
+    }
+
+    @Provides
+    @Singleton
+    Driver driver(GraphTransactionNeo4j graphTransaction) {
+        return graphTransaction.getDriver();
+    }
+
+    private Driver instrumentQueries(Driver driver) {
+        QueryMetricsNeo4j queryMetrics = QueryMetricsNeo4j.create();
+        queryMetrics.registerMBean();
+        if (queryMetricsLogIntervalMillis > 0) {
+            queryMetrics.startLogging(queryMetricsLogIntervalMillis);
+        }
+        if (slowQueryThresholdMillis > 0) {
+            SlowQueryLogNeo4j slowQueryLog = SlowQueryLogNeo4j.withThresholdCapacityFileAndProfiles(
+                    slowQueryThresholdMillis,
+                    slowQueryCapacity,
+                    slowQueryFilePath,
+                    profileSlowQueries ? driver : null
+            );
+            slowQueryLog.registerMBean();
+            bind(SlowQueryLogNeo4j.class).toInstance(
+                    slowQueryLog
+            );
+            queryMetrics.withSlowQueryLog(slowQueryLog);
+        }
+        bind(QueryMetricsNeo4j.class).toInstance(
+                queryMetrics
+        );
+        return queryMetrics.instrument(driver);
+    }
+
+    private Config buildDriverConfig() {
+        Config.ConfigBuilder config = Config.builder().withDriverMetrics();
+        if (maxConnectionPoolSize != null) {
+            config.withMaxConnectionPoolSize(maxConnectionPoolSize);
+        }
+        if (connectionAcquisitionTimeoutMillis != null) {
+            config.withConnectionAcquisitionTimeout(connectionAcquisitionTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        if (maxConnectionLifetimeMillis != null) {
+            config.withMaxConnectionLifetime(maxConnectionLifetimeMillis, TimeUnit.MILLISECONDS);
+        }
+        if (idleLivenessCheckMillis != null) {
+            config.withConnectionLivenessCheckTimeout(idleLivenessCheckMillis, TimeUnit.MILLISECONDS);
+        }
+        if (fetchSize != null) {
+            config.withFetchSize(fetchSize);
+        }
+        return config.build();
+    }
 }
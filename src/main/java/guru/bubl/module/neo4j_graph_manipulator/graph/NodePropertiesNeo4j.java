@@ -0,0 +1,116 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import guru.bubl.module.model.Image;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.json.ImageJson;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Every property of a node read in a single query.
+ */
+public class NodePropertiesNeo4j {
+
+    private Map<String, Object> properties;
+    private Boolean isPattern;
+
+    public static NodePropertiesNeo4j load(URI uri, Driver driver) {
+        try (Session session = SessionsNeo4j.read(driver)) {
+            Record record = session.run(
+                    "MATCH(n:Resource{uri:$uri}) RETURN properties(n) as properties, 'Pattern' IN LABELS(n) as isPattern",
+                    parameters(
+                            "uri", uri.toString()
+                    )
+            ).single();
+            return new NodePropertiesNeo4j(
+                    record.get("properties").asMap(),
+                    record.get("isPattern").asBoolean()
+            );
+        }
+    }
+
+    protected NodePropertiesNeo4j(Map<String, Object> properties, Boolean isPattern) {
+        this.properties = properties;
+        this.isPattern = isPattern;
+    }
+
+    public String getLabel() {
+        return stringOrEmpty(FriendlyResourceNeo4j.props.label.name());
+    }
+
+    public String getComment() {
+        return stringOrEmpty(FriendlyResourceNeo4j.props.comment.name());
+    }
+
+    public Set<Image> getImages() {
+        Object images = properties.get("images");
+        return images == null ? new HashSet<>() : ImageJson.fromJson(images.toString());
+    }
+
+    public Date getCreationDate() {
+        return new Date(
+                (Long) properties.get(FriendlyResourceNeo4j.props.creation_date.name())
+        );
+    }
+
+    public Date getLastModificationDate() {
+        return new Date(
+                (Long) properties.get(FriendlyResourceNeo4j.props.last_modification_date.name())
+        );
+    }
+
+    public String getColors() {
+        return stringOrEmpty("colors");
+    }
+
+    public String getFont() {
+        return stringOrEmpty("font");
+    }
+
+    public String getChildrenIndex() {
+        return stringOrEmpty("childrenIndexes");
+    }
+
+    public String getPrivateContext() {
+        return stringOrEmpty("private_context");
+    }
+
+    public URI getCopiedFromUri() {
+        Object copiedFromUri = properties.get("copied_from_uri");
+        return copiedFromUri == null ? null : URI.create(copiedFromUri.toString());
+    }
+
+    public ShareLevel getShareLevel() {
+        Object shareLevel = properties.get("shareLevel");
+        return shareLevel == null ? ShareLevel.PRIVATE : ShareLevel.get(
+                ((Long) shareLevel).intValue()
+        );
+    }
+
+    public Boolean isUnderPattern() {
+        Object isUnderPattern = properties.get("isUnderPattern");
+        return isUnderPattern != null && (Boolean) isUnderPattern;
+    }
+
+    public Boolean isPattern() {
+        return isPattern;
+    }
+
+    private String stringOrEmpty(String key) {
+        Object value = properties.get(key);
+        return value == null ? "" : value.toString();
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/*
+ * While a scope is open on a thread, for the duration of a request or of a unit of work,
+ * the properties of a node are loaded once and shared by every operator built for its uri.
+ * Operators invalidate them in their setters. Writes done with other queries are not seen
+ * until the scope is closed, so scopes are meant for read mostly code paths.
+ * Outside of a scope properties are read from the database on every call.
+ */
+public class NodePropertiesScopeNeo4j {
+
+    private final ThreadLocal<Map<URI, NodePropertiesNeo4j>> snapshots = new ThreadLocal<>();
+
+    public Scope open() {
+        if (snapshots.get() != null) {
+            return () -> {
+            };
+        }
+        snapshots.set(new HashMap<>());
+        return snapshots::remove;
+    }
+
+    public Boolean isOpen() {
+        return snapshots.get() != null;
+    }
+
+    public NodePropertiesNeo4j getOrLoad(URI uri, Supplier<NodePropertiesNeo4j> loader) {
+        Map<URI, NodePropertiesNeo4j> snapshotsOfScope = snapshots.get();
+        if (snapshotsOfScope == null) {
+            return loader.get();
+        }
+        return snapshotsOfScope.computeIfAbsent(
+                uri,
+                k -> loader.get()
+        );
+    }
+
+    public void invalidate(URI... uris) {
+        Map<URI, NodePropertiesNeo4j> snapshotsOfScope = snapshots.get();
+        if (snapshotsOfScope == null) {
+            return;
+        }
+        for (URI uri : uris) {
+            snapshotsOfScope.remove(uri);
+        }
+    }
+
+    public void invalidateAll() {
+        Map<URI, NodePropertiesNeo4j> snapshotsOfScope = snapshots.get();
+        if (snapshotsOfScope != null) {
+            snapshotsOfScope.clear();
+        }
+    }
+
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
@@ -13,11 +13,14 @@ import java.util.Map;
 
 public interface OperatorNeo4j {
     default String queryPrefix() {
-        return String.format(
-                "MATCH%s ",
-                addToSelectUsingVariableName(
-                        "n",
-                        "uri"
+        return QueryTemplatesNeo4j.template(
+                "queryPrefix",
+                () -> String.format(
+                        "MATCH%s ",
+                        addToSelectUsingVariableName(
+                                "n",
+                                "uri"
+                        )
                 )
         );
     }
@@ -0,0 +1,13 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+/*
+ * Publishes the connection pool metrics of the driver, JmxPoolMetricsReporterNeo4j by default.
+ */
+public interface PoolMetricsReporterNeo4j {
+
+    void register(DriverPoolMetricsNeo4j poolMetrics);
+}
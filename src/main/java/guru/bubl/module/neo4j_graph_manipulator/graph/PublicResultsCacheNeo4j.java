@@ -0,0 +1,156 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import guru.bubl.module.model.graph.ShareLevel;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/*
+ * Bounded LRU cache with a time to live for results that are the same for every visitor,
+ * like the public search and the public and pattern center listings, keyed by term or page.
+ * Loading is single flight, callers asking for a key being loaded wait for that load
+ * instead of running the same query. Every entry is dropped when a bubble enters or leaves
+ * the public share level since any public result can contain it.
+ * Cached values are shared between callers, so callers cache immutable values like
+ * driver records and build their own results from them on every call.
+ */
+public class PublicResultsCacheNeo4j {
+
+    private final Long ttlMillis;
+    private final Integer maxEntries;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<String, CompletableFuture<Object>> loads = new HashMap<>();
+
+    private final AtomicLong nbHits = new AtomicLong();
+    private final AtomicLong nbMisses = new AtomicLong();
+
+    private long nbInvalidations = 0;
+
+    public static PublicResultsCacheNeo4j disabled() {
+        return new PublicResultsCacheNeo4j(0L, 0);
+    }
+
+    public static PublicResultsCacheNeo4j withTtlAndMaxEntries(Long ttlMillis, Integer maxEntries) {
+        return new PublicResultsCacheNeo4j(ttlMillis, maxEntries);
+    }
+
+    protected PublicResultsCacheNeo4j(Long ttlMillis, Integer maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > PublicResultsCacheNeo4j.this.maxEntries;
+            }
+        };
+    }
+
+    public Boolean isEnabled() {
+        return maxEntries > 0 && ttlMillis > 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader) {
+        if (!isEnabled()) {
+            return loader.get();
+        }
+        CompletableFuture<Object> load;
+        Boolean isLoader = false;
+        long nbInvalidationsBeforeLoad;
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+                nbHits.incrementAndGet();
+                return (T) entry.value;
+            }
+            load = loads.get(key);
+            if (load == null) {
+                load = new CompletableFuture<>();
+                loads.put(key, load);
+                isLoader = true;
+            }
+            nbInvalidationsBeforeLoad = nbInvalidations;
+        }
+        if (!isLoader) {
+            nbHits.incrementAndGet();
+            try {
+                return (T) load.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException ?
+                        (RuntimeException) e.getCause() :
+                        e;
+            }
+        }
+        nbMisses.incrementAndGet();
+        T value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loads.remove(key);
+            }
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            loads.remove(key);
+            if (nbInvalidationsBeforeLoad == nbInvalidations) {
+                entries.put(key, new Entry(
+                        value,
+                        System.currentTimeMillis() + ttlMillis
+                ));
+            }
+        }
+        load.complete(value);
+        return value;
+    }
+
+    public void invalidateAll() {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            nbInvalidations++;
+            entries.clear();
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(this::invalidateAll);
+    }
+
+    public void invalidateIfPublicIsCrossed(ShareLevel shareLevel, ShareLevel previousShareLevel) {
+        if ((shareLevel == ShareLevel.PUBLIC) != (previousShareLevel == ShareLevel.PUBLIC)) {
+            invalidateAll();
+        }
+    }
+
+    public Long getNbHits() {
+        return nbHits.get();
+    }
+
+    public Long getNbMisses() {
+        return nbMisses.get();
+    }
+
+    public synchronized Integer size() {
+        return entries.size();
+    }
+
+    private static class Entry {
+        private final Object value;
+        private final Long expiresAt;
+
+        private Entry(Object value, Long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
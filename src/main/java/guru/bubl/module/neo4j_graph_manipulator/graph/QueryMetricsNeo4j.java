@@ -0,0 +1,624 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.TransactionWork;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.async.AsyncTransactionWork;
+import org.neo4j.driver.async.ResultCursor;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+/*
+ * Times every query run on an instrumented driver, in sessions, async sessions and their
+ * transactions, including the transactions handed to read and write transaction work.
+ * Queries are grouped by template id, the name of the QueryTemplatesNeo4j template that built
+ * the text or else the class and method of the operator that ran it, so that ids
+ * do not depend on the text nor move with the lines of the file.
+ * Queries of a method that runs more than one are grouped unless they are named templates.
+ * A query is recorded once its result is consumed, or when its session or transaction ends,
+ * queries over the threshold of the slow query log are also captured there.
+ */
+public class QueryMetricsNeo4j implements QueryMetricsNeo4jMXBean {
+
+    public static final String OBJECT_NAME = "guru.bubl.neo4j:type=QueryMetrics";
+
+    private static final Integer MAX_CACHED_QUERY_TEXTS = 10000;
+
+    private static final Logger logger = Logger.getLogger(QueryMetricsNeo4j.class.getName());
+
+    private final Map<String, QueryStatsNeo4j> statsByTemplateId = new ConcurrentHashMap<>();
+    private final Map<String, String> templateIdsOfQueries = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService logScheduler;
+    private SlowQueryLogNeo4j slowQueryLog;
+
+    public static QueryMetricsNeo4j create() {
+        return new QueryMetricsNeo4j();
+    }
+
+    protected QueryMetricsNeo4j() {
+    }
+
+    public Driver instrument(Driver driver) {
+        return (Driver) Proxy.newProxyInstance(
+                Driver.class.getClassLoader(),
+                new Class[]{Driver.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, driver, args);
+                    switch (method.getName()) {
+                        case "session":
+                            return instrumented(Session.class, new QueryRunnerHandler(result));
+                        case "asyncSession":
+                            return instrumented(AsyncSession.class, new AsyncQueryRunnerHandler(result));
+                        default:
+                            return result;
+                    }
+                }
+        );
+    }
+
+    public QueryMetricsNeo4j withSlowQueryLog(SlowQueryLogNeo4j slowQueryLog) {
+        this.slowQueryLog = slowQueryLog;
+        return this;
+    }
+
+    public void registerMBean() {
+        MBeansNeo4j.register(
+                this,
+                OBJECT_NAME
+        );
+    }
+
+    public synchronized void startLogging(Long intervalMillis) {
+        if (logScheduler != null) {
+            return;
+        }
+        logScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "query-metrics-log");
+            thread.setDaemon(true);
+            return thread;
+        });
+        logScheduler.scheduleWithFixedDelay(
+                () -> logger.info(
+                        "query metrics\n" + String.join("\n", getSnapshot())
+                ),
+                intervalMillis,
+                intervalMillis,
+                TimeUnit.MILLISECONDS
+        );
+    }
+
+    public QueryStatsNeo4j getStats(String templateId) {
+        return statsByTemplateId.computeIfAbsent(
+                templateId,
+                k -> new QueryStatsNeo4j()
+        );
+    }
+
+    public Map<String, QueryStatsNeo4j> getStatsByTemplateId() {
+        return statsByTemplateId;
+    }
+
+    @Override
+    public Long getNbQueries() {
+        return statsByTemplateId.values().stream().mapToLong(QueryStatsNeo4j::getNbQueries).sum();
+    }
+
+    @Override
+    public Long getTotalMillis() {
+        return statsByTemplateId.values().stream().mapToLong(QueryStatsNeo4j::getTotalMillis).sum();
+    }
+
+    /*
+     * one line per template, the most time consuming first
+     */
+    @Override
+    public String[] getSnapshot() {
+        List<Map.Entry<String, QueryStatsNeo4j>> entries = new ArrayList<>(statsByTemplateId.entrySet());
+        entries.sort(
+                Comparator.comparing(
+                        (Map.Entry<String, QueryStatsNeo4j> entry) -> entry.getValue().getTotalMillis()
+                ).reversed()
+        );
+        String[] lines = new String[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            lines[i] = entries.get(i).getValue().toSnapshotLine(
+                    entries.get(i).getKey()
+            );
+        }
+        return lines;
+    }
+
+    @Override
+    public void reset() {
+        statsByTemplateId.clear();
+    }
+
+    public String templateIdOf(String query) {
+        String templateId = templateIdsOfQueries.get(query);
+        if (templateId != null) {
+            return templateId;
+        }
+        templateId = QueryTemplatesNeo4j.nameOf(query);
+        if (templateId == null) {
+            templateId = callerOfQuery();
+        }
+        if (templateIdsOfQueries.size() < MAX_CACHED_QUERY_TEXTS) {
+            templateIdsOfQueries.put(query, templateId);
+        }
+        return templateId;
+    }
+
+    private static String callerOfQuery() {
+        for (StackTraceElement element : new Throwable().getStackTrace()) {
+            String className = element.getClassName();
+            if (!className.startsWith("guru.bubl") ||
+                    className.startsWith(QueryMetricsNeo4j.class.getName()) ||
+                    className.startsWith(GraphTransactionNeo4j.class.getName()) ||
+                    className.startsWith(SessionsNeo4j.class.getName())) {
+                continue;
+            }
+            String methodName = element.getMethodName();
+            if (methodName.startsWith("lambda$")) {
+                methodName = methodName.split("\\$")[1];
+            }
+            return className.substring(className.lastIndexOf('.') + 1) + "." + methodName;
+        }
+        return "unknown";
+    }
+
+    private static <T> T instrumented(Class<T> instrumentedClass, InvocationHandler handler) {
+        return instrumentedClass.cast(Proxy.newProxyInstance(
+                instrumentedClass.getClassLoader(),
+                new Class[]{instrumentedClass},
+                handler
+        ));
+    }
+
+    private static String queryOf(Object[] args) {
+        return args[0] instanceof String ?
+                (String) args[0] :
+                ((Query) args[0]).text();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> parametersOf(Object[] args) {
+        if (args[0] instanceof Query) {
+            return ((Query) args[0]).parameters().asMap();
+        }
+        for (int i = 1; i < args.length; i++) {
+            if (args[i] instanceof Value) {
+                return ((Value) args[i]).asMap();
+            }
+            if (args[i] instanceof Record) {
+                return ((Record) args[i]).asMap();
+            }
+            if (args[i] instanceof Map) {
+                return (Map<String, Object>) args[i];
+            }
+        }
+        return new HashMap<>();
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /*
+     * for a session or a transaction
+     */
+    private class QueryRunnerHandler implements InvocationHandler {
+
+        private final Object queryRunner;
+        private final List<ResultHandler> pending = new ArrayList<>();
+
+        private QueryRunnerHandler(Object queryRunner) {
+            this.queryRunner = queryRunner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "run":
+                    return run(method, args);
+                case "beginTransaction":
+                    return instrumented(
+                            Transaction.class,
+                            new QueryRunnerHandler(QueryMetricsNeo4j.invoke(method, queryRunner, args))
+                    );
+                case "readTransaction":
+                case "writeTransaction":
+                    Object[] workArgs = args.clone();
+                    workArgs[0] = instrumentedWork((TransactionWork<?>) args[0]);
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, workArgs);
+                case "commit":
+                case "rollback":
+                case "close":
+                    recordPending();
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, args);
+                default:
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, args);
+            }
+        }
+
+        /*
+         * the driver commits the transaction it handed to the work, not the instrumented one
+         */
+        private <T> TransactionWork<T> instrumentedWork(TransactionWork<T> work) {
+            return tx -> {
+                QueryRunnerHandler handler = new QueryRunnerHandler(tx);
+                try {
+                    return work.execute(
+                            instrumented(Transaction.class, handler)
+                    );
+                } finally {
+                    handler.recordPending();
+                }
+            };
+        }
+
+        private Object run(Method method, Object[] args) throws Throwable {
+            String query = queryOf(args);
+            String templateId = templateIdOf(query);
+            QueryStatsNeo4j stats = getStats(templateId);
+            Long start = System.nanoTime();
+            Result result;
+            try {
+                result = (Result) QueryMetricsNeo4j.invoke(method, queryRunner, args);
+            } catch (RuntimeException e) {
+                stats.recordError(System.nanoTime() - start);
+                throw e;
+            }
+            ResultHandler handler = new ResultHandler(result, stats, start);
+            if (slowQueryLog != null) {
+                handler.slowQueryCapture = new SlowQueryCapture(templateId, query, args);
+            }
+            pending.removeIf(ResultHandler::isRecorded);
+            pending.add(handler);
+            return instrumented(Result.class, handler);
+        }
+
+        private void recordPending() {
+            for (ResultHandler handler : pending) {
+                handler.recordQuietly();
+            }
+            pending.clear();
+        }
+    }
+
+    /*
+     * for an async session or an async transaction, results are recorded when their stages complete
+     */
+    private class AsyncQueryRunnerHandler implements InvocationHandler {
+
+        private final Object queryRunner;
+        private final Queue<AsyncResultHandler> pending = new ConcurrentLinkedQueue<>();
+
+        private AsyncQueryRunnerHandler(Object queryRunner) {
+            this.queryRunner = queryRunner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "runAsync":
+                    return runAsync(method, args);
+                case "beginTransactionAsync":
+                    return ((CompletionStage<?>) QueryMetricsNeo4j.invoke(method, queryRunner, args)).thenApply(
+                            tx -> instrumented(AsyncTransaction.class, new AsyncQueryRunnerHandler(tx))
+                    );
+                case "readTransactionAsync":
+                case "writeTransactionAsync":
+                    Object[] workArgs = args.clone();
+                    workArgs[0] = instrumentedWork((AsyncTransactionWork<?>) args[0]);
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, workArgs);
+                case "commitAsync":
+                case "rollbackAsync":
+                case "closeAsync":
+                    recordPending();
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, args);
+                default:
+                    return QueryMetricsNeo4j.invoke(method, queryRunner, args);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private <T> AsyncTransactionWork<T> instrumentedWork(AsyncTransactionWork<T> work) {
+            return tx -> {
+                AsyncQueryRunnerHandler handler = new AsyncQueryRunnerHandler(tx);
+                T stage = work.execute(
+                        instrumented(AsyncTransaction.class, handler)
+                );
+                return stage instanceof CompletionStage ?
+                        (T) ((CompletionStage<?>) stage).whenComplete(
+                                (value, error) -> handler.recordPending()
+                        ) :
+                        stage;
+            };
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object runAsync(Method method, Object[] args) throws Throwable {
+            String query = queryOf(args);
+            String templateId = templateIdOf(query);
+            QueryStatsNeo4j stats = getStats(templateId);
+            Long start = System.nanoTime();
+            CompletionStage<ResultCursor> cursorStage;
+            try {
+                cursorStage = (CompletionStage<ResultCursor>) QueryMetricsNeo4j.invoke(method, queryRunner, args);
+            } catch (RuntimeException e) {
+                stats.recordError(System.nanoTime() - start);
+                throw e;
+            }
+            return cursorStage.whenComplete((cursor, error) -> {
+                if (error != null) {
+                    stats.recordError(System.nanoTime() - start);
+                }
+            }).thenApply(cursor -> {
+                AsyncResultHandler handler = new AsyncResultHandler(cursor, stats, start);
+                if (slowQueryLog != null) {
+                    handler.slowQueryCapture = new SlowQueryCapture(templateId, query, args);
+                }
+                pending.removeIf(AsyncResultHandler::isRecorded);
+                pending.add(handler);
+                return instrumented(ResultCursor.class, handler);
+            });
+        }
+
+        private void recordPending() {
+            AsyncResultHandler handler;
+            while ((handler = pending.poll()) != null) {
+                handler.recordQuietly();
+            }
+        }
+    }
+
+    private class SlowQueryCapture {
+
+        private final String templateId;
+        private final String query;
+        private final Object[] runArgs;
+
+        private SlowQueryCapture(String templateId, String query, Object[] runArgs) {
+            this.templateId = templateId;
+            this.query = query;
+            this.runArgs = runArgs;
+        }
+
+        private void captureIfSlow(Long nanos, ResultSummary summary) {
+            if (slowQueryLog.isSlow(nanos)) {
+                slowQueryLog.capture(
+                        templateId,
+                        query,
+                        parametersOf(runArgs),
+                        nanos,
+                        summary
+                );
+            }
+        }
+    }
+
+    private static abstract class QueryRecorder {
+
+        protected final QueryStatsNeo4j stats;
+        protected final Long start;
+        protected long nbRows = 0;
+        protected Boolean isRecorded = false;
+        protected SlowQueryCapture slowQueryCapture;
+
+        protected QueryRecorder(QueryStatsNeo4j stats, Long start) {
+            this.stats = stats;
+            this.start = start;
+        }
+
+        protected synchronized Boolean isRecorded() {
+            return isRecorded;
+        }
+
+        protected synchronized void record(ResultSummary summary) {
+            if (isRecorded) {
+                return;
+            }
+            isRecorded = true;
+            Long nanos = System.nanoTime() - start;
+            stats.record(
+                    nanos,
+                    nbRows,
+                    summary
+            );
+            if (slowQueryCapture != null) {
+                slowQueryCapture.captureIfSlow(nanos, summary);
+            }
+        }
+
+        protected synchronized void recordError() {
+            if (isRecorded) {
+                return;
+            }
+            isRecorded = true;
+            stats.recordError(System.nanoTime() - start);
+        }
+    }
+
+    private static class ResultHandler extends QueryRecorder implements InvocationHandler {
+
+        private final Result result;
+
+        private ResultHandler(Result result, QueryStatsNeo4j stats, Long start) {
+            super(stats, start);
+            this.result = result;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isRecorded()) {
+                return QueryMetricsNeo4j.invoke(method, result, args);
+            }
+            Object value;
+            try {
+                value = QueryMetricsNeo4j.invoke(method, result, args);
+            } catch (RuntimeException e) {
+                recordError();
+                throw e;
+            }
+            switch (method.getName()) {
+                case "next":
+                    nbRows++;
+                    break;
+                case "hasNext":
+                    if (!(Boolean) value) {
+                        record(result.consume());
+                    }
+                    break;
+                case "single":
+                    nbRows++;
+                    record(result.consume());
+                    break;
+                case "list":
+                    nbRows += ((List<?>) value).size();
+                    record(result.consume());
+                    break;
+                case "consume":
+                    record((ResultSummary) value);
+                    break;
+            }
+            return value;
+        }
+
+        /*
+         * the rest of the result is discarded as the session or transaction would
+         */
+        private void recordQuietly() {
+            if (isRecorded()) {
+                return;
+            }
+            try {
+                record(result.consume());
+            } catch (RuntimeException e) {
+                recordError();
+            }
+        }
+    }
+
+    private static class AsyncResultHandler extends QueryRecorder implements InvocationHandler {
+
+        private final ResultCursor cursor;
+
+        private AsyncResultHandler(ResultCursor cursor, QueryStatsNeo4j stats, Long start) {
+            super(stats, start);
+            this.cursor = cursor;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (isRecorded()) {
+                return QueryMetricsNeo4j.invoke(method, cursor, args);
+            }
+            switch (method.getName()) {
+                case "consumeAsync":
+                    return ((CompletionStage<ResultSummary>) QueryMetricsNeo4j.invoke(method, cursor, args)).whenComplete(
+                            this::recordSummaryOrError
+                    );
+                case "forEachAsync":
+                    Consumer<Record> action = (Consumer<Record>) args[0];
+                    Consumer<Record> countingAction = record -> {
+                        countRows(1);
+                        action.accept(record);
+                    };
+                    return ((CompletionStage<ResultSummary>) QueryMetricsNeo4j.invoke(
+                            method,
+                            cursor,
+                            new Object[]{countingAction}
+                    )).whenComplete(
+                            this::recordSummaryOrError
+                    );
+                case "listAsync":
+                    return ((CompletionStage<List<?>>) QueryMetricsNeo4j.invoke(method, cursor, args)).whenComplete(
+                            (records, error) -> recordRowsOrError(records == null ? 0 : records.size(), error)
+                    );
+                case "singleAsync":
+                    return ((CompletionStage<?>) QueryMetricsNeo4j.invoke(method, cursor, args)).whenComplete(
+                            (record, error) -> recordRowsOrError(1, error)
+                    );
+                case "nextAsync":
+                    return ((CompletionStage<?>) QueryMetricsNeo4j.invoke(method, cursor, args)).whenComplete(
+                            (record, error) -> {
+                                if (error != null) {
+                                    recordError();
+                                } else if (record == null) {
+                                    recordRowsOrError(0, null);
+                                } else {
+                                    countRows(1);
+                                }
+                            }
+                    );
+                default:
+                    return QueryMetricsNeo4j.invoke(method, cursor, args);
+            }
+        }
+
+        private synchronized void countRows(long nb) {
+            nbRows += nb;
+        }
+
+        private void recordRowsOrError(long nb, Throwable error) {
+            if (error != null) {
+                recordError();
+                return;
+            }
+            countRows(nb);
+            cursor.consumeAsync().whenComplete(
+                    this::recordSummaryOrError
+            );
+        }
+
+        private void recordSummaryOrError(ResultSummary summary, Throwable error) {
+            if (error != null) {
+                recordError();
+            } else {
+                record(summary);
+            }
+        }
+
+        /*
+         * the rest of the result is discarded as the session or transaction would
+         */
+        private void recordQuietly() {
+            if (isRecorded()) {
+                return;
+            }
+            cursor.consumeAsync().whenComplete(
+                    this::recordSummaryOrError
+            );
+        }
+    }
+}
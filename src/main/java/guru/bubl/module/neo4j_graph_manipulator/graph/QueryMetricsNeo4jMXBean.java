@@ -0,0 +1,16 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+public interface QueryMetricsNeo4jMXBean {
+
+    Long getNbQueries();
+
+    Long getTotalMillis();
+
+    String[] getSnapshot();
+
+    void reset();
+}
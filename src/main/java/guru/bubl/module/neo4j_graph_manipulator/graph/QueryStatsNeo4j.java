@@ -0,0 +1,150 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.summary.ResultSummary;
+import org.neo4j.driver.summary.SummaryCounters;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Latencies, rows and write counters of the queries of one template.
+ * Latency goes from run to the result being consumed, server time is what
+ * the summary reports for the result to be available and consumed.
+ * The histogram has power of two buckets in milliseconds, percentiles are bucket upper bounds.
+ */
+public class QueryStatsNeo4j {
+
+    private static final Integer NB_BUCKETS = 18;
+
+    private final LongAdder nbQueries = new LongAdder();
+    private final LongAdder nbErrors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder serverMillis = new LongAdder();
+    private final LongAdder nbRows = new LongAdder();
+    private final LongAdder nodesCreated = new LongAdder();
+    private final LongAdder nodesDeleted = new LongAdder();
+    private final LongAdder relationshipsCreated = new LongAdder();
+    private final LongAdder relationshipsDeleted = new LongAdder();
+    private final LongAdder propertiesSet = new LongAdder();
+    private final AtomicLongArray histogram = new AtomicLongArray(NB_BUCKETS);
+
+    public void record(Long nanos, Long rows, ResultSummary summary) {
+        nbQueries.increment();
+        totalNanos.add(nanos);
+        nbRows.add(rows);
+        histogram.incrementAndGet(bucketOf(nanos));
+        if (summary == null) {
+            return;
+        }
+        serverMillis.add(
+                Math.max(summary.resultAvailableAfter(TimeUnit.MILLISECONDS), 0) +
+                        Math.max(summary.resultConsumedAfter(TimeUnit.MILLISECONDS), 0)
+        );
+        SummaryCounters counters = summary.counters();
+        nodesCreated.add(counters.nodesCreated());
+        nodesDeleted.add(counters.nodesDeleted());
+        relationshipsCreated.add(counters.relationshipsCreated());
+        relationshipsDeleted.add(counters.relationshipsDeleted());
+        propertiesSet.add(counters.propertiesSet());
+    }
+
+    public void recordError(Long nanos) {
+        nbErrors.increment();
+        record(nanos, 0L, null);
+    }
+
+    public Long getNbQueries() {
+        return nbQueries.sum();
+    }
+
+    public Long getNbErrors() {
+        return nbErrors.sum();
+    }
+
+    public Long getTotalMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.sum());
+    }
+
+    public Long getServerMillis() {
+        return serverMillis.sum();
+    }
+
+    public Long getNbRows() {
+        return nbRows.sum();
+    }
+
+    public Long getNodesCreated() {
+        return nodesCreated.sum();
+    }
+
+    public Long getNodesDeleted() {
+        return nodesDeleted.sum();
+    }
+
+    public Long getRelationshipsCreated() {
+        return relationshipsCreated.sum();
+    }
+
+    public Long getRelationshipsDeleted() {
+        return relationshipsDeleted.sum();
+    }
+
+    public Long getPropertiesSet() {
+        return propertiesSet.sum();
+    }
+
+    public Long percentileMillis(Double percentile) {
+        long total = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        if (total == 0) {
+            return 0L;
+        }
+        long rank = (long) Math.ceil(total * percentile);
+        long seen = 0;
+        for (int i = 0; i < NB_BUCKETS; i++) {
+            seen += histogram.get(i);
+            if (seen >= rank) {
+                return 1L << i;
+            }
+        }
+        return 1L << (NB_BUCKETS - 1);
+    }
+
+    public String toSnapshotLine(String templateId) {
+        Long nbQueries = getNbQueries();
+        return String.format(
+                "%s queries=%d errors=%d totalMs=%d avgMs=%.2f p50Ms<=%d p99Ms<=%d serverMs=%d rows=%d " +
+                        "nodes+=%d nodes-=%d rels+=%d rels-=%d props=%d",
+                templateId,
+                nbQueries,
+                getNbErrors(),
+                getTotalMillis(),
+                nbQueries == 0 ? 0.0 : totalNanos.sum() / 1_000_000.0 / nbQueries,
+                percentileMillis(0.5),
+                percentileMillis(0.99),
+                getServerMillis(),
+                getNbRows(),
+                getNodesCreated(),
+                getNodesDeleted(),
+                getRelationshipsCreated(),
+                getRelationshipsDeleted(),
+                getPropertiesSet()
+        );
+    }
+
+    private static int bucketOf(Long nanos) {
+        long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+        int bucket = 0;
+        while (bucket < NB_BUCKETS - 1 && (1L << bucket) < millis) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/*
+ * Cypher texts built once per variant (share levels, depth, flags...) and reused afterwards.
+ * Values that change on every call, like skip and limit, have to be passed as parameters
+ * so that a variant keeps a single text and Neo4j a single cached plan for it.
+ */
+public class QueryTemplatesNeo4j {
+
+    private static final Map<String, String> templates = new ConcurrentHashMap<>();
+    private static final Map<String, String> namesOfQueries = new ConcurrentHashMap<>();
+
+    /*
+     * Built outside of the map because builders can themselves use templates.
+     */
+    public static String template(String variantKey, Supplier<String> builder) {
+        String query = templates.get(variantKey);
+        if (query != null) {
+            return query;
+        }
+        query = builder.get();
+        String previous = templates.putIfAbsent(variantKey, query);
+        if (previous != null) {
+            return previous;
+        }
+        namesOfQueries.putIfAbsent(
+                query,
+                variantKey.split("\\|")[0]
+        );
+        return query;
+    }
+
+    /*
+     * name given to template for a query text built by it, null for queries built ad hoc
+     */
+    public static String nameOf(String query) {
+        return namesOfQueries.get(query);
+    }
+
+    public static String variantKey(String name, Object... variant) {
+        StringBuilder key = new StringBuilder(name);
+        for (Object part : variant) {
+            key.append("|").append(
+                    part instanceof Set ? new TreeSet<>((Set<?>) part) : part
+            );
+        }
+        return key.toString();
+    }
+
+    public static Integer getNbVariants() {
+        return templates.size();
+    }
+
+    public static Integer getNbDistinctQueryTexts() {
+        return new HashSet<>(templates.values()).size();
+    }
+
+    public static void clear() {
+        templates.clear();
+        namesOfQueries.clear();
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.codehaus.jettison.json.JSONArray;
+import org.codehaus.jettison.json.JSONException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+/*
+ * Sort key of the last row of a page, handed out as an opaque token.
+ * The next page seeks past it instead of skipping and re-sorting every previous row.
+ */
+public class SeekCursor {
+
+    private List<Object> sortKey;
+
+    public static SeekCursor withSortKey(Object... sortKey) {
+        return new SeekCursor(
+                Arrays.asList(sortKey)
+        );
+    }
+
+    public static SeekCursor fromToken(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        try {
+            JSONArray sortKeyJson = new JSONArray(
+                    new String(
+                            Base64.getUrlDecoder().decode(token),
+                            StandardCharsets.UTF_8
+                    )
+            );
+            Object[] sortKey = new Object[sortKeyJson.length()];
+            for (int i = 0; i < sortKeyJson.length(); i++) {
+                sortKey[i] = sortKeyJson.isNull(i) ? null : sortKeyJson.get(i);
+            }
+            return withSortKey(sortKey);
+        } catch (JSONException | IllegalArgumentException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    protected SeekCursor(List<Object> sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public Object get(Integer index) {
+        return sortKey.get(index);
+    }
+
+    public String toToken() {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(
+                new JSONArray(sortKey).toString().getBytes(StandardCharsets.UTF_8)
+        );
+    }
+
+    public static Object valueOrNull(SeekCursor cursor, Integer index) {
+        return cursor == null ? null : cursor.get(index);
+    }
+}
@@ -0,0 +1,31 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.AccessMode;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.SessionConfig;
+import org.neo4j.driver.async.AsyncSession;
+
+/*
+ * Read only paths open READ sessions so that a neo4j:// routing driver
+ * can send them to read replicas, driver.session() stays for writes.
+ * With a bolt:// driver the access mode has no effect.
+ */
+public class SessionsNeo4j {
+
+    private static final SessionConfig READ_CONFIG = SessionConfig.builder()
+            .withDefaultAccessMode(AccessMode.READ)
+            .build();
+
+    public static Session read(Driver driver) {
+        return driver.session(READ_CONFIG);
+    }
+
+    public static AsyncSession readAsync(Driver driver) {
+        return driver.asyncSession(READ_CONFIG);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.summary.ProfiledPlan;
+import org.neo4j.driver.summary.QueryType;
+import org.neo4j.driver.summary.ResultSummary;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * Keeps the latest queries slower than thresholdMillis in a ring buffer
+ * and appends them as json lines to a file when a path is given.
+ * String parameters are redacted since they carry user content.
+ * With profiling, the first slow read only query of a template is run again once
+ * with PROFILE in the background, on the driver that is not instrumented,
+ * writes are never run again.
+ */
+public class SlowQueryLogNeo4j implements SlowQueryLogNeo4jMXBean {
+
+    public static final String OBJECT_NAME = "guru.bubl.neo4j:type=SlowQueries";
+
+    private static final Logger logger = Logger.getLogger(SlowQueryLogNeo4j.class.getName());
+
+    private final Long thresholdMillis;
+    private final SlowQueryNeo4j[] captures;
+    private final String filePath;
+    private final Driver driverForProfiles;
+
+    private final AtomicLong nbCaptured = new AtomicLong();
+    private final Set<String> profiledTemplateIds = ConcurrentHashMap.newKeySet();
+    private ExecutorService profiler;
+
+    public static SlowQueryLogNeo4j withThresholdAndCapacity(Long thresholdMillis, Integer capacity) {
+        return new SlowQueryLogNeo4j(thresholdMillis, capacity, null, null);
+    }
+
+    public static SlowQueryLogNeo4j withThresholdCapacityFileAndProfiles(
+            Long thresholdMillis,
+            Integer capacity,
+            String filePath,
+            Driver driverForProfiles
+    ) {
+        return new SlowQueryLogNeo4j(thresholdMillis, capacity, filePath, driverForProfiles);
+    }
+
+    protected SlowQueryLogNeo4j(Long thresholdMillis, Integer capacity, String filePath, Driver driverForProfiles) {
+        this.thresholdMillis = thresholdMillis;
+        this.captures = new SlowQueryNeo4j[Math.max(capacity, 1)];
+        this.filePath = filePath;
+        this.driverForProfiles = driverForProfiles;
+        if (driverForProfiles != null) {
+            profiler = new ThreadPoolExecutor(
+                    1,
+                    1,
+                    0L,
+                    TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(16),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "slow-query-profiler");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+            );
+        }
+    }
+
+    public void registerMBean() {
+        MBeansNeo4j.register(
+                this,
+                OBJECT_NAME
+        );
+    }
+
+    public Boolean isSlow(Long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos) >= thresholdMillis;
+    }
+
+    public void capture(String templateId, String query, Map<String, Object> parameters, Long nanos, ResultSummary summary) {
+        SlowQueryNeo4j slowQuery = SlowQueryNeo4j.withTemplateQueryParametersAndLatency(
+                templateId,
+                query,
+                redact(parameters).toString(),
+                TimeUnit.NANOSECONDS.toMillis(nanos)
+        );
+        add(slowQuery);
+        if (shouldProfile(templateId, query, summary)) {
+            try {
+                profiler.execute(() -> profileThenAppend(slowQuery, parameters));
+                return;
+            } catch (RejectedExecutionException e) {
+                profiledTemplateIds.remove(templateId);
+            }
+        }
+        appendToFile(slowQuery);
+    }
+
+    public List<SlowQueryNeo4j> getRecent() {
+        List<SlowQueryNeo4j> recent = new ArrayList<>();
+        synchronized (captures) {
+            long nb = nbCaptured.get();
+            for (long i = Math.max(0, nb - captures.length); i < nb; i++) {
+                recent.add(captures[(int) (i % captures.length)]);
+            }
+        }
+        Collections.reverse(recent);
+        return recent;
+    }
+
+    @Override
+    public Long getThresholdMillis() {
+        return thresholdMillis;
+    }
+
+    @Override
+    public Long getNbCaptured() {
+        return nbCaptured.get();
+    }
+
+    @Override
+    public String[] getRecentCaptures() {
+        return getRecent().stream().map(
+                slowQuery -> slowQuery.toJson().toString()
+        ).toArray(String[]::new);
+    }
+
+    public static Object redact(Object value) {
+        if (value instanceof String) {
+            return "<" + ((String) value).length() + " chars>";
+        }
+        if (value instanceof Map) {
+            Map<String, Object> redacted = new TreeMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                redacted.put(entry.getKey().toString(), redact(entry.getValue()));
+            }
+            return redacted;
+        }
+        if (value instanceof Object[]) {
+            return redact(Arrays.asList((Object[]) value));
+        }
+        if (value instanceof Collection) {
+            List<Object> redacted = new ArrayList<>();
+            for (Object element : (Collection<?>) value) {
+                redacted.add(redact(element));
+            }
+            return redacted;
+        }
+        return value;
+    }
+
+    private void add(SlowQueryNeo4j slowQuery) {
+        synchronized (captures) {
+            long index = nbCaptured.getAndIncrement();
+            captures[(int) (index % captures.length)] = slowQuery;
+        }
+    }
+
+    private Boolean shouldProfile(String templateId, String query, ResultSummary summary) {
+        if (profiler == null || summary == null || summary.queryType() != QueryType.READ_ONLY) {
+            return false;
+        }
+        String upperCaseQuery = query.trim().toUpperCase();
+        if (upperCaseQuery.startsWith("PROFILE") || upperCaseQuery.startsWith("EXPLAIN")) {
+            return false;
+        }
+        return profiledTemplateIds.add(templateId);
+    }
+
+    private void profileThenAppend(SlowQueryNeo4j slowQuery, Map<String, Object> parameters) {
+        try (Session session = SessionsNeo4j.read(driverForProfiles)) {
+            ResultSummary summary = session.run(
+                    "PROFILE " + slowQuery.getQuery(),
+                    parameters
+            ).consume();
+            if (summary.hasProfile()) {
+                StringBuilder plan = new StringBuilder();
+                Long dbHits = appendPlan(summary.profile(), 0, plan);
+                slowQuery.setPlan(plan.toString(), dbHits);
+            }
+        } catch (RuntimeException e) {
+            slowQuery.setPlan("profile failed: " + e.getMessage(), null);
+        }
+        appendToFile(slowQuery);
+    }
+
+    private static Long appendPlan(ProfiledPlan plan, Integer depth, StringBuilder text) {
+        for (int i = 0; i < depth; i++) {
+            text.append("  ");
+        }
+        text.append(plan.operatorType())
+                .append(" rows=").append(plan.records())
+                .append(" dbHits=").append(plan.dbHits())
+                .append(" ").append(plan.identifiers())
+                .append("\n");
+        long dbHits = plan.dbHits();
+        for (ProfiledPlan child : plan.children()) {
+            dbHits += appendPlan(child, depth + 1, text);
+        }
+        return dbHits;
+    }
+
+    private void appendToFile(SlowQueryNeo4j slowQuery) {
+        if (filePath == null) {
+            return;
+        }
+        synchronized (this) {
+            try (Writer writer = new FileWriter(filePath, true)) {
+                writer.write(slowQuery.toJson().toString());
+                writer.write("\n");
+            } catch (IOException e) {
+                logger.log(
+                        Level.WARNING,
+                        "could not append the slow query to " + filePath + ", it is still in the ring buffer",
+                        e
+                );
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+public interface SlowQueryLogNeo4jMXBean {
+
+    Long getThresholdMillis();
+
+    Long getNbCaptured();
+
+    String[] getRecentCaptures();
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
+
+import java.util.Date;
+
+/*
+ * A query that went over the slow query threshold, the plan comes later
+ * when the query is profiled.
+ */
+public class SlowQueryNeo4j {
+
+    private final String templateId;
+    private final String query;
+    private final String redactedParameters;
+    private final Long latencyMillis;
+    private final Date date;
+    private volatile String plan;
+    private volatile Long dbHits;
+
+    public static SlowQueryNeo4j withTemplateQueryParametersAndLatency(
+            String templateId,
+            String query,
+            String redactedParameters,
+            Long latencyMillis
+    ) {
+        return new SlowQueryNeo4j(templateId, query, redactedParameters, latencyMillis);
+    }
+
+    protected SlowQueryNeo4j(String templateId, String query, String redactedParameters, Long latencyMillis) {
+        this.templateId = templateId;
+        this.query = query;
+        this.redactedParameters = redactedParameters;
+        this.latencyMillis = latencyMillis;
+        this.date = new Date();
+    }
+
+    public String getTemplateId() {
+        return templateId;
+    }
+
+    public String getQuery() {
+        return query;
+    }
+
+    public String getRedactedParameters() {
+        return redactedParameters;
+    }
+
+    public Long getLatencyMillis() {
+        return latencyMillis;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getPlan() {
+        return plan;
+    }
+
+    public Long getDbHits() {
+        return dbHits;
+    }
+
+    public void setPlan(String plan, Long dbHits) {
+        this.plan = plan;
+        this.dbHits = dbHits;
+    }
+
+    public JSONObject toJson() {
+        try {
+            return new JSONObject()
+                    .put("templateId", templateId)
+                    .put("date", date.getTime())
+                    .put("latencyMillis", latencyMillis)
+                    .put("query", query)
+                    .put("parameters", redactedParameters)
+                    .put("dbHits", dbHits)
+                    .put("plan", plan);
+        } catch (JSONException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.neo4j.driver.exceptions.Neo4jException;
+import org.neo4j.driver.exceptions.ServiceUnavailableException;
+import org.neo4j.driver.exceptions.SessionExpiredException;
+import org.neo4j.driver.exceptions.TransientException;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+ * How many times a unit of work is attempted when it fails on a deadlock
+ * or another transient error, waiting a random time below an exponential
+ * bound between attempts so that the conflicting transactions do not meet again.
+ */
+public class WriteRetryPolicyNeo4j {
+
+    public static final String DEADLOCK_CODE = "Neo.TransientError.Transaction.DeadlockDetected";
+
+    private static final String TERMINATED_CODE = "Neo.TransientError.Transaction.Terminated";
+    private static final String LOCK_CLIENT_STOPPED_CODE = "Neo.TransientError.Transaction.LockClientStopped";
+
+    private final Integer maxAttempts;
+    private final Long initialBackoffMillis;
+    private final Long maxBackoffMillis;
+
+    public static WriteRetryPolicyNeo4j noRetry() {
+        return new WriteRetryPolicyNeo4j(1, 0L, 0L);
+    }
+
+    public static WriteRetryPolicyNeo4j defaultPolicy() {
+        return new WriteRetryPolicyNeo4j(5, 20L, 1000L);
+    }
+
+    public static WriteRetryPolicyNeo4j withMaxAttemptsAndBackoff(Integer maxAttempts, Long initialBackoffMillis, Long maxBackoffMillis) {
+        return new WriteRetryPolicyNeo4j(maxAttempts, initialBackoffMillis, maxBackoffMillis);
+    }
+
+    protected WriteRetryPolicyNeo4j(Integer maxAttempts, Long initialBackoffMillis, Long maxBackoffMillis) {
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    public Integer getMaxAttempts() {
+        return maxAttempts;
+    }
+
+    public Boolean isRetryable(Throwable error) {
+        Throwable cause = driverCause(error);
+        if (cause instanceof TransientException) {
+            String code = ((TransientException) cause).code();
+            return !TERMINATED_CODE.equals(code) && !LOCK_CLIENT_STOPPED_CODE.equals(code);
+        }
+        return cause instanceof SessionExpiredException || cause instanceof ServiceUnavailableException;
+    }
+
+    public Boolean isDeadlock(Throwable error) {
+        Throwable cause = driverCause(error);
+        return cause instanceof Neo4jException && DEADLOCK_CODE.equals(
+                ((Neo4jException) cause).code()
+        );
+    }
+
+    /*
+     * full jitter, attempt starts at 1
+     */
+    public Long backoffMillis(Integer attempt) {
+        long bound = initialBackoffMillis << Math.min(attempt - 1, 30);
+        if (bound <= 0 || bound > maxBackoffMillis) {
+            bound = maxBackoffMillis;
+        }
+        return bound <= 0 ? 0L : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /*
+     * operators sometimes wrap driver errors in a RuntimeException
+     */
+    private static Throwable driverCause(Throwable error) {
+        Throwable cause = error;
+        while (cause != null && !(cause instanceof Neo4jException) && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -10,9 +10,13 @@ import guru.bubl.module.model.FriendlyResource;
 import guru.bubl.module.model.center_graph_element.CenterGraphElementOperator;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
 
 import java.util.Date;
 
@@ -26,15 +30,24 @@ public class CenterGraphElementOperatorNeo4j implements CenterGraphElementOperat
     }
 
     private Driver driver;
+    private GraphTransactionNeo4j graphTransaction;
+    private CenterVisitsBufferNeo4j centerVisitsBuffer;
+    private GraphCachesNeo4j graphCaches;
     private FriendlyResourceNeo4j neo4jFriendlyResource;
 
     @AssistedInject
     protected CenterGraphElementOperatorNeo4j(
             Driver driver,
+            GraphTransactionNeo4j graphTransaction,
+            CenterVisitsBufferNeo4j centerVisitsBuffer,
+            GraphCachesNeo4j graphCaches,
             FriendlyResourceFactoryNeo4j friendlyResourceFactory,
             @Assisted FriendlyResource friendlyResource
     ) {
         this.driver = driver;
+        this.graphTransaction = graphTransaction;
+        this.centerVisitsBuffer = centerVisitsBuffer;
+        this.graphCaches = graphCaches;
         this.neo4jFriendlyResource = friendlyResourceFactory.withUri(
                 friendlyResource.uri()
         );
@@ -42,28 +55,41 @@ public class CenterGraphElementOperatorNeo4j implements CenterGraphElementOperat
 
     @Override
     public void incrementNumberOfVisits() {
-        try (Session session = driver.session()) {
-            session.run(
-                    neo4jFriendlyResource.queryPrefix() + "SET n.nb_visits= CASE WHEN n.nb_visits is null THEN 1 ELSE n.nb_visits + 1 END",
-                    parameters(
-                            "uri",
-                            neo4jFriendlyResource.uri().toString()
-                    )
+        if (centerVisitsBuffer.isEnabled()) {
+            centerVisitsBuffer.incrementNumberOfVisits(
+                    neo4jFriendlyResource.uri()
             );
+            return;
         }
+        graphTransaction.inTransaction("incrementNumberOfVisits", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        neo4jFriendlyResource.queryPrefix() + "SET n.nb_visits= CASE WHEN n.nb_visits is null THEN 1 ELSE n.nb_visits + 1 END",
+                        parameters(
+                                "uri",
+                                neo4jFriendlyResource.uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateForNbVisitsChange(
+                neo4jFriendlyResource.uri()
+        );
     }
 
     @Override
     public Integer getNumberOfVisits() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     neo4jFriendlyResource.queryPrefix() + "RETURN n.nb_visits as number;",
                     parameters(
                             "uri", neo4jFriendlyResource.uri().toString()
                     )
             ).single();
-            Object numberAsObject = record.get("number").asObject();
-            return numberAsObject == null ? 0 : (Integer) numberAsObject;
+            Value number = record.get("number");
+            return (number.isNull() ? 0 : number.asInt()) + centerVisitsBuffer.getPendingNumberOfVisits(
+                    neo4jFriendlyResource.uri()
+            ).intValue();
         }
     }
 
@@ -74,21 +100,36 @@ public class CenterGraphElementOperatorNeo4j implements CenterGraphElementOperat
 
     @Override
     public void setLastCenterDate(Date lastCenterDate) {
-        try (Session session = driver.session()) {
-            session.run(
-                    neo4jFriendlyResource.queryPrefix() + "SET n.last_center_date=$lastCenterDate",
-                    parameters(
-                            "uri",
-                            neo4jFriendlyResource.uri().toString(),
-                            "lastCenterDate", lastCenterDate.getTime()
-                    )
+        if (centerVisitsBuffer.isEnabled()) {
+            centerVisitsBuffer.setLastCenterDate(
+                    neo4jFriendlyResource.uri(),
+                    lastCenterDate
             );
+            return;
         }
+        graphTransaction.inTransaction("setLastCenterDate", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        neo4jFriendlyResource.queryPrefix() + "SET n.last_center_date=$lastCenterDate",
+                        parameters(
+                                "uri",
+                                neo4jFriendlyResource.uri().toString(),
+                                "lastCenterDate", lastCenterDate.getTime()
+                        )
+                );
+            }
+        });
     }
 
     @Override
     public Date getLastCenterDate() {
-        try (Session session = driver.session()) {
+        Date pendingLastCenterDate = centerVisitsBuffer.getPendingLastCenterDate(
+                neo4jFriendlyResource.uri()
+        );
+        if (pendingLastCenterDate != null) {
+            return pendingLastCenterDate;
+        }
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     neo4jFriendlyResource.queryPrefix() + "RETURN n.last_center_date as date;",
                     parameters(
@@ -104,13 +145,21 @@ public class CenterGraphElementOperatorNeo4j implements CenterGraphElementOperat
 
     @Override
     public void remove() {
-        try (Session session = driver.session()) {
-            session.run(
-                    "MATCH(n:GraphElement{uri:$uri}) REMOVE n.last_center_date, n.nb_visits",
-                    parameters(
-                            "uri", neo4jFriendlyResource.uri().toString()
-                    )
-            );
-        }
+        centerVisitsBuffer.discard(
+                neo4jFriendlyResource.uri()
+        );
+        graphTransaction.inTransaction("removeCenter", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        "MATCH(n:GraphElement{uri:$uri}) REMOVE n.last_center_date, n.nb_visits",
+                        parameters(
+                                "uri", neo4jFriendlyResource.uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateForNbVisitsChange(
+                neo4jFriendlyResource.uri()
+        );
     }
 }
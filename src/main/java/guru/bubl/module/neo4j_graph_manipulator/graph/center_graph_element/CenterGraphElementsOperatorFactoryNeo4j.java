@@ -0,0 +1,14 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element;
+
+import com.google.inject.assistedinject.Assisted;
+
+public interface CenterGraphElementsOperatorFactoryNeo4j {
+    CenterGraphElementsOperatorNeo4j usingLimitAndSkip(
+            @Assisted("limit") Integer limit,
+            @Assisted("skip") Integer skip
+    );
+}
@@ -4,6 +4,7 @@
 
 package guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.User;
@@ -14,12 +15,18 @@ import guru.bubl.module.model.graph.FriendlyResourcePojo;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.fork.NbNeighborsPojo;
 import guru.bubl.module.model.graph.graph_element.GraphElementPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.CursorPage;
+import guru.bubl.module.neo4j_graph_manipulator.graph.PublicResultsCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.QueryTemplatesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SeekCursor;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.TagsFromExtractorQueryRowAsArray;
 import org.neo4j.driver.*;
 
 import java.net.URI;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Set;
@@ -32,6 +39,9 @@ public class CenterGraphElementsOperatorNeo4j implements CenteredGraphElementsOp
     private Integer limit;
     private Integer skip;
 
+    @Inject
+    protected PublicResultsCacheNeo4j publicResultsCache;
+
     @AssistedInject
     protected CenterGraphElementsOperatorNeo4j(
             Driver driver
@@ -75,17 +85,13 @@ public class CenterGraphElementsOperatorNeo4j implements CenteredGraphElementsOp
 
     @Override
     public List<CenterGraphElementPojo> getAllPublic() {
-        return get(
+        return getPublic(
+                "allPublic",
                 GRAPH_ELEMENT_MATCH,
-                null,
                 false,
                 false,
-                true,
-                false,
-                "creationDate",
-                false,
-                ShareLevel.PUBLIC.getIndex()
-        );
+                null
+        ).getItems();
     }
 
     @Override
@@ -105,17 +111,13 @@ public class CenterGraphElementsOperatorNeo4j implements CenteredGraphElementsOp
 
     @Override
     public List<CenterGraphElementPojo> getAllPatterns() {
-        return get(
+        return getPublic(
+                "allPatterns",
                 PATTERN_MATCH,
-                null,
-                false,
-                false,
                 true,
                 false,
-                "creationDate",
-                true,
-                ShareLevel.PUBLIC.getIndex()
-        );
+                null
+        ).getItems();
     }
 
     @Override
@@ -150,9 +152,153 @@ public class CenterGraphElementsOperatorNeo4j implements CenteredGraphElementsOp
         );
     }
 
+    /*
+     * The cursor variants below return the page that follows the cursor,
+     * ordered like their skip based counterparts with the uri breaking ties.
+     * A null cursor gives the first page. The seek key coalesces a missing date to 0,
+     * the indexes on last_center_date and creation_date narrow the matched bubbles but the
+     * remaining ones are still sorted, a page saves the tags and mapping of the skipped rows
+     * but not the scan of the owner or share levels.
+     */
+    public CursorPage<CenterGraphElementPojo> getPublicAndPrivateForOwnerAfterCursor(User owner, String cursor) {
+        return getPage(
+                GRAPH_ELEMENT_MATCH,
+                owner,
+                true,
+                true,
+                false,
+                false,
+                "lastCenterDate",
+                false,
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
+    public CursorPage<CenterGraphElementPojo> getAllPublicAfterCursor(String cursor) {
+        return getPublic(
+                "allPublic",
+                GRAPH_ELEMENT_MATCH,
+                false,
+                true,
+                cursor
+        );
+    }
+
+    public CursorPage<CenterGraphElementPojo> getPublicOfUserAfterCursor(User owner, String cursor) {
+        return getPage(
+                GRAPH_ELEMENT_MATCH,
+                owner,
+                true,
+                false,
+                true,
+                false,
+                "creationDate",
+                false,
+                SeekCursor.fromToken(cursor),
+                ShareLevel.PUBLIC.getIndex()
+        );
+    }
+
+    public CursorPage<CenterGraphElementPojo> getAllPatternsAfterCursor(String cursor) {
+        return getPublic(
+                "allPatterns",
+                PATTERN_MATCH,
+                true,
+                true,
+                cursor
+        );
+    }
+
+    public CursorPage<CenterGraphElementPojo> getFriendsFeedForUserAfterCursor(User user, String cursor) {
+        return getPage(
+                ALL_FRIENDS_MATCH,
+                user,
+                false,
+                false,
+                true,
+                true,
+                "creationDate",
+                false,
+                SeekCursor.fromToken(cursor),
+                ShareLevel.FRIENDS.getIndex(),
+                ShareLevel.PUBLIC.getIndex()
+        );
+    }
+
+    public CursorPage<CenterGraphElementPojo> getForAFriendAfterCursor(User friend, String cursor) {
+        return getPage(
+                GRAPH_ELEMENT_MATCH,
+                friend,
+                true,
+                false,
+                true,
+                true,
+                "creationDate",
+                false,
+                SeekCursor.fromToken(cursor),
+                ShareLevel.FRIENDS.getIndex(),
+                ShareLevel.PUBLIC.getIndex()
+        );
+    }
+
+    /*
+     * the public listings are cached as driver records, which are immutable,
+     * and mapped again on every call so that callers never share centers
+     */
+    private CursorPage<CenterGraphElementPojo> getPublic(String listing, String match, Boolean includeNonCenters, Boolean seek, String cursor) {
+        return centersFromRecords(
+                publicResultsCache.getOrLoad(
+                        publicResultsKey(listing, seek, cursor),
+                        () -> getCenterRecords(
+                                match,
+                                null,
+                                false,
+                                false,
+                                true,
+                                false,
+                                "creationDate",
+                                includeNonCenters,
+                                seek,
+                                SeekCursor.fromToken(cursor),
+                                ShareLevel.PUBLIC.getIndex()
+                        )
+                ),
+                false
+        );
+    }
+
+    private String publicResultsKey(String listing, Boolean seek, String cursor) {
+        return String.join(
+                "|",
+                "centerGraphElements",
+                listing,
+                String.valueOf(seek),
+                String.valueOf(skip),
+                String.valueOf(limit),
+                String.valueOf(cursor)
+        );
+    }
 
     private List<CenterGraphElementPojo> get(String match, User user, Boolean filterOnUser, Boolean nbPrivate, Boolean nbPublic, Boolean nbFriends, String sortBy, Boolean includeNonCenters, Integer... inShareLevelsIntegers) {
-        List<CenterGraphElementPojo> centerGraphElements = new ArrayList<>();
+        return getCenters(match, user, filterOnUser, nbPrivate, nbPublic, nbFriends, sortBy, includeNonCenters, false, null, inShareLevelsIntegers).getItems();
+    }
+
+    private CursorPage<CenterGraphElementPojo> getPage(String match, User user, Boolean filterOnUser, Boolean nbPrivate, Boolean nbPublic, Boolean nbFriends, String sortBy, Boolean includeNonCenters, SeekCursor after, Integer... inShareLevelsIntegers) {
+        return getCenters(match, user, filterOnUser, nbPrivate, nbPublic, nbFriends, sortBy, includeNonCenters, true, after, inShareLevelsIntegers);
+    }
+
+    private CursorPage<CenterGraphElementPojo> getCenters(String match, User user, Boolean filterOnUser, Boolean nbPrivate, Boolean nbPublic, Boolean nbFriends, String sortBy, Boolean includeNonCenters, Boolean seek, SeekCursor after, Integer... inShareLevelsIntegers) {
+        return centersFromRecords(
+                getCenterRecords(match, user, filterOnUser, nbPrivate, nbPublic, nbFriends, sortBy, includeNonCenters, seek, after, inShareLevelsIntegers),
+                inShareLevelsIntegers.length == 0 || ShareLevel.arrayOfIntegersToSet(inShareLevelsIntegers).contains(ShareLevel.PRIVATE)
+        );
+    }
+
+    private CursorPage<Record> getCenterRecords(String match, User user, Boolean filterOnUser, Boolean nbPrivate, Boolean nbPublic, Boolean nbFriends, String sortBy, Boolean includeNonCenters, Boolean seek, SeekCursor after, Integer... inShareLevelsIntegers) {
+        String seekKey = String.format(
+                "coalesce(n.%s, 0)",
+                sortBy.equals("lastCenterDate") ? "last_center_date" : "creation_date"
+        );
         Set<ShareLevel> inShareLevels = inShareLevelsIntegers.length == 0 ? ShareLevel.allShareLevels : ShareLevel.arrayOfIntegersToSet(inShareLevelsIntegers);
         String context;
         Boolean shareLevelContainsPrivate = inShareLevels.contains(ShareLevel.PRIVATE);
@@ -163,87 +309,123 @@ public class CenterGraphElementsOperatorNeo4j implements CenteredGraphElementsOp
         } else {
             context = "public_context";
         }
-        try (Session session = driver.session()) {
-            Result rs = session.run(
-                    String.format(
-                            match + " 1=1 " +
-                                    (filterOnUser ? "AND n.owner=$owner" : "") + (includeNonCenters ? " " : " AND EXISTS(n.last_center_date) ") +
-                                    (inShareLevelsIntegers.length == 0 ? " " : "AND n.shareLevel IN $shareLevels ") +
-                                    "OPTIONAL MATCH (n)-[:IDENTIFIED_TO]->(id) " +
-                                    (inShareLevelsIntegers.length == 0 ? " " : "WHERE id.shareLevel IN $shareLevels ") +
-                                    "RETURN " +
-                                    TagQueryBuilder.tagReturnQueryPart(inShareLevels) +
-                                    "%s %s %s n.%s as context, n.nb_visits as nbVisits, n.creation_date as creationDate, n.last_center_date as lastCenterDate, n.label as label, n.uri as uri, n.colors as colors, n.shareLevel, 'Pattern' IN LABELS(n) as isPattern " +
-                                    "ORDER BY " + sortBy + " DESC " +
-                                    "SKIP " + skip +
-                                    " LIMIT " + limit,
-                            (nbPrivate ? "n.nb_private_neighbors as nbPrivateNeighbors," : ""),
-                            (nbPrivate || nbFriends ? "n.nb_friend_neighbors as nbFriendNeighbors," : ""),
-                            (nbPrivate || nbFriends || nbPublic ? "n.nb_public_neighbors as nbPublic," : ""),
-                            context
-                    ),
+        String query = QueryTemplatesNeo4j.template(
+                QueryTemplatesNeo4j.variantKey(
+                        "centerGraphElements",
+                        match,
+                        filterOnUser,
+                        nbPrivate,
+                        nbPublic,
+                        nbFriends,
+                        sortBy,
+                        includeNonCenters,
+                        inShareLevelsIntegers.length == 0,
+                        inShareLevels,
+                        seek
+                ),
+                () -> String.format(
+                        match + " 1=1 " +
+                                (filterOnUser ? "AND n.owner=$owner" : "") + (includeNonCenters ? " " : " AND EXISTS(n.last_center_date) ") +
+                                (inShareLevelsIntegers.length == 0 ? " " : "AND n.shareLevel IN $shareLevels ") +
+                                (seek ? "AND ($afterUri IS NULL OR " + seekKey + " < $afterKey OR (" + seekKey + " = $afterKey AND n.uri < $afterUri)) " : "") +
+                                "OPTIONAL MATCH (n)-[:IDENTIFIED_TO]->(id) " +
+                                (inShareLevelsIntegers.length == 0 ? " " : "WHERE id.shareLevel IN $shareLevels ") +
+                                "RETURN " +
+                                TagQueryBuilder.tagReturnQueryPart(inShareLevels) +
+                                "%s %s %s n.%s as context, n.nb_visits as nbVisits, n.creation_date as creationDate, n.last_center_date as lastCenterDate, n.label as label, n.uri as uri, n.colors as colors, n.shareLevel, 'Pattern' IN LABELS(n) as isPattern " +
+                                (seek ?
+                                        ", " + seekKey + " as seekKey ORDER BY seekKey DESC, uri DESC LIMIT $limit" :
+                                        "ORDER BY " + sortBy + " DESC SKIP $skip LIMIT $limit"),
+                        (nbPrivate ? "n.nb_private_neighbors as nbPrivateNeighbors," : ""),
+                        (nbPrivate || nbFriends ? "n.nb_friend_neighbors as nbFriendNeighbors," : ""),
+                        (nbPrivate || nbFriends || nbPublic ? "n.nb_public_neighbors as nbPublic," : ""),
+                        context
+                )
+        );
+        try (Session session = SessionsNeo4j.read(driver)) {
+            List<Record> records = session.run(
+                    query,
                     parameters(
                             "owner", user == null ? "" : user.username(),
-                            "shareLevels", inShareLevelsIntegers
+                            "shareLevels", inShareLevelsIntegers,
+                            "skip", skip,
+                            "limit", limit,
+                            "afterKey", SeekCursor.valueOrNull(after, 0),
+                            "afterUri", SeekCursor.valueOrNull(after, 1)
                     )
+            ).list();
+            Record lastRecord = records.isEmpty() ? null : records.get(records.size() - 1);
+            String nextCursor = seek && lastRecord != null && records.size() == limit ?
+                    SeekCursor.withSortKey(
+                            lastRecord.get("seekKey").asLong(),
+                            lastRecord.get("uri").asString()
+                    ).toToken() : null;
+            return CursorPage.withItemsAndNextCursor(
+                    Collections.unmodifiableList(records),
+                    nextCursor
             );
-            Boolean includeLastCenterDate = shareLevelContainsPrivate;
-            while (rs.hasNext()) {
-                Record record = rs.next();
-                Date lastCenterDate = !includeLastCenterDate || null == record.get("lastCenterDate").asObject() ?
-                        null :
-                        new Date(record.get("lastCenterDate").asLong());
-                Integer nbVisits = null == record.get("nbVisits").asObject() ?
-                        null :
-                        record.get("nbVisits").asInt();
-                Integer nbPrivateNeighbors = null == record.get("nbPrivateNeighbors").asObject() ?
-                        null :
-                        record.get("nbPrivateNeighbors").asInt();
-                Integer nbFriendNeighbors = null == record.get("nbFriendNeighbors").asObject() ?
-                        null :
-                        record.get("nbFriendNeighbors").asInt();
-                Integer nbPublicNeighbors = null == record.get("nbPublic").asObject() ?
-                        null :
-                        record.get("nbPublic").asInt();
-                Long creationDate = null == record.get("creationDate").asObject() ?
-                        null :
-                        record.get("creationDate").asLong();
-                String colors = record.get("colors").asString();
-                ShareLevel shareLevel = record.get("n.shareLevel").asObject() == null ? ShareLevel.PRIVATE : ShareLevel.get(
-                        record.get("n.shareLevel").asInt()
-                );
-                GraphElementPojo graphElement = new GraphElementPojo(
-                        new FriendlyResourcePojo(
-                                URI.create(record.get("uri").asString()),
-                                record.get("label").asString()
-                        ),
-                        TagsFromExtractorQueryRowAsArray.usingRowAndKey(
-                                record,
-                                "id"
-                        ).build()
-                );
-                graphElement.setCreationDate(creationDate);
-                graphElement.setColors(colors);
-                centerGraphElements.add(
-                        new CenterGraphElementPojo(
-                                nbVisits,
-                                lastCenterDate,
-                                graphElement,
-                                getContextFromRow(record),
-                                shareLevel,
-                                record.get("isPattern").asBoolean(),
-                                new NbNeighborsPojo(
-                                        nbPrivateNeighbors,
-                                        nbFriendNeighbors,
-                                        nbPublicNeighbors
-                                )
-                        )
-                );
-            }
-            return centerGraphElements;
         }
     }
 
+    private CursorPage<CenterGraphElementPojo> centersFromRecords(CursorPage<Record> records, Boolean includeLastCenterDate) {
+        List<CenterGraphElementPojo> centerGraphElements = new ArrayList<>();
+        for (Record record : records.getItems()) {
+            Date lastCenterDate = !includeLastCenterDate || null == record.get("lastCenterDate").asObject() ?
+                    null :
+                    new Date(record.get("lastCenterDate").asLong());
+            Integer nbVisits = null == record.get("nbVisits").asObject() ?
+                    null :
+                    record.get("nbVisits").asInt();
+            Integer nbPrivateNeighbors = null == record.get("nbPrivateNeighbors").asObject() ?
+                    null :
+                    record.get("nbPrivateNeighbors").asInt();
+            Integer nbFriendNeighbors = null == record.get("nbFriendNeighbors").asObject() ?
+                    null :
+                    record.get("nbFriendNeighbors").asInt();
+            Integer nbPublicNeighbors = null == record.get("nbPublic").asObject() ?
+                    null :
+                    record.get("nbPublic").asInt();
+            Long creationDate = null == record.get("creationDate").asObject() ?
+                    null :
+                    record.get("creationDate").asLong();
+            String colors = record.get("colors").asString();
+            ShareLevel shareLevel = record.get("n.shareLevel").asObject() == null ? ShareLevel.PRIVATE : ShareLevel.get(
+                    record.get("n.shareLevel").asInt()
+            );
+            GraphElementPojo graphElement = new GraphElementPojo(
+                    new FriendlyResourcePojo(
+                            URI.create(record.get("uri").asString()),
+                            record.get("label").asString()
+                    ),
+                    TagsFromExtractorQueryRowAsArray.usingRowAndKey(
+                            record,
+                            "id"
+                    ).build()
+            );
+            graphElement.setCreationDate(creationDate);
+            graphElement.setColors(colors);
+            centerGraphElements.add(
+                    new CenterGraphElementPojo(
+                            nbVisits,
+                            lastCenterDate,
+                            graphElement,
+                            getContextFromRow(record),
+                            shareLevel,
+                            record.get("isPattern").asBoolean(),
+                            new NbNeighborsPojo(
+                                    nbPrivateNeighbors,
+                                    nbFriendNeighbors,
+                                    nbPublicNeighbors
+                            )
+                    )
+            );
+        }
+        return CursorPage.withItemsAndNextCursor(
+                centerGraphElements,
+                records.getNextCursor()
+        );
+    }
+
     private String getContextFromRow(Record record) {
         Value value = record.get("context");
         return value.asObject() == null ? "" : value.asString();
@@ -0,0 +1,333 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element;
+
+import com.google.inject.Inject;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Write-behind buffer for the number of visits and the last center date of bubbles.
+ * A navigation only touches memory, pending values are written for all bubbles at once
+ * every flushIntervalMillis or as soon as maxPendingUris bubbles are pending.
+ * Until then, nb_visits and last_center_date in the database lag behind,
+ * CenterGraphElementOperatorNeo4j merges the pending values in its own reads.
+ * Neo4jModule closes the buffer before the driver so that the last values are written.
+ */
+public class CenterVisitsBufferNeo4j {
+
+    private static final Logger logger = Logger.getLogger(CenterVisitsBufferNeo4j.class.getName());
+
+    @Inject
+    private Driver driver;
+
+    @Inject
+    private GraphCachesNeo4j graphCaches;
+
+    private final Long flushIntervalMillis;
+    private final Integer maxPendingUris;
+
+    private final ReentrantReadWriteLock swapLock = new ReentrantReadWriteLock();
+    private Map<URI, LongAdder> pendingVisits = new ConcurrentHashMap<>();
+    private Map<URI, Long> pendingLastCenterDates = new ConcurrentHashMap<>();
+    private Map<URI, LongAdder> flushingVisits = new HashMap<>();
+    private Map<URI, Long> flushingLastCenterDates = new HashMap<>();
+    private final Set<URI> discardedWhileFlushing = new HashSet<>();
+
+    private final Object startLock = new Object();
+    private volatile ScheduledExecutorService scheduler;
+    private final AtomicBoolean isFlushScheduled = new AtomicBoolean(false);
+    private final AtomicBoolean isClosed = new AtomicBoolean(false);
+
+    public static CenterVisitsBufferNeo4j disabled() {
+        return new CenterVisitsBufferNeo4j(0L, 0);
+    }
+
+    public static CenterVisitsBufferNeo4j withFlushIntervalAndMaxPendingUris(Long flushIntervalMillis, Integer maxPendingUris) {
+        return new CenterVisitsBufferNeo4j(flushIntervalMillis, maxPendingUris);
+    }
+
+    protected CenterVisitsBufferNeo4j(Long flushIntervalMillis, Integer maxPendingUris) {
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.maxPendingUris = maxPendingUris;
+    }
+
+    public Boolean isEnabled() {
+        return flushIntervalMillis > 0;
+    }
+
+    public void incrementNumberOfVisits(URI uri) {
+        swapLock.readLock().lock();
+        try {
+            pendingVisits.computeIfAbsent(
+                    uri,
+                    k -> new LongAdder()
+            ).increment();
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        afterWrite();
+    }
+
+    public void setLastCenterDate(URI uri, Date lastCenterDate) {
+        swapLock.readLock().lock();
+        try {
+            pendingLastCenterDates.put(
+                    uri,
+                    lastCenterDate.getTime()
+            );
+        } finally {
+            swapLock.readLock().unlock();
+        }
+        afterWrite();
+    }
+
+    /*
+     * includes the values of a flush in progress
+     */
+    public Long getPendingNumberOfVisits(URI uri) {
+        swapLock.readLock().lock();
+        try {
+            LongAdder visits = pendingVisits.get(uri);
+            LongAdder flushing = flushingVisits.get(uri);
+            return (visits == null ? 0 : visits.sum()) + (flushing == null ? 0 : flushing.sum());
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public Date getPendingLastCenterDate(URI uri) {
+        swapLock.readLock().lock();
+        try {
+            Long lastCenterDate = pendingLastCenterDates.get(uri);
+            if (lastCenterDate == null) {
+                lastCenterDate = flushingLastCenterDates.get(uri);
+            }
+            return lastCenterDate == null ? null : new Date(lastCenterDate);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public void discard(URI uri) {
+        swapLock.writeLock().lock();
+        try {
+            pendingVisits.remove(uri);
+            pendingLastCenterDates.remove(uri);
+            Boolean isFlushing = flushingVisits.remove(uri) != null;
+            isFlushing = flushingLastCenterDates.remove(uri) != null || isFlushing;
+            if (isFlushing) {
+                discardedWhileFlushing.add(uri);
+            }
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+    }
+
+    public Integer getNbPendingUris() {
+        Set<URI> uris = new HashSet<>(pendingVisits.keySet());
+        uris.addAll(pendingLastCenterDates.keySet());
+        return uris.size();
+    }
+
+    /*
+     * Pending values are swapped out and written with a single UNWIND,
+     * they are kept in memory when the write fails.
+     * The transaction is committed under the write lock, at the same time as the flushing values
+     * are dropped, so that readers count them either in memory or in the database but never twice.
+     * When a bubble being written is discarded meanwhile, the transaction is rolled back
+     * and written again without it.
+     */
+    public synchronized void flush() {
+        swapLock.writeLock().lock();
+        try {
+            flushingVisits = pendingVisits;
+            flushingLastCenterDates = pendingLastCenterDates;
+            pendingVisits = new ConcurrentHashMap<>();
+            pendingLastCenterDates = new ConcurrentHashMap<>();
+            discardedWhileFlushing.clear();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        Boolean isWritten = false;
+        try {
+            while (!isWritten) {
+                isWritten = writeFlushing();
+            }
+        } finally {
+            swapLock.writeLock().lock();
+            try {
+                if (!isWritten) {
+                    putBack(flushingVisits, flushingLastCenterDates);
+                }
+                flushingVisits = new HashMap<>();
+                flushingLastCenterDates = new HashMap<>();
+                discardedWhileFlushing.clear();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+    }
+
+    private Boolean writeFlushing() {
+        List<Map<String, Object>> centers;
+        swapLock.writeLock().lock();
+        try {
+            centers = centersToWrite(flushingVisits, flushingLastCenterDates);
+            discardedWhileFlushing.clear();
+        } finally {
+            swapLock.writeLock().unlock();
+        }
+        if (centers.isEmpty()) {
+            return true;
+        }
+        URI[] uris = new URI[centers.size()];
+        for (int i = 0; i < uris.length; i++) {
+            uris[i] = URI.create((String) centers.get(i).get("uri"));
+        }
+        try (Session session = driver.session(); Transaction tx = session.beginTransaction()) {
+            tx.run(
+                    "UNWIND $centers as center " +
+                            "MATCH(n:Resource{uri:center.uri}) " +
+                            "SET n.nb_visits = coalesce(n.nb_visits, 0) + center.nbVisits, " +
+                            "n.last_center_date = coalesce(center.lastCenterDate, n.last_center_date)",
+                    parameters(
+                            "centers", centers
+                    )
+            ).consume();
+            swapLock.writeLock().lock();
+            try {
+                if (!discardedWhileFlushing.isEmpty()) {
+                    return false;
+                }
+                tx.commit();
+                flushingVisits = new HashMap<>();
+                flushingLastCenterDates = new HashMap<>();
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+        }
+        graphCaches.invalidateForNbVisitsChange(uris);
+        return true;
+    }
+
+    /*
+     * can be called more than once, values pending after the first call stay in memory
+     */
+    public void close() {
+        if (!isClosed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (startLock) {
+            if (scheduler != null) {
+                scheduler.shutdown();
+            }
+        }
+        flushQuietly();
+    }
+
+    private void afterWrite() {
+        if (isClosed.get()) {
+            return;
+        }
+        if (scheduler == null) {
+            start();
+        }
+        ScheduledExecutorService currentScheduler = scheduler;
+        if (currentScheduler == null) {
+            return;
+        }
+        if (getNbPendingUris() >= maxPendingUris && isFlushScheduled.compareAndSet(false, true)) {
+            try {
+                currentScheduler.execute(() -> {
+                    isFlushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                /* closed meanwhile, close flushes */
+                isFlushScheduled.set(false);
+            }
+        }
+    }
+
+    private void start() {
+        synchronized (startLock) {
+            if (scheduler != null || isClosed.get()) {
+                return;
+            }
+            ScheduledExecutorService newScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "center-visits-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            newScheduler.scheduleWithFixedDelay(
+                    this::flushQuietly,
+                    flushIntervalMillis,
+                    flushIntervalMillis,
+                    TimeUnit.MILLISECONDS
+            );
+            scheduler = newScheduler;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.log(
+                    Level.WARNING,
+                    "could not write the pending center visits, they are kept for the next flush",
+                    e
+            );
+        }
+    }
+
+    private void putBack(Map<URI, LongAdder> visits, Map<URI, Long> lastCenterDates) {
+        for (Map.Entry<URI, LongAdder> entry : visits.entrySet()) {
+            pendingVisits.computeIfAbsent(
+                    entry.getKey(),
+                    k -> new LongAdder()
+            ).add(entry.getValue().sum());
+        }
+        for (Map.Entry<URI, Long> entry : lastCenterDates.entrySet()) {
+            pendingLastCenterDates.putIfAbsent(
+                    entry.getKey(),
+                    entry.getValue()
+            );
+        }
+    }
+
+    private static List<Map<String, Object>> centersToWrite(Map<URI, LongAdder> visits, Map<URI, Long> lastCenterDates) {
+        Set<URI> uris = new HashSet<>(visits.keySet());
+        uris.addAll(lastCenterDates.keySet());
+        List<Map<String, Object>> centers = new ArrayList<>();
+        for (URI uri : uris) {
+            LongAdder nbVisits = visits.get(uri);
+            Map<String, Object> center = new HashMap<>();
+            center.put("uri", uri.toString());
+            center.put("nbVisits", nbVisits == null ? 0L : nbVisits.sum());
+            center.put("lastCenterDate", lastCenterDates.get(uri));
+            centers.add(center);
+        }
+        return centers;
+    }
+}
@@ -0,0 +1,57 @@
+package guru.bubl.module.neo4j_graph_manipulator.graph.export;
+
+import guru.bubl.module.model.graph.edge.Edge;
+import guru.bubl.module.model.graph.graph_element.GraphElement;
+import guru.bubl.module.model.graph.group_relation.GroupRelationPojo;
+import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
+
+import java.net.URI;
+import java.util.*;
+
+public class ExportGraph {
+
+    private SubGraphPojo subGraph;
+    private Map<URI, List<Edge>> edgesOfForks = new HashMap<>();
+
+    public static ExportGraph fromSubGraph(SubGraphPojo subGraph) {
+        return new ExportGraph(subGraph);
+    }
+
+    protected ExportGraph(SubGraphPojo subGraph) {
+        this.subGraph = subGraph;
+        for (Edge relation : subGraph.edges().values()) {
+            addEdgeToFork(relation, relation.sourceUri());
+            addEdgeToFork(relation, relation.destinationUri());
+        }
+        for (GroupRelationPojo groupRelation : subGraph.getGroupRelations().values()) {
+            addEdgeToFork(groupRelation, groupRelation.getSourceForkUri());
+        }
+    }
+
+    public SubGraphPojo getSubGraph() {
+        return subGraph;
+    }
+
+    public GraphElement graphElementWithUri(URI uri) {
+        GraphElement graphElement = subGraph.vertexWithIdentifier(uri);
+        if (graphElement == null) {
+            graphElement = subGraph.getGroupRelations().get(uri);
+        }
+        return graphElement;
+    }
+
+    public List<Edge> edgesOfFork(URI forkUri) {
+        List<Edge> edges = edgesOfForks.get(forkUri);
+        return edges == null ? new ArrayList<>() : new ArrayList<>(edges);
+    }
+
+    private void addEdgeToFork(Edge edge, URI forkUri) {
+        if (forkUri == null) {
+            return;
+        }
+        edgesOfForks.computeIfAbsent(
+                forkUri,
+                k -> new ArrayList<>()
+        ).add(edge);
+    }
+}
@@ -2,36 +2,29 @@ package guru.bubl.module.neo4j_graph_manipulator.graph.export;
 
 import com.vladsch.flexmark.html2md.converter.FlexmarkHtmlConverter;
 import guru.bubl.module.model.UserUris;
-import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.edge.Edge;
 import guru.bubl.module.model.graph.graph_element.GraphElement;
 import guru.bubl.module.model.graph.group_relation.GroupRelationPojo;
 import guru.bubl.module.model.graph.relation.Relation;
-import guru.bubl.module.model.graph.subgraph.SubGraph;
-import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
-import guru.bubl.module.model.graph.subgraph.UserGraph;
 import guru.bubl.module.model.graph.tag.Tag;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 
 import java.net.URI;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 public class ExportSubGraphToMarkdown {
-    private SubGraph subGraph = SubGraphPojo.empty();
+    private ExportGraph exportGraph;
     private URI centerUri;
     private Set<URI> centers;
     private LinkedHashMap<URI, MdFile> mdFiles;
     private Set<URI> visitedParents = new HashSet<>();
-    private UserGraph userGraph;
 
     private List<String> footNotes = new ArrayList<>();
 
 
-    public ExportSubGraphToMarkdown(UserGraph userGraph, URI centerUri, Set<URI> centers, LinkedHashMap<URI, MdFile> mdFiles) {
-        this.userGraph = userGraph;
+    public ExportSubGraphToMarkdown(ExportGraph exportGraph, URI centerUri, Set<URI> centers, LinkedHashMap<URI, MdFile> mdFiles) {
+        this.exportGraph = exportGraph;
         this.centerUri = centerUri;
         this.centers = centers;
         this.mdFiles = mdFiles;
@@ -44,17 +37,7 @@ public class ExportSubGraphToMarkdown {
     public String buildForParentUri(URI parentUri, Relation parentRelation, Integer depth) {
         visitedParents.add(parentUri);
         StringBuilder markdown = new StringBuilder();
-        subGraph.mergeWith(
-                userGraph.aroundForkUriWithDepthInShareLevels(
-                        parentUri,
-                        1,
-                        ShareLevel.allShareLevelsInt
-                )
-        );
-        GraphElement parent = subGraph.vertexWithIdentifier(parentUri);
-        if (parent == null) {
-            parent = subGraph.getGroupRelations().get(parentUri);
-        }
+        GraphElement parent = exportGraph.graphElementWithUri(parentUri);
         Boolean isCenter = parentUri.equals(centerUri) && parentRelation == null;
         if (!isCenter) {
             markdown.append(" ".repeat(Math.max(0, depth * 2)));
@@ -89,11 +72,10 @@ public class ExportSubGraphToMarkdown {
         }
         CompareByChildrenIndex compareByChildrenIndex = new CompareByChildrenIndex(
                 parentUri,
-                subGraph,
+                exportGraph.getSubGraph(),
                 childrenIndex
         );
-        List<Edge> edges = Stream.concat(subGraph.edges().values().stream(), subGraph.getGroupRelations().values().stream())
-                .collect(Collectors.toList());
+        List<Edge> edges = exportGraph.edgesOfFork(parentUri);
         Collections.sort(edges, compareByChildrenIndex);
         for (Edge edge : edges) {
             if (UserUris.isUriOfAGroupRelation(edge.uri())) {
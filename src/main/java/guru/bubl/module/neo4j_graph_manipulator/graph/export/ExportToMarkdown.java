@@ -6,25 +6,30 @@ import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.User;
 import guru.bubl.module.model.UserUris;
 import guru.bubl.module.model.center_graph_element.*;
-import guru.bubl.module.model.graph.GraphFactory;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.graph_element.GraphElement;
 import guru.bubl.module.model.graph.subgraph.SubGraph;
-import guru.bubl.module.model.graph.subgraph.UserGraph;
-import net.lingala.zip4j.ZipFile;
+import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementsOperatorFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementsOperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.OwnerGraphExtractorNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
 import org.neo4j.driver.Session;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.*;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 import static org.neo4j.driver.Values.parameters;
 
@@ -32,14 +37,19 @@ public class ExportToMarkdown {
 
     private static SimpleDateFormat formatter = new SimpleDateFormat("dd/MM/yyyy HH:mm:ss");
 
+    private static final Integer RENDERING_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    /*
+     * number of centers rendered ahead of the one being written to the zip,
+     * it keeps the output order while bounding what is held in memory
+     */
+    private static final Integer RENDERING_WINDOW = RENDERING_PARALLELISM * 4;
+
     @Inject
     private Driver driver;
 
-    @javax.inject.Inject
-    private GraphFactory graphFactory;
-
     @Inject
-    private CenterGraphElementsOperatorFactory centerGraphElementsOperatorFactory;
+    private CenterGraphElementsOperatorFactoryNeo4j centerGraphElementsOperatorFactory;
 
     private String username;
 
@@ -55,46 +65,130 @@ public class ExportToMarkdown {
 
     public File export() {
         System.out.println("start export v8 " + formatter.format(new Date()));
-        return writeFilesToZip(
-                exportStrings()
+        String PATH = "/tmp/mindrespect.com/" + username;
+        try {
+            Files.createDirectories(Paths.get(PATH));
+            File zipFile = new File(PATH + "/" + username + ".zip");
+            try (OutputStream outputStream = new FileOutputStream(zipFile)) {
+                exportToOutputStream(outputStream);
+            }
+            return zipFile;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public void exportToOutputStream(OutputStream outputStream) {
+        LinkedHashMap<URI, MdFile> centers = loadCenters();
+        ExportGraph exportGraph = loadExportGraph();
+        System.out.println("start writing files " + formatter.format(new Date()));
+        ZipOutputStream zipOutputStream = new ZipOutputStream(
+                new BufferedOutputStream(outputStream)
         );
+        ForkJoinPool renderingPool = new ForkJoinPool(RENDERING_PARALLELISM);
+        try {
+            Deque<PendingCenter> pendingCenters = new ArrayDeque<>();
+            for (URI centerUri : centers.keySet()) {
+                pendingCenters.add(new PendingCenter(
+                        centers.get(centerUri),
+                        renderingPool.submit(
+                                () -> renderCenter(exportGraph, centerUri, centers)
+                        )
+                ));
+                if (pendingCenters.size() >= RENDERING_WINDOW) {
+                    writeOldestPendingCenter(zipOutputStream, pendingCenters);
+                }
+            }
+            while (!pendingCenters.isEmpty()) {
+                writeOldestPendingCenter(zipOutputStream, pendingCenters);
+            }
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            renderingPool.shutdownNow();
+        }
+        System.out.println("done writing file " + formatter.format(new Date()));
     }
 
     public LinkedHashMap<URI, MdFile> exportStrings() {
+        LinkedHashMap<URI, MdFile> centers = loadCenters();
+        ExportGraph exportGraph = loadExportGraph();
+        ForkJoinPool renderingPool = new ForkJoinPool(RENDERING_PARALLELISM);
+        try {
+            renderingPool.submit(
+                    () -> centers.keySet().parallelStream().forEach(
+                            centerUri -> centers.get(centerUri).setContent(
+                                    renderCenter(exportGraph, centerUri, centers)
+                            )
+                    )
+            ).get();
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        } finally {
+            renderingPool.shutdown();
+        }
+        return centers;
+    }
+
+    private String renderCenter(ExportGraph exportGraph, URI centerUri, LinkedHashMap<URI, MdFile> centers) {
+        return new ExportSubGraphToMarkdown(
+                exportGraph,
+                centerUri,
+                centers.keySet(),
+                centers
+        ).export();
+    }
+
+    private void writeOldestPendingCenter(ZipOutputStream zipOutputStream, Deque<PendingCenter> pendingCenters) throws IOException, InterruptedException, ExecutionException {
+        PendingCenter pendingCenter = pendingCenters.poll();
+        writeZipEntry(
+                zipOutputStream,
+                pendingCenter.mdFile,
+                pendingCenter.content.get()
+        );
+    }
+
+    private ExportGraph loadExportGraph() {
+        return ExportGraph.fromSubGraph(
+                OwnerGraphExtractorNeo4j.forOwnerUsingDriver(
+                        username,
+                        driver
+                ).load()
+        );
+    }
+
+    private LinkedHashMap<URI, MdFile> loadCenters() {
         LinkedHashMap<URI, MdFile> centers = new LinkedHashMap<>();
-        Integer page = 0;
-        Boolean hasMore = true;
-        Integer skip = 28;
-        while (hasMore) {
-            CenteredGraphElementsOperator centeredGraphElementsOperator = centerGraphElementsOperatorFactory.usingLimitAndSkip(
-                    skip,
-                    skip * page
-            );
-            List<CenterGraphElementPojo> centersPojo = centeredGraphElementsOperator.getPublicAndPrivateForOwner(User.withUsername(username));
-            for (CenterGraphElement center : centersPojo) {
-                if (!UserUris.isUriOfATag(center.getGraphElement().uri()) && !UserUris.isUriOfARelation(center.getGraphElement().uri())) {
-                    String filename = uniqueCenterName(center);
-                    centersLabel.put(filename, center.getGraphElement().uri());
-                    MdFile mdFile = new MdFile(
-                            filename
-                    );
-                    mdFile.setLastModificationDate(
-                            center.getLastCenterDate().getTime()
-                    );
-                    mdFile.setCreationDate(
-                            center.getGraphElement().creationDate().getTime()
-                    );
-                    centers.put(
-                            center.getGraphElement().uri(),
-                            mdFile
-                    );
+        /*
+         * every center of the owner in one query, the export needs them all
+         */
+        CenterGraphElementsOperatorNeo4j centeredGraphElementsOperator = centerGraphElementsOperatorFactory.usingLimitAndSkip(
+                Integer.MAX_VALUE,
+                0
+        );
+        for (CenterGraphElement center : centeredGraphElementsOperator.getPublicAndPrivateForOwner(
+                User.withUsername(username)
+        )) {
+            if (!UserUris.isUriOfATag(center.getGraphElement().uri()) && !UserUris.isUriOfARelation(center.getGraphElement().uri())) {
+                String filename = uniqueCenterName(center);
+                centersLabel.put(filename, center.getGraphElement().uri());
+                MdFile mdFile = new MdFile(
+                        filename
+                );
+                mdFile.setLastModificationDate(
+                        center.getLastCenterDate().getTime()
+                );
+                mdFile.setCreationDate(
+                        center.getGraphElement().creationDate().getTime()
+                );
+                centers.put(
+                        center.getGraphElement().uri(),
+                        mdFile
+                );
 
-                }
             }
-            if (centersPojo.size() == 0) {
-                hasMore = false;
-            }
-            page++;
         }
 
 //        try (Session session = driver.session()) {
@@ -119,21 +213,6 @@ public class ExportToMarkdown {
 //            }
 //        }
         System.out.println("done loading centers");
-        UserGraph userGraph = graphFactory.loadForUser(
-                User.withUsername(username)
-        );
-        for (URI centerUri : centers.keySet()) {
-            MdFile mdFile = centers.get(centerUri);
-//            System.out.println("export markdown for " + mdFile.getName());
-            ExportSubGraphToMarkdown exportSubGraphToMarkdown = new ExportSubGraphToMarkdown(
-                    userGraph,
-                    centerUri,
-                    centers.keySet(),
-                    centers
-            );
-//            System.out.println("building md file " + mdFile.getName());
-            mdFile.setContent(exportSubGraphToMarkdown.export());
-        }
 //        try (Session session = driver.session()) {
 //            Result rs = session.run(
 //                    "MATCH (center:GraphElement{owner:$owner}) " +
@@ -240,26 +319,26 @@ public class ExportToMarkdown {
         return name;
     }
 
-    private File writeFilesToZip(LinkedHashMap<URI, MdFile> files) {
-        System.out.println("start writing files " + formatter.format(new Date()));
-        String PATH = "/tmp/mindrespect.com/" + username;
-        try {
-            Files.createDirectories(Paths.get(PATH));
-            ZipFile zipFile = new ZipFile("/tmp/mindrespect.com/" + username + "/" + username + ".zip");
-            for (MdFile file : files.values()) {
-                String filePath = PATH + "/" + file.getName() + ".md";
-                FileWriter myWriter = new FileWriter(filePath);
-                myWriter.write(file.getContent());
-                myWriter.close();
-                File physicalFile = new File(filePath);
-                physicalFile.setLastModified(file.getLastModificationDate());
-                Files.setAttribute(Paths.get(filePath), "creationTime", FileTime.fromMillis(file.getCreationDate()));
-                zipFile.addFile(physicalFile);
-            }
-            System.out.println("done writing file " + formatter.format(new Date()));
-            return zipFile.getFile();
-        } catch (Exception e) {
-            throw new RuntimeException(e);
+    private void writeZipEntry(ZipOutputStream zipOutputStream, MdFile mdFile, String content) throws IOException {
+        ZipEntry zipEntry = new ZipEntry(mdFile.getName() + ".md");
+        if (mdFile.getLastModificationDate() != null) {
+            zipEntry.setLastModifiedTime(FileTime.fromMillis(mdFile.getLastModificationDate()));
+        }
+        if (mdFile.getCreationDate() != null) {
+            zipEntry.setCreationTime(FileTime.fromMillis(mdFile.getCreationDate()));
+        }
+        zipOutputStream.putNextEntry(zipEntry);
+        zipOutputStream.write(content.getBytes(StandardCharsets.UTF_8));
+        zipOutputStream.closeEntry();
+    }
+
+    private static class PendingCenter {
+        private MdFile mdFile;
+        private Future<String> content;
+
+        private PendingCenter(MdFile mdFile, Future<String> content) {
+            this.mdFile = mdFile;
+            this.content = content;
         }
     }
 }
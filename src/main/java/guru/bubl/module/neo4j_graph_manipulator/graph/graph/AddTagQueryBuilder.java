@@ -7,9 +7,27 @@ package guru.bubl.module.neo4j_graph_manipulator.graph.graph;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.QueryTemplatesNeo4j;
 
 public class AddTagQueryBuilder {
 
+    public static final String TAG_QUERY_KEY = "f";
+
+    /*
+     * columns keep the f. prefix so that they are resolved with ExtractorQueryColumns
+     */
+    private static final String RETURN_TAG_QUERY_PART = "f.uri, " +
+            "f.external_uri, " +
+            "f.label, " +
+            "f.comment, " +
+            "f.images, " +
+            "f.creation_date, " +
+            "f.last_modification_date, " +
+            "f.nb_private_neighbors, " +
+            "f.nb_friend_neighbors, " +
+            "f.nb_public_neighbors, " +
+            "f.shareLevel";
+
     private String queryPrefix;
     private ShareLevel sourceShareLevel;
     private Boolean tagExternalUri;
@@ -37,6 +55,68 @@ public class AddTagQueryBuilder {
     }
 
     public String build() {
+        return QueryTemplatesNeo4j.template(
+                QueryTemplatesNeo4j.variantKey("addTag", queryPrefix, sourceShareLevel, tagExternalUri),
+                this::buildQuery
+        );
+    }
+
+    /*
+     * the same tagging as build for each row of $rows, with the properties of a tag and
+     * uri, owner, tagExternalUri and key, the external uri the caller gave, for the graph element
+     */
+    public static String buildForRows(ShareLevel sourceShareLevel) {
+        return QueryTemplatesNeo4j.template(
+                QueryTemplatesNeo4j.variantKey("addTags", sourceShareLevel),
+                () -> {
+                    String neighborsPropertyName = sourceShareLevel.getNbNeighborsPropertyName();
+                    return String.format(
+                            "UNWIND $rows as row " +
+                                    "MATCH(n:Resource{uri:row.uri}) " +
+                                    mergeTagQueryPart("row.") +
+                                    "MERGE (n)-[r:IDENTIFIED_TO]->(f) " +
+                                    "SET r.relation_external_uri=row.relationExternalUri, " +
+                                    "f.%s=f.%s + 1, " +
+                                    FriendlyResourceNeo4j.LAST_MODIFICATION_QUERY_PART +
+                                    "WITH row, f " +
+                                    "OPTIONAL MATCH(e:Resource{uri:row.external_uri}) WHERE row.tagExternalUri " +
+                                    "FOREACH (ignored IN CASE WHEN e IS NULL THEN [] ELSE [1] END | " +
+                                    "MERGE (e)-[:IDENTIFIED_TO]->(f) " +
+                                    "ON CREATE SET f.%s=f.%s + 1) " +
+                                    "RETURN row.uri as graphElementUri, " +
+                                    "row.key as key, " +
+                                    RETURN_TAG_QUERY_PART,
+                            neighborsPropertyName,
+                            neighborsPropertyName,
+                            neighborsPropertyName,
+                            neighborsPropertyName
+                    );
+                }
+        );
+    }
+
+    private static String mergeTagQueryPart(String parameterPrefix) {
+        return String.format(
+                "MERGE (f:Resource:GraphElement:Meta{external_uri:%1$sexternal_uri, owner:%1$sowner}) " +
+                        "ON CREATE SET f.uri=%1$smetaUri," +
+                        "f.shareLevel=%1$sshareLevel," +
+                        "f.label=%1$slabel," +
+                        "f.comment=%1$scomment," +
+                        "f.private_context=%1$sprivateContext," +
+                        "f.friend_context=%1$sfriendContext," +
+                        "f.public_context=%1$spublicContext," +
+                        "f.nb_visits=0," +
+                        "f.images=%1$simages," +
+                        "f.creation_date=%1$screationDate," +
+                        "f.last_modification_date=timestamp()," +
+                        "f.nb_private_neighbors=0," +
+                        "f.nb_friend_neighbors=0," +
+                        "f.nb_public_neighbors=0 ",
+                parameterPrefix
+        );
+    }
+
+    private String buildQuery() {
         String neighborsPropertyName = sourceShareLevel.getNbNeighborsPropertyName();
         String tagExternalUriQueryPart;
         if (tagExternalUri) {
@@ -51,37 +131,15 @@ public class AddTagQueryBuilder {
             tagExternalUriQueryPart = "";
         }
         return String.format(
-                "%sMERGE (f:Resource:GraphElement:Meta{external_uri:$external_uri, owner:$owner}) " +
-                        "ON CREATE SET f.uri=$metaUri," +
-                        "f.shareLevel=$shareLevel," +
-                        "f.label=$label," +
-                        "f.comment=$comment," +
-                        "f.private_context=$privateContext," +
-                        "f.friend_context=$friendContext," +
-                        "f.public_context=$publicContext," +
-                        "f.nb_visits=0," +
-                        "f.images=$images," +
-                        "f.creation_date=$creationDate," +
-                        "f.last_modification_date=timestamp()," +
-                        "f.nb_private_neighbors=0," +
-                        "f.nb_friend_neighbors=0," +
-                        "f.nb_public_neighbors=0 " +
+                "%s" +
+                        mergeTagQueryPart("$") +
                         "MERGE (n)-[r:IDENTIFIED_TO]->(f) " +
                         "SET r.relation_external_uri=$relationExternalUri, " +
                         "f.%s=f.%s + 1, " +
                         FriendlyResourceNeo4j.LAST_MODIFICATION_QUERY_PART +
                         tagExternalUriQueryPart +
-                        "RETURN f.uri as uri, " +
-                        "f.external_uri as external_uri, " +
-                        "f.label as label, " +
-                        "f.comment as comment, " +
-                        "f.images as images, " +
-                        "f.creation_date as creation_date, " +
-                        "f.last_modification_date as last_modification_date, " +
-                        "f.nb_private_neighbors as nbPrivateNeighbors, " +
-                        "f.nb_friend_neighbors as nbFriendNeighbors, " +
-                        "f.nb_public_neighbors as nbPublicNeighbors, " +
-                        "f.shareLevel",
+                        "RETURN " +
+                        RETURN_TAG_QUERY_PART,
                 queryPrefix,
                 neighborsPropertyName,
                 neighborsPropertyName
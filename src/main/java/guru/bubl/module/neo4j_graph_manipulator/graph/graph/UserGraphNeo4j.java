@@ -12,7 +12,11 @@ import guru.bubl.module.model.graph.subgraph.UserGraph;
 import guru.bubl.module.model.graph.vertex.VertexOperator;
 import guru.bubl.module.model.graph.vertex.VertexPojo;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.LimitedSubGraph;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExpansion;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexFactoryNeo4j;
 import org.neo4j.driver.Driver;
 
@@ -30,6 +34,9 @@ public class UserGraphNeo4j implements UserGraph {
     @Inject
     Driver driver;
 
+    @Inject
+    SubGraphCacheNeo4j subGraphCache;
+
     @AssistedInject
     protected UserGraphNeo4j(
             VertexFactoryNeo4j vertexFactory,
@@ -53,19 +60,61 @@ public class UserGraphNeo4j implements UserGraph {
 
     @Override
     public SubGraphPojo aroundForkUriInShareLevels(URI centerVertexUri, Integer... shareLevels) {
-        return subGraphExtractorFactory.withCenterVertexInShareLevels(
+        SubGraphExtractorNeo4j extractor = subGraphExtractorFactory.withCenterVertexInShareLevels(
                 centerVertexUri,
                 shareLevels
-        ).load();
+        );
+        return subGraphCache.getOrLoad(
+                centerVertexUri,
+                null,
+                shareLevels,
+                () -> extractor.loadRecords(SubGraphExpansion.VARIABLE_LENGTH_PATH),
+                extractor::subGraphFromRecords
+        );
     }
 
     @Override
     public SubGraphPojo aroundForkUriWithDepthInShareLevels(URI centerVertexUri, Integer depth, Integer... shareLevels) {
-        return subGraphExtractorFactory.withCenterVertexInShareLevelsAndDepth(
+        return aroundForkUriWithDepthInShareLevelsUsingExpansion(
+                centerVertexUri,
+                depth,
+                SubGraphExpansion.VARIABLE_LENGTH_PATH,
+                shareLevels
+        );
+    }
+
+    public SubGraphPojo aroundForkUriWithDepthInShareLevelsUsingExpansion(URI centerVertexUri, Integer depth, SubGraphExpansion expansion, Integer... shareLevels) {
+        SubGraphExtractorNeo4j extractor = subGraphExtractorFactory.withCenterVertexInShareLevelsAndDepth(
                 centerVertexUri,
                 depth,
                 shareLevels
-        ).load();
+        );
+        return subGraphCache.getOrLoad(
+                centerVertexUri,
+                depth,
+                shareLevels,
+                () -> extractor.loadRecords(expansion),
+                extractor::subGraphFromRecords
+        );
+    }
+
+    /*
+     * Keeps at most fanOutLimit children per bubble and reports how many were omitted.
+     * Calling it again centered on a truncated bubble with an offset pages in the rest.
+     */
+    public LimitedSubGraph aroundForkUriWithDepthAndFanOutLimitInShareLevels(URI centerVertexUri, Integer depth, Integer fanOutLimit, Integer fanOutOffset, Integer... shareLevels) {
+        SubGraphExtractorNeo4j extractor = subGraphExtractorFactory.withCenterVertexInShareLevelsAndDepth(
+                centerVertexUri,
+                depth,
+                shareLevels
+        ).withFanOutLimitAndOffset(
+                fanOutLimit,
+                fanOutOffset
+        );
+        return LimitedSubGraph.withSubGraphAndNbOmittedChildren(
+                extractor.load(SubGraphExpansion.LEVEL_BY_LEVEL),
+                extractor.getNbOmittedChildren()
+        );
     }
 
     @Override
@@ -7,15 +7,20 @@ import guru.bubl.module.model.graph.graph_element.GraphElement;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.edge.EdgeOperator;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.Relationships;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementSpecialOperatorFactory;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
 
 import java.net.URI;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import static guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementOperatorNeo4j.decrementNbNeighborsQueryPart;
 import static guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementOperatorNeo4j.incrementNbNeighborsQueryPart;
@@ -31,6 +36,12 @@ public class EdgeOperatorNeo4j implements EdgeOperator, OperatorNeo4j {
     @Inject
     private Driver driver;
 
+    @Inject
+    private GraphCachesNeo4j graphCaches;
+
+    @Inject
+    private GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     protected EdgeOperatorNeo4j(
             @Assisted URI uri
@@ -116,26 +127,41 @@ public class EdgeOperatorNeo4j implements EdgeOperator, OperatorNeo4j {
                         decrementPreviousVertexQueryPart +
                         decrementKeptVertexQueryPart +
                         incrementKeptVertexQueryPart +
-                        incrementNewEndVertexQueryPart + ",%s",
+                        incrementNewEndVertexQueryPart + ",%s " +
+                        "RETURN prev_v.uri as previousEndUri, kept_v.uri as keptEndUri",
                 queryPrefix(),
                 relationshipToChange,
                 relationshipToKeep,
                 relationshipToChange,
                 FriendlyResourceNeo4j.LAST_MODIFICATION_QUERY_PART
         );
-        try (Session session = driver.session()) {
-            session.run(
-                    query,
-                    parameters(
-                            "uri",
-                            this.uri().toString(),
-                            "endVertexUri",
-                            newEndUri.toString(),
-                            "last_modification_date",
-                            new Date().getTime()
-                    )
-            );
-        }
+        List<URI> endUris = graphTransaction.inTransaction("changeEndVertex", () -> {
+            try (Session session = driver.session()) {
+                List<URI> uris = new ArrayList<>();
+                for (Record record : session.run(
+                        query,
+                        parameters(
+                                "uri",
+                                this.uri().toString(),
+                                "endVertexUri",
+                                newEndUri.toString(),
+                                "last_modification_date",
+                                new Date().getTime()
+                        )
+                ).list()) {
+                    uris.add(URI.create(record.get("previousEndUri").asString()));
+                    if (!record.get("keptEndUri").isNull()) {
+                        uris.add(URI.create(record.get("keptEndUri").asString()));
+                    }
+                }
+                return uris;
+            }
+        });
+        endUris.add(uri);
+        endUris.add(newEndUri);
+        graphCaches.invalidate(
+                endUris.toArray(new URI[0])
+        );
     }
 
     @Override
@@ -145,7 +171,7 @@ public class EdgeOperatorNeo4j implements EdgeOperator, OperatorNeo4j {
 
     @Override
     public URI sourceUri() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     queryPrefix() +
                             "MATCH (n)-[:SOURCE]->(v) " +
@@ -161,7 +187,7 @@ public class EdgeOperatorNeo4j implements EdgeOperator, OperatorNeo4j {
 
     @Override
     public URI destinationUri() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     queryPrefix() +
                             "MATCH (n)-[:DESTINATION]->(v) " +
@@ -0,0 +1,104 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor;
+
+import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.ForkOperatorNeo4J;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.tag.TagOperatorNeo4J;
+import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImagesNeo4j;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Column indexes of the graph element properties returned under a key prefix,
+ * resolved once per Result so that rows are read positionally.
+ * Not thread safe, use one instance per Result.
+ */
+public class ExtractorQueryColumns {
+
+    public static final int ABSENT = -1;
+
+    public final int uri;
+    public final int label;
+    public final int comment;
+    public final int creationDate;
+    public final int lastModificationDate;
+    public final int copiedFromUri;
+    public final int images;
+    public final int nbPrivateNeighbors;
+    public final int nbFriendNeighbors;
+    public final int nbPublicNeighbors;
+    public final int colors;
+    public final int font;
+    public final int shareLevel;
+    public final int externalUri;
+    public final int indexVertexUri;
+    public final int type;
+    public final int nId;
+    public final int tags;
+
+    private final List<String> keys;
+    private final Map<String, URI> uris = new HashMap<>();
+
+    public static ExtractorQueryColumns usingResultAndPrefix(Result result, String prefix) {
+        return new ExtractorQueryColumns(
+                result.keys(),
+                prefix
+        );
+    }
+
+    public static ExtractorQueryColumns usingRecordAndPrefix(Record record, String prefix) {
+        return new ExtractorQueryColumns(
+                record.keys(),
+                prefix
+        );
+    }
+
+    protected ExtractorQueryColumns(List<String> keys, String prefix) {
+        this.keys = keys;
+        String keyPrefix = prefix + ".";
+        uri = keys.indexOf(keyPrefix + UserGraphNeo4j.URI_PROPERTY_NAME);
+        label = keys.indexOf(keyPrefix + FriendlyResourceNeo4j.props.label.name());
+        comment = keys.indexOf(keyPrefix + FriendlyResourceNeo4j.props.comment.name());
+        creationDate = keys.indexOf(keyPrefix + FriendlyResourceNeo4j.props.creation_date.name());
+        lastModificationDate = keys.indexOf(keyPrefix + FriendlyResourceNeo4j.props.last_modification_date.name());
+        copiedFromUri = keys.indexOf(keyPrefix + "copied_from_uri");
+        images = keys.indexOf(keyPrefix + ImagesNeo4j.props.images.name());
+        nbPrivateNeighbors = keys.indexOf(keyPrefix + ForkOperatorNeo4J.props.nb_private_neighbors.name());
+        nbFriendNeighbors = keys.indexOf(keyPrefix + ForkOperatorNeo4J.props.nb_friend_neighbors.name());
+        nbPublicNeighbors = keys.indexOf(keyPrefix + ForkOperatorNeo4J.props.nb_public_neighbors.name());
+        colors = keys.indexOf(keyPrefix + "colors");
+        font = keys.indexOf(keyPrefix + "font");
+        shareLevel = keys.indexOf(keyPrefix + "shareLevel");
+        externalUri = keys.indexOf(keyPrefix + TagOperatorNeo4J.props.external_uri.name());
+        indexVertexUri = keys.indexOf(keyPrefix + "indexVertexUri");
+        type = keys.indexOf("type");
+        nId = keys.indexOf("nId");
+        tags = keys.indexOf(TagQueryBuilder.TAG_QUERY_KEY);
+    }
+
+    public int indexOf(String key) {
+        return keys.indexOf(key);
+    }
+
+    public Value get(Record record, int index) {
+        return index == ABSENT ? Values.NULL : record.get(index);
+    }
+
+    public URI toUri(String value) {
+        return uris.computeIfAbsent(
+                value,
+                URI::create
+        );
+    }
+}
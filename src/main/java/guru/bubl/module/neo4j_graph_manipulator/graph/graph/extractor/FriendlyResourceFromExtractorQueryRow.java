@@ -8,10 +8,8 @@ import guru.bubl.module.common_utils.NoEx;
 import guru.bubl.module.model.Image;
 import guru.bubl.module.model.graph.FriendlyResourcePojo;
 import guru.bubl.module.model.json.ImageJson;
-import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
-import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphNeo4j;
-import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImagesNeo4j;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 
 import java.net.URI;
 import java.util.Date;
@@ -20,7 +18,7 @@ import java.util.Set;
 public class FriendlyResourceFromExtractorQueryRow {
 
     private Record record;
-    private String nodeKey;
+    private ExtractorQueryColumns columns;
 
     public static FriendlyResourceFromExtractorQueryRow usingRowAndNodeKey(
             Record record,
@@ -28,7 +26,7 @@ public class FriendlyResourceFromExtractorQueryRow {
     ) {
         return new FriendlyResourceFromExtractorQueryRow(
                 record,
-                nodeKey
+                ExtractorQueryColumns.usingRecordAndPrefix(record, nodeKey)
         );
     }
 
@@ -36,15 +34,25 @@ public class FriendlyResourceFromExtractorQueryRow {
             Record record,
             String nodeKey
     ) {
-        return new FriendlyResourceFromExtractorQueryRow(
+        return usingRowAndNodeKey(
                 record,
                 nodeKey
         );
     }
 
-    protected FriendlyResourceFromExtractorQueryRow(Record record, String nodeKey) {
+    public static FriendlyResourceFromExtractorQueryRow usingRowAndColumns(
+            Record record,
+            ExtractorQueryColumns columns
+    ) {
+        return new FriendlyResourceFromExtractorQueryRow(
+                record,
+                columns
+        );
+    }
+
+    protected FriendlyResourceFromExtractorQueryRow(Record record, ExtractorQueryColumns columns) {
         this.record = record;
-        this.nodeKey = nodeKey;
+        this.columns = columns;
     }
 
     public FriendlyResourcePojo build() {
@@ -60,39 +68,33 @@ public class FriendlyResourceFromExtractorQueryRow {
 
     private Set<Image> getImages() {
         return ImageJson.fromJson(
-                record.get(
-                        nodeKey + "." + ImagesNeo4j.props.images
-                ).asString()
+                columns.get(record, columns.images).asString()
         );
     }
 
     public String getLabel() {
-        String labelKey = nodeKey + "." + FriendlyResourceNeo4j.props.label + "";
-        return record.get(
-                labelKey
-        ).asObject() == null ? "" : record.get(labelKey).asString();
+        Value label = columns.get(record, columns.label);
+        return label.isNull() ? "" : label.asString();
     }
 
     private String getComment() {
-        String key = nodeKey + "." + FriendlyResourceNeo4j.props.comment;
-        return record.get(key).asObject() == null ? "" : record.get(key).asString();
+        Value comment = columns.get(record, columns.comment);
+        return comment.isNull() ? "" : comment.asString();
     }
 
     private Long getLastModificationDate() {
-        String key = nodeKey + "." + FriendlyResourceNeo4j.props.last_modification_date.name();
-        return record.get(key).asObject() == null ? new Date().getTime() : record.get(key).asLong();
+        Value lastModificationDate = columns.get(record, columns.lastModificationDate);
+        return lastModificationDate.isNull() ? new Date().getTime() : lastModificationDate.asLong();
     }
 
     private Long getCreationDate() {
-        String key = nodeKey + "." + FriendlyResourceNeo4j.props.creation_date.name();
-        return record.get(key).asObject() == null ? new Date().getTime() : record.get(key).asLong();
+        Value creationDate = columns.get(record, columns.creationDate);
+        return creationDate.isNull() ? new Date().getTime() : creationDate.asLong();
     }
 
     public URI getUri() {
-        return URI.create(
-                record.get(
-                        nodeKey + "." + UserGraphNeo4j.URI_PROPERTY_NAME
-                ).asString()
+        return columns.toUri(
+                columns.get(record, columns.uri).asString()
         );
     }
 
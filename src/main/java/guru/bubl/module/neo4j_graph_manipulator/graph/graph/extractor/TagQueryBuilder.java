@@ -6,6 +6,7 @@ package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor;
 
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.QueryTemplatesNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.tag.TagOperatorNeo4J;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.ForkOperatorNeo4J;
@@ -26,6 +27,16 @@ public class TagQueryBuilder {
     public static String tagReturnQueryPartUsingKeysForIdentificationRelationAndAlias(
             String tagKey,
             Set<ShareLevel> inShareLevels
+    ) {
+        return QueryTemplatesNeo4j.template(
+                QueryTemplatesNeo4j.variantKey("tagReturnQueryPart", tagKey, inShareLevels),
+                () -> buildTagReturnQueryPart(tagKey, inShareLevels)
+        );
+    }
+
+    private static String buildTagReturnQueryPart(
+            String tagKey,
+            Set<ShareLevel> inShareLevels
     ) {
         return "COLLECT([" +
                 QueryUtils.getPropertyUsingContainerNameQueryPart(
@@ -5,67 +5,63 @@
 package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
 
 import guru.bubl.module.model.graph.graph_element.GraphElementPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.FriendlyResourceFromExtractorQueryRow;
-import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 
 import java.net.URI;
 
 public class GraphElementFromExtractorQueryRow {
 
     private Record record;
-    private String key;
-    private String identificationKey = TagQueryBuilder.TAG_QUERY_KEY;
+    private ExtractorQueryColumns columns;
+    private int tagsIndex;
 
     public static GraphElementFromExtractorQueryRow usingRowAndKey(
             Record record,
             String key
     ) {
-        return new GraphElementFromExtractorQueryRow(
+        return usingRowAndColumns(
                 record,
-                key
+                ExtractorQueryColumns.usingRecordAndPrefix(record, key)
         );
     }
 
-    public static GraphElementFromExtractorQueryRow usingRowKeyAndIdentificationKey(
+    public static GraphElementFromExtractorQueryRow usingRowAndColumns(
             Record record,
-            String key,
-            String identificationKey
+            ExtractorQueryColumns columns
     ) {
         return new GraphElementFromExtractorQueryRow(
                 record,
-                key,
-                identificationKey
+                columns,
+                columns.tags
         );
     }
 
-    protected GraphElementFromExtractorQueryRow(Record record, String key) {
-        this.record = record;
-        this.key = key;
-    }
-
-    protected GraphElementFromExtractorQueryRow(Record record, String key, String identificationKey) {
+    protected GraphElementFromExtractorQueryRow(Record record, ExtractorQueryColumns columns, int tagsIndex) {
         this.record = record;
-        this.key = key;
-        this.identificationKey = identificationKey;
+        this.columns = columns;
+        this.tagsIndex = tagsIndex;
     }
 
     public GraphElementPojo build() {
         return new GraphElementPojo(
-                FriendlyResourceFromExtractorQueryRow.usingRowAndNodeKey(
+                FriendlyResourceFromExtractorQueryRow.usingRowAndColumns(
                         record,
-                        key
+                        columns
                 ).build(),
-                TagsFromExtractorQueryRowAsArray.usingRowAndKey(
+                TagsFromExtractorQueryRowAsArray.usingRowColumnsAndIndex(
                         record,
-                        identificationKey
+                        columns,
+                        tagsIndex
                 ).build(),
                 getCopiedFromUri()
         );
     }
 
     private URI getCopiedFromUri() {
-        String copiedFromKey = key + "." + "copied_from_uri";
-        return record.get(copiedFromKey).asObject() == null ? null : URI.create(record.get(copiedFromKey).asString());
+        Value copiedFromUri = columns.get(record, columns.copiedFromUri);
+        return copiedFromUri.isNull() ? null : columns.toUri(copiedFromUri.asString());
     }
 }
@@ -5,6 +5,7 @@
 package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
 
 import guru.bubl.module.model.graph.group_relation.GroupRelationPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import org.neo4j.driver.Record;
 
 import java.net.URI;
@@ -15,7 +16,7 @@ public class GroupRelationFromExtractorQueryRow {
 
     private Record row;
 
-    private String keyPrefix;
+    private ExtractorQueryColumns columns;
 
     public static GroupRelationFromExtractorQueryRow withRowAndKeyPrefix(Record row, String keyPrefix) {
         return new GroupRelationFromExtractorQueryRow(
@@ -24,32 +25,47 @@ public class GroupRelationFromExtractorQueryRow {
         );
     }
 
+    public static GroupRelationFromExtractorQueryRow withRowAndColumns(Record row, ExtractorQueryColumns columns) {
+        return new GroupRelationFromExtractorQueryRow(
+                row,
+                columns
+        );
+    }
+
     public GroupRelationFromExtractorQueryRow(
             Record row,
             String keyPrefix
+    ) {
+        this(
+                row,
+                ExtractorQueryColumns.usingRecordAndPrefix(row, keyPrefix)
+        );
+    }
+
+    protected GroupRelationFromExtractorQueryRow(
+            Record row,
+            ExtractorQueryColumns columns
     ) {
         this.row = row;
-        this.keyPrefix = keyPrefix;
+        this.columns = columns;
     }
 
     public GroupRelationPojo build() {
         GroupRelationPojo groupRelationPojo = new GroupRelationPojo(
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         row,
-                        keyPrefix
+                        columns
                 ).build(),
-                getNbNeighbors(row, keyPrefix),
-                getShareLevel(keyPrefix, row)
+                getNbNeighbors(row, columns),
+                getShareLevel(columns, row)
         );
         groupRelationPojo.setIndexVertexUri(getIndexVertexUri());
         return groupRelationPojo;
     }
 
     private URI getIndexVertexUri() {
-        return URI.create(
-                row.get(
-                        keyPrefix + ".indexVertexUri"
-                ).asString()
+        return columns.toUri(
+                columns.get(row, columns.indexVertexUri).asString()
         );
     }
 
@@ -0,0 +1,37 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
+
+import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
+
+import java.net.URI;
+import java.util.Map;
+
+public class LimitedSubGraph {
+
+    private SubGraphPojo subGraph;
+    private Map<URI, Integer> nbOmittedChildren;
+
+    public static LimitedSubGraph withSubGraphAndNbOmittedChildren(SubGraphPojo subGraph, Map<URI, Integer> nbOmittedChildren) {
+        return new LimitedSubGraph(subGraph, nbOmittedChildren);
+    }
+
+    protected LimitedSubGraph(SubGraphPojo subGraph, Map<URI, Integer> nbOmittedChildren) {
+        this.subGraph = subGraph;
+        this.nbOmittedChildren = nbOmittedChildren;
+    }
+
+    public SubGraphPojo getSubGraph() {
+        return subGraph;
+    }
+
+    public Map<URI, Integer> getNbOmittedChildren() {
+        return nbOmittedChildren;
+    }
+
+    public Boolean isTruncated() {
+        return !nbOmittedChildren.isEmpty();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
+
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.edge.EdgePojo;
+import guru.bubl.module.model.graph.group_relation.GroupRelationPojo;
+import guru.bubl.module.model.graph.relation.RelationPojo;
+import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
+import guru.bubl.module.model.graph.vertex.VertexPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+
+import java.net.URI;
+import java.util.HashMap;
+
+import static guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY;
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Loads every vertex, relation and group relation of an owner in two queries,
+ * one for the graph elements and one for their SOURCE and DESTINATION relationships,
+ * instead of one subgraph query per bubble.
+ */
+public class OwnerGraphExtractorNeo4j {
+
+    private Driver driver;
+    private String owner;
+    private SubGraphPojo subGraph = SubGraphPojo.withCenterUriVerticesAndEdges(
+            new HashMap<>(),
+            new HashMap<>()
+    );
+
+    public static OwnerGraphExtractorNeo4j forOwnerUsingDriver(String owner, Driver driver) {
+        return new OwnerGraphExtractorNeo4j(
+                owner,
+                driver
+        );
+    }
+
+    protected OwnerGraphExtractorNeo4j(String owner, Driver driver) {
+        this.owner = owner;
+        this.driver = driver;
+    }
+
+    public SubGraphPojo load() {
+        try (Session session = SessionsNeo4j.read(driver)) {
+            addGraphElements(session);
+            setEndsOfEdges(session);
+        }
+        return subGraph;
+    }
+
+    private void addGraphElements(Session session) {
+        Result rs = session.run(
+                "MATCH(ge:GraphElement{owner:$owner}) WHERE NOT ge:Meta AND ge.shareLevel IN $shareLevels " +
+                        "OPTIONAL MATCH (ge)-[:IDENTIFIED_TO]->(id) " +
+                        "RETURN ge.childrenIndexes as childIndex, ge.external_uri, ge.indexVertexUri, " +
+                        SubGraphExtractorNeo4j.vertexAndEdgeCommonQueryPart(GRAPH_ELEMENT_QUERY_KEY) +
+                        SubGraphExtractorNeo4j.vertexReturnQueryPart(GRAPH_ELEMENT_QUERY_KEY, ShareLevel.allShareLevels) +
+                        TagQueryBuilder.tagReturnQueryPart(ShareLevel.allShareLevels) +
+                        "labels(ge) as type",
+                parameters(
+                        "owner", owner,
+                        "shareLevels", ShareLevel.allShareLevelsInt
+                )
+        );
+        ExtractorQueryColumns columns = ExtractorQueryColumns.usingResultAndPrefix(rs, GRAPH_ELEMENT_QUERY_KEY);
+        int childIndexColumn = columns.indexOf("childIndex");
+        while (rs.hasNext()) {
+            Record record = rs.next();
+            Value childIndexValue = columns.get(record, childIndexColumn);
+            String childIndex = childIndexValue.isNull() ? null : childIndexValue.asString();
+            switch (SubGraphExtractorNeo4j.getGraphElementTypeFromRow(record, columns)) {
+                case Vertex:
+                    VertexPojo vertex = (VertexPojo) VertexFromExtractorQueryRow.usingRowAndColumns(
+                            record,
+                            columns
+                    ).build();
+                    vertex.getGraphElement().setChildrenIndex(childIndex);
+                    subGraph.addVertex(vertex);
+                    break;
+                case Edge:
+                    subGraph.addEdge(
+                            (RelationPojo) RelationFromExtractorQueryRow.usingRowAndColumns(
+                                    record,
+                                    columns
+                            ).build()
+                    );
+                    break;
+                case GroupRelation:
+                    GroupRelationPojo groupRelation = GroupRelationFromExtractorQueryRow.withRowAndColumns(
+                            record,
+                            columns
+                    ).build();
+                    groupRelation.getGraphElement().setChildrenIndex(childIndex);
+                    subGraph.addGroupRelation(groupRelation);
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    private void setEndsOfEdges(Session session) {
+        Result rs = session.run(
+                "MATCH(e:GraphElement{owner:$owner})-[r:SOURCE|DESTINATION]->(f) " +
+                        "RETURN e.uri as edgeUri, type(r) as relType, f.uri as forkUri",
+                parameters(
+                        "owner", owner
+                )
+        );
+        while (rs.hasNext()) {
+            Record record = rs.next();
+            URI edgeUri = URI.create(record.get("edgeUri").asString());
+            EdgePojo edge = subGraph.edgeWithIdentifier(edgeUri);
+            if (edge == null) {
+                edge = subGraph.getGroupRelations().get(edgeUri);
+            }
+            if (edge == null || record.get("forkUri").isNull()) {
+                continue;
+            }
+            URI forkUri = URI.create(record.get("forkUri").asString());
+            if (record.get("relType").asString().equals("SOURCE")) {
+                edge.setSourceUri(forkUri);
+            } else {
+                edge.setDestinationUri(forkUri);
+            }
+        }
+    }
+}
@@ -6,12 +6,13 @@ package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
 
 import guru.bubl.module.model.graph.relation.Relation;
 import guru.bubl.module.model.graph.relation.RelationPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import org.neo4j.driver.Record;
 
 public class RelationFromExtractorQueryRow {
 
     private Record row;
-    private String key;
+    private ExtractorQueryColumns columns;
 
 
     public static RelationFromExtractorQueryRow usingRow(Record row) {
@@ -20,6 +21,13 @@ public class RelationFromExtractorQueryRow {
         );
     }
 
+    public static RelationFromExtractorQueryRow usingRowAndColumns(Record row, ExtractorQueryColumns columns) {
+        return new RelationFromExtractorQueryRow(
+                row,
+                columns
+        );
+    }
+
     protected RelationFromExtractorQueryRow(Record row) {
         this(
                 row,
@@ -28,8 +36,15 @@ public class RelationFromExtractorQueryRow {
     }
 
     protected RelationFromExtractorQueryRow(Record row, String key) {
+        this(
+                row,
+                ExtractorQueryColumns.usingRecordAndPrefix(row, key)
+        );
+    }
+
+    protected RelationFromExtractorQueryRow(Record row, ExtractorQueryColumns columns) {
         this.row = row;
-        this.key = key;
+        this.columns = columns;
     }
 
     public Relation build() {
@@ -38,8 +53,8 @@ public class RelationFromExtractorQueryRow {
 
     private RelationPojo init() {
         RelationPojo edge = new RelationPojo(
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
-                        row, key
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
+                        row, columns
                 ).build()
         );
         return edge;
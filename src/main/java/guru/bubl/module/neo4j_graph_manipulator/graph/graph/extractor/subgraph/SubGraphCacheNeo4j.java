@@ -0,0 +1,234 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
+
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.graph_element.GraphElement;
+import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
+import guru.bubl.module.model.graph.tag.Tag;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * Bounded LRU cache of extracted subgraphs keyed by center uri, depth and share levels.
+ * Each entry remembers the uris it contains so that a write on one of them
+ * only invalidates the subgraphs it appears in.
+ * Entries keep the records of the extractor queries, which do not change, and each caller
+ * gets a subgraph mapped from them so that changing it does not alter the cache.
+ */
+public class SubGraphCacheNeo4j {
+
+    private final Integer maxEntries;
+
+    private final LinkedHashMap<String, Entry> entries;
+    private final Map<URI, Set<String>> keysOfUri = new HashMap<>();
+
+    private final AtomicLong nbHits = new AtomicLong();
+    private final AtomicLong nbMisses = new AtomicLong();
+
+    private long nbInvalidations = 0;
+
+    public static SubGraphCacheNeo4j disabled() {
+        return new SubGraphCacheNeo4j(0);
+    }
+
+    public static SubGraphCacheNeo4j withMaxEntries(Integer maxEntries) {
+        return new SubGraphCacheNeo4j(maxEntries);
+    }
+
+    protected SubGraphCacheNeo4j(Integer maxEntries) {
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() <= SubGraphCacheNeo4j.this.maxEntries) {
+                    return false;
+                }
+                unIndex(eldest.getKey(), eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public Boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    public SubGraphPojo getOrLoad(URI centerUri, Integer depth, Integer[] shareLevels, Supplier<SubGraphExtractorNeo4j.Records> loader, Function<SubGraphExtractorNeo4j.Records, SubGraphPojo> mapper) {
+        if (!isEnabled()) {
+            return mapper.apply(loader.get());
+        }
+        String key = keyFor(centerUri, depth, shareLevels);
+        long nbInvalidationsBeforeLoad;
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            nbInvalidationsBeforeLoad = nbInvalidations;
+        }
+        if (entry != null) {
+            nbHits.incrementAndGet();
+            return mapper.apply(entry.records);
+        }
+        nbMisses.incrementAndGet();
+        SubGraphExtractorNeo4j.Records records = loader.get();
+        SubGraphPojo subGraph = mapper.apply(records);
+        synchronized (this) {
+            if (nbInvalidationsBeforeLoad == nbInvalidations) {
+                put(key, new Entry(
+                        records,
+                        urisOf(centerUri, subGraph),
+                        isInAllShareLevels(shareLevels)
+                ));
+            }
+        }
+        return subGraph;
+    }
+
+    public void invalidate(URI... uris) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            invalidateLocked(uris);
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(() -> invalidate(uris));
+    }
+
+    /*
+     * A share level change can make a bubble visible in subgraphs it was filtered out of,
+     * so subgraphs that are not extracted in every share level are also dropped.
+     */
+    public void invalidateForShareLevelChange(URI... uris) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (this) {
+            invalidateLocked(uris);
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> entry = iterator.next();
+                if (!entry.getValue().inAllShareLevels) {
+                    iterator.remove();
+                    unIndex(entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(() -> invalidateForShareLevelChange(uris));
+    }
+
+    public synchronized void invalidateAll() {
+        nbInvalidations++;
+        entries.clear();
+        keysOfUri.clear();
+    }
+
+    public Long getNbHits() {
+        return nbHits.get();
+    }
+
+    public Long getNbMisses() {
+        return nbMisses.get();
+    }
+
+    public synchronized Integer size() {
+        return entries.size();
+    }
+
+    private void invalidateLocked(URI... uris) {
+        nbInvalidations++;
+        for (URI uri : uris) {
+            Set<String> keys = keysOfUri.get(uri);
+            if (keys == null) {
+                continue;
+            }
+            for (String key : new ArrayList<>(keys)) {
+                Entry entry = entries.remove(key);
+                if (entry != null) {
+                    unIndex(key, entry);
+                }
+            }
+        }
+    }
+
+    private void put(String key, Entry entry) {
+        Entry previous = entries.put(key, entry);
+        if (previous != null) {
+            unIndex(key, previous);
+        }
+        for (URI uri : entry.uris) {
+            keysOfUri.computeIfAbsent(
+                    uri,
+                    k -> new HashSet<>()
+            ).add(key);
+        }
+    }
+
+    private void unIndex(String key, Entry entry) {
+        for (URI uri : entry.uris) {
+            Set<String> keys = keysOfUri.get(uri);
+            if (keys == null) {
+                continue;
+            }
+            keys.remove(key);
+            if (keys.isEmpty()) {
+                keysOfUri.remove(uri);
+            }
+        }
+    }
+
+    private static String keyFor(URI centerUri, Integer depth, Integer[] shareLevels) {
+        Integer[] sortedShareLevels = shareLevels.clone();
+        Arrays.sort(sortedShareLevels);
+        return centerUri + "|" + depth + "|" + Arrays.toString(sortedShareLevels);
+    }
+
+    private static Boolean isInAllShareLevels(Integer[] shareLevels) {
+        Set<Integer> shareLevelsSet = new HashSet<>(Arrays.asList(shareLevels));
+        for (ShareLevel shareLevel : ShareLevel.allShareLevels) {
+            if (!shareLevelsSet.contains(shareLevel.getIndex())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<URI> urisOf(URI centerUri, SubGraphPojo subGraph) {
+        Set<URI> uris = new HashSet<>();
+        uris.add(centerUri);
+        addUrisOfGraphElements(uris, subGraph.vertices().values());
+        addUrisOfGraphElements(uris, subGraph.edges().values());
+        addUrisOfGraphElements(uris, subGraph.getGroupRelations().values());
+        if (subGraph.getCenterMeta() != null) {
+            uris.add(subGraph.getCenterMeta().uri());
+        }
+        return uris;
+    }
+
+    private static void addUrisOfGraphElements(Set<URI> uris, Collection<? extends GraphElement> graphElements) {
+        for (GraphElement graphElement : graphElements) {
+            uris.add(graphElement.uri());
+            for (Tag tag : graphElement.getTags().values()) {
+                uris.add(tag.uri());
+            }
+        }
+    }
+
+    private static class Entry {
+        private final SubGraphExtractorNeo4j.Records records;
+        private final Set<URI> uris;
+        private final Boolean inAllShareLevels;
+
+        private Entry(SubGraphExtractorNeo4j.Records records, Set<URI> uris, Boolean inAllShareLevels) {
+            this.records = records;
+            this.uris = uris;
+            this.inAllShareLevels = inAllShareLevels;
+        }
+    }
+}
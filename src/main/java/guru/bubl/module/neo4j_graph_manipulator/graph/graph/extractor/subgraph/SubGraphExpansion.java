@@ -0,0 +1,10 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
+
+public enum SubGraphExpansion {
+    VARIABLE_LENGTH_PATH, // one (n)-[*0..depth]-(e) match, one row per path
+    LEVEL_BY_LEVEL // one query per depth level, batched by node id, each node visited once
+}
@@ -18,28 +18,33 @@ import guru.bubl.module.model.graph.relation.RelationPojo;
 import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
 import guru.bubl.module.model.graph.vertex.Vertex;
 import guru.bubl.module.model.graph.vertex.VertexPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.QueryTemplatesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.FriendlyResourceQueryBuilder;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.QueryUtils;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.ForkOperatorNeo4J;
+import org.codehaus.jettison.json.JSONException;
+import org.codehaus.jettison.json.JSONObject;
 import org.neo4j.driver.*;
 import org.neo4j.driver.types.Relationship;
 
 import java.net.URI;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.neo4j.driver.Values.parameters;
 
 public class SubGraphExtractorNeo4j {
 
     public final static String GRAPH_ELEMENT_QUERY_KEY = "ge";
+
+    private static final Map<List<Object>, GraphElementType> graphElementTypesOfLabels = new ConcurrentHashMap<>();
+
     private URI centerBubbleUri;
     private Boolean isCenterTagFlow;
     private Integer depth;
-    private SubGraphPojo subGraph = SubGraphPojo.withCenterUriVerticesAndEdges(
-            new HashMap<>(),
-            new HashMap<>()
-    );
 
     private Integer[] inShareLevelsArray;
 
@@ -47,6 +52,10 @@ public class SubGraphExtractorNeo4j {
 
     protected Driver driver;
 
+    private Integer fanOutLimit;
+    private Integer fanOutOffset = 0;
+    private Map<URI, Integer> nbOmittedChildren = new HashMap<>();
+
     @AssistedInject
     protected SubGraphExtractorNeo4j(
             Driver driver,
@@ -82,7 +91,30 @@ public class SubGraphExtractorNeo4j {
     }
 
     public SubGraphPojo load() {
-        try (Session session = driver.session()) {
+        return load(SubGraphExpansion.VARIABLE_LENGTH_PATH);
+    }
+
+    public SubGraphExtractorNeo4j withFanOutLimitAndOffset(Integer fanOutLimit, Integer fanOutOffset) {
+        this.fanOutLimit = fanOutLimit;
+        this.fanOutOffset = fanOutOffset;
+        return this;
+    }
+
+    public Map<URI, Integer> getNbOmittedChildren() {
+        return nbOmittedChildren;
+    }
+
+    public SubGraphPojo load(SubGraphExpansion expansion) {
+        return subGraphFromRecords(
+                loadRecords(expansion)
+        );
+    }
+
+    public Records loadRecords(SubGraphExpansion expansion) {
+        if ((expansion == SubGraphExpansion.LEVEL_BY_LEVEL || fanOutLimit != null) && !isCenterTagFlow) {
+            return loadRecordsLevelByLevel();
+        }
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     queryToGetGraph(),
                     parameters(
@@ -91,7 +123,7 @@ public class SubGraphExtractorNeo4j {
                     )
             );
             Set<Relationship> relationships = new HashSet<>();
-            Map<Long, URI> idsUri = new HashMap<>();
+            List<Record> graphElementRecords = new ArrayList<>();
             String childIndex = null;
             while (rs.hasNext()) {
                 Record record = rs.next();
@@ -110,78 +142,296 @@ public class SubGraphExtractorNeo4j {
                 if (childIndex == null && !record.get("childIndex").isNull()) {
                     childIndex = record.get("childIndex").asString();
                 }
-                switch (getGraphElementTypeFromRow(record)) {
-                    case Vertex:
-                        Vertex vertex = addVertexUsingRow(
-                                record
-                        );
-                        idsUri.put(
-                                record.get("nId").asLong(),
-                                vertex.uri()
-                        );
-                        break;
-                    case Edge:
-                        Relation relation = addEdgeUsingRow(
-                                record
-                        );
-                        idsUri.put(
-                                record.get("nId").asLong(),
-                                relation.uri()
-                        );
-                        break;
-                    case GroupRelation:
-                        GroupRelation groupRelation = addGroupRelationUsingRow(
-                                record
-                        );
-                        idsUri.put(
-                                record.get("nId").asLong(),
-                                groupRelation.uri()
-                        );
-                        break;
-                    case Meta:
-                        URI uri = URI.create(record.get(
-                                "ge.uri"
-                        ).asString());
-                        if (uri.equals(centerBubbleUri)) {
-                            subGraph.setCenterMeta(
-                                    TagFromExtractorQueryRow.usingRowAndKey(
-                                            record,
-                                            "ge"
-                                    ).build()
-                            );
-                        }
-                        break;
-                    case Unknown:
-                        break;
-                }
+                graphElementRecords.add(record);
             }
+            List<RelationshipEnds> relationshipsEnds = new ArrayList<>();
             for (Relationship relation : relationships) {
-                URI edgeUri = idsUri.get(relation.startNodeId());
-                EdgePojo edge = subGraph.edgeWithIdentifier(
-                        edgeUri
+                relationshipsEnds.add(
+                        RelationshipEnds.fromRelationship(relation)
                 );
-                if (edge == null) {
-                    edge = subGraph.getGroupRelations().get(edgeUri);
+            }
+            return new Records(
+                    graphElementRecords,
+                    relationshipsEnds,
+                    childIndex
+            );
+        }
+    }
+
+    /*
+     * a new SubGraphPojo each time, the records are not changed
+     */
+    public SubGraphPojo subGraphFromRecords(Records records) {
+        SubGraphPojo subGraph = SubGraphPojo.withCenterUriVerticesAndEdges(
+                new HashMap<>(),
+                new HashMap<>()
+        );
+        if (records.graphElementRecords.isEmpty()) {
+            return subGraph;
+        }
+        ExtractorQueryColumns columns = ExtractorQueryColumns.usingRecordAndPrefix(
+                records.graphElementRecords.get(0),
+                GRAPH_ELEMENT_QUERY_KEY
+        );
+        Map<Long, URI> idsUri = new HashMap<>();
+        for (Record record : records.graphElementRecords) {
+            addGraphElementUsingRow(
+                    subGraph,
+                    record,
+                    columns,
+                    idsUri
+            );
+        }
+        for (RelationshipEnds relationship : records.relationships) {
+            setEndOfEdge(
+                    subGraph,
+                    relationship.startId,
+                    relationship.endId,
+                    relationship.type,
+                    idsUri
+            );
+        }
+        setChildrenIndex(subGraph, records.childIndex);
+        return subGraph;
+    }
+
+    /*
+     * Expands the frontier one depth level at a time with the ids of the previous level,
+     * so a node reached by many paths is returned once instead of once per path.
+     */
+    private Records loadRecordsLevelByLevel() {
+        try (Session session = SessionsNeo4j.read(driver)) {
+            Result centerRs = session.run(
+                    "MATCH(n:Resource{uri:$centerUri}) RETURN ID(n) as nId, n.childrenIndexes as childIndex",
+                    parameters(
+                            "centerUri", centerBubbleUri.toString()
+                    )
+            );
+            if (!centerRs.hasNext()) {
+                return new Records(
+                        new ArrayList<>(),
+                        new ArrayList<>(),
+                        null
+                );
+            }
+            Record centerRecord = centerRs.next();
+            Long centerId = centerRecord.get("nId").asLong();
+            String childIndex = centerRecord.get("childIndex").isNull() ?
+                    null : centerRecord.get("childIndex").asString();
+            Set<Long> visitedIds = new HashSet<>();
+            visitedIds.add(centerId);
+            Map<Long, RelationshipEnds> relationships = new HashMap<>();
+            List<Long> frontier = new ArrayList<>();
+            frontier.add(centerId);
+            for (int level = 0; level < depth && !frontier.isEmpty(); level++) {
+                frontier = fanOutLimit == null ?
+                        expandLevel(session, frontier, visitedIds, relationships) :
+                        expandLevelWithFanOutLimit(session, frontier, centerId, visitedIds, relationships);
+            }
+            Set<Long> ids = new HashSet<>(visitedIds);
+            Result endsRs = session.run(
+                    "MATCH (e:Edge)-[r:SOURCE|DESTINATION]->() WHERE ID(e) IN $ids " +
+                            "RETURN ID(r) as rId, ID(startNode(r)) as startId, ID(endNode(r)) as endId, type(r) as relType",
+                    parameters(
+                            "ids", new ArrayList<>(visitedIds)
+                    )
+            );
+            while (endsRs.hasNext()) {
+                RelationshipEnds relationship = RelationshipEnds.fromRecord(endsRs.next());
+                relationships.put(relationship.id, relationship);
+                ids.add(relationship.endId);
+            }
+            Result rs = session.run(
+                    QueryTemplatesNeo4j.template(
+                            QueryTemplatesNeo4j.variantKey("subGraphHydrate", inShareLevels),
+                            () -> "MATCH(ge) WHERE ID(ge) IN $ids AND ge.shareLevel IN $shareLevels " +
+                                    "OPTIONAL MATCH (ge)-[:IDENTIFIED_TO]->(id) WHERE id.shareLevel IN $shareLevels " +
+                                    "RETURN ge.external_uri, ge.indexVertexUri, " +
+                                    vertexAndEdgeCommonQueryPart(GRAPH_ELEMENT_QUERY_KEY) +
+                                    vertexReturnQueryPart(GRAPH_ELEMENT_QUERY_KEY, inShareLevels) +
+                                    TagQueryBuilder.tagReturnQueryPart(inShareLevels) +
+                                    "labels(ge) as type, ID(ge) as nId"
+                    ),
+                    parameters(
+                            "ids", new ArrayList<>(ids),
+                            "shareLevels", inShareLevelsArray
+                    )
+            );
+            return new Records(
+                    rs.list(),
+                    new ArrayList<>(relationships.values()),
+                    childIndex
+            );
+        }
+    }
+
+    private List<Long> expandLevel(Session session, List<Long> frontier, Set<Long> visitedIds, Map<Long, RelationshipEnds> relationships) {
+        Result rs = session.run(
+                "MATCH (a)-[r:SOURCE|DESTINATION]-() WHERE ID(a) IN $frontier " +
+                        "RETURN DISTINCT ID(r) as rId, ID(startNode(r)) as startId, ID(endNode(r)) as endId, type(r) as relType",
+                parameters(
+                        "frontier", frontier
+                )
+        );
+        List<Long> nextFrontier = new ArrayList<>();
+        while (rs.hasNext()) {
+            RelationshipEnds relationship = RelationshipEnds.fromRecord(rs.next());
+            relationships.put(relationship.id, relationship);
+            if (visitedIds.add(relationship.startId)) {
+                nextFrontier.add(relationship.startId);
+            }
+            if (visitedIds.add(relationship.endId)) {
+                nextFrontier.add(relationship.endId);
+            }
+        }
+        return nextFrontier;
+    }
+
+    /*
+     * Keeps at most fanOutLimit unvisited neighbors of each frontier node visible in the share levels,
+     * ordered by the childrenIndexes of that node and then by their number of neighbors.
+     * The center skips its first fanOutOffset neighbors so that the omitted ones can be paged in.
+     */
+    private List<Long> expandLevelWithFanOutLimit(Session session, List<Long> frontier, Long centerId, Set<Long> visitedIds, Map<Long, RelationshipEnds> relationships) {
+        Result rs = session.run(
+                "MATCH (a)-[r:SOURCE|DESTINATION]-(b) WHERE ID(a) IN $frontier AND b.shareLevel IN $shareLevels " +
+                        "OPTIONAL MATCH (b:Edge)-[:SOURCE|DESTINATION]->(c) WHERE c <> a " +
+                        "WITH a, r, b, c WHERE c IS NULL OR c.shareLevel IN $shareLevels " +
+                        "RETURN DISTINCT ID(a) as aId, a.uri as aUri, a.childrenIndexes as aChildIndex, " +
+                        "ID(r) as rId, ID(startNode(r)) as startId, ID(endNode(r)) as endId, type(r) as relType, " +
+                        "ID(b) as bId, b.uri as bUri, c.uri as cUri, " +
+                        "coalesce(c.nb_private_neighbors, b.nb_private_neighbors, 0) + " +
+                        "coalesce(c.nb_friend_neighbors, b.nb_friend_neighbors, 0) + " +
+                        "coalesce(c.nb_public_neighbors, b.nb_public_neighbors, 0) as nbNeighbors",
+                parameters(
+                        "frontier", frontier,
+                        "shareLevels", inShareLevelsArray
+                )
+        );
+        Map<Long, FrontierNode> frontierNodes = new LinkedHashMap<>();
+        while (rs.hasNext()) {
+            Record record = rs.next();
+            FrontierNode frontierNode = frontierNodes.computeIfAbsent(
+                    record.get("aId").asLong(),
+                    aId -> FrontierNode.fromRecord(record)
+            );
+            frontierNode.addNeighborUsingRecord(record);
+        }
+        Set<Long> previouslyVisitedIds = new HashSet<>(visitedIds);
+        List<Long> nextFrontier = new ArrayList<>();
+        for (Map.Entry<Long, FrontierNode> entry : frontierNodes.entrySet()) {
+            FrontierNode frontierNode = entry.getValue();
+            List<Neighbor> children = new ArrayList<>();
+            for (Neighbor neighbor : frontierNode.neighbors.values()) {
+                if (previouslyVisitedIds.contains(neighbor.id)) {
+                    addRelationships(neighbor, relationships);
+                } else {
+                    children.add(neighbor);
                 }
-                URI endForkUri = idsUri.get(relation.endNodeId());
-                if (edge != null && endForkUri != null) {
-                    if (relation.type().equals("SOURCE")) {
-                        edge.setSourceUri(
-                                endForkUri
-                        );
-                    } else {
-                        edge.setDestinationUri(
-                                endForkUri
-                        );
-                    }
+            }
+            children.sort(frontierNode.childrenComparator());
+            Integer offset = entry.getKey().equals(centerId) ? fanOutOffset : 0;
+            Integer from = Math.min(offset, children.size());
+            Integer to = Math.min(from + fanOutLimit, children.size());
+            Integer nbOmitted = children.size() - (to - from);
+            if (nbOmitted > 0) {
+                nbOmittedChildren.put(
+                        frontierNode.uri,
+                        nbOmitted
+                );
+            }
+            for (Neighbor child : children.subList(from, to)) {
+                addRelationships(child, relationships);
+                if (visitedIds.add(child.id)) {
+                    nextFrontier.add(child.id);
                 }
             }
-            setChildrenIndex(childIndex);
         }
-        return subGraph;
+        return nextFrontier;
     }
 
-    private void setChildrenIndex(String childIndex) {
+    private void addRelationships(Neighbor neighbor, Map<Long, RelationshipEnds> relationships) {
+        for (RelationshipEnds relationship : neighbor.relationships) {
+            relationships.put(relationship.id, relationship);
+        }
+    }
+
+    private void addGraphElementUsingRow(SubGraphPojo subGraph, Record record, ExtractorQueryColumns columns, Map<Long, URI> idsUri) {
+        switch (getGraphElementTypeFromRow(record, columns)) {
+            case Vertex:
+                Vertex vertex = addVertexUsingRow(
+                        subGraph,
+                        record,
+                        columns
+                );
+                idsUri.put(
+                        columns.get(record, columns.nId).asLong(),
+                        vertex.uri()
+                );
+                break;
+            case Edge:
+                Relation relation = addEdgeUsingRow(
+                        subGraph,
+                        record,
+                        columns
+                );
+                idsUri.put(
+                        columns.get(record, columns.nId).asLong(),
+                        relation.uri()
+                );
+                break;
+            case GroupRelation:
+                GroupRelation groupRelation = addGroupRelationUsingRow(
+                        subGraph,
+                        record,
+                        columns
+                );
+                idsUri.put(
+                        columns.get(record, columns.nId).asLong(),
+                        groupRelation.uri()
+                );
+                break;
+            case Meta:
+                URI uri = columns.toUri(
+                        columns.get(record, columns.uri).asString()
+                );
+                if (uri.equals(centerBubbleUri)) {
+                    subGraph.setCenterMeta(
+                            TagFromExtractorQueryRow.usingRowAndColumns(
+                                    record,
+                                    columns
+                            ).build()
+                    );
+                }
+                break;
+            case Unknown:
+                break;
+        }
+    }
+
+    private void setEndOfEdge(SubGraphPojo subGraph, Long startId, Long endId, String type, Map<Long, URI> idsUri) {
+        URI edgeUri = idsUri.get(startId);
+        EdgePojo edge = subGraph.edgeWithIdentifier(
+                edgeUri
+        );
+        if (edge == null) {
+            edge = subGraph.getGroupRelations().get(edgeUri);
+        }
+        URI endForkUri = idsUri.get(endId);
+        if (edge != null && endForkUri != null) {
+            if (type.equals("SOURCE")) {
+                edge.setSourceUri(
+                        endForkUri
+                );
+            } else {
+                edge.setDestinationUri(
+                        endForkUri
+                );
+            }
+        }
+    }
+
+    private void setChildrenIndex(SubGraphPojo subGraph, String childIndex) {
         if (!subGraph.hasCenter(centerBubbleUri)) {
             return;
         }
@@ -199,8 +449,30 @@ public class SubGraphExtractorNeo4j {
         }
     }
 
-    private GraphElementType getGraphElementTypeFromRow(Record record) {
-        List<String> types = (List) record.get("type").asList();
+    public static GraphElementType getGraphElementTypeFromRow(Record record) {
+        return graphElementTypeOfLabels(
+                record.get("type").asList()
+        );
+    }
+
+    public static GraphElementType getGraphElementTypeFromRow(Record record, ExtractorQueryColumns columns) {
+        return graphElementTypeOfLabels(
+                columns.get(record, columns.type).asList()
+        );
+    }
+
+    /*
+     * A handful of label combinations exist in a graph, their type is resolved once.
+     */
+    private static GraphElementType graphElementTypeOfLabels(List<Object> labels) {
+        return graphElementTypesOfLabels.computeIfAbsent(
+                labels,
+                SubGraphExtractorNeo4j::graphElementTypeOfLabelsNotCached
+        );
+    }
+
+    private static GraphElementType graphElementTypeOfLabelsNotCached(List<Object> labels) {
+        List<String> types = (List) labels;
         GraphElementType type = null;
         for (String typeStr : types) {
             GraphElementType graphElementType = GraphElementType.valueOf(typeStr);
@@ -214,10 +486,10 @@ public class SubGraphExtractorNeo4j {
         return type;
     }
 
-    private Vertex addVertexUsingRow(Record row) {
-        Vertex vertex = new VertexFromExtractorQueryRow(
+    private Vertex addVertexUsingRow(SubGraphPojo subGraph, Record row, ExtractorQueryColumns columns) {
+        Vertex vertex = VertexFromExtractorQueryRow.usingRowAndColumns(
                 row,
-                SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY
+                columns
         ).build();
         subGraph.addVertex(
                 (VertexPojo) vertex
@@ -226,6 +498,13 @@ public class SubGraphExtractorNeo4j {
     }
 
     private String queryToGetGraph() {
+        return QueryTemplatesNeo4j.template(
+                QueryTemplatesNeo4j.variantKey("subGraph", isCenterTagFlow, depth, inShareLevels),
+                this::buildQueryToGetGraph
+        );
+    }
+
+    private String buildQueryToGetGraph() {
         String relVariables = this.isCenterTagFlow ? "rel1, rel2" : "relList, rel1";
         return
                 String.format(
@@ -234,7 +513,7 @@ public class SubGraphExtractorNeo4j {
                                 "OPTIONAL MATCH (ge)-[:IDENTIFIED_TO]->(id) WHERE id.shareLevel IN $shareLevels " +
                                 "RETURN childIndex, ge.external_uri, ge.indexVertexUri, " +
                                 vertexAndEdgeCommonQueryPart(GRAPH_ELEMENT_QUERY_KEY) +
-                                vertexReturnQueryPart(GRAPH_ELEMENT_QUERY_KEY) +
+                                vertexReturnQueryPart(GRAPH_ELEMENT_QUERY_KEY, inShareLevels) +
                                 (isCenterTagFlow ? TagQueryBuilder.centerTagQueryPart(GRAPH_ELEMENT_QUERY_KEY) : "") +
                                 TagQueryBuilder.tagReturnQueryPart(inShareLevels) +
                                 "labels(ge) as type, ID(ge) as nId, %s",
@@ -247,16 +526,16 @@ public class SubGraphExtractorNeo4j {
 
     }
 
-    private String vertexAndEdgeCommonQueryPart(String prefix) {
+    public static String vertexAndEdgeCommonQueryPart(String prefix) {
         return FriendlyResourceQueryBuilder.returnQueryPartUsingPrefix(prefix);
     }
 
-    private String vertexReturnQueryPart(String prefix) {
-        return vertexSpecificPropertiesQueryPartUsingPrefix(prefix) +
+    public static String vertexReturnQueryPart(String prefix, Set<ShareLevel> inShareLevels) {
+        return vertexSpecificPropertiesQueryPartUsingPrefix(prefix, inShareLevels) +
                 FriendlyResourceQueryBuilder.imageReturnQueryPart(prefix);
     }
 
-    private String vertexSpecificPropertiesQueryPartUsingPrefix(String prefix) {
+    private static String vertexSpecificPropertiesQueryPartUsingPrefix(String prefix, Set<ShareLevel> inShareLevels) {
         return (inShareLevels.contains(ShareLevel.PRIVATE) ? QueryUtils.getPropertyUsingContainerNameQueryPart(
                 prefix,
                 ForkOperatorNeo4J.props.nb_private_neighbors.toString()
@@ -283,20 +562,134 @@ public class SubGraphExtractorNeo4j {
                 );
     }
 
-    private Relation addEdgeUsingRow(Record row) {
-        RelationPojo edge = (RelationPojo) RelationFromExtractorQueryRow.usingRow(
-                row
+    private Relation addEdgeUsingRow(SubGraphPojo subGraph, Record row, ExtractorQueryColumns columns) {
+        RelationPojo edge = (RelationPojo) RelationFromExtractorQueryRow.usingRowAndColumns(
+                row,
+                columns
         ).build();
         subGraph.addEdge(edge);
         return edge;
     }
 
-    private GroupRelation addGroupRelationUsingRow(Record row) {
-        GroupRelationPojo groupRelation = GroupRelationFromExtractorQueryRow.withRowAndKeyPrefix(
+    private GroupRelation addGroupRelationUsingRow(SubGraphPojo subGraph, Record row, ExtractorQueryColumns columns) {
+        GroupRelationPojo groupRelation = GroupRelationFromExtractorQueryRow.withRowAndColumns(
                 row,
-                SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY
+                columns
         ).build();
         subGraph.addGroupRelation(groupRelation);
         return groupRelation;
     }
+
+    /*
+     * What the queries of a subgraph return, driver records are immutable
+     * so they can be kept by SubGraphCacheNeo4j and mapped again for each caller.
+     */
+    public static class Records {
+        private final List<Record> graphElementRecords;
+        private final List<RelationshipEnds> relationships;
+        private final String childIndex;
+
+        private Records(List<Record> graphElementRecords, List<RelationshipEnds> relationships, String childIndex) {
+            this.graphElementRecords = Collections.unmodifiableList(graphElementRecords);
+            this.relationships = Collections.unmodifiableList(relationships);
+            this.childIndex = childIndex;
+        }
+    }
+
+    private static class RelationshipEnds {
+        private Long id;
+        private Long startId;
+        private Long endId;
+        private String type;
+
+        private static RelationshipEnds fromRelationship(Relationship relation) {
+            RelationshipEnds relationshipEnds = new RelationshipEnds();
+            relationshipEnds.id = relation.id();
+            relationshipEnds.startId = relation.startNodeId();
+            relationshipEnds.endId = relation.endNodeId();
+            relationshipEnds.type = relation.type();
+            return relationshipEnds;
+        }
+
+        private static RelationshipEnds fromRecord(Record record) {
+            RelationshipEnds relationshipEnds = new RelationshipEnds();
+            relationshipEnds.id = record.get("rId").asLong();
+            relationshipEnds.startId = record.get("startId").asLong();
+            relationshipEnds.endId = record.get("endId").asLong();
+            relationshipEnds.type = record.get("relType").asString();
+            return relationshipEnds;
+        }
+    }
+
+    private static class FrontierNode {
+        private URI uri;
+        private JSONObject childrenIndex;
+        private Map<Long, Neighbor> neighbors = new LinkedHashMap<>();
+
+        private static FrontierNode fromRecord(Record record) {
+            FrontierNode frontierNode = new FrontierNode();
+            frontierNode.uri = URI.create(record.get("aUri").asString());
+            Value childIndex = record.get("aChildIndex");
+            try {
+                frontierNode.childrenIndex = childIndex.isNull() || childIndex.asString().isEmpty() ?
+                        new JSONObject() : new JSONObject(childIndex.asString());
+            } catch (JSONException e) {
+                frontierNode.childrenIndex = new JSONObject();
+            }
+            return frontierNode;
+        }
+
+        private void addNeighborUsingRecord(Record record) {
+            Neighbor neighbor = neighbors.computeIfAbsent(
+                    record.get("bId").asLong(),
+                    bId -> Neighbor.fromRecord(record)
+            );
+            RelationshipEnds relationship = RelationshipEnds.fromRecord(record);
+            for (RelationshipEnds existing : neighbor.relationships) {
+                if (existing.id.equals(relationship.id)) {
+                    return;
+                }
+            }
+            neighbor.relationships.add(relationship);
+        }
+
+        private Comparator<Neighbor> childrenComparator() {
+            return Comparator.comparing(
+                    this::indexOfChild,
+                    Comparator.nullsLast(Comparator.naturalOrder())
+            ).thenComparing(
+                    neighbor -> neighbor.nbNeighbors,
+                    Comparator.reverseOrder()
+            );
+        }
+
+        private Integer indexOfChild(Neighbor neighbor) {
+            JSONObject indexJson = neighbor.forkUri == null ?
+                    null : childrenIndex.optJSONObject(neighbor.forkUri);
+            if (indexJson == null) {
+                indexJson = childrenIndex.optJSONObject(neighbor.uri);
+            }
+            if (indexJson == null || !indexJson.has("index")) {
+                return null;
+            }
+            return indexJson.optInt("index");
+        }
+    }
+
+    private static class Neighbor {
+        private Long id;
+        private String uri;
+        private String forkUri;
+        private Long nbNeighbors;
+        private List<RelationshipEnds> relationships = new ArrayList<>();
+
+        private static Neighbor fromRecord(Record record) {
+            Neighbor neighbor = new Neighbor();
+            neighbor.id = record.get("bId").asLong();
+            neighbor.uri = record.get("bUri").asString();
+            neighbor.forkUri = record.get("cUri").isNull() ? null : record.get("cUri").asString();
+            neighbor.nbNeighbors = record.get("nbNeighbors").asLong();
+            return neighbor;
+        }
+    }
 }
@@ -1,74 +1,83 @@
 package guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph;
 
 import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 
 import java.net.URI;
 
 public class TagFromExtractorQueryRow {
 
     private Record record;
-    private String key;
+    private ExtractorQueryColumns columns;
 
     public static TagFromExtractorQueryRow usingRowAndKey(
             Record record,
             String key
+    ) {
+        return usingRowAndColumns(
+                record,
+                ExtractorQueryColumns.usingRecordAndPrefix(record, key)
+        );
+    }
+
+    public static TagFromExtractorQueryRow usingRowAndColumns(
+            Record record,
+            ExtractorQueryColumns columns
     ) {
         return new TagFromExtractorQueryRow(
                 record,
-                key
+                columns
         );
     }
 
-    protected TagFromExtractorQueryRow(Record record, String key) {
+    protected TagFromExtractorQueryRow(Record record, ExtractorQueryColumns columns) {
         this.record = record;
-        this.key = key;
+        this.columns = columns;
     }
 
     public TagPojo build() {
         TagPojo tag = new TagPojo(
                 getExternalUri(),
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         record,
-                        key
+                        columns
                 ).build()
         );
-        if (record.get(key + ".nb_private_neighbors").asObject() != null) {
+        Value nbPrivateNeighbors = columns.get(record, columns.nbPrivateNeighbors);
+        if (!nbPrivateNeighbors.isNull()) {
             tag.getNbNeighbors().setPrivate(
-                    record.get(
-                            key + ".nb_private_neighbors"
-                    ).asInt()
+                    nbPrivateNeighbors.asInt()
             );
         }
-        if (record.get(key + ".nb_friend_neighbors").asObject() != null) {
+        Value nbFriendNeighbors = columns.get(record, columns.nbFriendNeighbors);
+        if (!nbFriendNeighbors.isNull()) {
             tag.getNbNeighbors().setFriend(
-                    record.get(
-                            key + ".nb_friend_neighbors"
-                    ).asInt()
+                    nbFriendNeighbors.asInt()
             );
         }
-        if (record.get(key + ".nb_public_neighbors").asObject() != null) {
+        Value nbPublicNeighbors = columns.get(record, columns.nbPublicNeighbors);
+        if (!nbPublicNeighbors.isNull()) {
             tag.getNbNeighbors().setPublic(
-                    record.get(
-                            key + ".nb_public_neighbors"
-                    ).asInt()
+                    nbPublicNeighbors.asInt()
             );
         }
         tag.setShareLevel(
                 VertexFromExtractorQueryRow.getShareLevel(
-                        key,
+                        columns,
                         record
                 )
         );
         tag.getGraphElement().setColors(
                 VertexFromExtractorQueryRow.getColors(
-                        key,
+                        columns,
                         record
                 )
         );
         tag.getGraphElement().setFont(
                 VertexFromExtractorQueryRow.getFont(
-                        key,
+                        columns,
                         record
                 )
         );
@@ -76,8 +85,9 @@ public class TagFromExtractorQueryRow {
     }
 
     private URI getExternalUri() {
-        String externalUriKey = key + "." + "external_uri";
-        return URI.create(record.get(externalUriKey).asString());
+        return columns.toUri(
+                columns.get(record, columns.externalUri).asString()
+        );
     }
 
 }
@@ -9,7 +9,9 @@ import guru.bubl.module.model.graph.graph_element.GraphElementPojo;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.json.ImageJson;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import org.neo4j.driver.Record;
+import org.neo4j.driver.Value;
 
 import java.net.URI;
 import java.util.HashMap;
@@ -19,37 +21,55 @@ import java.util.Map;
 public class TagsFromExtractorQueryRowAsArray {
 
     private Record record;
-    private String key;
+    private ExtractorQueryColumns columns;
+    private int index;
 
     public static TagsFromExtractorQueryRowAsArray usingRowAndKey(
             Record record,
             String key
     ) {
+        ExtractorQueryColumns columns = ExtractorQueryColumns.usingRecordAndPrefix(record, key);
         return new TagsFromExtractorQueryRowAsArray(
                 record,
-                key
+                columns,
+                columns.indexOf(key)
+        );
+    }
+
+    public static TagsFromExtractorQueryRowAsArray usingRowColumnsAndIndex(
+            Record record,
+            ExtractorQueryColumns columns,
+            int index
+    ) {
+        return new TagsFromExtractorQueryRowAsArray(
+                record,
+                columns,
+                index
         );
     }
 
     protected TagsFromExtractorQueryRowAsArray(
             Record record,
-            String key
+            ExtractorQueryColumns columns,
+            int index
     ) {
         this.record = record;
-        this.key = key;
+        this.columns = columns;
+        this.index = index;
     }
 
     public Map<URI, TagPojo> build() {
         Map<URI, TagPojo> tags = new HashMap<>();
-        if (!isInQuery()) {
+        Value tagsValue = columns.get(record, index);
+        if (tagsValue.isNull()) {
             return tags;
         }
-        for (List<Object> properties : getList()) {
+        for (List<Object> properties : (List<List<Object>>) (List) tagsValue.asList()) {
             if (properties.get(0) == null) {
                 return tags;
             }
-            URI externalUri = URI.create(properties.get(0).toString());
-            URI uri = URI.create(properties.get(1).toString());
+            URI externalUri = columns.toUri(properties.get(0).toString());
+            URI uri = columns.toUri(properties.get(1).toString());
             FriendlyResourcePojo friendlyResource = new FriendlyResourcePojo(
                     uri
             );
@@ -110,12 +130,4 @@ public class TagsFromExtractorQueryRowAsArray {
         }
         return tags;
     }
-
-    private Boolean isInQuery() {
-        return record.get(key).asObject() != null;
-    }
-
-    private List<List<Object>> getList() {
-        return (List) record.get(key).asObject();
-    }
 }
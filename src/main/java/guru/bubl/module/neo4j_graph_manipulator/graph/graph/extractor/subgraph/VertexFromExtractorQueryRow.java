@@ -8,38 +8,48 @@ import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.fork.NbNeighborsPojo;
 import guru.bubl.module.model.graph.vertex.Vertex;
 import guru.bubl.module.model.graph.vertex.VertexPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import org.neo4j.driver.Record;
-
-import java.util.List;
+import org.neo4j.driver.Value;
 
 public class VertexFromExtractorQueryRow {
 
     private Record row;
 
-    private String keyPrefix;
+    private ExtractorQueryColumns columns;
 
-    public VertexFromExtractorQueryRow(
+    public static VertexFromExtractorQueryRow usingRowAndColumns(
             Record row,
-            String keyPrefix
+            ExtractorQueryColumns columns
+    ) {
+        return new VertexFromExtractorQueryRow(
+                row,
+                columns
+        );
+    }
+
+    protected VertexFromExtractorQueryRow(
+            Record row,
+            ExtractorQueryColumns columns
     ) {
         this.row = row;
-        this.keyPrefix = keyPrefix;
+        this.columns = columns;
     }
 
     public Vertex build() {
         VertexPojo vertex = new VertexPojo(
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         row,
-                        keyPrefix
+                        columns
                 ).build(),
-                getNbNeighbors(row, keyPrefix),
-                getShareLevel(keyPrefix, row)
+                getNbNeighbors(row, columns),
+                getShareLevel(columns, row)
         );
         vertex.getGraphElement().setColors(
-                getColors(keyPrefix, row)
+                getColors(columns, row)
         );
         vertex.getGraphElement().setFont(
-                getFont(keyPrefix, row)
+                getFont(columns, row)
         );
         if (this.isPattern()) {
             vertex.setAsPattern();
@@ -47,58 +57,36 @@ public class VertexFromExtractorQueryRow {
         return vertex;
     }
 
-    public static NbNeighborsPojo getNbNeighbors(Record row, String keyPrefix) {
+    public static NbNeighborsPojo getNbNeighbors(Record row, ExtractorQueryColumns columns) {
         NbNeighborsPojo nbNeighborsPojo = new NbNeighborsPojo();
-        if (row.get(keyPrefix + ".nb_private_neighbors").asObject() != null) {
-            nbNeighborsPojo.setPrivate(row.get(
-                    keyPrefix + ".nb_private_neighbors"
-            ).asInt());
+        Value nbPrivateNeighbors = columns.get(row, columns.nbPrivateNeighbors);
+        if (!nbPrivateNeighbors.isNull()) {
+            nbNeighborsPojo.setPrivate(nbPrivateNeighbors.asInt());
         }
-        if (row.get(keyPrefix + ".nb_friend_neighbors").asObject() != null) {
-            nbNeighborsPojo.setFriend(row.get(
-                    keyPrefix + ".nb_friend_neighbors"
-            ).asInt());
+        Value nbFriendNeighbors = columns.get(row, columns.nbFriendNeighbors);
+        if (!nbFriendNeighbors.isNull()) {
+            nbNeighborsPojo.setFriend(nbFriendNeighbors.asInt());
         }
-        if (row.get(keyPrefix + ".nb_public_neighbors").asObject() != null) {
-            nbNeighborsPojo.setPublic(row.get(
-                    keyPrefix + ".nb_public_neighbors"
-            ).asInt());
+        Value nbPublicNeighbors = columns.get(row, columns.nbPublicNeighbors);
+        if (!nbPublicNeighbors.isNull()) {
+            nbNeighborsPojo.setPublic(nbPublicNeighbors.asInt());
         }
         return nbNeighborsPojo;
     }
 
-    public static String getColors(String keyPrefix, Record row) {
-        String key = keyPrefix + "." + "colors";
-        if (row.get(key) == null) {
-            return null;
-        }
-        return row.get(
-                key
-        ).asString();
+    public static String getColors(ExtractorQueryColumns columns, Record row) {
+        return columns.get(row, columns.colors).asString();
     }
 
-    public static String getFont(String keyPrefix, Record row) {
-        String key = keyPrefix + "." + "font";
-        if (row.get(key) == null) {
-            return null;
-        }
-        return row.get(
-                key
-        ).asString();
+    public static String getFont(ExtractorQueryColumns columns, Record row) {
+        return columns.get(row, columns.font).asString();
     }
 
-    public static ShareLevel getShareLevel(String keyPrefix, Record row) {
-        return ShareLevel.get(row.get(keyPrefix + ".shareLevel").asInt());
+    public static ShareLevel getShareLevel(ExtractorQueryColumns columns, Record row) {
+        return ShareLevel.get(columns.get(row, columns.shareLevel).asInt());
     }
 
     private Boolean isPattern() {
-        List<String> types = (List) row.get("type").asList();
-        Boolean isPattern = false;
-        for (String typeStr : types) {
-            if (typeStr.equals("Pattern")) {
-                isPattern = true;
-            }
-        }
-        return isPattern;
+        return columns.get(row, columns.type).asList().contains("Pattern");
     }
 }
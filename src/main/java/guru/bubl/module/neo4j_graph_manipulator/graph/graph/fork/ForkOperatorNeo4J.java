@@ -13,6 +13,9 @@ import guru.bubl.module.model.graph.fork.NbNeighborsOperatorFactory;
 import guru.bubl.module.model.graph.vertex.VertexPojo;
 import guru.bubl.module.model.graph.fork.ForkOperator;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.PublicResultsCacheNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementFactoryNeo4j;
@@ -55,6 +58,15 @@ public class ForkOperatorNeo4J implements ForkOperator, OperatorNeo4j {
     @Inject
     protected RelationFactoryNeo4j edgeFactory;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected PublicResultsCacheNeo4j publicResultsCache;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
 
     @AssistedInject
     protected ForkOperatorNeo4J(
@@ -82,51 +94,65 @@ public class ForkOperatorNeo4J implements ForkOperator, OperatorNeo4j {
     public void setShareLevel(ShareLevel shareLevel, ShareLevel previousShareLevel) {
         String decrementQueryPart = decrementNbNeighborsQueryPart(previousShareLevel, "d", "SET ");
         String incrementQueryPart = incrementNbNeighborsQueryPart(shareLevel, "d", "SET ");
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix()
-                            + "SET n.shareLevel=$shareLevel " +
-                            "WITH n OPTIONAL MATCH " +
-                            "(n)-[:IDENTIFIED_TO]->(d)" +
-                            decrementQueryPart + " " +
-                            incrementQueryPart + " " +
-                            "WITH n MATCH" +
-                            "(n)<-[:SOURCE|DESTINATION]->(e), " +
-                            "(e)<-[:SOURCE|DESTINATION]->(d) " +
-                            decrementQueryPart + " " +
-                            incrementQueryPart + " " +
-                            "WITH d,n,e " +
-                            "SET e.shareLevel = CASE WHEN (n.shareLevel <= d.shareLevel) THEN n.shareLevel ELSE d.shareLevel END",
-                    parameters(
-                            "uri", uri().toString(),
-                            "shareLevel", shareLevel.getIndex()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setShareLevel", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix()
+                                + "SET n.shareLevel=$shareLevel " +
+                                "WITH n OPTIONAL MATCH " +
+                                "(n)-[:IDENTIFIED_TO]->(d)" +
+                                decrementQueryPart + " " +
+                                incrementQueryPart + " " +
+                                "WITH n MATCH" +
+                                "(n)<-[:SOURCE|DESTINATION]->(e), " +
+                                "(e)<-[:SOURCE|DESTINATION]->(d) " +
+                                decrementQueryPart + " " +
+                                incrementQueryPart + " " +
+                                "WITH d,n,e " +
+                                "SET e.shareLevel = CASE WHEN (n.shareLevel <= d.shareLevel) THEN n.shareLevel ELSE d.shareLevel END",
+                        parameters(
+                                "uri", uri().toString(),
+                                "shareLevel", shareLevel.getIndex()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateForShareLevelChange(uri);
+        publicResultsCache.invalidateIfPublicIsCrossed(
+                shareLevel,
+                previousShareLevel
+        );
     }
 
     @Override
     public RelationPojo addVertexAndRelation() {
-        return this.addVertexAndRelationIsUnderPatternOrNot(
+        return graphTransaction.inTransaction("addVertexAndRelation", () -> this.addVertexAndRelationIsUnderPatternOrNot(
                 new UserUris(
                         graphElementFactoryNeo4j.withUri(uri).getOwnerUsername()
                 ).generateVertexUri(),
                 null,
                 graphElementFactoryNeo4j.withUri(uri).isPatternOrUnderPattern()
-        );
+        ));
     }
 
     @Override
     public RelationPojo addVertexAndRelationWithIds(String vertexId, String edgeId) {
-        return this.addVertexAndRelationWithIdsUnderPatternOrNot(
+        return graphTransaction.inTransaction("addVertexAndRelationWithIds", () -> this.addVertexAndRelationWithIdsUnderPatternOrNot(
                 vertexId,
                 edgeId,
                 graphElementFactoryNeo4j.withUri(uri).isPatternOrUnderPattern()
-        );
+        ));
     }
 
     @Override
     public RelationOperator addRelationToFork(URI destinationUri, ShareLevel sourceShareLevel, ShareLevel destinationShareLevel) {
+        return graphTransaction.inTransaction(
+                "addRelationToFork",
+                () -> addRelationToForkInTransaction(destinationUri, sourceShareLevel, destinationShareLevel)
+        );
+    }
+
+    private RelationOperator addRelationToForkInTransaction(URI destinationUri, ShareLevel sourceShareLevel, ShareLevel destinationShareLevel) {
         GraphElementOperator source = graphElementFactoryNeo4j.withUri(uri);
         GraphElementOperator destination = graphElementFactoryNeo4j.withUri(destinationUri);
         if (source.isPatternOrUnderPattern() || destination.isPatternOrUnderPattern()) {
@@ -155,6 +181,10 @@ public class ForkOperatorNeo4J implements ForkOperator, OperatorNeo4j {
                             destinationUri.toString()
                     )
             );
+            graphCaches.invalidate(
+                    uri,
+                    destinationUri
+            );
             return edge;
         }
     }
@@ -171,19 +201,22 @@ public class ForkOperatorNeo4J implements ForkOperator, OperatorNeo4j {
 
     @Override
     public void remove() {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() +
-                            "OPTIONAL MATCH " +
-                            "(n)<-[:SOURCE|DESTINATION]-(e:Edge) " +
-                            "WITH e, n " +
-                            "DETACH DELETE n, e",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("removeFork", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() +
+                                "OPTIONAL MATCH " +
+                                "(n)<-[:SOURCE|DESTINATION]-(e:Edge) " +
+                                "WITH e, n " +
+                                "DETACH DELETE n, e",
+                        parameters(
+                                "uri",
+                                this.uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     private RelationPojo addVertexAndRelationWithIdsUnderPatternOrNot(String vertexId, String edgeId, Boolean isUnderPattern) {
@@ -252,18 +285,21 @@ public class ForkOperatorNeo4J implements ForkOperator, OperatorNeo4j {
     }
 
     protected void incrementNumberOfConnectedEdges() {
-        try (Session session = driver.session()) {
-            session.run(
-                    String.format(
-                            "%s SET n.%s= n.%s + 1",
-                            queryPrefix(),
-                            ForkOperatorNeo4J.props.nb_private_neighbors,
-                            ForkOperatorNeo4J.props.nb_private_neighbors
-                    ),
-                    parameters(
-                            "uri", uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("incrementNumberOfConnectedEdges", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        String.format(
+                                "%s SET n.%s= n.%s + 1",
+                                queryPrefix(),
+                                ForkOperatorNeo4J.props.nb_private_neighbors,
+                                ForkOperatorNeo4J.props.nb_private_neighbors
+                        ),
+                        parameters(
+                                "uri", uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 }
@@ -4,7 +4,10 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.graph.fork.NbNeighbors;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
@@ -21,6 +24,12 @@ public class NbNeighborsOperatorNeo4j implements NbNeighbors, OperatorNeo4j {
     @Inject
     Driver driver;
 
+    @Inject
+    GraphCachesNeo4j graphCaches;
+
+    @Inject
+    GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     protected NbNeighborsOperatorNeo4j(
             @Assisted URI uri
@@ -31,7 +40,7 @@ public class NbNeighborsOperatorNeo4j implements NbNeighbors, OperatorNeo4j {
 
     @Override
     public Integer getPrivate() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%sRETURN n.nb_private_neighbors as result",
@@ -49,26 +58,29 @@ public class NbNeighborsOperatorNeo4j implements NbNeighbors, OperatorNeo4j {
 
     @Override
     public void setPrivate(Integer nbPrivate) {
-        try (Session session = driver.session()) {
-            session.run(
-                    String.format(
-                            "%s SET n.%s=$nbPrivateNeighbors",
-                            queryPrefix(),
-                            ForkOperatorNeo4J.props.nb_private_neighbors
-                    ),
-                    parameters(
-                            "uri",
-                            uri.toString(),
-                            "nbPrivateNeighbors",
-                            nbPrivate
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setPrivateNbNeighbors", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        String.format(
+                                "%s SET n.%s=$nbPrivateNeighbors",
+                                queryPrefix(),
+                                ForkOperatorNeo4J.props.nb_private_neighbors
+                        ),
+                        parameters(
+                                "uri",
+                                uri.toString(),
+                                "nbPrivateNeighbors",
+                                nbPrivate
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
     public Integer getFriend() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     queryPrefix() + "RETURN n.nb_friend_neighbors as result",
                     parameters(
@@ -83,22 +95,25 @@ public class NbNeighborsOperatorNeo4j implements NbNeighbors, OperatorNeo4j {
 
     @Override
     public void setFriend(Integer friend) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.nb_friend_neighbors=$nbFriendNeighbors",
-                    parameters(
-                            "uri",
-                            uri.toString(),
-                            "nbFriendNeighbors",
-                            friend
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setFriendNbNeighbors", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.nb_friend_neighbors=$nbFriendNeighbors",
+                        parameters(
+                                "uri",
+                                uri.toString(),
+                                "nbFriendNeighbors",
+                                friend
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
     public Integer getPublic() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%sRETURN n.nb_public_neighbors as result",
@@ -116,17 +131,20 @@ public class NbNeighborsOperatorNeo4j implements NbNeighbors, OperatorNeo4j {
 
     @Override
     public void setPublic(Integer nbPublic) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.nb_public_neighbors=$nbPublicNeighbors",
-                    parameters(
-                            "uri",
-                            uri.toString(),
-                            "nbPublicNeighbors",
-                            nbPublic
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setPublicNbNeighbors", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.nb_public_neighbors=$nbPublicNeighbors",
+                        parameters(
+                                "uri",
+                                uri.toString(),
+                                "nbPublicNeighbors",
+                                nbPublic
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri);
     }
 
     @Override
@@ -0,0 +1,148 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element;
+
+import com.google.inject.Inject;
+import guru.bubl.module.model.UserUris;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.Tag;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.model.json.ImageJson;
+import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.AddTagQueryBuilder;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
+import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImagesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.tag.TagFactoryNeo4J;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+
+import java.net.URI;
+import java.util.*;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Adds many tags to many graph elements with one query, as GraphElementOperator.addTag would
+ * one after the other, for copies, patterns and imports.
+ */
+public class BatchTaggerNeo4j {
+
+    @Inject
+    protected Driver driver;
+
+    @Inject
+    protected TagFactoryNeo4J tagFactory;
+
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
+    /*
+     * returns the added tags by their external uri, for each graph element uri
+     */
+    public Map<URI, Map<URI, TagPojo>> addTags(
+            Map<URI, ? extends Collection<? extends Tag>> tagsOfGraphElements,
+            ShareLevel sourceShareLevel
+    ) {
+        return graphTransaction.inTransaction(
+                "addTags",
+                () -> addTagsInTransaction(tagsOfGraphElements, sourceShareLevel)
+        );
+    }
+
+    private Map<URI, Map<URI, TagPojo>> addTagsInTransaction(
+            Map<URI, ? extends Collection<? extends Tag>> tagsOfGraphElements,
+            ShareLevel sourceShareLevel
+    ) {
+        Map<URI, Map<URI, TagPojo>> tagsByGraphElementUri = new HashMap<>();
+        List<Map<String, Object>> rows = new ArrayList<>();
+        Map<URI, URI> externalUrisOfTagUris = new HashMap<>();
+        Long creationDate = new Date().getTime();
+        for (Map.Entry<URI, ? extends Collection<? extends Tag>> tagsOfGraphElement : tagsOfGraphElements.entrySet()) {
+            URI graphElementUri = tagsOfGraphElement.getKey();
+            String ownerUsername = UserUris.ownerUserNameFromUri(graphElementUri);
+            tagsByGraphElementUri.put(graphElementUri, new HashMap<>());
+            for (Tag tag : tagsOfGraphElement.getValue()) {
+                TagPojo identificationPojo = GraphElementOperatorNeo4j.tagToAdd(
+                        tag,
+                        ownerUsername,
+                        tagUri -> externalUrisOfTagUris.computeIfAbsent(
+                                tagUri,
+                                uri -> tagFactory.withUri(uri).getExternalResourceUri()
+                        )
+                );
+                if (!UserUris.ownerUserNameFromUri(identificationPojo.uri()).equals(ownerUsername)) {
+                    continue;
+                }
+                Boolean tagAlreadyHasUri = tag.hasUri() && UserUris.isUriOfATag(tag.uri());
+                Map<String, Object> row = new HashMap<>();
+                row.put("uri", graphElementUri.toString());
+                row.put("key", tag.getExternalResourceUri().toString());
+                row.put("metaUri", identificationPojo.uri().toString());
+                row.put("label", tag.label());
+                row.put("comment", tag.comment());
+                row.put("privateContext", tag.comment());
+                row.put("friendContext", tag.comment());
+                row.put("publicContext", tag.comment());
+                row.put(ImagesNeo4j.props.images.name(), ImageJson.toJsonArray(tag.images()));
+                row.put("creationDate", creationDate);
+                row.put("external_uri", identificationPojo.getExternalResourceUri().toString());
+                row.put("relationExternalUri", identificationPojo.getRelationExternalResourceUri().toString());
+                row.put(FriendlyResourceNeo4j.props.owner.name(), ownerUsername);
+                row.put("shareLevel", tag.getShareLevel().getIndex());
+                row.put(
+                        "tagExternalUri",
+                        !tagAlreadyHasUri && GraphElementOperatorNeo4j.shouldTagExternalUri(
+                                graphElementUri,
+                                ownerUsername,
+                                tag.getExternalResourceUri()
+                        )
+                );
+                rows.add(row);
+            }
+        }
+        if (rows.isEmpty()) {
+            return tagsByGraphElementUri;
+        }
+        Set<URI> touchedUris = new HashSet<>(tagsByGraphElementUri.keySet());
+        try (Session session = driver.session()) {
+            Result result = session.run(
+                    AddTagQueryBuilder.buildForRows(sourceShareLevel),
+                    parameters(
+                            "rows",
+                            rows,
+                            FriendlyResourceNeo4j.props.last_modification_date.name(),
+                            new Date().getTime()
+                    )
+            );
+            ExtractorQueryColumns columns = ExtractorQueryColumns.usingResultAndPrefix(
+                    result,
+                    AddTagQueryBuilder.TAG_QUERY_KEY
+            );
+            int graphElementUriIndex = columns.indexOf("graphElementUri");
+            int keyIndex = columns.indexOf("key");
+            while (result.hasNext()) {
+                Record record = result.next();
+                TagPojo tagPojo = GraphElementOperatorNeo4j.tagPojoFromAddTagRecord(record, columns);
+                tagsByGraphElementUri.get(
+                        columns.toUri(record.get(graphElementUriIndex).asString())
+                ).put(
+                        columns.toUri(record.get(keyIndex).asString()),
+                        tagPojo
+                );
+                touchedUris.add(tagPojo.uri());
+            }
+        }
+        URI[] touchedUrisArray = touchedUris.toArray(new URI[0]);
+        graphCaches.invalidate(touchedUrisArray);
+        return tagsByGraphElementUri;
+    }
+}
@@ -4,6 +4,7 @@ import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.graph.graph_element.ForkCollectionOperator;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Session;
 
@@ -18,6 +19,9 @@ public class ForkCollectionOperatorNeo4J implements ForkCollectionOperator {
     @Inject
     private Driver driver;
 
+    @Inject
+    private GraphTransactionNeo4j graphTransaction;
+
     private Set<URI> uris;
 
     @AssistedInject
@@ -29,18 +33,20 @@ public class ForkCollectionOperatorNeo4J implements ForkCollectionOperator {
 
     @Override
     public void remove() {
-        try (Session session = driver.session()) {
-            session.run(
-                    "MATCH (n:Resource) " +
-                            "WHERE n.uri in $uris " +
-                            "OPTIONAL MATCH (n)<-[:SOURCE|DESTINATION]-(e:Edge) " +
-                            "WITH e, n " +
-                            "DETACH DELETE n, e",
-                    parameters(
-                            "uris",
-                            urisToString(uris)
-                    )
-            );
-        }
+        graphTransaction.inTransaction("removeForks", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        "MATCH (n:Resource) " +
+                                "WHERE n.uri in $uris " +
+                                "OPTIONAL MATCH (n)<-[:SOURCE|DESTINATION]-(e:Edge) " +
+                                "WITH e, n " +
+                                "DETACH DELETE n, e",
+                        parameters(
+                                "uris",
+                                urisToString(uris)
+                        )
+                );
+            }
+        });
     }
 }
@@ -4,6 +4,7 @@
 
 package guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.Image;
@@ -17,9 +18,14 @@ import guru.bubl.module.model.graph.fork.NbNeighborsPojo;
 import guru.bubl.module.model.json.ImageJson;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.NodePropertiesNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.RestApiUtilsNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.AddTagQueryBuilder;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.VertexFromExtractorQueryRow;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.fork.ForkOperatorNeo4J;
 import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImagesNeo4j;
@@ -28,6 +34,7 @@ import org.neo4j.driver.*;
 
 import java.net.URI;
 import java.util.*;
+import java.util.function.Function;
 
 import static guru.bubl.module.neo4j_graph_manipulator.graph.RestApiUtilsNeo4j.map;
 import static org.neo4j.driver.Values.parameters;
@@ -48,6 +55,12 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
 
     protected GraphElementSpecialOperatorFactory graphElementOperatorFactory;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
     public static String incrementNbNeighborsQueryPart(ShareLevel shareLevel, String variableName, String prefix) {
         return incrementOrDecrementNbFriendsOrPublicQueryPart(
                 shareLevel,
@@ -172,18 +185,7 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
 
     @Override
     public String getFont() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.font as font",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            return record.get(
-                    "font"
-            ).asObject() == null ? "" : record.get("font").asString();
-        }
+        return friendlyResource.getProperties().getFont();
     }
 
     @Override
@@ -193,95 +195,59 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
 
     @Override
     public void setFont(String font) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.font=$font",
-                    parameters(
-                            "uri",
-                            uri().toString(),
-                            "font",
-                            font
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setFont", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.font=$font",
+                        parameters(
+                                "uri",
+                                uri().toString(),
+                                "font",
+                                font
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri());
     }
 
     @Override
     public void setChildrenIndex(String childrenIndex) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.childrenIndexes=$childrenIndexes",
-                    parameters(
-                            "uri",
-                            uri().toString(),
-                            "childrenIndexes",
-                            childrenIndex
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setChildrenIndex", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.childrenIndexes=$childrenIndexes",
+                        parameters(
+                                "uri",
+                                uri().toString(),
+                                "childrenIndexes",
+                                childrenIndex
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri());
     }
 
     @Override
     public Boolean isUnderPattern() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.isUnderPattern",
-                    parameters(
-                            "uri", uri().toString()
-                    )
-            ).single();
-            return record.get("n.isUnderPattern").asObject() == null ?
-                    false :
-                    record.get("n.isUnderPattern").asBoolean();
-        }
+        return friendlyResource.getProperties().isUnderPattern();
     }
 
     @Override
     public Boolean isPatternOrUnderPattern() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.isUnderPattern,'Pattern' IN LABELS(n) as isPattern",
-                    parameters(
-                            "uri", uri().toString()
-                    )
-            ).single();
-            Boolean isUnderPattern = record.get("n.isUnderPattern").asObject() == null ?
-                    false :
-                    record.get("n.isUnderPattern").asBoolean();
-            return isUnderPattern || record.get("isPattern").asBoolean();
-        }
+        NodePropertiesNeo4j properties = friendlyResource.getProperties();
+        return properties.isUnderPattern() || properties.isPattern();
     }
 
     @Override
     public String getChildrenIndex() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.childrenIndexes as childrenIndexes",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            return record.get(
-                    "childrenIndexes"
-            ).asObject() == null ? "" : record.get("childrenIndexes").asString();
-        }
+        return friendlyResource.getProperties().getChildrenIndex();
     }
 
     @Override
     public URI getCopiedFromUri() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.copied_from_uri as copiedFromUri",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            return record.get(
-                    "copiedFromUri"
-            ).asObject() == null ? null : URI.create(record.get("copiedFromUri").asString());
-        }
+        return friendlyResource.getProperties().getCopiedFromUri();
     }
 
     @Override
@@ -301,33 +267,19 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
             Tag tag,
             ShareLevel sourceShareLevel
     ) {
-        TagPojo identificationPojo;
-        Boolean isIdentifyingToAnIdentification = UserUris.isUriOfATag(
-                tag.getExternalResourceUri()
+        return graphTransaction.inTransaction(
+                "addTag",
+                () -> addTagInTransaction(tag, sourceShareLevel)
         );
-        if (isIdentifyingToAnIdentification) {
-            identificationPojo = new TagPojo(
-                    identificationFactory.withUri(
-                            tag.getExternalResourceUri()
-                    ).getExternalResourceUri(),
-                    new GraphElementPojo(
-                            new FriendlyResourcePojo(
-                                    tag.getExternalResourceUri()
-                            )
-                    )
-            );
-        } else {
-            identificationPojo = new TagPojo(
-                    new UserUris(getOwnerUsername()).generateTagUri(),
-                    tag
-            );
-        }
+    }
 
-        identificationPojo.setCreationDate(new Date().getTime());
-        Boolean tagAlreadyHasUri = tag.hasUri() && UserUris.isUriOfATag(tag.uri());
-        identificationPojo.setUri(
-                tagAlreadyHasUri ? tag.uri() : new UserUris(getOwnerUsername()).generateTagUri()
+    private Map<URI, TagPojo> addTagInTransaction(Tag tag, ShareLevel sourceShareLevel) {
+        TagPojo identificationPojo = tagToAdd(
+                tag,
+                getOwnerUsername(),
+                tagUri -> identificationFactory.withUri(tagUri).getExternalResourceUri()
         );
+        Boolean tagAlreadyHasUri = tag.hasUri() && UserUris.isUriOfATag(tag.uri());
         if (!UserUris.ownerUserNameFromUri(identificationPojo.uri()).equals(getOwnerUsername())) {
             return new HashMap<>();
         }
@@ -338,7 +290,7 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
                     AddTagQueryBuilder.usingIdentificationForGraphElement(
                             queryPrefix(),
                             sourceShareLevel,
-                            !tagAlreadyHasUri && shouldTagExternalUri(tag.getExternalResourceUri())
+                            !tagAlreadyHasUri && shouldTagExternalUri(uri(), getOwnerUsername(), tag.getExternalResourceUri())
                     ).build(),
                     parameters(
                             "uri",
@@ -371,52 +323,101 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
                             tag.getShareLevel().getIndex()
                     )
             );
+            ExtractorQueryColumns columns = ExtractorQueryColumns.usingResultAndPrefix(
+                    result,
+                    AddTagQueryBuilder.TAG_QUERY_KEY
+            );
             while (result.hasNext()) {
-                Record record = result.next();
-                URI externalUri = URI.create(
-                        record.get("external_uri").asString()
-                );
-                TagPojo tagPojo = new TagPojo(
-                        externalUri,
-                        new GraphElementPojo(
-                                new FriendlyResourcePojo(
-                                        URI.create(
-                                                record.get("uri").asString()
-                                        ),
-                                        record.get("label").asObject() == null ?
-                                                "" : record.get("label").asString(),
-                                        record.get("images").asObject() == null ?
-                                                new HashSet<>() : ImageJson.fromJson(record.get("images").asString()),
-                                        record.get("comment").asObject() == null ?
-                                                "" : record.get("comment").asString(),
-                                        record.get("creation_date").asLong(),
-                                        record.get("last_modification_date").asLong()
-                                )
-                        ),
-                        new NbNeighborsPojo(
-                                record.get("nbPrivateNeighbors").asInt(),
-                                record.get("nbFriendNeighbors").asInt(),
-                                record.get("nbPublicNeighbors").asInt()
-                        )
-                );
-                tagPojo.setShareLevel(
-                        VertexFromExtractorQueryRow.getShareLevel(
-                                "f",
-                                record
-                        )
-                );
                 identifications.put(
                         tag.getExternalResourceUri(),
-                        tagPojo
+                        tagPojoFromAddTagRecord(result.next(), columns)
                 );
             }
+            graphCaches.invalidate(
+                    uri(),
+                    identificationPojo.uri()
+            );
             return identifications;
         }
     }
 
-    private Boolean shouldTagExternalUri(URI externalUri) {
+    /*
+     * the tag as it will be added to a graph element of ownerUsername, with its meta uri,
+     * a tag that is itself a tag gets the external uri of that tag
+     */
+    public static TagPojo tagToAdd(Tag tag, String ownerUsername, Function<URI, URI> externalUriOfTagUri) {
+        TagPojo identificationPojo;
+        Boolean isIdentifyingToAnIdentification = UserUris.isUriOfATag(
+                tag.getExternalResourceUri()
+        );
+        if (isIdentifyingToAnIdentification) {
+            identificationPojo = new TagPojo(
+                    externalUriOfTagUri.apply(
+                            tag.getExternalResourceUri()
+                    ),
+                    new GraphElementPojo(
+                            new FriendlyResourcePojo(
+                                    tag.getExternalResourceUri()
+                            )
+                    )
+            );
+        } else {
+            identificationPojo = new TagPojo(
+                    new UserUris(ownerUsername).generateTagUri(),
+                    tag
+            );
+        }
+
+        identificationPojo.setCreationDate(new Date().getTime());
+        Boolean tagAlreadyHasUri = tag.hasUri() && UserUris.isUriOfATag(tag.uri());
+        identificationPojo.setUri(
+                tagAlreadyHasUri ? tag.uri() : new UserUris(ownerUsername).generateTagUri()
+        );
+        return identificationPojo;
+    }
+
+    /*
+     * columns are resolved once per result under AddTagQueryBuilder.TAG_QUERY_KEY
+     */
+    public static TagPojo tagPojoFromAddTagRecord(Record record, ExtractorQueryColumns columns) {
+        URI externalUri = columns.toUri(
+                columns.get(record, columns.externalUri).asString()
+        );
+        Value label = columns.get(record, columns.label);
+        Value images = columns.get(record, columns.images);
+        Value comment = columns.get(record, columns.comment);
+        TagPojo tagPojo = new TagPojo(
+                externalUri,
+                new GraphElementPojo(
+                        new FriendlyResourcePojo(
+                                URI.create(
+                                        columns.get(record, columns.uri).asString()
+                                ),
+                                label.isNull() ? "" : label.asString(),
+                                images.isNull() ? new HashSet<>() : ImageJson.fromJson(images.asString()),
+                                comment.isNull() ? "" : comment.asString(),
+                                columns.get(record, columns.creationDate).asLong(),
+                                columns.get(record, columns.lastModificationDate).asLong()
+                        )
+                ),
+                new NbNeighborsPojo(
+                        columns.get(record, columns.nbPrivateNeighbors).asInt(),
+                        columns.get(record, columns.nbFriendNeighbors).asInt(),
+                        columns.get(record, columns.nbPublicNeighbors).asInt()
+                )
+        );
+        tagPojo.setShareLevel(
+                VertexFromExtractorQueryRow.getShareLevel(
+                        columns,
+                        record
+                )
+        );
+        return tagPojo;
+    }
+
+    public static Boolean shouldTagExternalUri(URI graphElementUri, String ownerUsername, URI externalUri) {
         Boolean isSelfReference = externalUri.equals(
-                this.uri()
+                graphElementUri
         );
         if (isSelfReference) {
             return false;
@@ -426,31 +427,29 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
         }
         Boolean isOwnerOfExternalUri = UserUris.ownerUserNameFromUri(
                 externalUri
-        ).equals(getOwnerUsername());
+        ).equals(ownerUsername);
         Boolean isVoidReference = externalUri.toString().contains("/void/ref/");
         return isOwnerOfExternalUri && !isVoidReference;
     }
 
     @Override
     public ShareLevel getShareLevel() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.shareLevel as shareLevel",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            if (record.get("shareLevel").asObject() == null) {
-                return ShareLevel.PRIVATE;
-            }
-            Integer shareLevel = record.get("shareLevel").asInt();
-            return ShareLevel.get(shareLevel);
-        }
+        return friendlyResource.getProperties().getShareLevel();
     }
 
     @Override
     public void removeTag(Tag tag, ShareLevel sourceShareLevel) {
+        graphTransaction.inTransaction(
+                "removeTag",
+                () -> removeTagInTransaction(tag, sourceShareLevel)
+        );
+        graphCaches.invalidate(
+                uri(),
+                tag.uri()
+        );
+    }
+
+    private void removeTagInTransaction(Tag tag, ShareLevel sourceShareLevel) {
         try (Session session = driver.session()) {
             String nbNeighborsPropertyName = sourceShareLevel.getNbNeighborsPropertyName();
             session.run(
@@ -528,7 +527,7 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
     @Override
     public Map<URI, TagPojo> getTags() {
         Map<URI, TagPojo> identifications = new HashMap<>();
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%sMATCH (n)-[r:IDENTIFIED_TO]->(tag) " +
@@ -590,17 +589,7 @@ public class GraphElementOperatorNeo4j implements GraphElementOperator, Operator
 
     @Override
     public String getPrivateContext() {
-        try (Session session = driver.session()) {
-            Record record = session.run(
-                    queryPrefix() + "RETURN n.private_context as privateContext",
-                    parameters(
-                            "uri",
-                            this.uri().toString()
-                    )
-            ).single();
-            Value privateContext = record.get("privateContext");
-            return privateContext.asObject() == null ? "" : privateContext.asString();
-        }
+        return friendlyResource.getProperties().getPrivateContext();
     }
 
     @Override
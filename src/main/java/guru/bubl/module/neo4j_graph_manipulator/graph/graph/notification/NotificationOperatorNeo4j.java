@@ -4,6 +4,9 @@ import com.google.inject.Inject;
 import guru.bubl.module.model.User;
 import guru.bubl.module.model.notification.Notification;
 import guru.bubl.module.model.notification.NotificationOperator;
+import guru.bubl.module.neo4j_graph_manipulator.graph.CursorPage;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SeekCursor;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Result;
@@ -27,33 +30,78 @@ public class NotificationOperatorNeo4j implements NotificationOperator {
 
     }
 
+    private static final Integer PAGE_SIZE = 10;
+
     @Override
     public List<Notification> listForUserAndNbSkip(User user, Integer nbSkip) {
         List<Notification> notifications = new ArrayList<>();
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             String query = "MATCH (n:Notification{owner:$owner}) " +
                     "RETURN n.uri, n.action, n.watchUri, n.rootUri, n.watchLabel, n.creationDate " +
-                    "ORDER BY n.creationDate DESC SKIP " + nbSkip + " LIMIT 10 ";
+                    "ORDER BY n.creationDate DESC SKIP $nbSkip LIMIT $limit ";
             Result rs = session.run(
                     query,
                     parameters(
-                            "owner", user.username()
+                            "owner", user.username(),
+                            "nbSkip", nbSkip,
+                            "limit", PAGE_SIZE
                     )
             );
             while (rs.hasNext()) {
-                Record record = rs.next();
                 notifications.add(
-                        new Notification(
-                                URI.create(record.get("n.uri").asString()),
-                                URI.create(record.get("n.rootUri").asString()),
-                                URI.create(record.get("n.watchUri").asString()),
-                                new Date(record.get("n.creationDate").asLong()),
-                                record.get("n.action").asString(),
-                                record.get("n.watchLabel").asString()
-                        )
+                        notificationFromRecord(rs.next())
                 );
             }
         }
         return notifications;
     }
+
+    /*
+     * Seeks past the creationDate and uri of the cursor instead of skipping, a null cursor gives the first page.
+     * The notifications of the owner are found by the index on owner and then sorted.
+     */
+    public CursorPage<Notification> listForUserAfterCursor(User user, String cursor) {
+        SeekCursor after = SeekCursor.fromToken(cursor);
+        List<Notification> notifications = new ArrayList<>();
+        Record lastRecord = null;
+        try (Session session = SessionsNeo4j.read(driver)) {
+            String query = "MATCH (n:Notification{owner:$owner}) " +
+                    "WHERE $afterUri IS NULL OR n.creationDate < $afterDate OR (n.creationDate = $afterDate AND n.uri < $afterUri) " +
+                    "RETURN n.uri, n.action, n.watchUri, n.rootUri, n.watchLabel, n.creationDate " +
+                    "ORDER BY n.creationDate DESC, n.uri DESC LIMIT $limit ";
+            Result rs = session.run(
+                    query,
+                    parameters(
+                            "owner", user.username(),
+                            "afterDate", SeekCursor.valueOrNull(after, 0),
+                            "afterUri", SeekCursor.valueOrNull(after, 1),
+                            "limit", PAGE_SIZE
+                    )
+            );
+            while (rs.hasNext()) {
+                lastRecord = rs.next();
+                notifications.add(
+                        notificationFromRecord(lastRecord)
+                );
+            }
+        }
+        return CursorPage.withItemsAndNextCursor(
+                notifications,
+                notifications.size() < PAGE_SIZE ? null : SeekCursor.withSortKey(
+                        lastRecord.get("n.creationDate").asLong(),
+                        lastRecord.get("n.uri").asString()
+                ).toToken()
+        );
+    }
+
+    private Notification notificationFromRecord(Record record) {
+        return new Notification(
+                URI.create(record.get("n.uri").asString()),
+                URI.create(record.get("n.rootUri").asString()),
+                URI.create(record.get("n.watchUri").asString()),
+                new Date(record.get("n.creationDate").asLong()),
+                record.get("n.action").asString(),
+                record.get("n.watchLabel").asString()
+        );
+    }
 }
@@ -6,41 +6,45 @@ import guru.bubl.module.model.User;
 import guru.bubl.module.model.UserUris;
 import guru.bubl.module.model.graph.FriendlyResourcePojo;
 import guru.bubl.module.model.graph.ShareLevel;
-import guru.bubl.module.model.graph.graph_element.GraphElementOperator;
-import guru.bubl.module.model.graph.graph_element.GraphElementOperatorFactory;
 import guru.bubl.module.model.graph.graph_element.GraphElementPojo;
 import guru.bubl.module.model.graph.tag.Tag;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.graph.pattern.PatternUser;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.BatchTaggerNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Result;
 
 import java.net.URI;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 import static org.neo4j.driver.Values.parameters;
 
 public class PatternUserNeo4j implements PatternUser {
 
     private Driver driver;
-    private GraphElementOperatorFactory graphElementFactory;
+    private GraphTransactionNeo4j graphTransaction;
+    private BatchTaggerNeo4j batchTagger;
+    private GraphCachesNeo4j graphCaches;
     private User user;
     private URI patternUri;
 
     @AssistedInject
     protected PatternUserNeo4j(
             Driver driver,
-            GraphElementOperatorFactory graphElementFactory,
+            GraphTransactionNeo4j graphTransaction,
+            BatchTaggerNeo4j batchTagger,
+            GraphCachesNeo4j graphCaches,
             @Assisted User user,
             @Assisted URI patternUri
     ) {
         this.driver = driver;
-        this.graphElementFactory = graphElementFactory;
+        this.graphTransaction = graphTransaction;
+        this.batchTagger = batchTagger;
+        this.graphCaches = graphCaches;
         this.user = user;
         this.patternUri = patternUri;
     }
@@ -48,6 +52,10 @@ public class PatternUserNeo4j implements PatternUser {
 
     @Override
     public URI use() {
+        return graphTransaction.inTransaction("usePattern", this::useInTransaction);
+    }
+
+    private URI useInTransaction() {
         UserUris userUris = new UserUris(user);
         URI centerUri = null;
         TagPojo patternAsTag;
@@ -119,22 +127,26 @@ public class PatternUserNeo4j implements PatternUser {
                     ));
                 }
             }
-            graphElementFactory.withUri(
-                    centerUri
-            ).addTag(
-                    patternAsTag,
-                    ShareLevel.PRIVATE
+            Map<URI, Set<TagPojo>> tagsOfGraphElements = new LinkedHashMap<>();
+            tagsOfGraphElements.put(
+                    centerUri,
+                    new LinkedHashSet<>(Collections.singleton(patternAsTag))
             );
             for (URI uri : tagThoseGraphElements.keySet()) {
-                GraphElementOperator graphElementOperator = graphElementFactory.withUri(uri);
-                Set<TagPojo> tags = tagThoseGraphElements.get(uri);
-                for (TagPojo tag : tags) {
-                    graphElementOperator.addTag(
-                            tag,
-                            ShareLevel.PRIVATE
-                    );
-                }
+                tagsOfGraphElements.computeIfAbsent(
+                        uri,
+                        k -> new LinkedHashSet<>()
+                ).addAll(
+                        tagThoseGraphElements.get(uri)
+                );
             }
+            batchTagger.addTags(
+                    tagsOfGraphElements,
+                    ShareLevel.PRIVATE
+            );
+            graphCaches.invalidateOwner(
+                    user.username()
+            );
             return centerUri;
         }
     }
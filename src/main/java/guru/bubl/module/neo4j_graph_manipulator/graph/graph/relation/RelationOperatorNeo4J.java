@@ -18,6 +18,8 @@ import guru.bubl.module.model.graph.tag.Tag;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.graph.vertex.VertexPojo;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.RestApiUtilsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementFactoryNeo4j;
@@ -61,6 +63,12 @@ public class RelationOperatorNeo4J implements RelationOperator, OperatorNeo4j {
     @Inject
     protected GroupRelationFactoryNeo4j groupRelationFactoryNeo4j;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     protected RelationOperatorNeo4J(
             VertexFactoryNeo4j vertexFactory,
@@ -136,26 +144,29 @@ public class RelationOperatorNeo4J implements RelationOperator, OperatorNeo4j {
 
     @Override
     public void inverse() {
-        try (Session session = driver.session()) {
-            session.run(
-                    String.format(
-                            "%sMATCH (n)-[source_rel:SOURCE]->(source_vertex), " +
-                                    "(n)-[destination_rel:DESTINATION]->(destination_vertex) " +
-                                    "MERGE (n)-[:DESTINATION]->(source_vertex) " +
-                                    "MERGE (n)-[:SOURCE]->(destination_vertex) " +
-                                    "DELETE source_rel, destination_rel " +
-                                    "SET %s",
-                            queryPrefix(),
-                            FriendlyResourceNeo4j.LAST_MODIFICATION_QUERY_PART
-                    ),
-                    parameters(
-                            "uri",
-                            this.uri().toString(),
-                            "last_modification_date",
-                            new Date().getTime()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("inverse", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        String.format(
+                                "%sMATCH (n)-[source_rel:SOURCE]->(source_vertex), " +
+                                        "(n)-[destination_rel:DESTINATION]->(destination_vertex) " +
+                                        "MERGE (n)-[:DESTINATION]->(source_vertex) " +
+                                        "MERGE (n)-[:SOURCE]->(destination_vertex) " +
+                                        "DELETE source_rel, destination_rel " +
+                                        "SET %s",
+                                queryPrefix(),
+                                FriendlyResourceNeo4j.LAST_MODIFICATION_QUERY_PART
+                        ),
+                        parameters(
+                                "uri",
+                                this.uri().toString(),
+                                "last_modification_date",
+                                new Date().getTime()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri());
     }
 
     @Override
@@ -330,33 +341,36 @@ public class RelationOperatorNeo4J implements RelationOperator, OperatorNeo4j {
         UserUris userUris = new UserUris(graphElementOperator.getOwnerUsername());
         URI newGroupRelationUri = userUris.groupRelationUriFromShortId(newGroupRelationId);
         GroupRelationOperatorNeo4j groupRelationOperator = groupRelationFactoryNeo4j.withUri(newGroupRelationUri);
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() +
-                            "CREATE(gr:Resource:GraphElement:GroupRelation $groupRelation) " +
-                            "WITH n, gr " +
-                            "MATCH (n)-[r:SOURCE]->(s) " +
-                            "MERGE (gr)-[:SOURCE]->(s) " +
-                            "MERGE (n)-[:SOURCE]->(gr) " +
-                            "DELETE r " +
-                            "WITH n,gr " +
-                            "MATCH (n)-[r:IDENTIFIED_TO]->(t) " +
-                            "MERGE (gr)-[:IDENTIFIED_TO]->(t) " +
-                            "DELETE r",
-                    parameters(
-                            "uri", uri().toString(),
-                            "groupRelation",
-                            groupRelationOperator.addCreationProperties(
-                                    RestApiUtilsNeo4j.map(
-                                            "shareLevel", initialShareLevel.getIndex(),
-                                            initialShareLevel.getNbNeighborsPropertyName(), 2,
-                                            "label", label,
-                                            "comment", note
-                                    )
-                            )
-                    )
-            );
-        }
+        graphTransaction.inTransaction("convertToGroupRelation", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() +
+                                "CREATE(gr:Resource:GraphElement:GroupRelation $groupRelation) " +
+                                "WITH n, gr " +
+                                "MATCH (n)-[r:SOURCE]->(s) " +
+                                "MERGE (gr)-[:SOURCE]->(s) " +
+                                "MERGE (n)-[:SOURCE]->(gr) " +
+                                "DELETE r " +
+                                "WITH n,gr " +
+                                "MATCH (n)-[r:IDENTIFIED_TO]->(t) " +
+                                "MERGE (gr)-[:IDENTIFIED_TO]->(t) " +
+                                "DELETE r",
+                        parameters(
+                                "uri", uri().toString(),
+                                "groupRelation",
+                                groupRelationOperator.addCreationProperties(
+                                        RestApiUtilsNeo4j.map(
+                                                "shareLevel", initialShareLevel.getIndex(),
+                                                initialShareLevel.getNbNeighborsPropertyName(), 2,
+                                                "label", label,
+                                                "comment", note
+                                        )
+                                )
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri());
         return new GroupRelationPojo(
                 newGroupRelationUri
         );
@@ -365,33 +379,39 @@ public class RelationOperatorNeo4J implements RelationOperator, OperatorNeo4j {
     @Override
     public RelationPojo createEdgeUsingInitialValues(Map<String, Object> values) {
         Map<String, Object> creationProperties = addCreationProperties(values);
-        try (Session session = driver.session()) {
-            session.run(
-                    "MATCH (source_node:Resource{uri:$sourceUri}), " +
-                            "(destination_node:Resource{uri:$destinationUri}) " +
-                            "CREATE (n:Resource:GraphElement:Edge $edge) MERGE (n)-[:SOURCE]->(source_node) MERGE (n)-[:DESTINATION]->(destination_node)",
-                    parameters(
-                            "sourceUri",
-                            sourceUri.toString(),
-                            "destinationUri",
-                            destinationUri.toString(),
-                            "edge",
-                            creationProperties
-                    )
-            );
-            RelationPojo edge = new RelationPojo(
-                    graphElementOperator.pojoFromCreationProperties(
-                            creationProperties
-                    )
-            );
-            edge.setSourceVertex(new VertexPojo(
-                    sourceUri
-            ));
-            edge.setDestinationVertex(new VertexPojo(
-                    destinationUri
-            ));
-            return edge;
-        }
+        return graphTransaction.inTransaction("createEdge", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        "MATCH (source_node:Resource{uri:$sourceUri}), " +
+                                "(destination_node:Resource{uri:$destinationUri}) " +
+                                "CREATE (n:Resource:GraphElement:Edge $edge) MERGE (n)-[:SOURCE]->(source_node) MERGE (n)-[:DESTINATION]->(destination_node)",
+                        parameters(
+                                "sourceUri",
+                                sourceUri.toString(),
+                                "destinationUri",
+                                destinationUri.toString(),
+                                "edge",
+                                creationProperties
+                        )
+                );
+                graphCaches.invalidate(
+                        sourceUri,
+                        destinationUri
+                );
+                RelationPojo edge = new RelationPojo(
+                        graphElementOperator.pojoFromCreationProperties(
+                                creationProperties
+                        )
+                );
+                edge.setSourceVertex(new VertexPojo(
+                        sourceUri
+                ));
+                edge.setDestinationVertex(new VertexPojo(
+                        destinationUri
+                ));
+                return edge;
+            }
+        });
     }
 
     @Override
@@ -4,6 +4,7 @@
 
 package guru.bubl.module.neo4j_graph_manipulator.graph.graph.tag;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.Image;
@@ -20,7 +21,11 @@ import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.graph.fork.NbNeighbors;
 import guru.bubl.module.model.graph.fork.NbNeighborsPojo;
 import guru.bubl.module.model.graph.fork.ForkOperatorFactory;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.PublicResultsCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementOperatorNeo4j;
 import org.neo4j.driver.Driver;
@@ -50,6 +55,15 @@ public class TagOperatorNeo4J implements TagOperator, OperatorNeo4j {
     private TagFactory tagFactory;
     protected ForkOperatorFactory forkOperatorFactory;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected PublicResultsCacheNeo4j publicResultsCache;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     protected TagOperatorNeo4J(
             Driver driver,
@@ -74,7 +88,7 @@ public class TagOperatorNeo4J implements TagOperator, OperatorNeo4j {
                 queryPrefix(),
                 props.relation_external_uri
         );
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     query,
                     parameters(
@@ -90,7 +104,7 @@ public class TagOperatorNeo4J implements TagOperator, OperatorNeo4j {
 
     @Override
     public URI getExternalResourceUri() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     queryPrefix() + "RETURN n.external_uri as externalUri",
                     parameters(
@@ -106,20 +120,23 @@ public class TagOperatorNeo4J implements TagOperator, OperatorNeo4j {
 
     @Override
     public void setExternalResourceUri(URI uri) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n.external_uri=$external_uri",
-                    parameters(
-                            "uri", this.uri().toString(),
-                            "external_uri", uri.toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("setExternalResourceUri", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n.external_uri=$external_uri",
+                        parameters(
+                                "uri", this.uri().toString(),
+                                "external_uri", uri.toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(uri());
     }
 
     @Override
     public TagPojo buildPojo() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     queryPrefix() + "RETURN n.uri as uri, n.label as label, n.comment as comment, n.external_uri as externalUri, n.nb_private_neighbors as nbPrivateNeighbors, n.nb_friend_neighbors as nbFriendNeighbors, n.nb_public_neighbors as nbPublicNeighbors",
                     parameters(
@@ -149,41 +166,62 @@ public class TagOperatorNeo4J implements TagOperator, OperatorNeo4j {
 
     @Override
     public void mergeTo(Tag mergeTo) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + ", (mergeTo:Resource{uri:$mergeToUri}) " +
-                            "SET mergeTo.nb_private_neighbors = mergeTo.nb_private_neighbors + n.nb_private_neighbors," +
-                            "mergeTo.nb_friend_neighbors = mergeTo.nb_friend_neighbors + n.nb_friend_neighbors," +
-                            "mergeTo.nb_public_neighbors = mergeTo.nb_public_neighbors + n.nb_public_neighbors " +
-                            "WITH n, mergeTo " +
-                            "OPTIONAL MATCH (n)<-[:IDENTIFIED_TO]-(ge) " +
-                            "MERGE (mergeTo)<-[:IDENTIFIED_TO]-(ge) " +
-                            "DETACH DELETE n ",
-                    parameters(
-                            "uri", this.uri().toString(),
-                            "mergeToUri", mergeTo.uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("mergeTag", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + ", (mergeTo:Resource{uri:$mergeToUri}) " +
+                                "SET mergeTo.nb_private_neighbors = mergeTo.nb_private_neighbors + n.nb_private_neighbors," +
+                                "mergeTo.nb_friend_neighbors = mergeTo.nb_friend_neighbors + n.nb_friend_neighbors," +
+                                "mergeTo.nb_public_neighbors = mergeTo.nb_public_neighbors + n.nb_public_neighbors " +
+                                "WITH n, mergeTo " +
+                                "OPTIONAL MATCH (n)<-[:IDENTIFIED_TO]-(ge) " +
+                                "MERGE (mergeTo)<-[:IDENTIFIED_TO]-(ge) " +
+                                "DETACH DELETE n ",
+                        parameters(
+                                "uri", this.uri().toString(),
+                                "mergeToUri", mergeTo.uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(
+                uri(),
+                mergeTo.uri()
+        );
     }
 
+    /*
+     * the previous share level is not known here so public results are always dropped
+     */
     @Override
     public void setShareLevel(ShareLevel shareLevel) {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix()
-                            + "SET n.shareLevel=$shareLevel",
-                    parameters(
-                            "uri", uri().toString(),
-                            "shareLevel", shareLevel.getIndex()
-                    )
-            );
-        }
+        setShareLevelOfTag(shareLevel);
+        publicResultsCache.invalidateAll();
     }
 
     @Override
     public void setShareLevel(ShareLevel shareLevel, ShareLevel previousShareLevel) {
-        this.setShareLevel(shareLevel);
+        setShareLevelOfTag(shareLevel);
+        publicResultsCache.invalidateIfPublicIsCrossed(
+                shareLevel,
+                previousShareLevel
+        );
+    }
+
+    private void setShareLevelOfTag(ShareLevel shareLevel) {
+        graphTransaction.inTransaction("setTagShareLevel", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix()
+                                + "SET n.shareLevel=$shareLevel",
+                        parameters(
+                                "uri", uri().toString(),
+                                "shareLevel", shareLevel.getIndex()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateForShareLevelChange(uri());
     }
 
     @Override
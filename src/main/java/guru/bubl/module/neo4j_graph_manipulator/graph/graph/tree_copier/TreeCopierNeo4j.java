@@ -10,11 +10,12 @@ import guru.bubl.module.model.friend.FriendStatus;
 import guru.bubl.module.model.graph.FriendlyResourcePojo;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.graph.Tree;
-import guru.bubl.module.model.graph.graph_element.GraphElementOperator;
-import guru.bubl.module.model.graph.graph_element.GraphElementOperatorFactory;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.graph.tree_copier.TreeCopier;
 import guru.bubl.module.model.json.ImageJson;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.BatchTaggerNeo4j;
 import org.codehaus.jettison.json.JSONException;
 import org.codehaus.jettison.json.JSONObject;
 import org.neo4j.driver.Driver;
@@ -37,11 +38,17 @@ public class TreeCopierNeo4j implements TreeCopier {
     private Driver driver;
 
     @Inject
-    private GraphElementOperatorFactory graphElementOperatorFactory;
+    private GraphTransactionNeo4j graphTransaction;
+
+    @Inject
+    private BatchTaggerNeo4j batchTagger;
 
     @Inject
     private FriendManagerFactory friendManagerFactory;
 
+    @Inject
+    private GraphCachesNeo4j graphCaches;
+
     @AssistedInject
     protected TreeCopierNeo4j(
             @Assisted User copier
@@ -81,12 +88,34 @@ public class TreeCopierNeo4j implements TreeCopier {
 
     @Override
     public Map<URI, URI> copyTreeOfUserWithNewParentUriInShareLevel(Tree tree, User copiedUser, URI newParentUri, ShareLevel shareLevel) {
+        return graphTransaction.inTransaction("copyTree", () -> copyGraphElementsOfUserWithNewParentUriInShareLevel(
+                tree.getRootUri(),
+                tree.getUrisOfGraphElements(),
+                tree.getRootAsTag(),
+                copiedUser,
+                newParentUri,
+                shareLevel
+        ));
+    }
+
+    /*
+     * copies the graph elements of a tree given by its root and uris,
+     * package private so that the benchmark of this package does not need a Tree
+     */
+    Map<URI, URI> copyGraphElementsOfUserWithNewParentUriInShareLevel(
+            URI rootUri,
+            Set<URI> urisOfGraphElements,
+            TagPojo rootAsTag,
+            User copiedUser,
+            URI newParentUri,
+            ShareLevel shareLevel
+    ) {
         Map<URI, URI> uriAndCopyUri = new HashMap<>();
         UserUris userUris = new UserUris(copier);
         if (newParentUri != null && !userUris.isOwnerOfUri(newParentUri)) {
             return uriAndCopyUri;
         }
-        if (UserUris.isUriOfAGroupRelation(tree.getRootUri()) && newParentUri == null) {
+        if (UserUris.isUriOfAGroupRelation(rootUri) && newParentUri == null) {
             return uriAndCopyUri;
         }
         Boolean isOwner = copier.username().equals(copiedUser.username());
@@ -101,11 +130,11 @@ public class TreeCopierNeo4j implements TreeCopier {
         }
         Boolean areTagsAdded = false;
         Map<URI, Set<TagPojo>> tagsOfUri = new HashMap<>();
-        String[] urisAsString = urisToString(tree.getUrisOfGraphElements());
+        String[] urisAsString = urisToString(urisOfGraphElements);
         Set<TagPojo> tagsOfRootBubble = new HashSet<>();
-        tagsOfRootBubble.add(tree.getRootAsTag());
+        tagsOfRootBubble.add(rootAsTag);
         tagsOfUri.put(
-                tree.getRootUri(), tagsOfRootBubble
+                rootUri, tagsOfRootBubble
         );
         try (Session session = driver.session()) {
             String query = String.format("MATCH (n:GraphElement) " +
@@ -141,11 +170,11 @@ public class TreeCopierNeo4j implements TreeCopier {
                             "geUris",
                             urisAsString,
                             "rootUri",
-                            tree.getRootUri().toString(),
+                            rootUri.toString(),
                             "copier",
                             copier.username(),
                             "nbGeExpected",
-                            tree.getUrisOfGraphElements().size(),
+                            urisOfGraphElements.size(),
                             "copiedUser",
                             copiedUser.username(),
                             "shareLevels",
@@ -194,20 +223,21 @@ public class TreeCopierNeo4j implements TreeCopier {
             throw new RuntimeException(e);
         }
 
+        Map<URI, Set<TagPojo>> tagsOfCopiedUri = new HashMap<>();
         for (URI originalUri : tagsOfUri.keySet()) {
             URI copiedUri = uriAndCopyUri.get(originalUri);
             if (copiedUri != null) {
-                GraphElementOperator copiedGe = graphElementOperatorFactory.withUri(copiedUri);
-                for (TagPojo tag : tagsOfUri.get(originalUri)) {
-                    copiedGe.addTag(
-                            tag,
-                            ShareLevel.PRIVATE
-                    );
-                }
+                tagsOfCopiedUri.put(
+                        copiedUri,
+                        tagsOfUri.get(originalUri)
+                );
             }
-
         }
-        if (UserUris.isUriOfAGroupRelation(tree.getRootUri())) {
+        batchTagger.addTags(
+                tagsOfCopiedUri,
+                ShareLevel.PRIVATE
+        );
+        if (UserUris.isUriOfAGroupRelation(rootUri)) {
             String nbNeighborsProperty = ShareLevel.PRIVATE.getNbNeighborsPropertyName();
             String query = String.format(
                     "MATCH(gr:GroupRelation{uri:$grUri})  " +
@@ -222,13 +252,21 @@ public class TreeCopierNeo4j implements TreeCopier {
                         query,
                         parameters(
                                 "grUri",
-                                tree.getRootUri().toString(),
+                                rootUri.toString(),
                                 "sourceUri",
                                 newParentUri.toString()
                         )
                 );
             }
         }
+        Set<URI> touchedUris = new HashSet<>(urisOfGraphElements);
+        if (newParentUri != null) {
+            touchedUris.add(newParentUri);
+        }
+        graphCaches.invalidateOwner(
+                copier.username(),
+                touchedUris.toArray(new URI[0])
+        );
         return uriAndCopyUri;
     }
 
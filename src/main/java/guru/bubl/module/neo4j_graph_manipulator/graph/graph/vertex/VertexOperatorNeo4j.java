@@ -19,8 +19,12 @@ import guru.bubl.module.model.graph.tag.Tag;
 import guru.bubl.module.model.graph.tag.TagPojo;
 import guru.bubl.module.model.graph.vertex.*;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphCachesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.PublicResultsCacheNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.OperatorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element.GraphElementOperatorNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.relation.RelationFactoryNeo4j;
@@ -60,6 +64,15 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
     @Inject
     protected FriendlyResourceFactoryNeo4j friendlyResourceFactory;
 
+    @Inject
+    protected GraphCachesNeo4j graphCaches;
+
+    @Inject
+    protected PublicResultsCacheNeo4j publicResultsCache;
+
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     protected VertexOperatorNeo4j(
             VertexFactoryNeo4j vertexFactory,
@@ -104,7 +117,7 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         FriendlyResourceNeo4j edgeFriendlyResource = friendlyResourceFactory.withUri(
                 relation.uri()
         );
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%s, %s, (n)<-[:SOURCE|DESTINATION]-(edge) RETURN edge",
@@ -125,7 +138,7 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         FriendlyResourceNeo4j destinationVertexOperator = friendlyResourceFactory.withUri(
                 destinationVertex.uri()
         );
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%s, %s, (n)<-[:SOURCE|DESTINATION]-(r), " +
@@ -160,7 +173,7 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         FriendlyResourceNeo4j destinationVertexOperator = friendlyResourceFactory.withUri(
                 destinationVertex.uri()
         );
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     String.format(
                             "%s, %s, " +
@@ -206,7 +219,7 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
     @Override
     public Map<URI, RelationOperator> connectedEdges() {
         Map<URI, RelationOperator> edges = new HashMap<>();
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Result rs = session.run(
                     queryPrefix() +
                             "MATCH (n)<-[:SOURCE|DESTINATION]-(edge) " +
@@ -403,36 +416,42 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         if (this.isPatternOrUnderPattern() || vertexOperator.isPatternOrUnderPattern()) {
             return false;
         }
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + ", (mergeTo:Resource{uri:$mergeToUri}) " +
-                            "SET mergeTo.nb_private_neighbors = mergeTo.nb_private_neighbors + n.nb_private_neighbors," +
-                            "mergeTo.nb_friend_neighbors = mergeTo.nb_friend_neighbors + n.nb_friend_neighbors," +
-                            "mergeTo.nb_public_neighbors = mergeTo.nb_public_neighbors + n.nb_public_neighbors " +
-                            "WITH n,mergeTo " +
-                            "OPTIONAL MATCH (n)<-[r:SOURCE|DESTINATION]-(e) " +
-                            "OPTIONAL MATCH (e)-[:SOURCE|DESTINATION]-(nv)-[:SOURCE|DESTINATION]-(nve)-[:SOURCE|DESTINATION]-(mergeTo) " +
-                            "DETACH DELETE nve " +
-                            "WITH n, mergeTo " +
-                            "OPTIONAL MATCH (n)<-[r:SOURCE]-(e) " +
-                            "MERGE (mergeTo)<-[:SOURCE]-(e) " +
-                            "DELETE r " +
-                            "WITH mergeTo, n " +
-                            "OPTIONAL MATCH (n)<-[r:DESTINATION]-(e) " +
-                            "MERGE (mergeTo)<-[:DESTINATION]-(e) " +
-                            "DELETE r " +
-                            "WITH mergeTo, n " +
-                            "OPTIONAL MATCH (n)-[r:IDENTIFIED_TO]->(t) " +
-                            "MERGE (mergeTo)-[:IDENTIFIED_TO]->(t) " +
-                            "DELETE r " +
-                            "WITH n " +
-                            "DETACH DELETE n ",
-                    parameters(
-                            "uri", this.uri().toString(),
-                            "mergeToUri", vertexOperator.uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("mergeVertex", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + ", (mergeTo:Resource{uri:$mergeToUri}) " +
+                                "SET mergeTo.nb_private_neighbors = mergeTo.nb_private_neighbors + n.nb_private_neighbors," +
+                                "mergeTo.nb_friend_neighbors = mergeTo.nb_friend_neighbors + n.nb_friend_neighbors," +
+                                "mergeTo.nb_public_neighbors = mergeTo.nb_public_neighbors + n.nb_public_neighbors " +
+                                "WITH n,mergeTo " +
+                                "OPTIONAL MATCH (n)<-[r:SOURCE|DESTINATION]-(e) " +
+                                "OPTIONAL MATCH (e)-[:SOURCE|DESTINATION]-(nv)-[:SOURCE|DESTINATION]-(nve)-[:SOURCE|DESTINATION]-(mergeTo) " +
+                                "DETACH DELETE nve " +
+                                "WITH n, mergeTo " +
+                                "OPTIONAL MATCH (n)<-[r:SOURCE]-(e) " +
+                                "MERGE (mergeTo)<-[:SOURCE]-(e) " +
+                                "DELETE r " +
+                                "WITH mergeTo, n " +
+                                "OPTIONAL MATCH (n)<-[r:DESTINATION]-(e) " +
+                                "MERGE (mergeTo)<-[:DESTINATION]-(e) " +
+                                "DELETE r " +
+                                "WITH mergeTo, n " +
+                                "OPTIONAL MATCH (n)-[r:IDENTIFIED_TO]->(t) " +
+                                "MERGE (mergeTo)-[:IDENTIFIED_TO]->(t) " +
+                                "DELETE r " +
+                                "WITH n " +
+                                "DETACH DELETE n ",
+                        parameters(
+                                "uri", this.uri().toString(),
+                                "mergeToUri", vertexOperator.uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidate(
+                uri(),
+                vertexOperator.uri()
+        );
         return true;
     }
 
@@ -461,50 +480,58 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         if (isPatternOrUnderPattern()) {
             return false;
         }
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "SET n:Pattern,n.nbPatternUsage=0 " +
-                            "WITH n " +
-                            "CALL apoc.path.subgraphAll(n, {relationshipFilter:'SOURCE, DESTINATION'}) YIELD nodes " +
-                            "UNWIND nodes as s " +
-                            "SET s.shareLevel=40," +
-                            "s.isUnderPattern=true," +
-                            "s.nb_public_neighbors=(s.nb_private_neighbors + s.nb_friend_neighbors + s.nb_public_neighbors)," +
-                            "s.nb_private_neighbors=0," +
-                            "s.nb_friend_neighbors=0 " +
-                            "WITH s,n " +
-                            "REMOVE n.isUnderPattern " +
-                            "WITH s " +
-                            "MATCH (s)-[:IDENTIFIED_TO]->(tag) " +
-                            "SET tag.shareLevel=40"
-                    ,
-                    parameters(
-                            "uri", uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("makePattern", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "SET n:Pattern,n.nbPatternUsage=0 " +
+                                "WITH n " +
+                                "CALL apoc.path.subgraphAll(n, {relationshipFilter:'SOURCE, DESTINATION'}) YIELD nodes " +
+                                "UNWIND nodes as s " +
+                                "SET s.shareLevel=40," +
+                                "s.isUnderPattern=true," +
+                                "s.nb_public_neighbors=(s.nb_private_neighbors + s.nb_friend_neighbors + s.nb_public_neighbors)," +
+                                "s.nb_private_neighbors=0," +
+                                "s.nb_friend_neighbors=0 " +
+                                "WITH s,n " +
+                                "REMOVE n.isUnderPattern " +
+                                "WITH s " +
+                                "MATCH (s)-[:IDENTIFIED_TO]->(tag) " +
+                                "SET tag.shareLevel=40"
+                        ,
+                        parameters(
+                                "uri", uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateAll();
+        publicResultsCache.invalidateAll();
         return true;
     }
 
     @Override
     public void undoPattern() {
-        try (Session session = driver.session()) {
-            session.run(
-                    queryPrefix() + "remove n:Pattern " +
-                            "WITH n " +
-                            "CALL apoc.path.subgraphAll(n, {relationshipFilter:'SOURCE, DESTINATION'}) YIELD nodes " +
-                            "UNWIND nodes as s " +
-                            "REMOVE s.isUnderPattern",
-                    parameters(
-                            "uri", uri().toString()
-                    )
-            );
-        }
+        graphTransaction.inTransaction("undoPattern", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        queryPrefix() + "remove n:Pattern " +
+                                "WITH n " +
+                                "CALL apoc.path.subgraphAll(n, {relationshipFilter:'SOURCE, DESTINATION'}) YIELD nodes " +
+                                "UNWIND nodes as s " +
+                                "REMOVE s.isUnderPattern",
+                        parameters(
+                                "uri", uri().toString()
+                        )
+                );
+            }
+        });
+        graphCaches.invalidateAll();
+        publicResultsCache.invalidateAll();
     }
 
     @Override
     public Integer getNbPatternUsage() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             return session.run(
                     queryPrefix() + "RETURN n.nbPatternUsage",
                     parameters(
@@ -516,7 +543,7 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
 
     @Override
     public Boolean isPattern() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             return session.run(
                     queryPrefix() + "RETURN 'Pattern' IN LABELS(n) as isPattern",
                     parameters(
@@ -538,16 +565,19 @@ public class VertexOperatorNeo4j implements VertexOperator, OperatorNeo4j {
         VertexPojo vertexPojo = pojoFromCreationProperties(
                 props
         );
-        try (Session session = driver.session()) {
-            session.run(
-                    "CREATE(n:Resource:GraphElement:Vertex $vertex)",
-                    parameters(
-                            "vertex",
-                            props
-                    )
-            );
-            return vertexPojo;
-        }
+        return graphTransaction.inTransaction("createVertex", () -> {
+            try (Session session = driver.session()) {
+                session.run(
+                        "CREATE(n:Resource:GraphElement:Vertex $vertex)",
+                        parameters(
+                                "vertex",
+                                props
+                        )
+                );
+                graphCaches.invalidate(uri());
+                return vertexPojo;
+            }
+        });
     }
 
     @Override
@@ -9,6 +9,8 @@ import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.Image;
 import guru.bubl.module.model.json.ImageJson;
 import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
@@ -30,6 +32,9 @@ public class ImagesNeo4j {
     @Inject
     protected Driver driver;
 
+    @Inject
+    protected GraphTransactionNeo4j graphTransaction;
+
     @AssistedInject
     public ImagesNeo4j(
             @Assisted FriendlyResourceNeo4j friendlyResource
@@ -38,21 +43,23 @@ public class ImagesNeo4j {
     }
 
     public void addAll(Set<Image> images) {
-        Set<Image> current = get();
-        current.addAll(images);
-        try (Session session = driver.session()) {
-            session.run(
-                    friendlyResource.queryPrefix() + "SET n.images=$image",
-                    parameters(
-                            "uri", friendlyResource.uri().toString(),
-                            "image", ImageJson.toJsonArray(current)
-                    )
-            );
-        }
+        graphTransaction.inTransaction("addImages", () -> {
+            Set<Image> current = get();
+            current.addAll(images);
+            try (Session session = driver.session()) {
+                session.run(
+                        friendlyResource.queryPrefix() + "SET n.images=$image",
+                        parameters(
+                                "uri", friendlyResource.uri().toString(),
+                                "image", ImageJson.toJsonArray(current)
+                        )
+                );
+            }
+        });
     }
 
     public Set<Image> get() {
-        try (Session session = driver.session()) {
+        try (Session session = SessionsNeo4j.read(driver)) {
             Record record = session.run(
                     friendlyResource.queryPrefix() + "RETURN n.images as images",
                     parameters(
@@ -0,0 +1,179 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.async.ResultCursor;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/*
+ * Runs autocompletion queries on async sessions, keeping the latest one of each owner and index domain.
+ * A newer query of the same owner and domain cancels the one in flight, its stage completes
+ * with a CancellationException right away and its transaction is rolled back once the driver
+ * gets to it. The driver cannot interrupt a query the server is still computing, so each query
+ * runs in a transaction of at most timeoutMillis that the server terminates, this bounds how long
+ * a cancelled query keeps its connection. The same query asked again while it runs, or less than
+ * coalescingWindowMillis after it completed, shares its result instead of running again.
+ */
+public class AutocompleteQueriesNeo4j {
+
+    private static final Integer PRUNE_ABOVE_NB_ENTRIES = 1000;
+
+    public static final Long DEFAULT_TIMEOUT_MILLIS = 3000L;
+
+    private final Long coalescingWindowMillis;
+    private final TransactionConfig transactionConfig;
+    private final Map<String, InFlightQuery> latestOfOwnerAndDomain = new HashMap<>();
+
+    private final AtomicLong nbCoalesced = new AtomicLong();
+    private final AtomicLong nbCancelled = new AtomicLong();
+
+    public static AutocompleteQueriesNeo4j withCoalescingWindowMillis(Long coalescingWindowMillis) {
+        return new AutocompleteQueriesNeo4j(coalescingWindowMillis, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    public static AutocompleteQueriesNeo4j withCoalescingWindowAndTimeoutMillis(Long coalescingWindowMillis, Long timeoutMillis) {
+        return new AutocompleteQueriesNeo4j(coalescingWindowMillis, timeoutMillis);
+    }
+
+    protected AutocompleteQueriesNeo4j(Long coalescingWindowMillis, Long timeoutMillis) {
+        this.coalescingWindowMillis = coalescingWindowMillis;
+        this.transactionConfig = TransactionConfig.builder().withTimeout(
+                Duration.ofMillis(timeoutMillis)
+        ).build();
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> CompletionStage<T> run(
+            Driver driver,
+            String owner,
+            String indexDomain,
+            String query,
+            Map<String, Object> parameters,
+            Function<List<Record>, T> resultBuilder
+    ) {
+        String ownerAndDomain = owner + "|" + indexDomain;
+        String key = query + new TreeMap<>(parameters);
+        InFlightQuery inFlight;
+        synchronized (latestOfOwnerAndDomain) {
+            InFlightQuery latest = latestOfOwnerAndDomain.get(ownerAndDomain);
+            if (latest != null && latest.key.equals(key) && !latest.future.isCompletedExceptionally() && !latest.isExpired()) {
+                nbCoalesced.incrementAndGet();
+                return latest.future.thenApply(result -> (T) result);
+            }
+            if (latest != null && !latest.future.isDone()) {
+                latest.cancel();
+                nbCancelled.incrementAndGet();
+            }
+            if (latestOfOwnerAndDomain.size() > PRUNE_ABOVE_NB_ENTRIES) {
+                latestOfOwnerAndDomain.values().removeIf(InFlightQuery::isExpired);
+            }
+            inFlight = new InFlightQuery(key);
+            latestOfOwnerAndDomain.put(ownerAndDomain, inFlight);
+        }
+        inFlight.start(driver, query, parameters, resultBuilder);
+        return inFlight.future.thenApply(result -> (T) result);
+    }
+
+    public Long getNbCoalesced() {
+        return nbCoalesced.get();
+    }
+
+    public Long getNbCancelled() {
+        return nbCancelled.get();
+    }
+
+    private class InFlightQuery {
+
+        private final String key;
+        private final CompletableFuture<Object> future = new CompletableFuture<>();
+        private volatile AsyncSession session;
+        private volatile AsyncTransaction transaction;
+        private volatile ResultCursor cursor;
+        private volatile Boolean isCancelled = false;
+        private volatile Long completedAt;
+
+        private InFlightQuery(String key) {
+            this.key = key;
+        }
+
+        private void start(Driver driver, String query, Map<String, Object> parameters, Function<List<Record>, ?> resultBuilder) {
+            session = SessionsNeo4j.readAsync(driver);
+            if (isCancelled) {
+                session.closeAsync();
+                return;
+            }
+            session.beginTransactionAsync(
+                    transactionConfig
+            ).thenCompose(tx -> {
+                transaction = tx;
+                if (isCancelled) {
+                    return tx.rollbackAsync().thenApply(ignored -> null);
+                }
+                return tx.runAsync(
+                        query,
+                        parameters
+                ).thenCompose(resultCursor -> {
+                    cursor = resultCursor;
+                    return isCancelled ?
+                            resultCursor.consumeAsync().thenApply(summary -> Collections.<Record>emptyList()) :
+                            resultCursor.listAsync();
+                }).thenCompose(
+                        records -> isCancelled ?
+                                CompletableFuture.completedFuture(records) :
+                                tx.commitAsync().thenApply(ignored -> records)
+                ).thenApply(
+                        records -> isCancelled ? null : resultBuilder.apply(records)
+                );
+            }).whenComplete((result, error) -> {
+                session.closeAsync();
+                completedAt = System.currentTimeMillis();
+                if (error == null) {
+                    future.complete(result);
+                } else {
+                    future.completeExceptionally(error);
+                }
+            });
+        }
+
+        /*
+         * discarding the rest of the result stops the query once it streams,
+         * the rollback ends its transaction
+         */
+        private void cancel() {
+            isCancelled = true;
+            future.completeExceptionally(
+                    new CancellationException("superseded by a newer autocompletion query")
+            );
+            ResultCursor resultCursor = cursor;
+            AsyncTransaction tx = transaction;
+            CompletionStage<?> discarded = resultCursor == null ?
+                    CompletableFuture.completedFuture(null) :
+                    resultCursor.consumeAsync();
+            if (tx != null) {
+                discarded.handle(
+                        (summary, error) -> tx.rollbackAsync()
+                );
+            }
+        }
+
+        private Boolean isExpired() {
+            Long completed = completedAt;
+            return completed != null && System.currentTimeMillis() - completed > coalescingWindowMillis;
+        }
+    }
+}
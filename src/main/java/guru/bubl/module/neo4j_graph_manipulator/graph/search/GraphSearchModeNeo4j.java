@@ -0,0 +1,15 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+/*
+ * SINGLE_PHASE collects the tags of every full text hit before sorting and limiting them.
+ * TWO_PHASE first sorts and limits the hits, then reads the tags of the returned page only,
+ * in the order of the first phase. Both give the same results, ties are ordered by uri.
+ */
+public enum GraphSearchModeNeo4j {
+    SINGLE_PHASE,
+    TWO_PHASE
+}
@@ -4,20 +4,33 @@
 
 package guru.bubl.module.neo4j_graph_manipulator.graph.search;
 
+import com.google.inject.Inject;
 import com.google.inject.assistedinject.Assisted;
 import com.google.inject.assistedinject.AssistedInject;
 import guru.bubl.module.model.User;
 import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.search.GraphElementSearchResult;
 import guru.bubl.module.model.search.GraphSearch;
+import guru.bubl.module.neo4j_graph_manipulator.graph.CursorPage;
+import guru.bubl.module.neo4j_graph_manipulator.graph.PublicResultsCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.QueryTemplatesNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SeekCursor;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
 import org.apache.commons.lang.StringUtils;
 import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
 import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 import static org.neo4j.driver.Values.parameters;
 
@@ -29,6 +42,18 @@ public class GraphSearchNeo4j implements GraphSearch {
     private Integer skip;
     private String searchTerm;
 
+    @Inject
+    protected LabelPrefixIndexNeo4j labelPrefixIndex;
+
+    @Inject
+    protected AutocompleteQueriesNeo4j autocompleteQueries;
+
+    @Inject
+    protected PublicResultsCacheNeo4j publicResultsCache;
+
+    @Inject
+    protected GraphSearchModeNeo4j searchMode;
+
     @AssistedInject
     protected GraphSearchNeo4j(
             Driver driver,
@@ -96,6 +121,85 @@ public class GraphSearchNeo4j implements GraphSearch {
         );
     }
 
+    /*
+     * The async variants below cancel the autocompletion query of the user in flight for the same index
+     * and share the result of an identical one, see AutocompleteQueriesNeo4j.
+     */
+    public CompletionStage<List<GraphElementSearchResult>> searchOnlyForOwnVerticesForAutoCompletionByLabelAsync(User user) {
+        return new Getter<>().getAsync(
+                true,
+                user.username(),
+                "vertexLabel"
+        );
+    }
+
+    public CompletionStage<List<GraphElementSearchResult>> searchOwnTagsForAutoCompletionByLabelAsync(User user) {
+        return new Getter<>().getAsync(
+                true,
+                user.username(),
+                "tagLabel"
+        );
+    }
+
+    public CompletionStage<List<GraphElementSearchResult>> searchRelationsForAutoCompletionByLabelAsync(User user) {
+        return new Getter<>().getAsync(
+                false,
+                user.username(),
+                "graphElementLabel"
+        );
+    }
+
+    /*
+     * The cursor variants below order by nb_visits, score and uri and seek past the cursor,
+     * a null cursor gives the first page. The skip given at construction is ignored.
+     * The full text index gives the hits unordered, every hit is still read and sorted,
+     * a page only leaves out the hits of the previous pages before their tags are read.
+     */
+    public CursorPage<GraphElementSearchResult> searchForAllOwnResourcesAfterCursor(User user, String cursor) {
+        return new Getter<>().getPage(
+                true,
+                user.username(),
+                "graphElementLabel",
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
+    public CursorPage<GraphElementSearchResult> searchOnlyForOwnVerticesForAutoCompletionByLabelAfterCursor(User user, String cursor) {
+        return new Getter<>().getPage(
+                true,
+                user.username(),
+                "vertexLabel",
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
+    public CursorPage<GraphElementSearchResult> searchOwnTagsForAutoCompletionByLabelAfterCursor(User user, String cursor) {
+        return new Getter<>().getPage(
+                true,
+                user.username(),
+                "tagLabel",
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
+    public CursorPage<GraphElementSearchResult> searchRelationsForAutoCompletionByLabelAfterCursor(User user, String cursor) {
+        return new Getter<>().getPage(
+                false,
+                user.username(),
+                "graphElementLabel",
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
+    public CursorPage<GraphElementSearchResult> searchAllPatternsAfterCursor(String cursor) {
+        return new Getter<>().getPage(
+                false,
+                "",
+                "patternLabel",
+                SeekCursor.fromToken(cursor)
+        );
+    }
+
     private class Getter<ResultType extends GraphElementSearchResult> {
 
         public List<ResultType> get(
@@ -103,12 +207,69 @@ public class GraphSearchNeo4j implements GraphSearch {
                 String username,
                 String indexDomain
         ) {
+            if (forPersonal && labelPrefixIndex.canSearch(indexDomain, searchTerm)) {
+                return getUsingPrefixIndex(username, indexDomain);
+            }
+            return get(forPersonal, username, indexDomain, false, null).getItems();
+        }
+
+        public CompletionStage<List<ResultType>> getAsync(
+                Boolean forPersonal,
+                String username,
+                String indexDomain
+        ) {
+            if (forPersonal && labelPrefixIndex.canSearch(indexDomain, searchTerm)) {
+                return CompletableFuture.completedFuture(
+                        getUsingPrefixIndex(username, indexDomain)
+                );
+            }
             Set<ShareLevel> inShareLevels = forPersonal ? ShareLevel.allShareLevels : ShareLevel.publicShareLevels;
-            try (Session session = driver.session()) {
+            return autocompleteQueries.run(
+                    driver,
+                    username,
+                    indexDomain,
+                    queryFor(forPersonal, username, indexDomain, inShareLevels, false),
+                    parametersFor(username, null).asMap(),
+                    records -> new SearchResultGetter<ResultType>(records.iterator(), inShareLevels).get()
+            );
+        }
+
+        private List<ResultType> getUsingPrefixIndex(
+                String username,
+                String indexDomain
+        ) {
+            List<URI> uris = labelPrefixIndex.search(
+                    driver,
+                    username,
+                    indexDomain,
+                    searchTerm,
+                    skip,
+                    limit
+            );
+            if (uris.isEmpty()) {
+                return new ArrayList<>();
+            }
+            List<String> urisAsString = new ArrayList<>();
+            for (URI uri : uris) {
+                urisAsString.add(uri.toString());
+            }
+            Set<ShareLevel> inShareLevels = ShareLevel.allShareLevels;
+            try (Session session = SessionsNeo4j.read(driver)) {
                 Result rs = session.run(
-                        buildQuery(forPersonal, username, indexDomain, inShareLevels),
+                        QueryTemplatesNeo4j.template(
+                                QueryTemplatesNeo4j.variantKey(
+                                        "graphSearchByUris",
+                                        inShareLevels
+                                ),
+                                () -> "UNWIND range(0, size($uris) - 1) as rank " +
+                                        "WITH rank, $uris[rank] as uri " +
+                                        "MATCH (n:Resource{uri:uri}) " +
+                                        "WITH n, rank, 1.0 as score " +
+                                        tagsAndReturnQueryPart(true, username, inShareLevels) +
+                                        ", rank ORDER BY rank"
+                        ),
                         parameters(
-                                "label", formatSearchTerm(searchTerm) + "*",
+                                "uris", urisAsString,
                                 "owner", username
                         )
                 );
@@ -116,37 +277,171 @@ public class GraphSearchNeo4j implements GraphSearch {
             }
         }
 
+        public CursorPage<ResultType> getPage(
+                Boolean forPersonal,
+                String username,
+                String indexDomain,
+                SeekCursor after
+        ) {
+            return get(forPersonal, username, indexDomain, true, after);
+        }
+
+        private Boolean isSameForEveryVisitor(Boolean forPersonal, String username) {
+            return !forPersonal && StringUtils.isEmpty(username);
+        }
+
+        private String publicResultsKey(String indexDomain, Boolean seek, String cursor) {
+            return String.join(
+                    "|",
+                    "graphSearch",
+                    indexDomain,
+                    String.valueOf(seek),
+                    formatSearchTerm(searchTerm),
+                    String.valueOf(skip),
+                    String.valueOf(limit),
+                    String.valueOf(cursor)
+            );
+        }
+
+        /*
+         * results for every visitor are cached as driver records, which are immutable,
+         * and mapped again on every call so that callers never share results
+         */
+        private CursorPage<ResultType> get(
+                Boolean forPersonal,
+                String username,
+                String indexDomain,
+                Boolean seek,
+                SeekCursor after
+        ) {
+            Set<ShareLevel> inShareLevels = forPersonal ? ShareLevel.allShareLevels : ShareLevel.publicShareLevels;
+            CursorPage<Record> records = isSameForEveryVisitor(forPersonal, username) ?
+                    publicResultsCache.getOrLoad(
+                            publicResultsKey(indexDomain, seek, after == null ? null : after.toToken()),
+                            () -> getRecords(forPersonal, username, indexDomain, inShareLevels, seek, after)
+                    ) :
+                    getRecords(forPersonal, username, indexDomain, inShareLevels, seek, after);
+            return CursorPage.withItemsAndNextCursor(
+                    new SearchResultGetter<ResultType>(records.getItems().iterator(), inShareLevels).get(),
+                    records.getNextCursor()
+            );
+        }
+
+        private CursorPage<Record> getRecords(
+                Boolean forPersonal,
+                String username,
+                String indexDomain,
+                Set<ShareLevel> inShareLevels,
+                Boolean seek,
+                SeekCursor after
+        ) {
+            try (Session session = SessionsNeo4j.read(driver)) {
+                List<Record> records = session.run(
+                        queryFor(forPersonal, username, indexDomain, inShareLevels, seek),
+                        parametersFor(username, after)
+                ).list();
+                Record lastRecord = records.isEmpty() ? null : records.get(records.size() - 1);
+                return CursorPage.withItemsAndNextCursor(
+                        Collections.unmodifiableList(records),
+                        !seek || lastRecord == null || records.size() < limit ? null : SeekCursor.withSortKey(
+                                lastRecord.get("seekVisits").asLong(),
+                                lastRecord.get("score").asDouble(),
+                                lastRecord.get("n.uri").asString()
+                        ).toToken()
+                );
+            }
+        }
+
+        private String queryFor(
+                Boolean forPersonal,
+                String username,
+                String indexDomain,
+                Set<ShareLevel> inShareLevels,
+                Boolean seek
+        ) {
+            return QueryTemplatesNeo4j.template(
+                    QueryTemplatesNeo4j.variantKey(
+                            "graphSearch",
+                            forPersonal,
+                            StringUtils.isEmpty(username),
+                            indexDomain,
+                            inShareLevels,
+                            seek,
+                            searchMode
+                    ),
+                    () -> buildQuery(forPersonal, username, indexDomain, inShareLevels, seek)
+            );
+        }
+
+        private Value parametersFor(String username, SeekCursor after) {
+            return parameters(
+                    "label", formatSearchTerm(searchTerm) + "*",
+                    "owner", username,
+                    "skip", skip,
+                    "limit", limit,
+                    "afterVisits", SeekCursor.valueOrNull(after, 0),
+                    "afterScore", SeekCursor.valueOrNull(after, 1),
+                    "afterUri", SeekCursor.valueOrNull(after, 2)
+            );
+        }
+
         private String buildQuery(
                 Boolean forPersonal,
                 String username,
                 String indexDomain,
-                Set<ShareLevel> inShareLevels
+                Set<ShareLevel> inShareLevels,
+                Boolean seek
         ) {
-            return
-                    String.format(
-                            "CALL db.index.fulltext.queryNodes('%s', $label) YIELD node as n, score " +
-                                    "WHERE n.isUnderPattern is NULL AND (n." + (forPersonal ? "owner=$owner" : "shareLevel=40 ") +
-                                    (!forPersonal && !StringUtils.isEmpty(username) ? "OR n.owner=$owner " : " ") +
-                                    ")OPTIONAL MATCH (n)-[:IDENTIFIED_TO]->(id) " +
-                                    "WHERE id." + (forPersonal ? "owner=$owner" : " shareLevel=40 ") +
-                                    (!forPersonal && !StringUtils.isEmpty(username) ? "OR id.owner=$owner " : " ") +
-                                    "RETURN " +
-                                    "score, n.uri, n.label, n.external_uri, n.colors, n.shareLevel as shareLevel, n.nb_visits, n.nb_private_neighbors, n.nb_friend_neighbors, n.nb_public_neighbors, n.creation_date, n.last_modification_date, " +
-                                    "(CASE WHEN n.owner=$owner THEN n.private_context ELSE n.public_context END) as context, " +
-                                    TagQueryBuilder.tagReturnQueryPart(
-                                            inShareLevels
-                                    ) +
-                                    "labels(n) as type " +
-                                    "ORDER BY n.nb_visits DESC," +
-                                    "score DESC," +
-                                    "n.nb_public_neighbors DESC," +
-                                    "n.nb_friend_neighbors DESC," +
-                                    "n.nb_private_neighbors DESC " +
-                                    "SKIP " + skip +
-                                    " LIMIT " + limit,
-                            indexDomain
-                    );
+            String matchQueryPart = String.format(
+                    "CALL db.index.fulltext.queryNodes('%s', $label) YIELD node as n, score " +
+                            "WHERE n.isUnderPattern is NULL AND (n." + (forPersonal ? "owner=$owner" : "shareLevel=40 ") +
+                            (!forPersonal && !StringUtils.isEmpty(username) ? "OR n.owner=$owner " : " ") +
+                            ")" +
+                            (seek ? " AND ($afterUri IS NULL OR coalesce(n.nb_visits, 0) < $afterVisits OR (coalesce(n.nb_visits, 0) = $afterVisits AND (score < $afterScore OR (score = $afterScore AND n.uri < $afterUri)))) " : ""),
+                    indexDomain
+            );
+            String orderQueryPart = seek ?
+                    "ORDER BY seekVisits DESC, score DESC, n.uri DESC " +
+                            "LIMIT $limit" :
+                    "ORDER BY n.nb_visits DESC," +
+                            "score DESC," +
+                            "n.nb_public_neighbors DESC," +
+                            "n.nb_friend_neighbors DESC," +
+                            "n.nb_private_neighbors DESC," +
+                            "n.uri " +
+                            "SKIP $skip LIMIT $limit";
+            if (searchMode == GraphSearchModeNeo4j.TWO_PHASE) {
+                return matchQueryPart +
+                        "WITH n, score" + (seek ? ", coalesce(n.nb_visits, 0) as seekVisits " : " ") +
+                        orderQueryPart + " " +
+                        "WITH collect({n: n, score: score}) as page " +
+                        "UNWIND range(0, size(page) - 1) as rank " +
+                        "WITH page[rank].n as n, page[rank].score as score, rank " +
+                        tagsAndReturnQueryPart(forPersonal, username, inShareLevels) +
+                        (seek ? ", coalesce(n.nb_visits, 0) as seekVisits " : "") +
+                        ", rank ORDER BY rank";
+            }
+            return matchQueryPart +
+                    tagsAndReturnQueryPart(forPersonal, username, inShareLevels) +
+                    (seek ? ", coalesce(n.nb_visits, 0) as seekVisits " : "") +
+                    orderQueryPart;
+        }
 
+        private String tagsAndReturnQueryPart(
+                Boolean forPersonal,
+                String username,
+                Set<ShareLevel> inShareLevels
+        ) {
+            return "OPTIONAL MATCH (n)-[:IDENTIFIED_TO]->(id) " +
+                    "WHERE id." + (forPersonal ? "owner=$owner" : " shareLevel=40 ") +
+                    (!forPersonal && !StringUtils.isEmpty(username) ? "OR id.owner=$owner " : " ") +
+                    "RETURN " +
+                    "score, n.uri, n.label, n.external_uri, n.colors, n.shareLevel as shareLevel, n.nb_visits, n.nb_private_neighbors, n.nb_friend_neighbors, n.nb_public_neighbors, n.creation_date, n.last_modification_date, " +
+                    "(CASE WHEN n.owner=$owner THEN n.private_context ELSE n.public_context END) as context, " +
+                    TagQueryBuilder.tagReturnQueryPart(
+                            inShareLevels
+                    ) +
+                    "labels(n) as type ";
         }
     }
 
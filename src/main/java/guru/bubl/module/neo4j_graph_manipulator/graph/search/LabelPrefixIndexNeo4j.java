@@ -0,0 +1,545 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+import guru.bubl.module.model.UserUris;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.SessionsNeo4j;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+
+import java.net.URI;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * In memory prefix index of the labels of the bubbles and tags of the most recently searched owners,
+ * for autocompletion. Each label is split in words like the full text index does and every word
+ * goes in a trie, a prefix gives the uris of the labels having a word starting with it,
+ * ordered by nb_visits and then by number of neighbors as the full text search orders them,
+ * shorter labels first after that since they are closer to the prefix.
+ * A searched trie node keeps its best TOP_K entries of each node label in that order, later
+ * searches of the same prefix read them without going through the labels under the node.
+ * They are kept up to date as labels are put and removed, and gathered again when one of them
+ * is removed while more labels are under the node. Pages beyond TOP_K go through all of them.
+ * The labels of an owner are loaded on the first search and loaded again after maxAgeMillis.
+ * Label, nb_visits and nb_*_neighbors writes invalidate the uris they touch, these are read
+ * again before the next search of their owner. Share level changes invalidate the neighbors
+ * of their uris too. Bulk writes like copies invalidate their whole owner.
+ */
+public class LabelPrefixIndexNeo4j {
+
+    private static final Map<String, String> nodeLabelOfIndexDomain = new HashMap<String, String>() {{
+        put("graphElementLabel", "GraphElement");
+        put("vertexLabel", "Vertex");
+        put("tagLabel", "Meta");
+    }};
+
+    private static final String RETURN_QUERY_PART = "RETURN n.uri as uri, n.label as label, " +
+            "coalesce(n.nb_visits, 0) as nbVisits, " +
+            "coalesce(n.nb_public_neighbors, 0) as nbPublicNeighbors, " +
+            "coalesce(n.nb_friend_neighbors, 0) as nbFriendNeighbors, " +
+            "coalesce(n.nb_private_neighbors, 0) as nbPrivateNeighbors, " +
+            "labels(n) as type";
+
+    private static final Integer TOP_K = 64;
+
+    private static final String IN_INDEX_QUERY_PART = "n.owner=$owner AND (n:GraphElement OR n:Meta) AND n.isUnderPattern IS NULL ";
+
+    private final Integer maxOwners;
+    private final Long maxAgeMillis;
+
+    private final LinkedHashMap<String, OwnerLabels> labelsOfOwners;
+
+    public static LabelPrefixIndexNeo4j disabled() {
+        return new LabelPrefixIndexNeo4j(0, 0L);
+    }
+
+    public static LabelPrefixIndexNeo4j withMaxOwnersAndMaxAge(Integer maxOwners, Long maxAgeMillis) {
+        return new LabelPrefixIndexNeo4j(maxOwners, maxAgeMillis);
+    }
+
+    protected LabelPrefixIndexNeo4j(Integer maxOwners, Long maxAgeMillis) {
+        this.maxOwners = maxOwners;
+        this.maxAgeMillis = maxAgeMillis;
+        this.labelsOfOwners = new LinkedHashMap<String, OwnerLabels>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, OwnerLabels> eldest) {
+                return size() > LabelPrefixIndexNeo4j.this.maxOwners;
+            }
+        };
+    }
+
+    public Boolean isEnabled() {
+        return maxOwners > 0;
+    }
+
+    /*
+     * Terms of more than one word or with characters the full text syntax interprets
+     * are left to the full text search.
+     */
+    public Boolean canSearch(String indexDomain, String searchTerm) {
+        if (!isEnabled() || !nodeLabelOfIndexDomain.containsKey(indexDomain)) {
+            return false;
+        }
+        String prefix = GraphSearchNeo4j.formatSearchTerm(searchTerm).trim();
+        if (prefix.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length(); i++) {
+            if (!Character.isLetterOrDigit(prefix.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public List<URI> search(Driver driver, String owner, String indexDomain, String searchTerm, Integer skip, Integer limit) {
+        OwnerLabels ownerLabels;
+        synchronized (labelsOfOwners) {
+            ownerLabels = labelsOfOwners.computeIfAbsent(
+                    owner,
+                    k -> new OwnerLabels(owner)
+            );
+        }
+        return ownerLabels.search(
+                driver,
+                nodeLabelOfIndexDomain.get(indexDomain),
+                GraphSearchNeo4j.formatSearchTerm(searchTerm).trim().toLowerCase(),
+                skip,
+                limit
+        );
+    }
+
+    public void invalidate(URI... uris) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (URI uri : uris) {
+            OwnerLabels ownerLabels;
+            synchronized (labelsOfOwners) {
+                ownerLabels = labelsOfOwners.get(
+                        UserUris.ownerUserNameFromUri(uri)
+                );
+            }
+            if (ownerLabels != null) {
+                ownerLabels.dirtyUris.add(uri);
+            }
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(() -> invalidate(uris));
+    }
+
+    /*
+     * the neighbors are found on the next search of the owner
+     */
+    public void invalidateWithNeighbors(URI... uris) {
+        if (!isEnabled()) {
+            return;
+        }
+        for (URI uri : uris) {
+            OwnerLabels ownerLabels;
+            synchronized (labelsOfOwners) {
+                ownerLabels = labelsOfOwners.get(
+                        UserUris.ownerUserNameFromUri(uri)
+                );
+            }
+            if (ownerLabels != null) {
+                ownerLabels.dirtyNeighborhoods.add(uri);
+            }
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(() -> invalidateWithNeighbors(uris));
+    }
+
+    public void invalidateOwner(String owner) {
+        if (!isEnabled()) {
+            return;
+        }
+        synchronized (labelsOfOwners) {
+            labelsOfOwners.remove(owner);
+        }
+        GraphTransactionNeo4j.repeatAfterCommit(() -> invalidateOwner(owner));
+    }
+
+    public void invalidateAll() {
+        synchronized (labelsOfOwners) {
+            labelsOfOwners.clear();
+        }
+    }
+
+    public Integer getNbOwners() {
+        synchronized (labelsOfOwners) {
+            return labelsOfOwners.size();
+        }
+    }
+
+    private static List<String> wordsOf(String label) {
+        List<String> words = new ArrayList<>();
+        StringBuilder word = new StringBuilder();
+        String lowerCaseLabel = label.toLowerCase();
+        for (int i = 0; i < lowerCaseLabel.length(); i++) {
+            char character = lowerCaseLabel.charAt(i);
+            if (Character.isLetterOrDigit(character)) {
+                word.append(character);
+            } else if (word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        if (word.length() > 0) {
+            words.add(word.toString());
+        }
+        return words;
+    }
+
+    private class OwnerLabels {
+
+        private final String owner;
+        private final Map<URI, LabelEntry> entries = new HashMap<>();
+        private final Set<URI> dirtyUris = ConcurrentHashMap.newKeySet();
+        private final Set<URI> dirtyNeighborhoods = ConcurrentHashMap.newKeySet();
+        private TrieNode root = new TrieNode();
+        private Long loadedAt;
+
+        private OwnerLabels(String owner) {
+            this.owner = owner;
+        }
+
+        private synchronized List<URI> search(Driver driver, String nodeLabel, String prefix, Integer skip, Integer limit) {
+            if (loadedAt == null || System.currentTimeMillis() - loadedAt > maxAgeMillis) {
+                load(driver);
+            } else if (!dirtyUris.isEmpty() || !dirtyNeighborhoods.isEmpty()) {
+                refreshDirty(driver);
+            }
+            TrieNode node = root.find(prefix);
+            if (node == null) {
+                return new ArrayList<>();
+            }
+            List<LabelEntry> ranked = skip + limit <= TOP_K ?
+                    node.top(nodeLabel).entries :
+                    node.ranked(nodeLabel, skip + limit);
+            List<URI> uris = new ArrayList<>();
+            for (int i = skip; i < Math.min(ranked.size(), skip + limit); i++) {
+                uris.add(ranked.get(i).uri);
+            }
+            return uris;
+        }
+
+        private void load(Driver driver) {
+            dirtyUris.clear();
+            dirtyNeighborhoods.clear();
+            entries.clear();
+            root = new TrieNode();
+            loadedAt = System.currentTimeMillis();
+            try (Session session = SessionsNeo4j.read(driver)) {
+                Result result = session.run(
+                        "MATCH (n:Resource) WHERE " + IN_INDEX_QUERY_PART + RETURN_QUERY_PART,
+                        parameters(
+                                "owner", owner
+                        )
+                );
+                while (result.hasNext()) {
+                    put(LabelEntry.fromRecord(result.next()));
+                }
+            }
+        }
+
+        private void refreshDirty(Driver driver) {
+            Set<URI> uris = new HashSet<>(dirtyUris);
+            dirtyUris.removeAll(uris);
+            Set<URI> neighborhoods = new HashSet<>(dirtyNeighborhoods);
+            dirtyNeighborhoods.removeAll(neighborhoods);
+            try (Session session = SessionsNeo4j.read(driver)) {
+                if (!neighborhoods.isEmpty()) {
+                    uris.addAll(neighborhoods);
+                    uris.addAll(neighborsOf(session, neighborhoods));
+                }
+                List<String> urisAsString = new ArrayList<>();
+                for (URI uri : uris) {
+                    urisAsString.add(uri.toString());
+                    remove(uri);
+                }
+                Result result = session.run(
+                        "UNWIND $uris as uri MATCH (n:Resource{uri:uri}) WHERE " + IN_INDEX_QUERY_PART + RETURN_QUERY_PART,
+                        parameters(
+                                "uris", urisAsString,
+                                "owner", owner
+                        )
+                );
+                while (result.hasNext()) {
+                    put(LabelEntry.fromRecord(result.next()));
+                }
+            }
+        }
+
+        /*
+         * the tags and tagged elements of the uris and the vertices at the other end of their edges
+         */
+        private List<URI> neighborsOf(Session session, Set<URI> uris) {
+            List<String> urisAsString = new ArrayList<>();
+            for (URI uri : uris) {
+                urisAsString.add(uri.toString());
+            }
+            Result result = session.run(
+                    "UNWIND $uris as uri MATCH (c:Resource{uri:uri})-[:IDENTIFIED_TO]-(d) RETURN d.uri as uri " +
+                            "UNION UNWIND $uris as uri MATCH (c:Resource{uri:uri})<-[:SOURCE|DESTINATION]-(:Edge)-[:SOURCE|DESTINATION]->(d) RETURN d.uri as uri",
+                    parameters(
+                            "uris", urisAsString
+                    )
+            );
+            List<URI> neighbors = new ArrayList<>();
+            while (result.hasNext()) {
+                neighbors.add(URI.create(result.next().get("uri").asString()));
+            }
+            return neighbors;
+        }
+
+        private void put(LabelEntry entry) {
+            entries.put(entry.uri, entry);
+            for (String word : wordsOf(entry.label)) {
+                root.add(word, entry);
+            }
+        }
+
+        private void remove(URI uri) {
+            LabelEntry entry = entries.remove(uri);
+            if (entry == null) {
+                return;
+            }
+            for (String word : wordsOf(entry.label)) {
+                root.remove(word, entry);
+            }
+        }
+    }
+
+    /*
+     * children are kept in arrays sorted by character, most nodes have one or two
+     */
+    private static class TrieNode {
+
+        private static final char[] NO_CHARACTERS = new char[0];
+        private static final TrieNode[] NO_CHILDREN = new TrieNode[0];
+
+        private char[] characters = NO_CHARACTERS;
+        private TrieNode[] children = NO_CHILDREN;
+        private Set<LabelEntry> entries = Collections.emptySet();
+        private Map<String, TopEntries> topOfNodeLabel = Collections.emptyMap();
+
+        private TrieNode find(String prefix) {
+            TrieNode node = this;
+            for (int i = 0; i < prefix.length() && node != null; i++) {
+                int index = Arrays.binarySearch(node.characters, prefix.charAt(i));
+                node = index < 0 ? null : node.children[index];
+            }
+            return node;
+        }
+
+        private void add(String word, LabelEntry entry) {
+            TrieNode node = this;
+            for (int i = 0; i < word.length(); i++) {
+                node = node.child(word.charAt(i));
+                node.offer(entry);
+            }
+            if (node.entries.isEmpty()) {
+                node.entries = new HashSet<>(2);
+            }
+            node.entries.add(entry);
+        }
+
+        private void remove(String word, LabelEntry entry) {
+            TrieNode node = this;
+            for (int i = 0; i < word.length() && node != null; i++) {
+                int index = Arrays.binarySearch(node.characters, word.charAt(i));
+                node = index < 0 ? null : node.children[index];
+                if (node != null) {
+                    node.discard(entry);
+                }
+            }
+            if (node != null) {
+                node.entries.remove(entry);
+            }
+        }
+
+        private TopEntries top(String nodeLabel) {
+            TopEntries top = topOfNodeLabel.get(nodeLabel);
+            if (top == null) {
+                Set<LabelEntry> matches = new HashSet<>();
+                collect(matches, nodeLabel);
+                top = new TopEntries(
+                        rankedOf(matches, TOP_K),
+                        matches.size() <= TOP_K
+                );
+                if (topOfNodeLabel.isEmpty()) {
+                    topOfNodeLabel = new HashMap<>(2);
+                }
+                topOfNodeLabel.put(nodeLabel, top);
+            }
+            return top;
+        }
+
+        private List<LabelEntry> ranked(String nodeLabel, Integer max) {
+            Set<LabelEntry> matches = new HashSet<>();
+            collect(matches, nodeLabel);
+            return rankedOf(matches, max);
+        }
+
+        private void offer(LabelEntry entry) {
+            for (Map.Entry<String, TopEntries> top : topOfNodeLabel.entrySet()) {
+                if (entry.nodeLabels.contains(top.getKey())) {
+                    top.getValue().offer(entry);
+                }
+            }
+        }
+
+        private void discard(LabelEntry entry) {
+            topOfNodeLabel.values().removeIf(
+                    top -> !top.discard(entry)
+            );
+        }
+
+        private TrieNode child(char character) {
+            int index = Arrays.binarySearch(characters, character);
+            if (index >= 0) {
+                return children[index];
+            }
+            int insertionPoint = -index - 1;
+            char[] newCharacters = new char[characters.length + 1];
+            TrieNode[] newChildren = new TrieNode[children.length + 1];
+            System.arraycopy(characters, 0, newCharacters, 0, insertionPoint);
+            System.arraycopy(children, 0, newChildren, 0, insertionPoint);
+            System.arraycopy(characters, insertionPoint, newCharacters, insertionPoint + 1, characters.length - insertionPoint);
+            System.arraycopy(children, insertionPoint, newChildren, insertionPoint + 1, children.length - insertionPoint);
+            TrieNode child = new TrieNode();
+            newCharacters[insertionPoint] = character;
+            newChildren[insertionPoint] = child;
+            characters = newCharacters;
+            children = newChildren;
+            return child;
+        }
+
+        private void collect(Set<LabelEntry> matches, String nodeLabel) {
+            for (LabelEntry entry : entries) {
+                if (entry.nodeLabels.contains(nodeLabel)) {
+                    matches.add(entry);
+                }
+            }
+            for (TrieNode child : children) {
+                child.collect(matches, nodeLabel);
+            }
+        }
+
+        private static List<LabelEntry> rankedOf(Set<LabelEntry> matches, Integer max) {
+            PriorityQueue<LabelEntry> top = new PriorityQueue<>(LabelEntry.ranking.reversed());
+            for (LabelEntry entry : matches) {
+                top.add(entry);
+                if (top.size() > max) {
+                    top.poll();
+                }
+            }
+            List<LabelEntry> ranked = new ArrayList<>(top);
+            ranked.sort(LabelEntry.ranking);
+            return ranked;
+        }
+    }
+
+    /*
+     * isComplete when every label under the node is in entries,
+     * otherwise entries holds exactly TOP_K labels
+     */
+    private static class TopEntries {
+
+        private final List<LabelEntry> entries;
+        private Boolean isComplete;
+
+        private TopEntries(List<LabelEntry> entries, Boolean isComplete) {
+            this.entries = entries;
+            this.isComplete = isComplete;
+        }
+
+        private void offer(LabelEntry entry) {
+            int index = Collections.binarySearch(entries, entry, LabelEntry.ranking);
+            if (index >= 0) {
+                return;
+            }
+            int insertionPoint = -index - 1;
+            if (insertionPoint >= TOP_K) {
+                isComplete = false;
+                return;
+            }
+            entries.add(insertionPoint, entry);
+            if (entries.size() > TOP_K) {
+                entries.remove(entries.size() - 1);
+                isComplete = false;
+            }
+        }
+
+        /*
+         * false when the entries have to be gathered again
+         */
+        private Boolean discard(LabelEntry entry) {
+            int index = Collections.binarySearch(entries, entry, LabelEntry.ranking);
+            if (index < 0) {
+                return true;
+            }
+            if (!isComplete) {
+                return false;
+            }
+            entries.remove(index);
+            return true;
+        }
+    }
+
+    private static class LabelEntry {
+
+        private static final Comparator<LabelEntry> ranking = Comparator.comparingLong(
+                (LabelEntry entry) -> entry.nbVisits
+        ).thenComparingLong(
+                entry -> entry.nbPublicNeighbors
+        ).thenComparingLong(
+                entry -> entry.nbFriendNeighbors
+        ).thenComparingLong(
+                entry -> entry.nbPrivateNeighbors
+        ).reversed().thenComparingInt(
+                entry -> entry.label.length()
+        ).thenComparing(
+                entry -> entry.uri
+        );
+
+        private final URI uri;
+        private final String label;
+        private final Set<String> nodeLabels;
+        private final Long nbVisits;
+        private final Long nbPublicNeighbors;
+        private final Long nbFriendNeighbors;
+        private final Long nbPrivateNeighbors;
+
+        private LabelEntry(URI uri, String label, Set<String> nodeLabels, Long nbVisits, Long nbPublicNeighbors, Long nbFriendNeighbors, Long nbPrivateNeighbors) {
+            this.uri = uri;
+            this.label = label;
+            this.nodeLabels = nodeLabels;
+            this.nbVisits = nbVisits;
+            this.nbPublicNeighbors = nbPublicNeighbors;
+            this.nbFriendNeighbors = nbFriendNeighbors;
+            this.nbPrivateNeighbors = nbPrivateNeighbors;
+        }
+
+        private static LabelEntry fromRecord(Record record) {
+            Value label = record.get("label");
+            return new LabelEntry(
+                    URI.create(record.get("uri").asString()),
+                    label.isNull() ? "" : label.asString(),
+                    new HashSet<>(record.get("type").asList(Value::asString)),
+                    record.get("nbVisits").asLong(),
+                    record.get("nbPublicNeighbors").asLong(),
+                    record.get("nbFriendNeighbors").asLong(),
+                    record.get("nbPrivateNeighbors").asLong()
+            );
+        }
+    }
+}
@@ -10,7 +10,7 @@ import guru.bubl.module.model.graph.ShareLevel;
 import guru.bubl.module.model.search.GraphElementSearchResult;
 import guru.bubl.module.neo4j_graph_manipulator.graph.search.result_builder.*;
 import org.neo4j.driver.Record;
-import org.neo4j.driver.Result;
+import org.neo4j.driver.Value;
 
 import java.util.*;
 
@@ -20,10 +20,14 @@ public class SearchResultGetter<ResultType extends GraphElementSearchResult> {
 
     private List<ResultType> searchResults = new ArrayList<>();
 
-    private Result result;
+    private Iterator<Record> result;
     private Set<ShareLevel> inShareLevels;
+    private SearchResultColumns columns;
 
-    public SearchResultGetter(Result result, Set<ShareLevel> inShareLevels) {
+    /*
+     * a Result or the records of an async cursor
+     */
+    public SearchResultGetter(Iterator<Record> result, Set<ShareLevel> inShareLevels) {
         this.result = result;
         this.inShareLevels = inShareLevels;
     }
@@ -46,22 +50,29 @@ public class SearchResultGetter<ResultType extends GraphElementSearchResult> {
     }
 
     private SearchResultBuilder getFromRow(Record record) {
-        switch (nodeTypeInRow(record)) {
+        if (columns == null) {
+            columns = SearchResultColumns.usingFirstRecordAndPrefix(record, nodePrefix);
+        }
+        switch (nodeTypeInRow(columns.get(record, columns.type))) {
             case Vertex:
-                return new VertexSearchResultBuilder(record, nodePrefix, inShareLevels);
+                return new VertexSearchResultBuilder(record, columns, inShareLevels);
             case Edge:
-                return new RelationSearchResultBuilder(record, nodePrefix);
+                return new RelationSearchResultBuilder(record, columns);
             case Meta:
-                return new MetaSearchResultBuilder(record, nodePrefix, inShareLevels);
+                return new MetaSearchResultBuilder(record, columns, inShareLevels);
             case GroupRelation:
-                return new GroupRelationSearchResultBuilder(record, nodePrefix, inShareLevels);
+                return new GroupRelationSearchResultBuilder(record, columns, inShareLevels);
             default:
                 return null;
         }
     }
 
     public static GraphElementType nodeTypeInRow(Record record) {
-        List<String> types = (List) record.get("type").asList();
+        return nodeTypeInRow(record.get("type"));
+    }
+
+    private static GraphElementType nodeTypeInRow(Value typeValue) {
+        List<String> types = (List) typeValue.asList();
         GraphElementType type = null;
         for (String typeStr : types) {
             GraphElementType graphElementType = GraphElementType.valueOf(typeStr);
@@ -17,12 +17,12 @@ import java.util.Set;
 public class GroupRelationSearchResultBuilder implements SearchResultBuilder {
 
     private Record row;
-    private String prefix;
+    private SearchResultColumns columns;
     private Set<ShareLevel> inShareLevels;
 
-    public GroupRelationSearchResultBuilder(Record row, String prefix, Set<ShareLevel> inShareLevels) {
+    public GroupRelationSearchResultBuilder(Record row, SearchResultColumns columns, Set<ShareLevel> inShareLevels) {
         this.row = row;
-        this.prefix = prefix;
+        this.columns = columns;
         this.inShareLevels = inShareLevels;
     }
 
@@ -30,15 +30,15 @@ public class GroupRelationSearchResultBuilder implements SearchResultBuilder {
     public GraphElementSearchResult build() {
         GraphElementSearchResultPojo searchResult = new GraphElementSearchResultPojo(
                 GraphElementType.GroupRelation,
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         row,
-                        prefix
+                        columns
                 ).build(),
                 getContext()
         );
         searchResult.getGraphElement().setColors(
                 VertexFromExtractorQueryRow.getColors(
-                        prefix,
+                        columns,
                         row
                 )
         );
@@ -56,6 +56,11 @@ public class GroupRelationSearchResultBuilder implements SearchResultBuilder {
     public Record getRow() {
         return row;
     }
+
+    @Override
+    public SearchResultColumns getColumns() {
+        return columns;
+    }
     
     @Override
     public Set<ShareLevel> getInShareLevels() {
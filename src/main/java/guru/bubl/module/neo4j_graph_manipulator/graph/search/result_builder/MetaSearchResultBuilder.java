@@ -17,31 +17,30 @@ import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.FriendlyRe
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.VertexFromExtractorQueryRow;
 import org.neo4j.driver.Record;
 
-import java.net.URI;
 import java.util.Set;
 
 public class MetaSearchResultBuilder implements SearchResultBuilder {
 
     private Record row;
-    private String prefix;
+    private SearchResultColumns columns;
     private Set<ShareLevel> inShareLevels;
 
-    public MetaSearchResultBuilder(Record row, String prefix, Set<ShareLevel> inShareLevels) {
+    public MetaSearchResultBuilder(Record row, SearchResultColumns columns, Set<ShareLevel> inShareLevels) {
         this.row = row;
-        this.prefix = prefix;
+        this.columns = columns;
         this.inShareLevels = inShareLevels;
     }
 
     @Override
     public GraphElementSearchResult build() {
-        FriendlyResourcePojo friendlyResourcePojo = FriendlyResourceFromExtractorQueryRow.usingRowAndNodeKey(
+        FriendlyResourcePojo friendlyResourcePojo = FriendlyResourceFromExtractorQueryRow.usingRowAndColumns(
                 row,
-                prefix
+                columns
         ).build();
         NbNeighborsPojo nbNeighbors = buildNbNeighbors();
         TagPojo tagPojo = new TagPojo(
-                URI.create(
-                        row.get("n.external_uri").asString()
+                columns.toUri(
+                        columns.get(row, columns.externalUri).asString()
                 ),
                 new GraphElementPojo(
                         friendlyResourcePojo
@@ -62,7 +61,7 @@ public class MetaSearchResultBuilder implements SearchResultBuilder {
         );
         searchResult.getGraphElement().setColors(
                 VertexFromExtractorQueryRow.getColors(
-                        prefix,
+                        columns,
                         row
                 )
         );
@@ -79,6 +78,11 @@ public class MetaSearchResultBuilder implements SearchResultBuilder {
         return row;
     }
 
+    @Override
+    public SearchResultColumns getColumns() {
+        return columns;
+    }
+
     @Override
     public Set<ShareLevel> getInShareLevels() {
         return this.inShareLevels;
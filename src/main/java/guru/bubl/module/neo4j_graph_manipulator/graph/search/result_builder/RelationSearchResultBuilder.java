@@ -13,20 +13,20 @@ import org.neo4j.driver.Record;
 public class RelationSearchResultBuilder implements SearchResultBuilder {
 
     private Record row;
-    private String prefix;
+    private SearchResultColumns columns;
 
-    public RelationSearchResultBuilder(Record row, String prefix) {
+    public RelationSearchResultBuilder(Record row, SearchResultColumns columns) {
         this.row = row;
-        this.prefix = prefix;
+        this.columns = columns;
     }
 
     @Override
     public GraphElementSearchResult build() {
         return new GraphElementSearchResultPojo(
                 GraphElementType.Edge,
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         row,
-                        prefix
+                        columns
                 ).build(),
                 getContext()
         );
@@ -36,4 +36,9 @@ public class RelationSearchResultBuilder implements SearchResultBuilder {
     public Record getRow() {
         return row;
     }
+
+    @Override
+    public SearchResultColumns getColumns() {
+        return columns;
+    }
 }
@@ -16,41 +16,46 @@ public interface SearchResultBuilder {
     GraphElementSearchResult build();
 
     default String getContext() {
-        Value value = getRow().get("context");
-        return value.asObject() == null ? "" : value.asString();
+        Value value = getColumns().get(getRow(), getColumns().context);
+        return value.isNull() ? "" : value.asString();
     }
 
     default ShareLevel extractShareLevel() {
-        if (getRow().get("shareLevel").asObject() == null) {
+        Value shareLevel = getColumns().get(getRow(), getColumns().searchShareLevel);
+        if (shareLevel.isNull()) {
             return ShareLevel.PRIVATE;
         }
-        Integer shareLevel = getRow().get("shareLevel").asInt();
-        return ShareLevel.get(shareLevel);
+        return ShareLevel.get(shareLevel.asInt());
     }
 
     default Integer getNbVisits() {
-        return getRow().get("n.nb_visits").asObject() == null ?
-                0 : getRow().get("n.nb_visits").asInt();
+        Value nbVisits = getColumns().get(getRow(), getColumns().nbVisits);
+        return nbVisits.isNull() ? 0 : nbVisits.asInt();
     }
 
     default NbNeighborsPojo buildNbNeighbors() {
+        SearchResultColumns columns = getColumns();
         NbNeighborsPojo nbNeighborsPojo = new NbNeighborsPojo();
         if (getInShareLevels().contains(ShareLevel.PRIVATE)) {
-            nbNeighborsPojo.setPrivate(getRow().get("n.nb_private_neighbors").asInt());
+            nbNeighborsPojo.setPrivate(columns.get(getRow(), columns.nbPrivateNeighbors).asInt());
         }
         if (getInShareLevels().contains(ShareLevel.FRIENDS)) {
-            nbNeighborsPojo.setFriend(getRow().get(
-                    "n.nb_friend_neighbors"
+            nbNeighborsPojo.setFriend(columns.get(
+                    getRow(),
+                    columns.nbFriendNeighbors
             ).asInt());
         }
-        nbNeighborsPojo.setPublic(getRow().get(
-                "n.nb_public_neighbors"
+        nbNeighborsPojo.setPublic(columns.get(
+                getRow(),
+                columns.nbPublicNeighbors
         ).asInt());
         return nbNeighborsPojo;
     }
 
     Record getRow();
 
+    SearchResultColumns getColumns();
+
     default Set<ShareLevel> getInShareLevels() {
         return null;
     }
@@ -0,0 +1,36 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search.result_builder;
+
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
+import org.neo4j.driver.Record;
+
+import java.util.List;
+
+/*
+ * Columns of a search result, the graph element ones under the node prefix
+ * and the ones only returned by search queries.
+ * All records of a result have the same keys, resolve them from its first record.
+ */
+public class SearchResultColumns extends ExtractorQueryColumns {
+
+    public final int context;
+    public final int searchShareLevel;
+    public final int nbVisits;
+
+    public static SearchResultColumns usingFirstRecordAndPrefix(Record record, String prefix) {
+        return new SearchResultColumns(
+                record.keys(),
+                prefix
+        );
+    }
+
+    protected SearchResultColumns(List<String> keys, String prefix) {
+        super(keys, prefix);
+        context = keys.indexOf("context");
+        searchShareLevel = keys.indexOf("shareLevel");
+        nbVisits = keys.indexOf(prefix + ".nb_visits");
+    }
+}
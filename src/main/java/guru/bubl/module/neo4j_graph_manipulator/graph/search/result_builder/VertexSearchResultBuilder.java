@@ -18,12 +18,12 @@ import java.util.Set;
 public class VertexSearchResultBuilder implements SearchResultBuilder {
 
     private Record row;
-    private String prefix;
+    private SearchResultColumns columns;
     private Set<ShareLevel> inShareLevels;
 
-    public VertexSearchResultBuilder(Record row, String prefix, Set<ShareLevel> inShareLevels) {
+    public VertexSearchResultBuilder(Record row, SearchResultColumns columns, Set<ShareLevel> inShareLevels) {
         this.row = row;
-        this.prefix = prefix;
+        this.columns = columns;
         this.inShareLevels = inShareLevels;
     }
 
@@ -31,15 +31,15 @@ public class VertexSearchResultBuilder implements SearchResultBuilder {
     public GraphElementSearchResult build() {
         GraphElementSearchResultPojo searchResult = new GraphElementSearchResultPojo(
                 GraphElementType.Vertex,
-                GraphElementFromExtractorQueryRow.usingRowAndKey(
+                GraphElementFromExtractorQueryRow.usingRowAndColumns(
                         row,
-                        prefix
+                        columns
                 ).build(),
                 getContext()
         );
         searchResult.getGraphElement().setColors(
                 VertexFromExtractorQueryRow.getColors(
-                        prefix,
+                        columns,
                         row
                 )
         );
@@ -61,8 +61,13 @@ public class VertexSearchResultBuilder implements SearchResultBuilder {
         return row;
     }
 
+    @Override
+    public SearchResultColumns getColumns() {
+        return columns;
+    }
+
     private Boolean isPattern() {
-        List<String> types = (List) row.get("type").asList();
+        List<String> types = (List) columns.get(row, columns.type).asList();
         Boolean isPattern = false;
         for (String typeStr : types) {
             GraphElementType graphElementType = GraphElementType.valueOf(typeStr);
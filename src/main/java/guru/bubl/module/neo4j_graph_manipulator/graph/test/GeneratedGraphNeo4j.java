@@ -0,0 +1,78 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.test;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GeneratedGraphNeo4j {
+
+    final List<String> usernames = new ArrayList<>();
+    final Map<String, URI> rootUris = new HashMap<>();
+    final List<URI> patternUris = new ArrayList<>();
+    Integer nbVertices = 0;
+    Integer nbEdges = 0;
+    Integer nbGroupRelations = 0;
+    Integer nbTags = 0;
+    Integer nbTaggings = 0;
+    Integer nbFriendships = 0;
+
+    public List<String> getUsernames() {
+        return usernames;
+    }
+
+    /*
+     * the first bubble of the graph of a user, a center with the most neighbors
+     */
+    public URI getRootUriOfUser(String username) {
+        return rootUris.get(username);
+    }
+
+    public List<URI> getPatternUris() {
+        return patternUris;
+    }
+
+    public Integer getNbVertices() {
+        return nbVertices;
+    }
+
+    public Integer getNbEdges() {
+        return nbEdges;
+    }
+
+    public Integer getNbGroupRelations() {
+        return nbGroupRelations;
+    }
+
+    public Integer getNbTags() {
+        return nbTags;
+    }
+
+    public Integer getNbTaggings() {
+        return nbTaggings;
+    }
+
+    public Integer getNbFriendships() {
+        return nbFriendships;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d users, %d vertices, %d edges, %d group relations, %d tags on %d graph elements, %d patterns, %d friendships",
+                usernames.size(),
+                nbVertices,
+                nbEdges,
+                nbGroupRelations,
+                nbTags,
+                nbTaggings,
+                patternUris.size(),
+                nbFriendships
+        );
+    }
+}
@@ -16,6 +16,7 @@ import guru.bubl.module.model.test.scenarios.TestScenarios;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorFactoryNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.RoundTripCounterNeo4j.RoundTripsNeo4j;
 import org.neo4j.driver.Driver;
 import org.neo4j.driver.Record;
 import org.neo4j.driver.Session;
@@ -42,6 +43,9 @@ public class GraphComponentTestNeo4j implements GraphComponentTest {
     @Inject
     Driver driver;
 
+    @com.google.inject.Inject(optional = true)
+    protected RoundTripCounterNeo4j roundTripCounter;
+
     protected VertexOperator vertexA;
     protected VertexOperator vertexB;
     protected VertexOperator vertexC;
@@ -170,6 +174,46 @@ public class GraphComponentTestNeo4j implements GraphComponentTest {
         return vertexOfAnotherUser;
     }
 
+    /*
+     * Round trips are counted when the driver comes from Neo4jModuleForTests.usingEmbedded()
+     */
+    public RoundTripsNeo4j countRoundTrips(Runnable operation) {
+        if (roundTripCounter == null) {
+            throw new IllegalStateException("round trips are not counted with this driver");
+        }
+        return roundTripCounter.count(operation);
+    }
+
+    public RoundTripsNeo4j assertNbQueries(Integer expectedNbQueries, Runnable operation) {
+        RoundTripsNeo4j roundTrips = countRoundTrips(operation);
+        if (!roundTrips.getNbQueries().equals(expectedNbQueries)) {
+            throw new AssertionError(
+                    "expected " + expectedNbQueries + " queries but got " + roundTrips
+            );
+        }
+        return roundTrips;
+    }
+
+    public RoundTripsNeo4j assertAtMostNbQueries(Integer maxNbQueries, Runnable operation) {
+        RoundTripsNeo4j roundTrips = countRoundTrips(operation);
+        if (roundTrips.getNbQueries() > maxNbQueries) {
+            throw new AssertionError(
+                    "expected at most " + maxNbQueries + " queries but got " + roundTrips
+            );
+        }
+        return roundTrips;
+    }
+
+    public RoundTripsNeo4j assertAtMostNbTransactions(Integer maxNbTransactions, Runnable operation) {
+        RoundTripsNeo4j roundTrips = countRoundTrips(operation);
+        if (roundTrips.getNbTransactions() > maxNbTransactions) {
+            throw new AssertionError(
+                    "expected at most " + maxNbTransactions + " transactions but got " + roundTrips
+            );
+        }
+        return roundTrips;
+    }
+
     protected int numberOfVertices() {
         try (Session session = driver.session()) {
             Record record = session.run("MATCH (n:Vertex) return count(n) as nbVertices").single();
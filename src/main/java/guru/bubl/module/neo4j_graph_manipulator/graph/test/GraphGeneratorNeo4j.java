@@ -0,0 +1,540 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.test;
+
+import guru.bubl.module.model.UserUris;
+import guru.bubl.module.model.friend.FriendStatus;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.Tag;
+import guru.bubl.module.model.json.ImageJson;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+
+import java.net.URI;
+import java.util.*;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Generates bubl graphs with the labels and properties the operators create, so that the indexes
+ * of SetupNeo4jDatabaseForTests and the extractors work on them, and writes them with batched UNWIND.
+ * The number of bubbles of users follows a power law, each graph grows by preferential attachment
+ * so that degrees follow a power law too, words of labels and tags are picked with a zipf distribution.
+ * The same seed gives the same shape, uris are random.
+ * Search contexts are not computed, WholeGraphAdmin.reindexAll does it once the graph is written.
+ */
+public class GraphGeneratorNeo4j {
+
+    private static final String[] SYLLABLES = {
+            "ka", "lo", "mi", "ru", "te", "sa", "no", "vi",
+            "pe", "do", "ga", "zu", "fi", "ho", "be", "ny"
+    };
+
+    private static final Integer VOCABULARY_SIZE = 5000;
+    private static final Integer MIN_CHILDREN_FOR_GROUP_RELATION = 3;
+    private static final Integer MIN_PATTERN_SIZE = 5;
+    private static final Integer MAX_PATTERN_SIZE = 30;
+
+    private final Driver driver;
+    private final Random random;
+
+    private Integer nbUsers = 100;
+    private Integer minNbVerticesPerUser = 10;
+    private Integer maxNbVerticesPerUser = 20000;
+    private Double sizeExponent = 2.0;
+    private Double extraEdgesRatio = 0.05;
+    private Double groupRelationRatio = 0.02;
+    private Integer nbTags = 1000;
+    private Double taggedRatio = 0.1;
+    private Double patternRatio = 0.05;
+    private Integer nbFriendsPerUser = 5;
+    private Double centerRatio = 0.01;
+    private double[] shareLevelWeights = {0.6, 0.1, 0.3};
+    private Integer batchSize = 5000;
+
+    private double[] wordsCumulativeWeights;
+    private double[] tagsCumulativeWeights;
+
+    public static GraphGeneratorNeo4j usingDriverAndSeed(Driver driver, Long seed) {
+        return new GraphGeneratorNeo4j(driver, seed);
+    }
+
+    protected GraphGeneratorNeo4j(Driver driver, Long seed) {
+        this.driver = driver;
+        this.random = new Random(seed);
+    }
+
+    public GraphGeneratorNeo4j withNbUsers(Integer nbUsers) {
+        this.nbUsers = nbUsers;
+        return this;
+    }
+
+    /*
+     * sizes follow a power law of exponent sizeExponent, over 1, starting at min
+     */
+    public GraphGeneratorNeo4j withNbVerticesPerUserBetweenAndExponent(Integer min, Integer max, Double sizeExponent) {
+        this.minNbVerticesPerUser = min;
+        this.maxNbVerticesPerUser = max;
+        this.sizeExponent = sizeExponent;
+        return this;
+    }
+
+    /*
+     * edges added to the tree of a user, as a ratio of its number of bubbles
+     */
+    public GraphGeneratorNeo4j withExtraEdgesRatio(Double extraEdgesRatio) {
+        this.extraEdgesRatio = extraEdgesRatio;
+        return this;
+    }
+
+    /*
+     * ratio of the bubbles with enough children that get their children in a group relation
+     */
+    public GraphGeneratorNeo4j withGroupRelationRatio(Double groupRelationRatio) {
+        this.groupRelationRatio = groupRelationRatio;
+        return this;
+    }
+
+    /*
+     * nbTags external uris shared by the tags of all users, taggedRatio of the bubbles are tagged
+     */
+    public GraphGeneratorNeo4j withNbTagsAndTaggedRatio(Integer nbTags, Double taggedRatio) {
+        this.nbTags = nbTags;
+        this.taggedRatio = taggedRatio;
+        return this;
+    }
+
+    public GraphGeneratorNeo4j withPatternRatio(Double patternRatio) {
+        this.patternRatio = patternRatio;
+        return this;
+    }
+
+    /*
+     * average, friendships are also made by preferential attachment
+     */
+    public GraphGeneratorNeo4j withNbFriendsPerUser(Integer nbFriendsPerUser) {
+        this.nbFriendsPerUser = nbFriendsPerUser;
+        return this;
+    }
+
+    public GraphGeneratorNeo4j withCenterRatio(Double centerRatio) {
+        this.centerRatio = centerRatio;
+        return this;
+    }
+
+    public GraphGeneratorNeo4j withShareLevelWeights(Double privateWeight, Double friendsWeight, Double publicWeight) {
+        this.shareLevelWeights = new double[]{privateWeight, friendsWeight, publicWeight};
+        return this;
+    }
+
+    public GraphGeneratorNeo4j withBatchSize(Integer batchSize) {
+        this.batchSize = batchSize;
+        return this;
+    }
+
+    public static String wordOfRank(Integer rank) {
+        StringBuilder word = new StringBuilder();
+        int remaining = rank + SYLLABLES.length;
+        while (remaining > 0) {
+            word.append(SYLLABLES[remaining % SYLLABLES.length]);
+            remaining /= SYLLABLES.length;
+        }
+        return word.toString();
+    }
+
+    public static URI externalUriOfTagRank(Integer rank) {
+        return URI.create(
+                "https://en.wikipedia.org/wiki/" + wordOfRank(rank)
+        );
+    }
+
+    public GeneratedGraphNeo4j generate() {
+        wordsCumulativeWeights = zipfCumulativeWeights(VOCABULARY_SIZE, 1.0);
+        tagsCumulativeWeights = zipfCumulativeWeights(nbTags, 1.0);
+        GeneratedGraphNeo4j graph = new GeneratedGraphNeo4j();
+        List<Map<String, Object>> users = new ArrayList<>();
+        for (int i = 0; i < nbUsers; i++) {
+            String username = "user_" + i;
+            graph.usernames.add(username);
+            users.add(map(
+                    "username", username,
+                    "email", username + "@example.org"
+            ));
+        }
+        Model model = new Model();
+        for (String username : graph.usernames) {
+            generateGraphOfUser(username, model, graph);
+            if (random.nextDouble() < patternRatio) {
+                generatePatternOfUser(username, model, graph);
+            }
+        }
+        model.countNeighbors();
+        writeInBatches(
+                "UNWIND $rows as row CREATE(u:User) SET u=row",
+                users
+        );
+        writeInBatches(
+                "UNWIND $rows as row CREATE(n:Resource:GraphElement:Vertex) SET n=row",
+                model.propertiesOf(model.vertices)
+        );
+        writeInBatches(
+                "UNWIND $rows as row CREATE(n:Resource:GraphElement:Vertex:Pattern) SET n=row",
+                model.propertiesOf(model.patterns)
+        );
+        writeInBatches(
+                "UNWIND $rows as row MATCH(s:Resource{uri:row.sourceUri}) " +
+                        "CREATE(gr:Resource:GraphElement:GroupRelation) SET gr=row.props " +
+                        "CREATE(gr)-[:SOURCE]->(s)",
+                model.groupRelationRows
+        );
+        writeInBatches(
+                "UNWIND $rows as row MATCH(s:Resource{uri:row.sourceUri}), (d:Resource{uri:row.destinationUri}) " +
+                        "CREATE(n:Resource:GraphElement:Edge) SET n=row.props " +
+                        "CREATE(n)-[:SOURCE]->(s) CREATE(n)-[:DESTINATION]->(d)",
+                model.edgeRows
+        );
+        writeInBatches(
+                "UNWIND $rows as row CREATE(f:Resource:GraphElement:Meta) SET f=row",
+                model.propertiesOf(model.tags)
+        );
+        writeInBatches(
+                "UNWIND $rows as row MATCH(n:Resource{uri:row.uri}), (f:Resource{uri:row.metaUri}) " +
+                        "CREATE(n)-[:IDENTIFIED_TO{relation_external_uri:row.relationExternalUri}]->(f)",
+                model.taggingRows
+        );
+        writeInBatches(
+                "UNWIND $rows as row MATCH(u:User{email:row.email}), (f:User{email:row.friendEmail}) " +
+                        "CREATE(u)-[:friend{status:row.status}]->(f)",
+                generateFriendships(graph)
+        );
+        graph.nbVertices = model.vertices.size() + model.patterns.size();
+        graph.nbEdges = model.edgeRows.size();
+        graph.nbGroupRelations = model.groupRelationRows.size();
+        graph.nbTags = model.tags.size();
+        graph.nbTaggings = model.taggingRows.size();
+        return graph;
+    }
+
+    private void generateGraphOfUser(String username, Model model, GeneratedGraphNeo4j graph) {
+        UserUris userUris = new UserUris(username);
+        Integer nbVertices = powerLaw(minNbVerticesPerUser, maxNbVerticesPerUser, sizeExponent);
+        List<Node> vertices = new ArrayList<>();
+        List<List<Node>> childrenOf = new ArrayList<>();
+        int[] endpoints = new int[2 * nbVertices];
+        int nbEndpoints = 0;
+        for (int i = 0; i < nbVertices; i++) {
+            Node vertex = newVertex(userUris, username, randomShareLevel());
+            vertices.add(vertex);
+            childrenOf.add(new ArrayList<>());
+            if (i > 0) {
+                int parentIndex = endpoints[random.nextInt(nbEndpoints)];
+                childrenOf.get(parentIndex).add(vertex);
+                endpoints[nbEndpoints++] = parentIndex;
+            }
+            endpoints[nbEndpoints++] = i;
+        }
+        for (int i = 0; i < nbVertices; i++) {
+            Node parent = vertices.get(i);
+            List<Node> children = childrenOf.get(i);
+            if (children.size() >= MIN_CHILDREN_FOR_GROUP_RELATION && random.nextDouble() < groupRelationRatio) {
+                Node groupRelation = newGroupRelation(userUris, username, parent);
+                model.addGroupRelation(groupRelation, parent);
+                for (Node child : children) {
+                    model.addEdge(newEdge(userUris, username, groupRelation, child), groupRelation, child);
+                }
+            } else {
+                for (Node child : children) {
+                    model.addEdge(newEdge(userUris, username, parent, child), parent, child);
+                }
+            }
+        }
+        long nbExtraEdges = Math.round(nbVertices * extraEdgesRatio);
+        for (long i = 0; i < nbExtraEdges && nbVertices > 1; i++) {
+            Node source = vertices.get(endpoints[random.nextInt(nbEndpoints)]);
+            Node destination = vertices.get(endpoints[random.nextInt(nbEndpoints)]);
+            if (source != destination) {
+                model.addEdge(newEdge(userUris, username, source, destination), source, destination);
+            }
+        }
+        Map<Integer, Node> tagsOfRank = new HashMap<>();
+        for (Node vertex : vertices) {
+            if (random.nextDouble() < taggedRatio) {
+                Integer nbTagsOfVertex = random.nextDouble() < 0.3 ? 2 : 1;
+                for (int i = 0; i < nbTagsOfVertex; i++) {
+                    Integer rank = zipf(tagsCumulativeWeights);
+                    Node tag = tagsOfRank.get(rank);
+                    if (tag == null) {
+                        tag = newTag(userUris, username, rank, vertex.shareLevel);
+                        tagsOfRank.put(rank, tag);
+                        model.tags.add(tag);
+                    }
+                    model.addTagging(vertex, tag);
+                }
+            }
+        }
+        Node root = vertices.get(0);
+        setCenter(root);
+        graph.rootUris.put(username, root.uri);
+        for (int i = 1; i < nbVertices; i++) {
+            if (random.nextDouble() < centerRatio) {
+                setCenter(vertices.get(i));
+            }
+        }
+        model.vertices.addAll(vertices);
+    }
+
+    /*
+     * as after makePattern, the bubbles are public and under the pattern
+     */
+    private void generatePatternOfUser(String username, Model model, GeneratedGraphNeo4j graph) {
+        UserUris userUris = new UserUris(username);
+        Integer nbVertices = MIN_PATTERN_SIZE + random.nextInt(MAX_PATTERN_SIZE - MIN_PATTERN_SIZE + 1);
+        List<Node> vertices = new ArrayList<>();
+        for (int i = 0; i < nbVertices; i++) {
+            Node vertex = newVertex(userUris, username, ShareLevel.PUBLIC);
+            if (i == 0) {
+                vertex.properties.put("nbPatternUsage", powerLaw(1, 1000, 2.0) - 1);
+                model.patterns.add(vertex);
+            } else {
+                vertex.properties.put("isUnderPattern", true);
+                Node parent = vertices.get(random.nextInt(i));
+                model.addEdge(newEdge(userUris, username, parent, vertex), parent, vertex);
+                model.vertices.add(vertex);
+            }
+            vertices.add(vertex);
+        }
+        graph.patternUris.add(vertices.get(0).uri);
+    }
+
+    private List<Map<String, Object>> generateFriendships(GeneratedGraphNeo4j graph) {
+        List<Map<String, Object>> friendships = new ArrayList<>();
+        Set<String> friends = new HashSet<>();
+        List<Integer> endpoints = new ArrayList<>();
+        for (int i = 0; i < graph.usernames.size(); i++) {
+            for (int j = 0; j < nbFriendsPerUser / 2 && !endpoints.isEmpty(); j++) {
+                Integer friendIndex = endpoints.get(random.nextInt(endpoints.size()));
+                if (friendIndex != i && friends.add(friendIndex + "-" + i)) {
+                    friendships.add(map(
+                            "email", graph.usernames.get(i) + "@example.org",
+                            "friendEmail", graph.usernames.get(friendIndex) + "@example.org",
+                            "status", FriendStatus.confirmed.name()
+                    ));
+                    endpoints.add(friendIndex);
+                    endpoints.add(i);
+                }
+            }
+            endpoints.add(i);
+        }
+        graph.nbFriendships = friendships.size();
+        return friendships;
+    }
+
+    private Node newVertex(UserUris userUris, String username, ShareLevel shareLevel) {
+        Node vertex = new Node(userUris.generateVertexUri(), shareLevel);
+        addCreationProperties(vertex, username, randomLabel());
+        return vertex;
+    }
+
+    private Node newGroupRelation(UserUris userUris, String username, Node parent) {
+        Node groupRelation = new Node(
+                userUris.groupRelationUriFromShortId(UUID.randomUUID().toString()),
+                parent.shareLevel
+        );
+        addCreationProperties(groupRelation, username, randomLabel());
+        groupRelation.properties.put("comment", "");
+        return groupRelation;
+    }
+
+    private Node newEdge(UserUris userUris, String username, Node source, Node destination) {
+        Node edge = new Node(
+                userUris.generateEdgeUri(),
+                source.shareLevel.getIndex() < destination.shareLevel.getIndex() ? source.shareLevel : destination.shareLevel
+        );
+        addCreationProperties(edge, username, random.nextDouble() < 0.5 ? "" : randomLabel());
+        return edge;
+    }
+
+    private Node newTag(UserUris userUris, String username, Integer rank, ShareLevel shareLevel) {
+        Node tag = new Node(userUris.generateTagUri(), shareLevel);
+        addCreationProperties(tag, username, wordOfRank(rank));
+        tag.properties.put("external_uri", externalUriOfTagRank(rank).toString());
+        tag.properties.put("comment", "");
+        tag.properties.put("private_context", "");
+        tag.properties.put("friend_context", "");
+        tag.properties.put("public_context", "");
+        tag.properties.put("images", ImageJson.toJsonArray(new HashSet<>()));
+        return tag;
+    }
+
+    private void addCreationProperties(Node node, String username, String label) {
+        Long now = new Date().getTime();
+        node.properties.put("uri", node.uri.toString());
+        node.properties.put("owner", username);
+        node.properties.put("label", label);
+        node.properties.put("shareLevel", node.shareLevel.getIndex());
+        node.properties.put("nb_private_neighbors", 0);
+        node.properties.put("nb_friend_neighbors", 0);
+        node.properties.put("nb_public_neighbors", 0);
+        node.properties.put("nb_visits", 0);
+        node.properties.put("creation_date", now);
+        node.properties.put("last_modification_date", now);
+    }
+
+    private void setCenter(Node vertex) {
+        vertex.properties.put("last_center_date", new Date().getTime());
+        vertex.properties.put("nb_visits", powerLaw(1, 10000, 2.0));
+    }
+
+    private String randomLabel() {
+        Integer nbWords = 1 + random.nextInt(3);
+        StringBuilder label = new StringBuilder();
+        for (int i = 0; i < nbWords; i++) {
+            if (i > 0) {
+                label.append(" ");
+            }
+            label.append(wordOfRank(zipf(wordsCumulativeWeights)));
+        }
+        return label.toString();
+    }
+
+    private ShareLevel randomShareLevel() {
+        double value = random.nextDouble() * (shareLevelWeights[0] + shareLevelWeights[1] + shareLevelWeights[2]);
+        if (value < shareLevelWeights[0]) {
+            return ShareLevel.PRIVATE;
+        }
+        return value < shareLevelWeights[0] + shareLevelWeights[1] ? ShareLevel.FRIENDS : ShareLevel.PUBLIC;
+    }
+
+    private Integer powerLaw(Integer min, Integer max, Double exponent) {
+        double value = min * Math.pow(1 - random.nextDouble(), -1 / (exponent - 1));
+        return (int) Math.min(Math.floor(value), max);
+    }
+
+    private Integer zipf(double[] cumulativeWeights) {
+        double value = random.nextDouble() * cumulativeWeights[cumulativeWeights.length - 1];
+        int index = Arrays.binarySearch(cumulativeWeights, value);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static double[] zipfCumulativeWeights(Integer nbRanks, Double exponent) {
+        double[] cumulativeWeights = new double[Math.max(nbRanks, 1)];
+        double total = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            total += 1 / Math.pow(i + 1, exponent);
+            cumulativeWeights[i] = total;
+        }
+        return cumulativeWeights;
+    }
+
+    private void writeInBatches(String query, List<Map<String, Object>> rows) {
+        try (Session session = driver.session()) {
+            for (int i = 0; i < rows.size(); i += batchSize) {
+                session.run(
+                        query,
+                        parameters(
+                                "rows",
+                                rows.subList(i, Math.min(i + batchSize, rows.size()))
+                        )
+                ).consume();
+            }
+        }
+    }
+
+    private static Map<String, Object> map(Object... keysAndValues) {
+        Map<String, Object> map = new HashMap<>();
+        for (int i = 0; i < keysAndValues.length; i += 2) {
+            map.put((String) keysAndValues[i], keysAndValues[i + 1]);
+        }
+        return map;
+    }
+
+    private static Integer nbNeighborsIndexOf(ShareLevel shareLevel) {
+        switch (shareLevel) {
+            case PRIVATE:
+                return 0;
+            case FRIENDS:
+                return 1;
+            default:
+                return 2;
+        }
+    }
+
+    private static class Node {
+
+        private final URI uri;
+        private final ShareLevel shareLevel;
+        private final Map<String, Object> properties = new HashMap<>();
+        private final int[] nbNeighbors = new int[3];
+
+        private Node(URI uri, ShareLevel shareLevel) {
+            this.uri = uri;
+            this.shareLevel = shareLevel;
+        }
+    }
+
+    /*
+     * neighbors are counted as WholeGraphAdmin.refreshNbNeighbors and refreshNbNeighborsOfTags would
+     */
+    private static class Model {
+
+        private final List<Node> vertices = new ArrayList<>();
+        private final List<Node> patterns = new ArrayList<>();
+        private final List<Node> tags = new ArrayList<>();
+        private final List<Node> groupRelations = new ArrayList<>();
+        private final List<Node[]> neighbors = new ArrayList<>();
+        private final List<Map<String, Object>> groupRelationRows = new ArrayList<>();
+        private final List<Map<String, Object>> edgeRows = new ArrayList<>();
+        private final List<Map<String, Object>> taggingRows = new ArrayList<>();
+
+        private void addGroupRelation(Node groupRelation, Node source) {
+            groupRelations.add(groupRelation);
+            neighbors.add(new Node[]{groupRelation, source});
+            groupRelationRows.add(map(
+                    "sourceUri", source.uri.toString(),
+                    "props", groupRelation.properties
+            ));
+        }
+
+        private void addEdge(Node edge, Node source, Node destination) {
+            neighbors.add(new Node[]{source, destination});
+            edgeRows.add(map(
+                    "sourceUri", source.uri.toString(),
+                    "destinationUri", destination.uri.toString(),
+                    "props", edge.properties
+            ));
+        }
+
+        private void addTagging(Node graphElement, Node tag) {
+            tag.nbNeighbors[nbNeighborsIndexOf(graphElement.shareLevel)]++;
+            taggingRows.add(map(
+                    "uri", graphElement.uri.toString(),
+                    "metaUri", tag.uri.toString(),
+                    "relationExternalUri", Tag.DEFAULT_IDENTIFIER_RELATION_EXTERNAL_URI.toString()
+            ));
+        }
+
+        private void countNeighbors() {
+            for (Node[] pair : neighbors) {
+                pair[0].nbNeighbors[nbNeighborsIndexOf(pair[1].shareLevel)]++;
+                pair[1].nbNeighbors[nbNeighborsIndexOf(pair[0].shareLevel)]++;
+            }
+            for (List<Node> nodes : Arrays.asList(vertices, patterns, tags, groupRelations)) {
+                for (Node node : nodes) {
+                    node.properties.put("nb_private_neighbors", node.nbNeighbors[0]);
+                    node.properties.put("nb_friend_neighbors", node.nbNeighbors[1]);
+                    node.properties.put("nb_public_neighbors", node.nbNeighbors[2]);
+                }
+            }
+        }
+
+        private List<Map<String, Object>> propertiesOf(List<Node> nodes) {
+            List<Map<String, Object>> rows = new ArrayList<>(nodes.size());
+            for (Node node : nodes) {
+                rows.add(node.properties);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.test;
+
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Query;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * Counts the queries and transactions sent to the database by the current thread
+ * while an operation runs, an autocommit query counts as one query and one transaction.
+ */
+public class RoundTripCounterNeo4j {
+
+    private static final ThreadLocal<RoundTripsNeo4j> current = new ThreadLocal<>();
+
+    public static RoundTripCounterNeo4j create() {
+        return new RoundTripCounterNeo4j();
+    }
+
+    protected RoundTripCounterNeo4j() {
+    }
+
+    public Driver instrument(Driver driver) {
+        return (Driver) Proxy.newProxyInstance(
+                Driver.class.getClassLoader(),
+                new Class[]{Driver.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(method, driver, args);
+                    return method.getName().equals("session") ?
+                            counted(Session.class, result, true) :
+                            result;
+                }
+        );
+    }
+
+    public RoundTripsNeo4j count(Runnable operation) {
+        RoundTripsNeo4j outer = current.get();
+        RoundTripsNeo4j roundTrips = new RoundTripsNeo4j();
+        current.set(roundTrips);
+        try {
+            operation.run();
+        } finally {
+            if (outer == null) {
+                current.remove();
+            } else {
+                current.set(outer);
+                outer.add(roundTrips);
+            }
+        }
+        return roundTrips;
+    }
+
+    private <T> T counted(Class<T> queryRunnerClass, Object queryRunner, Boolean isAutoCommit) {
+        return queryRunnerClass.cast(Proxy.newProxyInstance(
+                queryRunnerClass.getClassLoader(),
+                new Class[]{queryRunnerClass},
+                (proxy, method, args) -> {
+                    RoundTripsNeo4j roundTrips = current.get();
+                    if (roundTrips != null && method.getName().equals("run")) {
+                        roundTrips.queries.add(
+                                args[0] instanceof Query ? ((Query) args[0]).text() : (String) args[0]
+                        );
+                        if (isAutoCommit) {
+                            roundTrips.nbTransactions++;
+                        }
+                    }
+                    Object result = invoke(method, queryRunner, args);
+                    if (method.getName().equals("beginTransaction")) {
+                        if (roundTrips != null) {
+                            roundTrips.nbTransactions++;
+                        }
+                        return counted(Transaction.class, result, false);
+                    }
+                    return result;
+                }
+        ));
+    }
+
+    private static Object invoke(Method method, Object target, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    public static class RoundTripsNeo4j {
+
+        private final List<String> queries = new ArrayList<>();
+        private Integer nbTransactions = 0;
+
+        public Integer getNbQueries() {
+            return queries.size();
+        }
+
+        public Integer getNbTransactions() {
+            return nbTransactions;
+        }
+
+        public List<String> getQueries() {
+            return queries;
+        }
+
+        private void add(RoundTripsNeo4j roundTrips) {
+            queries.addAll(roundTrips.queries);
+            nbTransactions += roundTrips.nbTransactions;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder text = new StringBuilder(String.format(
+                    "%d queries in %d transactions",
+                    getNbQueries(),
+                    nbTransactions
+            ));
+            for (String query : queries) {
+                String oneLine = query.replaceAll("\\s+", " ").trim();
+                text.append("\n  ").append(
+                        oneLine.length() > 120 ? oneLine.substring(0, 120) + "..." : oneLine
+                );
+            }
+            return text.toString();
+        }
+    }
+}
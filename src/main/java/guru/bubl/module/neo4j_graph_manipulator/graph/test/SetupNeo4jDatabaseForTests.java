@@ -19,6 +19,8 @@ public class SetupNeo4jDatabaseForTests {
             "CALL db.index.fulltext.createNodeIndex('username',['User'],['username'])",
             "CREATE INDEX ON :GraphElement(shareLevel)",
             "CREATE INDEX ON :GraphElement(last_center_date)",
+            "CREATE INDEX ON :GraphElement(creation_date)",
+            "CREATE INDEX ON :Notification(owner)",
             "CREATE INDEX ON :Meta(external_uri)",
             "CREATE INDEX ON :GraphElement(isUnderPattern)",
             "CREATE INDEX ON :GraphElement(nb_visits)",
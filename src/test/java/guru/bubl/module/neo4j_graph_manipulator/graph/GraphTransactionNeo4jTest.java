@@ -0,0 +1,236 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/*
+ * The driver is a stub recording what the units of work do with their session and transaction.
+ */
+public class GraphTransactionNeo4jTest {
+
+    private GraphTransactionNeo4j graphTransaction;
+    private final List<String> calls = new ArrayList<>();
+
+    @Before
+    public void createGraphTransaction() {
+        calls.clear();
+        graphTransaction = GraphTransactionNeo4j.usingDriverAndRetryPolicy(
+                stubDriver(),
+                WriteRetryPolicyNeo4j.noRetry()
+        );
+    }
+
+    @Test
+    public void nested_unit_joins_the_outer_one_and_commits_once() {
+        graphTransaction.inTransaction("outer", () -> {
+            run("outer query");
+            graphTransaction.inTransaction("nested", () -> {
+                run("nested query");
+            });
+        });
+        assertThat(
+                calls,
+                is(Arrays.asList(
+                        "beginTransaction",
+                        "run outer query",
+                        "run nested query",
+                        "commit",
+                        "closeTransaction",
+                        "closeSession"
+                ))
+        );
+    }
+
+    @Test
+    public void closing_the_session_or_committing_inside_a_unit_waits_for_the_unit() {
+        graphTransaction.inTransaction("outer", () -> {
+            Session session = graphTransaction.getDriver().session();
+            Transaction transaction = session.beginTransaction();
+            transaction.run("in joined transaction");
+            transaction.commit();
+            transaction.close();
+            session.close();
+            calls.add("end of work");
+        });
+        assertThat(
+                calls,
+                is(Arrays.asList(
+                        "beginTransaction",
+                        "run in joined transaction",
+                        "end of work",
+                        "commit",
+                        "closeTransaction",
+                        "closeSession"
+                ))
+        );
+    }
+
+    @Test
+    public void after_commit_actions_run_once_committed() {
+        graphTransaction.inTransaction("outer", () -> {
+            GraphTransactionNeo4j.repeatAfterCommit(() -> calls.add("after commit"));
+            run("query");
+        });
+        assertThat(
+                calls.indexOf("after commit") > calls.indexOf("commit"),
+                is(true)
+        );
+        assertThat(
+                GraphTransactionNeo4j.isActive(),
+                is(false)
+        );
+    }
+
+    @Test
+    public void failing_unit_is_rolled_back() {
+        IllegalStateException error = new IllegalStateException();
+        try {
+            graphTransaction.inTransaction("outer", () -> {
+                GraphTransactionNeo4j.repeatAfterCommit(() -> calls.add("after commit"));
+                run("query");
+                throw error;
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(
+                    e == error,
+                    is(true)
+            );
+        }
+        assertThat(
+                calls,
+                is(Arrays.asList(
+                        "beginTransaction",
+                        "run query",
+                        "closeTransaction",
+                        "closeSession"
+                ))
+        );
+    }
+
+    @Test
+    public void caught_nested_failure_still_rolls_back_the_outer_unit() {
+        IllegalStateException error = new IllegalStateException();
+        try {
+            graphTransaction.inTransaction("outer", () -> {
+                run("outer query");
+                try {
+                    graphTransaction.inTransaction("nested", () -> {
+                        run("nested query");
+                        throw error;
+                    });
+                } catch (IllegalStateException e) {
+                    run("after nested failure");
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+            assertThat(
+                    e == error,
+                    is(true)
+            );
+        }
+        assertThat(
+                calls.contains("commit"),
+                is(false)
+        );
+        assertThat(
+                calls.get(calls.size() - 2),
+                is("closeTransaction")
+        );
+    }
+
+    @Test
+    public void caught_failure_of_a_write_transaction_inside_a_unit_rolls_it_back() {
+        try {
+            graphTransaction.inTransaction("outer", () -> {
+                try {
+                    graphTransaction.getDriver().session().writeTransaction(tx -> {
+                        throw new IllegalStateException();
+                    });
+                } catch (IllegalStateException e) {
+                }
+            });
+            fail();
+        } catch (IllegalStateException e) {
+        }
+        assertThat(
+                calls.contains("commit"),
+                is(false)
+        );
+    }
+
+    private void run(String query) {
+        try (Session session = graphTransaction.getDriver().session()) {
+            session.run(query);
+        }
+    }
+
+    private Driver stubDriver() {
+        return stub(Driver.class, (method, args) -> method.getName().equals("session") ?
+                stubSession() : null
+        );
+    }
+
+    private Session stubSession() {
+        return stub(Session.class, (method, args) -> {
+            switch (method.getName()) {
+                case "beginTransaction":
+                    calls.add("beginTransaction");
+                    return stubTransaction();
+                case "close":
+                    calls.add("closeSession");
+            }
+            return null;
+        });
+    }
+
+    private Transaction stubTransaction() {
+        return stub(Transaction.class, (method, args) -> {
+            switch (method.getName()) {
+                case "run":
+                    calls.add("run " + args[0]);
+                    break;
+                case "commit":
+                    calls.add("commit");
+                    break;
+                case "rollback":
+                    calls.add("rollback");
+                    break;
+                case "close":
+                    calls.add("closeTransaction");
+                    break;
+                case "isOpen":
+                    return true;
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class[]{type},
+                (proxy, method, args) -> answer.apply(method, args)
+        );
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import guru.bubl.module.model.graph.graph_element.GraphElementOperatorFactory;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.EmbeddedGraphTestNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.RoundTripCounterNeo4j.RoundTripsNeo4j;
+import org.junit.Test;
+
+import java.net.URI;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+public class NodePropertiesScopeNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    @Test
+    public void operators_of_the_same_uri_load_its_properties_once_in_a_unit_of_work() {
+        URI uri = graphComponentTest.vertexB().uri();
+        RoundTripsNeo4j roundTrips = graphComponentTest.countRoundTrips(
+                () -> injector().getInstance(GraphTransactionNeo4j.class).inTransaction(
+                        "readProperties",
+                        () -> readPropertiesWithTwoOperators(uri)
+                )
+        );
+        assertThat(
+                nbPropertiesQueries(roundTrips),
+                is(1L)
+        );
+    }
+
+    @Test
+    public void operators_of_the_same_uri_load_its_properties_each_outside_of_a_scope() {
+        URI uri = graphComponentTest.vertexB().uri();
+        RoundTripsNeo4j roundTrips = graphComponentTest.countRoundTrips(
+                () -> readPropertiesWithTwoOperators(uri)
+        );
+        assertThat(
+                nbPropertiesQueries(roundTrips),
+                is(2L)
+        );
+    }
+
+    private void readPropertiesWithTwoOperators(URI uri) {
+        injector().getInstance(GraphElementOperatorFactory.class).withUri(uri).getShareLevel();
+        injector().getInstance(VertexFactoryNeo4j.class).withUri(uri).getColors();
+    }
+
+    private Long nbPropertiesQueries(RoundTripsNeo4j roundTrips) {
+        return roundTrips.getQueries().stream().filter(
+                query -> query.startsWith("MATCH(n:Resource{uri:$uri}) RETURN properties(n)")
+        ).count();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph;
+
+import org.junit.Test;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SeekCursorTest {
+
+    @Test
+    public void sort_key_survives_the_token_round_trip() {
+        SeekCursor cursor = SeekCursor.fromToken(
+                SeekCursor.withSortKey(
+                        1602345678901L,
+                        0.734,
+                        "https://mind-map.guru/service/users/owner/graph/vertex/a+b?c=d"
+                ).toToken()
+        );
+        assertThat(
+                ((Number) cursor.get(0)).longValue(),
+                is(1602345678901L)
+        );
+        assertThat(
+                ((Number) cursor.get(1)).doubleValue(),
+                is(0.734)
+        );
+        assertThat(
+                cursor.get(2),
+                is("https://mind-map.guru/service/users/owner/graph/vertex/a+b?c=d")
+        );
+    }
+
+    @Test
+    public void small_numbers_and_nulls_survive_the_token_round_trip() {
+        SeekCursor cursor = SeekCursor.fromToken(
+                SeekCursor.withSortKey(
+                        0L,
+                        null,
+                        "uri"
+                ).toToken()
+        );
+        assertThat(
+                ((Number) cursor.get(0)).longValue(),
+                is(0L)
+        );
+        assertThat(
+                SeekCursor.valueOrNull(cursor, 1) == null,
+                is(true)
+        );
+        assertThat(
+                cursor.get(2),
+                is("uri")
+        );
+    }
+
+    @Test
+    public void token_is_url_safe() {
+        String token = SeekCursor.withSortKey(
+                1602345678901L,
+                "https://mind-map.guru/service/users/owner/graph/vertex/é?>>"
+        ).toToken();
+        assertThat(
+                token.matches("[A-Za-z0-9_-]+"),
+                is(true)
+        );
+    }
+
+    @Test
+    public void missing_token_is_the_first_page() {
+        assertThat(
+                SeekCursor.fromToken(null) == null,
+                is(true)
+        );
+        assertThat(
+                SeekCursor.fromToken("") == null,
+                is(true)
+        );
+        assertThat(
+                SeekCursor.valueOrNull(null, 0) == null,
+                is(true)
+        );
+    }
+
+    @Test
+    public void malformed_token_is_refused() {
+        try {
+            SeekCursor.fromToken("not a token");
+            fail();
+        } catch (RuntimeException e) {
+        }
+    }
+}
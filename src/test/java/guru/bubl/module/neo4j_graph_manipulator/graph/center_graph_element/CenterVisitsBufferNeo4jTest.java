@@ -0,0 +1,235 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element;
+
+import com.google.inject.Guice;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphCacheNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.LabelPrefixIndexNeo4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Transaction;
+import org.neo4j.driver.Value;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/*
+ * The driver is a stub, what the buffer writes is what it commits.
+ */
+public class CenterVisitsBufferNeo4jTest {
+
+    private static final URI centerUri = URI.create("https://mind-map.guru/service/users/owner/graph/vertex/center");
+    private static final URI otherCenterUri = URI.create("https://mind-map.guru/service/users/owner/graph/vertex/other-center");
+
+    private CenterVisitsBufferNeo4j centerVisitsBuffer;
+    private List<Map<String, Object>> writtenCenters = new ArrayList<>();
+    private final List<Map<String, Object>> committedCenters = new ArrayList<>();
+    private Runnable whileWriting = () -> {
+    };
+
+    @Before
+    public void createBuffer() {
+        centerVisitsBuffer = CenterVisitsBufferNeo4j.withFlushIntervalAndMaxPendingUris(
+                60000L,
+                1000
+        );
+        Guice.createInjector(binder -> {
+            binder.bind(Driver.class).toInstance(stubDriver());
+            binder.bind(SubGraphCacheNeo4j.class).toInstance(SubGraphCacheNeo4j.disabled());
+            binder.bind(LabelPrefixIndexNeo4j.class).toInstance(LabelPrefixIndexNeo4j.disabled());
+        }).injectMembers(centerVisitsBuffer);
+    }
+
+    @After
+    public void closeBuffer() {
+        whileWriting = () -> {
+        };
+        centerVisitsBuffer.close();
+    }
+
+    @Test
+    public void flush_writes_the_pending_values_of_all_centers_at_once() {
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(otherCenterUri);
+        centerVisitsBuffer.setLastCenterDate(centerUri, new Date(5L));
+        centerVisitsBuffer.flush();
+        assertThat(
+                committedCenters.size(),
+                is(2)
+        );
+        assertThat(
+                committedCenter(centerUri).get("nbVisits"),
+                is(2L)
+        );
+        assertThat(
+                committedCenter(centerUri).get("lastCenterDate"),
+                is(5L)
+        );
+        assertThat(
+                committedCenter(otherCenterUri).get("nbVisits"),
+                is(1L)
+        );
+        assertThat(
+                centerVisitsBuffer.getNbPendingUris(),
+                is(0)
+        );
+    }
+
+    @Test
+    public void visits_being_written_are_counted_until_the_commit_and_not_after() {
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        List<Long> nbVisitsWhileWriting = new ArrayList<>();
+        whileWriting = () -> nbVisitsWhileWriting.add(
+                centerVisitsBuffer.getPendingNumberOfVisits(centerUri)
+        );
+        centerVisitsBuffer.flush();
+        assertThat(
+                nbVisitsWhileWriting.get(0),
+                is(2L)
+        );
+        assertThat(
+                centerVisitsBuffer.getPendingNumberOfVisits(centerUri),
+                is(0L)
+        );
+    }
+
+    @Test
+    public void visits_are_kept_pending_when_the_write_fails() {
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        whileWriting = () -> {
+            throw new RuntimeException("database unavailable");
+        };
+        flushExpectingFailure();
+        assertThat(
+                centerVisitsBuffer.getPendingNumberOfVisits(centerUri),
+                is(2L)
+        );
+        assertThat(
+                committedCenters.isEmpty(),
+                is(true)
+        );
+    }
+
+    @Test
+    public void center_discarded_while_being_written_is_not_committed() {
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(otherCenterUri);
+        whileWriting = () -> {
+            whileWriting = () -> {
+            };
+            centerVisitsBuffer.discard(centerUri);
+        };
+        centerVisitsBuffer.flush();
+        assertThat(
+                committedCenters.size(),
+                is(1)
+        );
+        assertThat(
+                committedCenter(otherCenterUri).get("nbVisits"),
+                is(1L)
+        );
+        assertThat(
+                centerVisitsBuffer.getPendingNumberOfVisits(centerUri),
+                is(0L)
+        );
+    }
+
+    @Test
+    public void center_discarded_while_the_write_fails_is_not_put_back() {
+        centerVisitsBuffer.incrementNumberOfVisits(centerUri);
+        centerVisitsBuffer.incrementNumberOfVisits(otherCenterUri);
+        centerVisitsBuffer.setLastCenterDate(centerUri, new Date(5L));
+        whileWriting = () -> {
+            centerVisitsBuffer.discard(centerUri);
+            throw new RuntimeException("database unavailable");
+        };
+        flushExpectingFailure();
+        assertThat(
+                centerVisitsBuffer.getPendingNumberOfVisits(centerUri),
+                is(0L)
+        );
+        assertThat(
+                centerVisitsBuffer.getPendingLastCenterDate(centerUri) == null,
+                is(true)
+        );
+        assertThat(
+                centerVisitsBuffer.getPendingNumberOfVisits(otherCenterUri),
+                is(1L)
+        );
+    }
+
+    private void flushExpectingFailure() {
+        try {
+            centerVisitsBuffer.flush();
+            fail();
+        } catch (RuntimeException e) {
+            assertThat(
+                    e.getMessage(),
+                    is("database unavailable")
+            );
+        }
+    }
+
+    private Map<String, Object> committedCenter(URI uri) {
+        return committedCenters.stream().filter(
+                center -> center.get("uri").equals(uri.toString())
+        ).findFirst().get();
+    }
+
+    private Driver stubDriver() {
+        return stub(
+                Driver.class,
+                (method, args) -> "session".equals(method.getName()) ?
+                        stub(Session.class, this::answerOfSession) : null
+        );
+    }
+
+    private Object answerOfSession(Method method, Object[] args) {
+        return "beginTransaction".equals(method.getName()) ?
+                stub(Transaction.class, this::answerOfTransaction) : null;
+    }
+
+    private Object answerOfTransaction(Method method, Object[] args) {
+        switch (method.getName()) {
+            case "run":
+                writtenCenters = ((Value) args[1]).get("centers").asList(
+                        value -> value.asMap()
+                );
+                whileWriting.run();
+                return stub(Result.class, (resultMethod, resultArgs) -> null);
+            case "commit":
+                committedCenters.addAll(writtenCenters);
+                return null;
+            default:
+                return null;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class[]{type},
+                (proxy, method, args) -> answer.apply(method, args)
+        );
+    }
+}
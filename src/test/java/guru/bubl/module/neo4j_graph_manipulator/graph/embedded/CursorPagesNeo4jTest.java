@@ -0,0 +1,212 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.center_graph_element.CenterGraphElementPojo;
+import guru.bubl.module.model.notification.Notification;
+import guru.bubl.module.model.search.GraphElementSearchResult;
+import guru.bubl.module.neo4j_graph_manipulator.graph.CursorPage;
+import guru.bubl.module.neo4j_graph_manipulator.graph.center_graph_element.CenterGraphElementsOperatorFactoryNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkModuleNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.notification.NotificationOperatorNeo4j;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Every row comes once over the pages, the last page has no cursor
+ * and a full last page is followed by an empty one.
+ */
+public class CursorPagesNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    @Test
+    public void center_pages_give_every_center_once_even_with_the_same_center_date() {
+        Integer nbCenters = centerEveryBubbleOfUserAt(5L);
+        List<URI> uris = allPages(
+                cursor -> centersOfUser(2, cursor),
+                center -> center.getGraphElement().uri()
+        );
+        assertThat(
+                uris.size(),
+                is(nbCenters)
+        );
+        assertThat(
+                new HashSet<>(uris).size(),
+                is(nbCenters)
+        );
+    }
+
+    @Test
+    public void full_last_center_page_is_followed_by_an_empty_page() {
+        Integer nbCenters = centerEveryBubbleOfUserAt(5L);
+        CursorPage<CenterGraphElementPojo> page = centersOfUser(nbCenters, null);
+        assertThat(
+                page.getItems().size(),
+                is(nbCenters)
+        );
+        assertThat(
+                page.hasMore(),
+                is(true)
+        );
+        CursorPage<CenterGraphElementPojo> emptyPage = centersOfUser(nbCenters, page.getNextCursor());
+        assertThat(
+                emptyPage.getItems().size(),
+                is(0)
+        );
+        assertThat(
+                emptyPage.hasMore(),
+                is(false)
+        );
+    }
+
+    @Test
+    public void partial_center_page_is_the_last_one() {
+        Integer nbCenters = centerEveryBubbleOfUserAt(5L);
+        CursorPage<CenterGraphElementPojo> page = centersOfUser(nbCenters + 1, null);
+        assertThat(
+                page.getItems().size(),
+                is(nbCenters)
+        );
+        assertThat(
+                page.hasMore(),
+                is(false)
+        );
+    }
+
+    @Test
+    public void owner_without_centers_has_one_empty_page() {
+        CursorPage<CenterGraphElementPojo> page = centersOf(User.withUsername("nobody"), 2, null);
+        assertThat(
+                page.getItems().size(),
+                is(0)
+        );
+        assertThat(
+                page.getNextCursor() == null,
+                is(true)
+        );
+    }
+
+    @Test
+    public void search_pages_give_every_hit_once() {
+        graphComponentTest.vertexA().label("cursor a");
+        graphComponentTest.vertexB().label("cursor b");
+        graphComponentTest.vertexC().label("cursor c");
+        List<URI> uris = allPages(
+                cursor -> injector().getInstance(
+                        BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j.class
+                ).withSearchTermSkipAndLimit(
+                        "cursor",
+                        0,
+                        2
+                ).searchOnlyForOwnVerticesForAutoCompletionByLabelAfterCursor(
+                        graphComponentTest.user(),
+                        cursor
+                ),
+                (GraphElementSearchResult result) -> result.getGraphElement().uri()
+        );
+        assertThat(
+                uris.size(),
+                is(3)
+        );
+        assertThat(
+                new HashSet<>(uris).size(),
+                is(3)
+        );
+    }
+
+    @Test
+    public void search_without_hits_has_one_empty_page() {
+        CursorPage<GraphElementSearchResult> page = injector().getInstance(
+                BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j.class
+        ).withSearchTermSkipAndLimit(
+                "nothing",
+                0,
+                2
+        ).searchForAllOwnResourcesAfterCursor(
+                graphComponentTest.user(),
+                null
+        );
+        assertThat(
+                page.getItems().size(),
+                is(0)
+        );
+        assertThat(
+                page.hasMore(),
+                is(false)
+        );
+    }
+
+    @Test
+    public void user_without_notifications_has_one_empty_page() {
+        CursorPage<Notification> page = injector().getInstance(
+                NotificationOperatorNeo4j.class
+        ).listForUserAfterCursor(
+                User.withUsername("nobody"),
+                null
+        );
+        assertThat(
+                page.getItems().size(),
+                is(0)
+        );
+        assertThat(
+                page.hasMore(),
+                is(false)
+        );
+    }
+
+    private CursorPage<CenterGraphElementPojo> centersOfUser(Integer limit, String cursor) {
+        return centersOf(graphComponentTest.user(), limit, cursor);
+    }
+
+    private CursorPage<CenterGraphElementPojo> centersOf(User owner, Integer limit, String cursor) {
+        return injector().getInstance(
+                CenterGraphElementsOperatorFactoryNeo4j.class
+        ).usingLimitAndSkip(
+                limit,
+                0
+        ).getPublicAndPrivateForOwnerAfterCursor(
+                owner,
+                cursor
+        );
+    }
+
+    private Integer centerEveryBubbleOfUserAt(Long lastCenterDate) {
+        try (Session session = injector().getInstance(Driver.class).session()) {
+            return session.run(
+                    "MATCH (n:GraphElement{owner:$owner}) " +
+                            "SET n.last_center_date=CASE WHEN n:Vertex THEN $lastCenterDate ELSE null END " +
+                            "RETURN sum(CASE WHEN n:Vertex THEN 1 ELSE 0 END) as nbCenters",
+                    parameters(
+                            "owner", graphComponentTest.user().username(),
+                            "lastCenterDate", lastCenterDate
+                    )
+            ).single().get("nbCenters").asInt();
+        }
+    }
+
+    private static <T> List<URI> allPages(Function<String, CursorPage<T>> pageAfterCursor, Function<T, URI> uriOf) {
+        List<URI> uris = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<T> page = pageAfterCursor.apply(cursor);
+            for (T item : page.getItems()) {
+                uris.add(uriOf.apply(item));
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return uris;
+    }
+}
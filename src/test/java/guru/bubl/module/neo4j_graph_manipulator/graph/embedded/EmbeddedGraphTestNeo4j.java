@@ -0,0 +1,43 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import guru.bubl.module.neo4j_graph_manipulator.graph.Neo4jModule;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.admin.Neo4jModuleForTests;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkModuleNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.GraphComponentTestNeo4j;
+import org.junit.Before;
+
+/*
+ * The embedded database listens on a fixed port so it is started once for every test class
+ * of the jvm. Each test starts from the graph of the test scenario.
+ */
+public abstract class EmbeddedGraphTestNeo4j {
+
+    private static Injector injector;
+
+    protected GraphComponentTestNeo4j graphComponentTest;
+
+    protected static synchronized Injector injector() {
+        if (injector == null) {
+            Neo4jModuleForTests.clearDb();
+            injector = Guice.createInjector(
+                    Neo4jModule.usingEmbedded(),
+                    Neo4jModuleForTests.usingEmbedded(),
+                    new BenchmarkModuleNeo4j()
+            );
+        }
+        return injector;
+    }
+
+    @Before
+    public void buildTestScenario() {
+        graphComponentTest = injector().getInstance(GraphComponentTestNeo4j.class);
+        graphComponentTest.removeGraphElements();
+        graphComponentTest.before();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded;
+
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphCacheNeo4j;
+import org.junit.Test;
+
+import java.net.URI;
+
+/*
+ * Round trips of the model operations, a query more than the budget is a latency regression.
+ * The budgets were counted from the queries the operations send and have not been
+ * run against the embedded database yet, adjust a budget only after checking the round trips it counts.
+ */
+public class QueryBudgetsNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    @Test
+    public void around_fork_uri_in_share_levels_is_one_query() {
+        URI centerUri = graphComponentTest.vertexB().uri();
+        injector().getInstance(SubGraphCacheNeo4j.class).invalidate(centerUri);
+        graphComponentTest.assertNbQueries(
+                1,
+                () -> graphComponentTest.userGraph().aroundForkUriInShareLevels(
+                        centerUri,
+                        ShareLevel.allShareLevelsInt
+                )
+        );
+    }
+
+    @Test
+    public void add_tag_is_one_query_in_one_transaction() {
+        graphComponentTest.assertAtMostNbTransactions(
+                1,
+                () -> graphComponentTest.assertNbQueries(
+                        1,
+                        () -> graphComponentTest.vertexA().addTag(
+                                new TagPojo(
+                                        URI.create("https://en.wikipedia.org/wiki/Sun"),
+                                        new FriendlyResourcePojo(
+                                                "Sun",
+                                                "the star at the center of the solar system"
+                                        )
+                                ),
+                                ShareLevel.PRIVATE
+                        )
+                )
+        );
+    }
+
+    @Test
+    public void add_vertex_and_relation_is_at_most_five_queries_in_one_transaction() {
+        graphComponentTest.assertAtMostNbTransactions(
+                1,
+                () -> graphComponentTest.assertAtMostNbQueries(
+                        5,
+                        () -> graphComponentTest.vertexA().addVertexAndRelation()
+                )
+        );
+    }
+
+    @Test
+    public void set_share_level_is_at_most_two_queries() {
+        graphComponentTest.assertAtMostNbQueries(
+                2,
+                () -> graphComponentTest.vertexA().setShareLevel(
+                        ShareLevel.FRIENDS
+                )
+        );
+    }
+
+    @Test
+    public void set_share_level_with_previous_share_level_is_one_query() {
+        graphComponentTest.assertNbQueries(
+                1,
+                () -> graphComponentTest.vertexA().setShareLevel(
+                        ShareLevel.FRIENDS,
+                        ShareLevel.PRIVATE
+                )
+        );
+    }
+}
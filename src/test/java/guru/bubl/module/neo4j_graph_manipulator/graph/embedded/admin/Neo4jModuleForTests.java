@@ -6,7 +6,9 @@ import apoc.path.PathExplorer;
 import apoc.refactor.GraphRefactoring;
 import com.google.inject.AbstractModule;
 import guru.bubl.module.model.test.GraphComponentTest;
+import guru.bubl.module.neo4j_graph_manipulator.graph.DatabaseDriverNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.test.GraphComponentTestNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.RoundTripCounterNeo4j;
 import guru.bubl.module.neo4j_graph_manipulator.graph.test.SetupNeo4jDatabaseForTests;
 import org.neo4j.configuration.GraphDatabaseSettings;
 import org.neo4j.configuration.connectors.BoltConnector;
@@ -76,8 +78,12 @@ public class Neo4jModuleForTests extends AbstractModule {
                 AuthTokens.basic("neo4j", NEO4J_PASSWORD_FOR_TESTS)
         );
 
-        bind(Driver.class).toInstance(
-                driver
+        RoundTripCounterNeo4j roundTripCounter = RoundTripCounterNeo4j.create();
+        bind(RoundTripCounterNeo4j.class).toInstance(
+                roundTripCounter
+        );
+        bind(Driver.class).annotatedWith(DatabaseDriverNeo4j.class).toInstance(
+                roundTripCounter.instrument(driver)
         );
         new SetupNeo4jDatabaseForTests().doItWithDriver(driver);
     }
@@ -0,0 +1,79 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.graph_element.GraphElementOperatorFactory;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/*
+ * Adds a tag that is already on nbTagged bubbles to bubbles that do not have it yet,
+ * each iteration gets new bubbles, it cycles through them when an iteration tags more.
+ */
+public class AddTagBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_UNTAGGED_PER_ITERATION = 5000;
+
+    @Param({"1", "1000"})
+    public Integer nbTagged;
+
+    private GraphElementOperatorFactory graphElementOperatorFactory;
+    private TagPojo hotTag;
+    private List<URI> untaggedUris;
+    private Integer nextUntagged;
+
+    @Override
+    protected void createGraph() {
+        graphElementOperatorFactory = injector.getInstance(GraphElementOperatorFactory.class);
+        hotTag = new TagPojo(
+                URI.create("https://en.wikipedia.org/wiki/Sun"),
+                new FriendlyResourcePojo(
+                        "Sun",
+                        "the star at the center of the solar system"
+                )
+        );
+        BenchmarkDataNeo4j.CreatedTree tree = data.createTree(
+                user,
+                nbTagged,
+                4,
+                ShareLevel.PRIVATE
+        );
+        data.refreshNbNeighborsAndIndex();
+        data.tagAll(
+                tree.getVertexUris(),
+                hotTag,
+                ShareLevel.PRIVATE
+        );
+    }
+
+    @Setup(Level.Iteration)
+    public void createUntaggedBubbles() {
+        untaggedUris = data.createTree(
+                user,
+                NB_UNTAGGED_PER_ITERATION,
+                4,
+                ShareLevel.PRIVATE
+        ).getVertexUris();
+        nextUntagged = 0;
+    }
+
+    @Benchmark
+    public Map<URI, TagPojo> addHotTag() {
+        URI uri = untaggedUris.get(nextUntagged++ % untaggedUris.size());
+        return graphElementOperatorFactory.withUri(uri).addTag(
+                hotTag,
+                ShareLevel.PRIVATE
+        );
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.UserUris;
+import guru.bubl.module.model.admin.WholeGraphAdmin;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.graph_element.GraphElementOperatorFactory;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Session;
+
+import javax.inject.Inject;
+import java.net.URI;
+import java.util.*;
+
+import static guru.bubl.module.model.UserUris.urisToString;
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Creates benchmark graphs with batched cypher rather than one operator call per bubble,
+ * counters and search contexts are computed afterwards by refreshNbNeighborsAndIndex.
+ */
+public class BenchmarkDataNeo4j {
+
+    private static final Integer BATCH_SIZE = 1000;
+
+    private static final String[] WORDS = {
+            "sun", "moon", "river", "forest", "mountain", "ocean", "city", "garden"
+    };
+
+    @Inject
+    protected Driver driver;
+
+    @Inject
+    protected WholeGraphAdmin wholeGraphAdmin;
+
+    @Inject
+    protected GraphElementOperatorFactory graphElementOperatorFactory;
+
+    public static String labelOfIndex(Integer index) {
+        return WORDS[index % WORDS.length] + " " + index;
+    }
+
+    /*
+     * vertices are added level by level, each one with nbChildrenPerVertex children
+     */
+    public CreatedTree createTree(User user, Integer nbVertices, Integer nbChildrenPerVertex, ShareLevel shareLevel) {
+        UserUris userUris = new UserUris(user);
+        CreatedTree tree = new CreatedTree(userUris.generateVertexUri());
+        try (Session session = driver.session()) {
+            session.run(
+                    "CREATE(n:Resource:GraphElement:Vertex $vertex)",
+                    parameters(
+                            "vertex",
+                            vertexProperties(user, tree.rootUri, 0, shareLevel)
+                    )
+            );
+        }
+        List<URI> level = Collections.singletonList(tree.rootUri);
+        Integer nbCreated = 1;
+        while (nbCreated < nbVertices) {
+            List<Map<String, Object>> rows = new ArrayList<>();
+            List<URI> nextLevel = new ArrayList<>();
+            for (URI parentUri : level) {
+                for (int i = 0; i < nbChildrenPerVertex && nbCreated < nbVertices; i++) {
+                    rows.add(
+                            childRow(user, userUris, parentUri, nbCreated++, shareLevel, tree)
+                    );
+                    nextLevel.add(tree.vertexUris.get(tree.vertexUris.size() - 1));
+                }
+            }
+            createChildren(rows);
+            level = nextLevel;
+        }
+        return tree;
+    }
+
+    /*
+     * for hubs, a bubble with a large number of neighbors
+     */
+    public List<URI> addChildren(User user, URI parentUri, Integer nbChildren, ShareLevel shareLevel) {
+        UserUris userUris = new UserUris(user);
+        CreatedTree children = new CreatedTree(parentUri);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (int i = 0; i < nbChildren; i++) {
+            rows.add(
+                    childRow(user, userUris, parentUri, i, shareLevel, children)
+            );
+        }
+        createChildren(rows);
+        return children.vertexUris.subList(1, children.vertexUris.size());
+    }
+
+    public void tagAll(Collection<URI> uris, TagPojo tag, ShareLevel shareLevel) {
+        for (URI uri : uris) {
+            graphElementOperatorFactory.withUri(uri).addTag(
+                    tag,
+                    shareLevel
+            );
+        }
+    }
+
+    public void markAsCenters(Collection<URI> uris) {
+        try (Session session = driver.session()) {
+            session.run(
+                    "MATCH(n:GraphElement) WHERE n.uri IN $uris " +
+                            "SET n.last_center_date=timestamp(), n.nb_visits=1",
+                    parameters(
+                            "uris",
+                            urisToString(new HashSet<>(uris))
+                    )
+            );
+        }
+    }
+
+    public void refreshNbNeighborsAndIndex() {
+        wholeGraphAdmin.refreshNbNeighbors();
+        wholeGraphAdmin.reindexAll();
+    }
+
+    private Map<String, Object> childRow(User user, UserUris userUris, URI parentUri, Integer index, ShareLevel shareLevel, CreatedTree tree) {
+        URI childUri = userUris.generateVertexUri();
+        URI edgeUri = userUris.generateEdgeUri();
+        tree.vertexUris.add(childUri);
+        tree.edgeUris.add(edgeUri);
+        Map<String, Object> edge = new HashMap<>();
+        edge.put("uri", edgeUri.toString());
+        edge.put("owner", user.username());
+        edge.put("label", "");
+        edge.put("shareLevel", shareLevel.getIndex());
+        edge.put("creation_date", new Date().getTime());
+        edge.put("last_modification_date", new Date().getTime());
+        Map<String, Object> row = new HashMap<>();
+        row.put("parentUri", parentUri.toString());
+        row.put("vertex", vertexProperties(user, childUri, index, shareLevel));
+        row.put("edge", edge);
+        return row;
+    }
+
+    private Map<String, Object> vertexProperties(User user, URI uri, Integer index, ShareLevel shareLevel) {
+        Map<String, Object> vertex = new HashMap<>();
+        vertex.put("uri", uri.toString());
+        vertex.put("owner", user.username());
+        vertex.put("label", labelOfIndex(index));
+        vertex.put("shareLevel", shareLevel.getIndex());
+        vertex.put("nb_private_neighbors", 0);
+        vertex.put("nb_friend_neighbors", 0);
+        vertex.put("nb_public_neighbors", 0);
+        vertex.put("nb_visits", 0);
+        vertex.put("creation_date", new Date().getTime());
+        vertex.put("last_modification_date", new Date().getTime());
+        return vertex;
+    }
+
+    private void createChildren(List<Map<String, Object>> rows) {
+        try (Session session = driver.session()) {
+            for (int i = 0; i < rows.size(); i += BATCH_SIZE) {
+                session.run(
+                        "UNWIND $rows as row " +
+                                "MATCH(p:Vertex{uri:row.parentUri}) " +
+                                "CREATE(c:Resource:GraphElement:Vertex) " +
+                                "SET c=row.vertex " +
+                                "CREATE(e:Resource:GraphElement:Edge) " +
+                                "SET e=row.edge " +
+                                "CREATE(e)-[:SOURCE]->(p) " +
+                                "CREATE(e)-[:DESTINATION]->(c)",
+                        parameters(
+                                "rows",
+                                rows.subList(i, Math.min(i + BATCH_SIZE, rows.size()))
+                        )
+                ).consume();
+            }
+        }
+    }
+
+    public static class CreatedTree {
+
+        private final URI rootUri;
+        private final List<URI> vertexUris = new ArrayList<>();
+        private final List<URI> edgeUris = new ArrayList<>();
+
+        private CreatedTree(URI rootUri) {
+            this.rootUri = rootUri;
+            vertexUris.add(rootUri);
+        }
+
+        public URI getRootUri() {
+            return rootUri;
+        }
+
+        public List<URI> getVertexUris() {
+            return vertexUris;
+        }
+
+        public List<URI> getEdgeUris() {
+            return edgeUris;
+        }
+
+        public Set<URI> getUrisOfGraphElements() {
+            Set<URI> uris = new HashSet<>(vertexUris);
+            uris.addAll(edgeUris);
+            return uris;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.assistedinject.Assisted;
+import com.google.inject.assistedinject.FactoryModuleBuilder;
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.friend.FriendManagerFactory;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.pattern.PatternUserNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.tree_copier.TreeCopierNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.GraphSearchNeo4j;
+
+import java.lang.reflect.Proxy;
+import java.net.URI;
+
+/*
+ * Gives benchmarks and embedded tests the Neo4j implementations directly and binds what the
+ * application provides elsewhere, friends are not part of them.
+ */
+public class BenchmarkModuleNeo4j extends AbstractModule {
+
+    public interface GraphSearchFactoryNeo4j {
+        GraphSearchNeo4j withSearchTerm(String searchTerm);
+
+        GraphSearchNeo4j withSearchTermSkipAndLimit(
+                String searchTerm,
+                @Assisted("skip") Integer skip,
+                @Assisted("limit") Integer limit
+        );
+    }
+
+    public interface TreeCopierFactoryNeo4j {
+        TreeCopierNeo4j forCopier(User copier);
+    }
+
+    public interface PatternUserFactoryNeo4j {
+        PatternUserNeo4j forUserAndPatternUri(User user, URI patternUri);
+    }
+
+    @Override
+    protected void configure() {
+        bind(FriendManagerFactory.class).toInstance(
+                (FriendManagerFactory) Proxy.newProxyInstance(
+                        FriendManagerFactory.class.getClassLoader(),
+                        new Class[]{FriendManagerFactory.class},
+                        (proxy, method, args) -> {
+                            throw new UnsupportedOperationException(
+                                    "friends are not benchmarked"
+                            );
+                        }
+                )
+        );
+        FactoryModuleBuilder factoryModuleBuilder = new FactoryModuleBuilder();
+        install(factoryModuleBuilder.build(GraphSearchFactoryNeo4j.class));
+        install(factoryModuleBuilder.build(TreeCopierFactoryNeo4j.class));
+        install(factoryModuleBuilder.build(PatternUserFactoryNeo4j.class));
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import guru.bubl.module.model.User;
+import guru.bubl.module.neo4j_graph_manipulator.graph.Neo4jModule;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.admin.Neo4jModuleForTests;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Each benchmark class runs in its own forked jvm with a fresh embedded database,
+ * the graph is created once per trial by createGraph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+public abstract class BenchmarkNeo4j {
+
+    protected Injector injector;
+    protected BenchmarkDataNeo4j data;
+    protected User user;
+
+    @Setup(Level.Trial)
+    public void startDatabaseAndCreateGraph() {
+        Neo4jModuleForTests.clearDb();
+        injector = Guice.createInjector(
+                neo4jModule(),
+                Neo4jModuleForTests.usingEmbedded(),
+                new BenchmarkModuleNeo4j()
+        );
+        data = injector.getInstance(BenchmarkDataNeo4j.class);
+        user = User.withEmail(
+                "benchmark@example.org"
+        ).setUsername("benchmark");
+        createGraph();
+    }
+
+    protected Neo4jModule neo4jModule() {
+        return Neo4jModule.usingEmbedded();
+    }
+
+    protected abstract void createGraph();
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/*
+ * Runs the benchmarks whose name matches the first argument, all of them by default
+ * including those kept next to package private code, and writes the results
+ * as json to the file of the second argument, to compare branches.
+ * The gc profiler adds allocated bytes per operation to the results.
+ */
+public class BenchmarksNeo4j {
+
+    public static void main(String[] args) throws RunnerException {
+        String include = args.length > 0 ? args[0] : ".*BenchmarkNeo4j\\..*";
+        String resultPath = args.length > 1 ? args[1] : "target/jmh-result.json";
+        Options options = new OptionsBuilder()
+                .include(include)
+                .addProfiler(GCProfiler.class)
+                .resultFormat(ResultFormatType.JSON)
+                .result(resultPath)
+                .build();
+        new Runner(options).run();
+    }
+}
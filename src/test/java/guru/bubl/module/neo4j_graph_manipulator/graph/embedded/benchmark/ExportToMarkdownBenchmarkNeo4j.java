@@ -0,0 +1,57 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.neo4j_graph_manipulator.graph.export.ExportToMarkdownFactory;
+import guru.bubl.module.neo4j_graph_manipulator.graph.export.MdFile;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * One center every centerEvery bubbles of the tree, each center is a markdown file.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ExportToMarkdownBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer CENTER_EVERY = 50;
+
+    @Param({"1000", "10000"})
+    public Integer nbVertices;
+
+    private ExportToMarkdownFactory exportToMarkdownFactory;
+
+    @Override
+    protected void createGraph() {
+        exportToMarkdownFactory = injector.getInstance(ExportToMarkdownFactory.class);
+        List<URI> vertexUris = data.createTree(
+                user,
+                nbVertices,
+                4,
+                ShareLevel.PRIVATE
+        ).getVertexUris();
+        data.refreshNbNeighborsAndIndex();
+        List<URI> centerUris = new ArrayList<>();
+        for (int i = 0; i < vertexUris.size(); i += CENTER_EVERY) {
+            centerUris.add(vertexUris.get(i));
+        }
+        data.markAsCenters(centerUris);
+    }
+
+    @Benchmark
+    public LinkedHashMap<URI, MdFile> exportStrings() {
+        return exportToMarkdownFactory.withUsername(
+                user.username()
+        ).exportStrings();
+    }
+}
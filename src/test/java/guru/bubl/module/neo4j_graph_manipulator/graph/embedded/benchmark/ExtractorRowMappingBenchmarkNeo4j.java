@@ -0,0 +1,110 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.ExtractorQueryColumns;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.VertexFromExtractorQueryRow;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Session;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.net.URI;
+import java.util.List;
+
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Maps rows already fetched from the extractor query so that only the per row mapping
+ * is measured, with the columns resolved once per result or again for every row.
+ * NAME_BASED is the reference, the mapping as it was with every value looked up by its key name.
+ * Run with the gc profiler of BenchmarksNeo4j to get the bytes allocated per operation.
+ */
+public class ExtractorRowMappingBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_VERTICES = 5000;
+
+    @Param({"NAME_BASED", "PER_RESULT", "PER_ROW"})
+    public String columnsResolution;
+
+    @Param({"0", "1000"})
+    public Integer nbTagged;
+
+    private List<Record> rows;
+
+    @Override
+    protected void createGraph() {
+        BenchmarkDataNeo4j.CreatedTree tree = data.createTree(
+                user,
+                NB_VERTICES,
+                4,
+                ShareLevel.PRIVATE
+        );
+        data.refreshNbNeighborsAndIndex();
+        data.tagAll(
+                tree.getVertexUris().subList(0, nbTagged),
+                new TagPojo(
+                        URI.create("https://en.wikipedia.org/wiki/Sun"),
+                        new FriendlyResourcePojo(
+                                "Sun",
+                                "the star at the center of the solar system"
+                        )
+                ),
+                ShareLevel.PRIVATE
+        );
+        try (Session session = injector.getInstance(Driver.class).session()) {
+            rows = session.run(
+                    "MATCH(ge:Vertex{owner:$owner}) " +
+                            "OPTIONAL MATCH (ge)-[:IDENTIFIED_TO]->(id) " +
+                            "RETURN ge.external_uri, ge.indexVertexUri, " +
+                            SubGraphExtractorNeo4j.vertexAndEdgeCommonQueryPart(SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY) +
+                            SubGraphExtractorNeo4j.vertexReturnQueryPart(SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY, ShareLevel.allShareLevels) +
+                            TagQueryBuilder.tagReturnQueryPart(ShareLevel.allShareLevels) +
+                            "labels(ge) as type",
+                    parameters(
+                            "owner", user.username()
+                    )
+            ).list();
+        }
+    }
+
+    @Benchmark
+    public void mapVertices(Blackhole blackhole) {
+        ExtractorQueryColumns columns = ExtractorQueryColumns.usingRecordAndPrefix(
+                rows.get(0),
+                SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY
+        );
+        if (columnsResolution.equals("NAME_BASED")) {
+            for (Record row : rows) {
+                blackhole.consume(
+                        new NameBasedVertexFromExtractorQueryRow(
+                                row,
+                                SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY
+                        ).build()
+                );
+            }
+            return;
+        }
+        Boolean isPerRow = columnsResolution.equals("PER_ROW");
+        for (Record row : rows) {
+            blackhole.consume(
+                    VertexFromExtractorQueryRow.usingRowAndColumns(
+                            row,
+                            isPerRow ? ExtractorQueryColumns.usingRecordAndPrefix(
+                                    row,
+                                    SubGraphExtractorNeo4j.GRAPH_ELEMENT_QUERY_KEY
+                            ) : columns
+                    ).build()
+            );
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.search.GraphElementSearchResult;
+import guru.bubl.module.neo4j_graph_manipulator.graph.Neo4jModule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.List;
+
+/*
+ * Labels repeat a few words so a one word term matches a large part of the graph
+ * and a word with a number matches a few bubbles.
+ * With the label prefix index, terms of one word are answered from memory.
+ */
+public class GraphSearchBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_VERTICES = 20000;
+
+    @Param({"riv", "river", "river 1234"})
+    public String searchTerm;
+
+    @Param({"false", "true"})
+    public Boolean withLabelPrefixIndex;
+
+    private BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j graphSearchFactory;
+
+    @Override
+    protected Neo4jModule neo4jModule() {
+        return withLabelPrefixIndex ?
+                Neo4jModule.usingEmbedded().withLabelPrefixIndex(100, 60000L) :
+                Neo4jModule.usingEmbedded();
+    }
+
+    @Override
+    protected void createGraph() {
+        graphSearchFactory = injector.getInstance(BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j.class);
+        data.createTree(
+                user,
+                NB_VERTICES,
+                8,
+                ShareLevel.PRIVATE
+        );
+        data.refreshNbNeighborsAndIndex();
+    }
+
+    @Benchmark
+    public List<GraphElementSearchResult> searchForAllOwnResources() {
+        return graphSearchFactory.withSearchTerm(searchTerm).searchForAllOwnResources(
+                user
+        );
+    }
+
+    @Benchmark
+    public List<GraphElementSearchResult> searchOnlyForOwnVerticesForAutoCompletionByLabel() {
+        return graphSearchFactory.withSearchTerm(searchTerm).searchOnlyForOwnVerticesForAutoCompletionByLabel(
+                user
+        );
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.common_utils.NoEx;
+import guru.bubl.module.model.Image;
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.fork.NbNeighborsPojo;
+import guru.bubl.module.model.graph.graph_element.GraphElementPojo;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.model.graph.vertex.Vertex;
+import guru.bubl.module.model.graph.vertex.VertexPojo;
+import guru.bubl.module.model.json.ImageJson;
+import guru.bubl.module.neo4j_graph_manipulator.graph.FriendlyResourceNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.UserGraphNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.TagQueryBuilder;
+import guru.bubl.module.neo4j_graph_manipulator.graph.image.ImagesNeo4j;
+import org.neo4j.driver.Record;
+
+import java.net.URI;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Copy of the vertex row mapping as it was before the columns were resolved once per result,
+ * every value is looked up by its concatenated key name.
+ * Kept as the reference of ExtractorRowMappingBenchmarkNeo4j, not used by the application.
+ */
+class NameBasedVertexFromExtractorQueryRow {
+
+    private Record row;
+
+    private String keyPrefix;
+
+    NameBasedVertexFromExtractorQueryRow(
+            Record row,
+            String keyPrefix
+    ) {
+        this.row = row;
+        this.keyPrefix = keyPrefix;
+    }
+
+    public Vertex build() {
+        VertexPojo vertex = new VertexPojo(
+                new GraphElementPojo(
+                        buildFriendlyResource(),
+                        buildTags(),
+                        getCopiedFromUri()
+                ),
+                getNbNeighbors(),
+                ShareLevel.get(row.get(keyPrefix + ".shareLevel").asInt())
+        );
+        vertex.getGraphElement().setColors(
+                getStringOrNull("colors")
+        );
+        vertex.getGraphElement().setFont(
+                getStringOrNull("font")
+        );
+        if (this.isPattern()) {
+            vertex.setAsPattern();
+        }
+        return vertex;
+    }
+
+    private FriendlyResourcePojo buildFriendlyResource() {
+        return NoEx.wrap(() -> new FriendlyResourcePojo(
+                URI.create(
+                        row.get(
+                                keyPrefix + "." + UserGraphNeo4j.URI_PROPERTY_NAME
+                        ).asString()
+                ),
+                getLabel(),
+                getImages(),
+                getComment(),
+                getDate(FriendlyResourceNeo4j.props.creation_date.name()),
+                getDate(FriendlyResourceNeo4j.props.last_modification_date.name())
+        )).get();
+    }
+
+    private Set<Image> getImages() {
+        return ImageJson.fromJson(
+                row.get(
+                        keyPrefix + "." + ImagesNeo4j.props.images
+                ).asString()
+        );
+    }
+
+    private String getLabel() {
+        String labelKey = keyPrefix + "." + FriendlyResourceNeo4j.props.label + "";
+        return row.get(
+                labelKey
+        ).asObject() == null ? "" : row.get(labelKey).asString();
+    }
+
+    private String getComment() {
+        String key = keyPrefix + "." + FriendlyResourceNeo4j.props.comment;
+        return row.get(key).asObject() == null ? "" : row.get(key).asString();
+    }
+
+    private Long getDate(String property) {
+        String key = keyPrefix + "." + property;
+        return row.get(key).asObject() == null ? new Date().getTime() : row.get(key).asLong();
+    }
+
+    private URI getCopiedFromUri() {
+        String copiedFromKey = keyPrefix + "." + "copied_from_uri";
+        return row.get(copiedFromKey).asObject() == null ? null : URI.create(row.get(copiedFromKey).asString());
+    }
+
+    private NbNeighborsPojo getNbNeighbors() {
+        NbNeighborsPojo nbNeighborsPojo = new NbNeighborsPojo();
+        if (row.get(keyPrefix + ".nb_private_neighbors").asObject() != null) {
+            nbNeighborsPojo.setPrivate(row.get(
+                    keyPrefix + ".nb_private_neighbors"
+            ).asInt());
+        }
+        if (row.get(keyPrefix + ".nb_friend_neighbors").asObject() != null) {
+            nbNeighborsPojo.setFriend(row.get(
+                    keyPrefix + ".nb_friend_neighbors"
+            ).asInt());
+        }
+        if (row.get(keyPrefix + ".nb_public_neighbors").asObject() != null) {
+            nbNeighborsPojo.setPublic(row.get(
+                    keyPrefix + ".nb_public_neighbors"
+            ).asInt());
+        }
+        return nbNeighborsPojo;
+    }
+
+    private String getStringOrNull(String property) {
+        String key = keyPrefix + "." + property;
+        if (row.get(key) == null) {
+            return null;
+        }
+        return row.get(
+                key
+        ).asString();
+    }
+
+    private Boolean isPattern() {
+        List<String> types = (List) row.get("type").asList();
+        Boolean isPattern = false;
+        for (String typeStr : types) {
+            if (typeStr.equals("Pattern")) {
+                isPattern = true;
+            }
+        }
+        return isPattern;
+    }
+
+    private Map<URI, TagPojo> buildTags() {
+        Map<URI, TagPojo> tags = new HashMap<>();
+        if (row.get(TagQueryBuilder.TAG_QUERY_KEY).asObject() == null) {
+            return tags;
+        }
+        for (List<Object> properties : (List<List<Object>>) row.get(TagQueryBuilder.TAG_QUERY_KEY).asObject()) {
+            if (properties.get(0) == null) {
+                return tags;
+            }
+            URI externalUri = URI.create(properties.get(0).toString());
+            FriendlyResourcePojo friendlyResource = new FriendlyResourcePojo(
+                    URI.create(properties.get(1).toString())
+            );
+            friendlyResource.setLabel(
+                    properties.get(2).toString()
+            );
+            friendlyResource.setComment(
+                    (String) properties.get(3)
+            );
+            friendlyResource.setImages(
+                    ImageJson.fromJson(
+                            properties.get(4).toString()
+                    )
+            );
+            friendlyResource.setCreationDate(
+                    new Long(properties.get(5).toString())
+            );
+            if (properties.get(6) != null) {
+                friendlyResource.setColors(
+                        properties.get(6).toString()
+                );
+            }
+            TagPojo tag = new TagPojo(
+                    externalUri,
+                    new GraphElementPojo(
+                            friendlyResource
+                    )
+            );
+            if (properties.get(8) != null) {
+                tag.getNbNeighbors().setPrivate(
+                        ((Long) properties.get(8)).intValue()
+                );
+            }
+            if (properties.get(9) != null) {
+                tag.getNbNeighbors().setFriend(
+                        ((Long) properties.get(9)).intValue()
+                );
+            }
+            if (properties.get(10) != null) {
+                tag.getNbNeighbors().setPublic(
+                        ((Long) properties.get(10)).intValue()
+                );
+            }
+            ShareLevel shareLevel = ShareLevel.PRIVATE;
+            if (properties.get(7) != null) {
+                shareLevel = ShareLevel.get(
+                        ((Long) properties.get(7)).intValue()
+                );
+            }
+            tag.setShareLevel(
+                    shareLevel
+            );
+            tags.put(
+                    externalUri,
+                    tag
+            );
+        }
+        return tags;
+    }
+}
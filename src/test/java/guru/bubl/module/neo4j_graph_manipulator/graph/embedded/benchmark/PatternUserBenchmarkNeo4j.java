@@ -0,0 +1,52 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.vertex.VertexFactoryNeo4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import java.net.URI;
+
+/*
+ * Another user uses a pattern of patternSize bubbles, each use clones it.
+ */
+public class PatternUserBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    @Param({"10", "200"})
+    public Integer patternSize;
+
+    private BenchmarkModuleNeo4j.PatternUserFactoryNeo4j patternUserFactory;
+    private User patternUser;
+    private URI patternUri;
+
+    @Override
+    protected void createGraph() {
+        patternUserFactory = injector.getInstance(BenchmarkModuleNeo4j.PatternUserFactoryNeo4j.class);
+        patternUser = User.withEmail(
+                "pattern.user@example.org"
+        ).setUsername("pattern_user");
+        patternUri = data.createTree(
+                user,
+                patternSize,
+                4,
+                ShareLevel.PUBLIC
+        ).getRootUri();
+        data.refreshNbNeighborsAndIndex();
+        injector.getInstance(VertexFactoryNeo4j.class).withUri(
+                patternUri
+        ).makePattern();
+    }
+
+    @Benchmark
+    public URI use() {
+        return patternUserFactory.forUserAndPatternUri(
+                patternUser,
+                patternUri
+        ).use();
+    }
+}
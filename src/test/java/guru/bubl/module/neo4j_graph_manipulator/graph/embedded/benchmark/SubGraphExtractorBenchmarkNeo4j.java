@@ -0,0 +1,67 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.subgraph.SubGraphPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExpansion;
+import guru.bubl.module.neo4j_graph_manipulator.graph.graph.extractor.subgraph.SubGraphExtractorFactoryNeo4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import java.net.URI;
+import java.util.List;
+
+/*
+ * A tree with 4 children per bubble where the first children of the center are hubs,
+ * so that depths over 2 go through the many paths variable length matching expands.
+ */
+public class SubGraphExtractorBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_VERTICES = 5000;
+    private static final Integer NB_CHILDREN_PER_VERTEX = 4;
+    private static final Integer NB_HUBS = 2;
+    private static final Integer NB_NEIGHBORS_OF_HUB = 500;
+
+    @Param({"1", "2", "3", "4", "5"})
+    public Integer depth;
+
+    @Param({"VARIABLE_LENGTH_PATH", "LEVEL_BY_LEVEL"})
+    public SubGraphExpansion expansion;
+
+    private SubGraphExtractorFactoryNeo4j subGraphExtractorFactory;
+    private URI centerUri;
+
+    @Override
+    protected void createGraph() {
+        subGraphExtractorFactory = injector.getInstance(SubGraphExtractorFactoryNeo4j.class);
+        BenchmarkDataNeo4j.CreatedTree tree = data.createTree(
+                user,
+                NB_VERTICES,
+                NB_CHILDREN_PER_VERTEX,
+                ShareLevel.PRIVATE
+        );
+        centerUri = tree.getRootUri();
+        List<URI> vertexUris = tree.getVertexUris();
+        for (int i = 1; i <= NB_HUBS; i++) {
+            data.addChildren(
+                    user,
+                    vertexUris.get(i),
+                    NB_NEIGHBORS_OF_HUB,
+                    ShareLevel.PRIVATE
+            );
+        }
+        data.refreshNbNeighborsAndIndex();
+    }
+
+    @Benchmark
+    public SubGraphPojo extract() {
+        return subGraphExtractorFactory.withCenterVertexInShareLevelsAndDepth(
+                centerUri,
+                depth,
+                ShareLevel.allShareLevelsInt
+        ).load(expansion);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.search.GraphElementSearchResult;
+import guru.bubl.module.neo4j_graph_manipulator.graph.Neo4jModule;
+import guru.bubl.module.neo4j_graph_manipulator.graph.search.GraphSearchModeNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.GraphGeneratorNeo4j;
+import org.neo4j.driver.Driver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+
+import java.util.List;
+
+/*
+ * A few large graphs where most bubbles carry tags. The broad prefix is the first syllable
+ * of the most frequent word so it matches a large part of the graph, the frequent word
+ * matches many bubbles and the rare word a handful.
+ */
+public class TagHeavySearchBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_USERS = 3;
+    private static final Integer NB_VERTICES_PER_USER = 20000;
+
+    @Param({"SINGLE_PHASE", "TWO_PHASE"})
+    public GraphSearchModeNeo4j searchMode;
+
+    @Param({"broadPrefix", "frequentWord", "rareWord"})
+    public String term;
+
+    private BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j graphSearchFactory;
+    private User owner;
+    private String searchTerm;
+
+    @Override
+    protected Neo4jModule neo4jModule() {
+        return Neo4jModule.usingEmbedded().withGraphSearchMode(searchMode);
+    }
+
+    @Override
+    protected void createGraph() {
+        graphSearchFactory = injector.getInstance(BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j.class);
+        String username = GraphGeneratorNeo4j.usingDriverAndSeed(
+                injector.getInstance(Driver.class),
+                42L
+        ).withNbUsers(
+                NB_USERS
+        ).withNbVerticesPerUserBetweenAndExponent(
+                NB_VERTICES_PER_USER,
+                NB_VERTICES_PER_USER,
+                2.0
+        ).withNbTagsAndTaggedRatio(
+                200,
+                0.8
+        ).generate().getUsernames().get(0);
+        owner = User.withEmail(
+                username + "@example.org"
+        ).setUsername(username);
+        data.refreshNbNeighborsAndIndex();
+        switch (term) {
+            case "broadPrefix":
+                searchTerm = GraphGeneratorNeo4j.wordOfRank(0).substring(0, 2);
+                break;
+            case "frequentWord":
+                searchTerm = GraphGeneratorNeo4j.wordOfRank(0);
+                break;
+            default:
+                searchTerm = GraphGeneratorNeo4j.wordOfRank(3000);
+        }
+    }
+
+    @Benchmark
+    public List<GraphElementSearchResult> searchForAllOwnResources() {
+        return graphSearchFactory.withSearchTerm(searchTerm).searchForAllOwnResources(
+                owner
+        );
+    }
+
+    @Benchmark
+    public List<GraphElementSearchResult> searchRelationsForAutoCompletionByLabel() {
+        return graphSearchFactory.withSearchTerm(searchTerm).searchRelationsForAutoCompletionByLabel(
+                owner
+        );
+    }
+}
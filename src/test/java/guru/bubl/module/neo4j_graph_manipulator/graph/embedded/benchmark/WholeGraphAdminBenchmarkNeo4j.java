@@ -0,0 +1,60 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark;
+
+import guru.bubl.module.model.admin.WholeGraphAdmin;
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class WholeGraphAdminBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    private static final Integer NB_TAGGED = 500;
+
+    @Param({"10000", "50000"})
+    public Integer nbVertices;
+
+    private WholeGraphAdmin wholeGraphAdmin;
+
+    @Override
+    protected void createGraph() {
+        wholeGraphAdmin = injector.getInstance(WholeGraphAdmin.class);
+        BenchmarkDataNeo4j.CreatedTree tree = data.createTree(
+                user,
+                nbVertices,
+                4,
+                ShareLevel.PRIVATE
+        );
+        data.tagAll(
+                tree.getVertexUris().subList(0, Math.min(NB_TAGGED, nbVertices)),
+                new TagPojo(
+                        URI.create("https://en.wikipedia.org/wiki/Moon"),
+                        new FriendlyResourcePojo(
+                                "Moon",
+                                ""
+                        )
+                ),
+                ShareLevel.PRIVATE
+        );
+    }
+
+    @Benchmark
+    public void refreshNbNeighbors() {
+        wholeGraphAdmin.refreshNbNeighbors();
+    }
+
+    @Benchmark
+    public void reindexAll() {
+        wholeGraphAdmin.reindexAll();
+    }
+}
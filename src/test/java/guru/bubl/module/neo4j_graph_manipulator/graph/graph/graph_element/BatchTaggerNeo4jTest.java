@@ -0,0 +1,180 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.graph_element;
+
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.model.graph.vertex.VertexOperator;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.EmbeddedGraphTestNeo4j;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+
+import java.net.URI;
+import java.util.*;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.neo4j.driver.Values.parameters;
+
+/*
+ * Tagging the same bubbles of the test scenario one tag at a time with addTag
+ * and all at once with BatchTaggerNeo4j leaves the same tags and counters.
+ * Uris are generated again with each scenario, they are compared by the name of their bubble.
+ */
+public class BatchTaggerNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    @Test
+    public void batch_tagging_gives_the_same_tags_and_counters_as_add_tag() {
+        List<String> addedOneByOne = new ArrayList<>();
+        for (Map.Entry<VertexOperator, List<TagPojo>> tagsOfVertex : tagsOfVertices().entrySet()) {
+            for (TagPojo tag : tagsOfVertex.getValue()) {
+                for (TagPojo addedTag : tagsOfVertex.getKey().addTag(tag, ShareLevel.PRIVATE).values()) {
+                    addedOneByOne.add(
+                            nameOf(tagsOfVertex.getKey().uri()) + " " + describe(addedTag)
+                    );
+                }
+            }
+        }
+        Map<String, String> storedTagsOneByOne = storedTags();
+        Map<String, String> countersOneByOne = counters();
+
+        buildTestScenario();
+        Map<URI, List<TagPojo>> tagsOfUris = new LinkedHashMap<>();
+        for (Map.Entry<VertexOperator, List<TagPojo>> tagsOfVertex : tagsOfVertices().entrySet()) {
+            tagsOfUris.put(
+                    tagsOfVertex.getKey().uri(),
+                    tagsOfVertex.getValue()
+            );
+        }
+        List<String> addedInBatch = new ArrayList<>();
+        Map<URI, Map<URI, TagPojo>> addedTags = injector().getInstance(BatchTaggerNeo4j.class).addTags(
+                tagsOfUris,
+                ShareLevel.PRIVATE
+        );
+        for (URI uri : tagsOfUris.keySet()) {
+            for (TagPojo addedTag : addedTags.get(uri).values()) {
+                addedInBatch.add(
+                        nameOf(uri) + " " + describe(addedTag)
+                );
+            }
+        }
+        Collections.sort(addedOneByOne);
+        Collections.sort(addedInBatch);
+        assertThat(
+                addedInBatch,
+                is(addedOneByOne)
+        );
+        assertThat(
+                storedTags(),
+                is(storedTagsOneByOne)
+        );
+        assertThat(
+                counters(),
+                is(countersOneByOne)
+        );
+    }
+
+    /*
+     * a tag shared by two bubbles, one only on a bubble and a tag to an other bubble of the owner
+     */
+    private Map<VertexOperator, List<TagPojo>> tagsOfVertices() {
+        Map<VertexOperator, List<TagPojo>> tagsOfVertices = new LinkedHashMap<>();
+        tagsOfVertices.put(
+                graphComponentTest.vertexA(),
+                Arrays.asList(
+                        tag(URI.create("https://en.wikipedia.org/wiki/Sun"), "Sun"),
+                        tag(graphComponentTest.vertexC().uri(), "vertex C")
+                )
+        );
+        tagsOfVertices.put(
+                graphComponentTest.vertexB(),
+                Arrays.asList(
+                        tag(URI.create("https://en.wikipedia.org/wiki/Sun"), "Sun"),
+                        tag(URI.create("https://en.wikipedia.org/wiki/Moon"), "Moon")
+                )
+        );
+        return tagsOfVertices;
+    }
+
+    private static TagPojo tag(URI externalUri, String label) {
+        return new TagPojo(
+                externalUri,
+                new FriendlyResourcePojo(
+                        label,
+                        "comment of " + label
+                )
+        );
+    }
+
+    private String describe(TagPojo tag) {
+        return nameOf(tag.getExternalResourceUri()) + " " +
+                tag.label() + " " +
+                tag.comment() + " " +
+                tag.getShareLevel() + " " +
+                tag.getRelationExternalResourceUri();
+    }
+
+    /*
+     * tags of each bubble as read back, with the counters of the tag
+     */
+    private Map<String, String> storedTags() {
+        Map<String, String> storedTags = new TreeMap<>();
+        for (VertexOperator vertex : Arrays.asList(graphComponentTest.vertexA(), graphComponentTest.vertexB(), graphComponentTest.vertexC())) {
+            for (TagPojo tag : vertex.getTags().values()) {
+                storedTags.put(
+                        nameOf(vertex.uri()) + " " + nameOf(tag.getExternalResourceUri()),
+                        tag.getNbNeighbors().getPrivate() + " " +
+                                tag.getNbNeighbors().getFriend() + " " +
+                                tag.getNbNeighbors().getPublic() + " " +
+                                tag.getRelationExternalResourceUri()
+                );
+            }
+        }
+        return storedTags;
+    }
+
+    private Map<String, String> counters() {
+        Map<String, String> counters = new TreeMap<>();
+        try (Session session = injector().getInstance(Driver.class).session()) {
+            Result result = session.run(
+                    "MATCH (f:Meta{owner:$owner}) " +
+                            "RETURN f.external_uri as externalUri, f.label as label, f.shareLevel as shareLevel, " +
+                            "f.nb_private_neighbors as nbPrivate, f.nb_friend_neighbors as nbFriend, f.nb_public_neighbors as nbPublic",
+                    parameters(
+                            "owner", graphComponentTest.user().username()
+                    )
+            );
+            while (result.hasNext()) {
+                Record record = result.next();
+                counters.put(
+                        nameOf(URI.create(record.get("externalUri").asString())),
+                        record.get("label").asString() + " " +
+                                record.get("shareLevel").asInt() + " " +
+                                record.get("nbPrivate").asInt() + " " +
+                                record.get("nbFriend").asInt() + " " +
+                                record.get("nbPublic").asInt()
+                );
+            }
+        }
+        return counters;
+    }
+
+    private String nameOf(URI uri) {
+        if (uri.equals(graphComponentTest.vertexA().uri())) {
+            return "vertex A";
+        }
+        if (uri.equals(graphComponentTest.vertexB().uri())) {
+            return "vertex B";
+        }
+        if (uri.equals(graphComponentTest.vertexC().uri())) {
+            return "vertex C";
+        }
+        return uri.toString();
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.tree_copier;
+
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkDataNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkModuleNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkNeo4j;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * A copy adds treeSize bubbles to the database, so there are few single shot
+ * measurements rather than timed iterations. Kept in the package of TreeCopierNeo4j
+ * to copy from uris without building a Tree, in a unit of work like the public entry points.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TreeCopierBenchmarkNeo4j extends BenchmarkNeo4j {
+
+    @Param({"1000", "10000"})
+    public Integer treeSize;
+
+    private TreeCopierNeo4j treeCopier;
+    private GraphTransactionNeo4j graphTransaction;
+    private BenchmarkDataNeo4j.CreatedTree tree;
+    private TagPojo rootAsTag;
+
+    @Override
+    protected void createGraph() {
+        treeCopier = injector.getInstance(
+                BenchmarkModuleNeo4j.TreeCopierFactoryNeo4j.class
+        ).forCopier(user);
+        graphTransaction = injector.getInstance(GraphTransactionNeo4j.class);
+        tree = data.createTree(
+                user,
+                treeSize,
+                4,
+                ShareLevel.PRIVATE
+        );
+        data.refreshNbNeighborsAndIndex();
+        rootAsTag = new TagPojo(
+                tree.getRootUri(),
+                new FriendlyResourcePojo(
+                        BenchmarkDataNeo4j.labelOfIndex(0),
+                        ""
+                )
+        );
+    }
+
+    @Benchmark
+    public Map<URI, URI> copyTree() {
+        return graphTransaction.inTransaction("copyTree", () -> treeCopier.copyGraphElementsOfUserWithNewParentUriInShareLevel(
+                tree.getRootUri(),
+                tree.getUrisOfGraphElements(),
+                rootAsTag,
+                user,
+                null,
+                ShareLevel.PRIVATE
+        ));
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.graph.tree_copier;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.graph.FriendlyResourcePojo;
+import guru.bubl.module.model.graph.ShareLevel;
+import guru.bubl.module.model.graph.tag.TagPojo;
+import guru.bubl.module.neo4j_graph_manipulator.graph.GraphTransactionNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.EmbeddedGraphTestNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkDataNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkModuleNeo4j;
+import org.junit.Test;
+
+/*
+ * In the package of TreeCopierNeo4j to copy from uris without building a Tree,
+ * in a unit of work like the public entry points.
+ * The budget was counted from the queries of the copy and has not been run
+ * against the embedded database yet.
+ */
+public class TreeCopierNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    @Test
+    public void copy_tree_of_user_is_at_most_two_queries_whatever_the_size_of_the_tree() {
+        User user = graphComponentTest.user();
+        BenchmarkDataNeo4j.CreatedTree tree = injector().getInstance(BenchmarkDataNeo4j.class).createTree(
+                user,
+                50,
+                4,
+                ShareLevel.PRIVATE
+        );
+        TreeCopierNeo4j treeCopier = injector().getInstance(
+                BenchmarkModuleNeo4j.TreeCopierFactoryNeo4j.class
+        ).forCopier(user);
+        graphComponentTest.assertAtMostNbTransactions(
+                1,
+                () -> graphComponentTest.assertAtMostNbQueries(
+                        2,
+                        () -> injector().getInstance(GraphTransactionNeo4j.class).inTransaction(
+                                "copyTree",
+                                () -> treeCopier.copyGraphElementsOfUserWithNewParentUriInShareLevel(
+                                        tree.getRootUri(),
+                                        tree.getUrisOfGraphElements(),
+                                        new TagPojo(
+                                                tree.getRootUri(),
+                                                new FriendlyResourcePojo(
+                                                        BenchmarkDataNeo4j.labelOfIndex(0),
+                                                        ""
+                                                )
+                                        ),
+                                        user,
+                                        null,
+                                        ShareLevel.PRIVATE
+                                )
+                        )
+                )
+        );
+    }
+}
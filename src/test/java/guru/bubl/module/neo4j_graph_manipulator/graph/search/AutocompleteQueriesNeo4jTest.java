@@ -0,0 +1,244 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.TransactionConfig;
+import org.neo4j.driver.async.AsyncSession;
+import org.neo4j.driver.async.AsyncTransaction;
+import org.neo4j.driver.async.ResultCursor;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.function.BiFunction;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+/*
+ * The driver is a stub, a query runs until the test completes its cursor.
+ */
+public class AutocompleteQueriesNeo4jTest {
+
+    private static final String query = "MATCH(n:Resource) WHERE n.owner=$owner RETURN n.label";
+
+    private AutocompleteQueriesNeo4j autocompleteQueries;
+    private final List<RunningQuery> runningQueries = new ArrayList<>();
+
+    @Before
+    public void createAutocompleteQueries() {
+        autocompleteQueries = AutocompleteQueriesNeo4j.withCoalescingWindowAndTimeoutMillis(
+                0L,
+                500L
+        );
+        runningQueries.clear();
+    }
+
+    @Test
+    public void runs_the_query_in_a_transaction_with_the_timeout() {
+        run("owner", "search");
+        assertThat(
+                runningQueries.size(),
+                is(1)
+        );
+        assertThat(
+                runningQueries.get(0).transactionConfig.timeout(),
+                is(Duration.ofMillis(500))
+        );
+    }
+
+    @Test
+    public void same_query_while_it_runs_shares_its_result() {
+        CompletionStage<Integer> first = run("owner", "search");
+        CompletionStage<Integer> second = run("owner", "search");
+        assertThat(
+                runningQueries.size(),
+                is(1)
+        );
+        runningQueries.get(0).complete(3);
+        assertThat(
+                first.toCompletableFuture().join(),
+                is(3)
+        );
+        assertThat(
+                second.toCompletableFuture().join(),
+                is(3)
+        );
+        assertThat(
+                autocompleteQueries.getNbCoalesced(),
+                is(1L)
+        );
+        assertThat(
+                runningQueries.get(0).calls,
+                is(Arrays.asList("commit", "closeSession"))
+        );
+    }
+
+    @Test
+    public void newer_query_of_the_same_owner_cancels_the_one_in_flight() {
+        CompletionStage<Integer> older = run("owner", "sea");
+        CompletionStage<Integer> newer = run("owner", "search");
+        assertThat(
+                runningQueries.size(),
+                is(2)
+        );
+        assertCancelled(older);
+        assertThat(
+                autocompleteQueries.getNbCancelled(),
+                is(1L)
+        );
+        assertThat(
+                runningQueries.get(0).calls,
+                is(Collections.singletonList("rollback"))
+        );
+        runningQueries.get(0).complete(1);
+        assertCancelled(older);
+        assertThat(
+                runningQueries.get(0).calls.contains("commit"),
+                is(false)
+        );
+        assertThat(
+                runningQueries.get(0).calls.contains("closeSession"),
+                is(true)
+        );
+        runningQueries.get(1).complete(2);
+        assertThat(
+                newer.toCompletableFuture().join(),
+                is(2)
+        );
+    }
+
+    @Test
+    public void query_of_an_other_owner_is_not_cancelled() {
+        CompletionStage<Integer> ofOwner = run("owner", "sea");
+        CompletionStage<Integer> ofOtherOwner = run("other-owner", "search");
+        runningQueries.get(0).complete(1);
+        runningQueries.get(1).complete(2);
+        assertThat(
+                ofOwner.toCompletableFuture().join(),
+                is(1)
+        );
+        assertThat(
+                ofOtherOwner.toCompletableFuture().join(),
+                is(2)
+        );
+        assertThat(
+                autocompleteQueries.getNbCancelled(),
+                is(0L)
+        );
+    }
+
+    private CompletionStage<Integer> run(String owner, String searchTerm) {
+        Map<String, Object> parameters = new HashMap<>();
+        parameters.put("owner", owner);
+        parameters.put("searchTerm", searchTerm);
+        return autocompleteQueries.run(
+                stubDriver(),
+                owner,
+                "graphElement",
+                query,
+                parameters,
+                List::size
+        );
+    }
+
+    private void assertCancelled(CompletionStage<Integer> stage) {
+        try {
+            stage.toCompletableFuture().join();
+            fail();
+        } catch (CancellationException | CompletionException e) {
+            Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+            assertThat(
+                    cause instanceof CancellationException,
+                    is(true)
+            );
+        }
+    }
+
+    private Driver stubDriver() {
+        return stub(Driver.class, (method, args) -> method.getName().equals("asyncSession") ?
+                stubSession(new RunningQuery()) :
+                null
+        );
+    }
+
+    private AsyncSession stubSession(RunningQuery runningQuery) {
+        return stub(AsyncSession.class, (method, args) -> {
+            switch (method.getName()) {
+                case "beginTransactionAsync":
+                    runningQuery.transactionConfig = (TransactionConfig) args[0];
+                    return CompletableFuture.completedFuture(
+                            stubTransaction(runningQuery)
+                    );
+                case "closeAsync":
+                    runningQuery.calls.add("closeSession");
+                    return CompletableFuture.completedFuture(null);
+            }
+            return null;
+        });
+    }
+
+    private AsyncTransaction stubTransaction(RunningQuery runningQuery) {
+        return stub(AsyncTransaction.class, (method, args) -> {
+            switch (method.getName()) {
+                case "runAsync":
+                    runningQueries.add(runningQuery);
+                    return runningQuery.cursor;
+                case "commitAsync":
+                    runningQuery.calls.add("commit");
+                    return CompletableFuture.completedFuture(null);
+                case "rollbackAsync":
+                    runningQuery.calls.add("rollback");
+                    return CompletableFuture.completedFuture(null);
+            }
+            return null;
+        });
+    }
+
+    private static ResultCursor stubCursor(Integer nbRecords) {
+        return stub(ResultCursor.class, (method, args) -> {
+            switch (method.getName()) {
+                case "listAsync":
+                    List<Record> records = new ArrayList<>();
+                    for (int i = 0; i < nbRecords; i++) {
+                        records.add(stub(Record.class, (recordMethod, recordArgs) -> null));
+                    }
+                    return CompletableFuture.completedFuture(records);
+                case "consumeAsync":
+                    return CompletableFuture.completedFuture(null);
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class[]{type},
+                (proxy, method, args) -> answer.apply(method, args)
+        );
+    }
+
+    private static class RunningQuery {
+        private final CompletableFuture<ResultCursor> cursor = new CompletableFuture<>();
+        private final List<String> calls = new ArrayList<>();
+        private TransactionConfig transactionConfig;
+
+        private void complete(Integer nbRecords) {
+            cursor.complete(stubCursor(nbRecords));
+        }
+    }
+}
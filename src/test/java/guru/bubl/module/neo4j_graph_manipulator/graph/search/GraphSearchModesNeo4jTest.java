@@ -0,0 +1,141 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+import guru.bubl.module.model.User;
+import guru.bubl.module.model.admin.WholeGraphAdmin;
+import guru.bubl.module.model.search.GraphElementSearchResult;
+import guru.bubl.module.neo4j_graph_manipulator.graph.CursorPage;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.EmbeddedGraphTestNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.embedded.benchmark.BenchmarkModuleNeo4j;
+import guru.bubl.module.neo4j_graph_manipulator.graph.test.GraphGeneratorNeo4j;
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/*
+ * On a generated graph where many hits have the same visits, score and neighbors,
+ * both search modes return the same results in the same order.
+ */
+public class GraphSearchModesNeo4jTest extends EmbeddedGraphTestNeo4j {
+
+    private User owner;
+
+    @Before
+    public void generateGraph() {
+        String username = GraphGeneratorNeo4j.usingDriverAndSeed(
+                injector().getInstance(Driver.class),
+                42L
+        ).withNbUsers(
+                2
+        ).withNbVerticesPerUserBetweenAndExponent(
+                400,
+                400,
+                2.0
+        ).withNbTagsAndTaggedRatio(
+                20,
+                0.6
+        ).generate().getUsernames().get(0);
+        owner = User.withEmail(
+                username + "@example.org"
+        ).setUsername(username);
+        WholeGraphAdmin wholeGraphAdmin = injector().getInstance(WholeGraphAdmin.class);
+        wholeGraphAdmin.refreshNbNeighbors();
+        wholeGraphAdmin.reindexAll();
+    }
+
+    @Test
+    public void both_modes_return_the_same_results_in_the_same_order() {
+        for (String searchTerm : searchTerms()) {
+            assertSameInBothModes(
+                    searchTerm,
+                    graphSearch -> graphSearch.searchForAllOwnResources(owner)
+            );
+            assertSameInBothModes(
+                    searchTerm,
+                    graphSearch -> graphSearch.searchOnlyForOwnVerticesForAutoCompletionByLabel(owner)
+            );
+            assertSameInBothModes(
+                    searchTerm,
+                    graphSearch -> graphSearch.searchOwnTagsForAutoCompletionByLabel(owner)
+            );
+            assertSameInBothModes(
+                    searchTerm,
+                    graphSearch -> graphSearch.searchRelationsForAutoCompletionByLabel(owner)
+            );
+        }
+    }
+
+    @Test
+    public void both_modes_return_the_same_pages_after_a_cursor() {
+        for (String searchTerm : searchTerms()) {
+            assertSameInBothModes(
+                    searchTerm,
+                    graphSearch -> allPages(
+                            cursor -> graphSearch.searchForAllOwnResourcesAfterCursor(owner, cursor)
+                    )
+            );
+        }
+    }
+
+    private List<String> searchTerms() {
+        List<String> searchTerms = new ArrayList<>();
+        searchTerms.add(GraphGeneratorNeo4j.wordOfRank(0).substring(0, 2));
+        searchTerms.add(GraphGeneratorNeo4j.wordOfRank(0));
+        searchTerms.add(GraphGeneratorNeo4j.wordOfRank(1));
+        searchTerms.add(GraphGeneratorNeo4j.wordOfRank(200));
+        return searchTerms;
+    }
+
+    private void assertSameInBothModes(String searchTerm, Function<GraphSearchNeo4j, List<GraphElementSearchResult>> search) {
+        List<String> singlePhase = urisAndLabels(
+                search.apply(graphSearchInMode(searchTerm, GraphSearchModeNeo4j.SINGLE_PHASE))
+        );
+        List<String> twoPhase = urisAndLabels(
+                search.apply(graphSearchInMode(searchTerm, GraphSearchModeNeo4j.TWO_PHASE))
+        );
+        assertThat(
+                searchTerm,
+                twoPhase,
+                is(singlePhase)
+        );
+    }
+
+    private GraphSearchNeo4j graphSearchInMode(String searchTerm, GraphSearchModeNeo4j searchMode) {
+        GraphSearchNeo4j graphSearch = injector().getInstance(
+                BenchmarkModuleNeo4j.GraphSearchFactoryNeo4j.class
+        ).withSearchTerm(searchTerm);
+        graphSearch.searchMode = searchMode;
+        return graphSearch;
+    }
+
+    private static List<GraphElementSearchResult> allPages(Function<String, CursorPage<GraphElementSearchResult>> searchAfterCursor) {
+        List<GraphElementSearchResult> results = new ArrayList<>();
+        CursorPage<GraphElementSearchResult> page = searchAfterCursor.apply(null);
+        results.addAll(page.getItems());
+        while (page.hasMore()) {
+            page = searchAfterCursor.apply(page.getNextCursor());
+            results.addAll(page.getItems());
+        }
+        return results;
+    }
+
+    private static List<String> urisAndLabels(List<GraphElementSearchResult> results) {
+        List<String> urisAndLabels = new ArrayList<>();
+        for (GraphElementSearchResult result : results) {
+            urisAndLabels.add(
+                    result.getGraphElement().uri() + " " + result.getGraphElement().label() + " " + result.getGraphElement().getTags().keySet()
+            );
+        }
+        return urisAndLabels;
+    }
+}
@@ -0,0 +1,264 @@
+/*
+ * Copyright Vincent Blouin under the GPL License version 3
+ */
+
+package guru.bubl.module.neo4j_graph_manipulator.graph.search;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.neo4j.driver.Driver;
+import org.neo4j.driver.Record;
+import org.neo4j.driver.Result;
+import org.neo4j.driver.Session;
+import org.neo4j.driver.Value;
+import org.neo4j.driver.Values;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.util.*;
+import java.util.function.BiFunction;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+
+/*
+ * The driver is a stub answering the label queries of the index from the nodes of the test.
+ */
+public class LabelPrefixIndexNeo4jTest {
+
+    private static final String owner = "owner";
+
+    private LabelPrefixIndexNeo4j labelPrefixIndex;
+    private final Map<URI, Map<String, Object>> nodes = new LinkedHashMap<>();
+    private final Map<URI, List<URI>> neighbors = new HashMap<>();
+    private Integer nbLoads = 0;
+    private Integer nbRefreshes = 0;
+
+    @Before
+    public void createIndex() {
+        labelPrefixIndex = LabelPrefixIndexNeo4j.withMaxOwnersAndMaxAge(
+                10,
+                60000L
+        );
+        nodes.clear();
+        neighbors.clear();
+        nbLoads = 0;
+        nbRefreshes = 0;
+    }
+
+    @Test
+    public void prefix_matches_are_ordered_by_visits_then_neighbors_then_label_length() {
+        addVertex("a", "long label", 1L, 0L);
+        addVertex("b", "label", 1L, 0L);
+        addVertex("c", "labels of many neighbors", 1L, 5L);
+        addVertex("d", "lab visited", 3L, 0L);
+        addVertex("e", "unrelated", 9L, 9L);
+        assertThat(
+                search("lab", 0, 10),
+                is(uris("d", "c", "b", "a"))
+        );
+        assertThat(
+                search("lab", 1, 2),
+                is(uris("c", "b"))
+        );
+    }
+
+    @Test
+    public void pages_beyond_the_kept_top_entries_are_ranked_like_the_first_ones() {
+        List<URI> expected = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            addVertex("v" + i, "word" + i, (long) i, 0L);
+            expected.add(0, uri("v" + i));
+        }
+        assertThat(
+                search("word", 0, 10),
+                is(expected.subList(0, 10))
+        );
+        assertThat(
+                search("word", 60, 30),
+                is(expected.subList(60, 90))
+        );
+        assertThat(
+                search("word1", 0, 5),
+                is(uris("v149", "v148", "v147", "v146", "v145"))
+        );
+    }
+
+    @Test
+    public void invalidated_uri_is_read_again_with_its_new_visits() {
+        addVertex("a", "label a", 5L, 0L);
+        addVertex("b", "label b", 1L, 0L);
+        assertThat(
+                search("label", 0, 10),
+                is(uris("a", "b"))
+        );
+        nodes.get(uri("b")).put("nbVisits", 8L);
+        assertThat(
+                search("label", 0, 10),
+                is(uris("a", "b"))
+        );
+        labelPrefixIndex.invalidate(uri("b"));
+        assertThat(
+                search("label", 0, 10),
+                is(uris("b", "a"))
+        );
+        assertThat(
+                nbLoads,
+                is(1)
+        );
+        assertThat(
+                nbRefreshes,
+                is(1)
+        );
+    }
+
+    @Test
+    public void removed_top_entry_is_replaced_by_the_next_one_under_the_prefix() {
+        List<URI> expected = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            addVertex("v" + i, "word" + i, (long) i, 0L);
+            expected.add(0, uri("v" + i));
+        }
+        search("word", 0, 10);
+        nodes.remove(uri("v99"));
+        labelPrefixIndex.invalidate(uri("v99"));
+        expected.remove(0);
+        assertThat(
+                search("word", 0, 64),
+                is(expected.subList(0, 64))
+        );
+        addVertex("new", "word new", 1000L, 0L);
+        labelPrefixIndex.invalidate(uri("new"));
+        expected.add(0, uri("new"));
+        assertThat(
+                search("word", 0, 64),
+                is(expected.subList(0, 64))
+        );
+    }
+
+    @Test
+    public void share_level_change_reads_the_neighbors_again() {
+        addVertex("center", "center", 0L, 1L);
+        addVertex("a", "neighbor a", 0L, 2L);
+        addVertex("b", "neighbor b", 0L, 1L);
+        neighbors.put(uri("center"), uris("b"));
+        assertThat(
+                search("neighbor", 0, 10),
+                is(uris("a", "b"))
+        );
+        nodes.get(uri("b")).put("nbPublicNeighbors", 3L);
+        labelPrefixIndex.invalidateWithNeighbors(uri("center"));
+        assertThat(
+                search("neighbor", 0, 10),
+                is(uris("b", "a"))
+        );
+    }
+
+    @Test
+    public void tags_are_not_in_vertex_results() {
+        addVertex("a", "label", 0L, 0L);
+        nodes.put(uri("tag"), node("tag", "label tag", 5L, 0L, "Meta"));
+        assertThat(
+                labelPrefixIndex.search(stubDriver(), owner, "vertexLabel", "lab", 0, 10),
+                is(uris("a"))
+        );
+        assertThat(
+                labelPrefixIndex.search(stubDriver(), owner, "tagLabel", "lab", 0, 10),
+                is(uris("tag"))
+        );
+    }
+
+    private List<URI> search(String prefix, Integer skip, Integer limit) {
+        return labelPrefixIndex.search(
+                stubDriver(),
+                owner,
+                "graphElementLabel",
+                prefix,
+                skip,
+                limit
+        );
+    }
+
+    private void addVertex(String id, String label, Long nbVisits, Long nbPublicNeighbors) {
+        nodes.put(
+                uri(id),
+                node(id, label, nbVisits, nbPublicNeighbors, "Vertex")
+        );
+    }
+
+    private static Map<String, Object> node(String id, String label, Long nbVisits, Long nbPublicNeighbors, String type) {
+        Map<String, Object> node = new HashMap<>();
+        node.put("uri", uri(id).toString());
+        node.put("label", label);
+        node.put("nbVisits", nbVisits);
+        node.put("nbPublicNeighbors", nbPublicNeighbors);
+        node.put("nbFriendNeighbors", 0L);
+        node.put("nbPrivateNeighbors", 0L);
+        node.put("type", Arrays.asList("Resource", "GraphElement", type));
+        return node;
+    }
+
+    private static URI uri(String id) {
+        return URI.create("https://mind-map.guru/service/users/" + owner + "/graph/vertex/" + id);
+    }
+
+    private static List<URI> uris(String... ids) {
+        List<URI> uris = new ArrayList<>();
+        for (String id : ids) {
+            uris.add(uri(id));
+        }
+        return uris;
+    }
+
+    private Driver stubDriver() {
+        return stub(Driver.class, (method, args) -> method.getName().equals("session") ?
+                stub(Session.class, (sessionMethod, sessionArgs) -> sessionMethod.getName().equals("run") ?
+                        answer((String) sessionArgs[0], (Value) sessionArgs[1]) : null
+                ) : null
+        );
+    }
+
+    private Result answer(String query, Value parameters) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        if (query.contains("IDENTIFIED_TO")) {
+            for (String uri : parameters.get("uris").asList(Value::asString)) {
+                for (URI neighbor : neighbors.getOrDefault(URI.create(uri), Collections.emptyList())) {
+                    rows.add(Collections.singletonMap("uri", neighbor.toString()));
+                }
+            }
+        } else if (query.startsWith("UNWIND")) {
+            nbRefreshes++;
+            for (String uri : parameters.get("uris").asList(Value::asString)) {
+                if (nodes.containsKey(URI.create(uri))) {
+                    rows.add(nodes.get(URI.create(uri)));
+                }
+            }
+        } else {
+            nbLoads++;
+            rows.addAll(nodes.values());
+        }
+        Iterator<Map<String, Object>> iterator = rows.iterator();
+        return stub(Result.class, (method, args) -> {
+            switch (method.getName()) {
+                case "hasNext":
+                    return iterator.hasNext();
+                case "next":
+                    Map<String, Object> row = iterator.next();
+                    return stub(Record.class, (recordMethod, recordArgs) -> recordMethod.getName().equals("get") ?
+                            Values.value(row.get((String) recordArgs[0])) : null
+                    );
+            }
+            return null;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T stub(Class<T> type, BiFunction<Method, Object[], Object> answer) {
+        return (T) Proxy.newProxyInstance(
+                type.getClassLoader(),
+                new Class[]{type},
+                (proxy, method, args) -> answer.apply(method, args)
+        );
+    }
+}